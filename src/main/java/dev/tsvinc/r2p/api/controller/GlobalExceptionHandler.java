@@ -4,6 +4,7 @@ import dev.tsvinc.r2p.api.dto.request.ErrorDetail;
 import dev.tsvinc.r2p.api.dto.response.ExtendedErrorResponse;
 import dev.tsvinc.r2p.api.dto.response.ErrorResponse;
 import dev.tsvinc.r2p.domain.enums.R2PErrorCode;
+import dev.tsvinc.r2p.exception.R2PAccessDeniedException;
 import dev.tsvinc.r2p.exception.R2PBusinessException;
 import dev.tsvinc.r2p.exception.R2PTransactionNotFoundException;
 import dev.tsvinc.r2p.exception.R2PTransactionProcessingException;
@@ -56,6 +57,17 @@ public class GlobalExceptionHandler {
         return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse));
     }
 
+    @ExceptionHandler(R2PAccessDeniedException.class)
+    public Mono<ResponseEntity<ExtendedErrorResponse>> handleAccessDeniedException(R2PAccessDeniedException ex) {
+        log.warn("Access denied: {}", ex.getMessage());
+        ExtendedErrorResponse errorResponse = createErrorResponse(
+                R2PErrorCode.RC3003,
+                "UNKNOWN",
+                List.of()
+        );
+        return Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorResponse));
+    }
+
     @ExceptionHandler(R2PTransactionValidationException.class)
     public Mono<ResponseEntity<ErrorResponse>> handleValidationException(R2PTransactionValidationException ex) {
         log.error("Validation error: {}", ex.getMessage());
@@ -2,7 +2,7 @@ package dev.tsvinc.r2p.api.controller;
 
 import dev.tsvinc.r2p.client.dto.request.ReferenceDataRequest;
 import dev.tsvinc.r2p.client.dto.response.ReferenceDataResponse;
-import dev.tsvinc.r2p.client.service.R2PWebClientService;
+import dev.tsvinc.r2p.service.ReferenceDataService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -25,7 +25,7 @@ import reactor.core.publisher.Mono;
 @Tag(name = "Request to Pay", description = "Reference Data APIs")
 public class ReferenceDataController {
 
-    private final R2PWebClientService webClientService;
+    private final ReferenceDataService referenceDataService;
 
     @Operation(summary = "Reference Data",
             description = "Retrieve reference data including available participants")
@@ -40,7 +40,7 @@ public class ReferenceDataController {
 
         log.info("Retrieving reference data - types: {}", request.referenceDataTypes());
 
-        return webClientService.getReferenceData(keyId, request)
+        return referenceDataService.getReferenceData(keyId, request)
                 .map(ResponseEntity::ok)
                 .doOnSuccess(response -> {
                     if (response.getBody() != null) {
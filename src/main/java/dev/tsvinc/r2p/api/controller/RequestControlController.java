@@ -2,7 +2,7 @@ package dev.tsvinc.r2p.api.controller;
 
 import dev.tsvinc.r2p.client.dto.request.ViewBlockRequest;
 import dev.tsvinc.r2p.client.dto.response.ViewBlockResponse;
-import dev.tsvinc.r2p.client.service.R2PWebClientService;
+import dev.tsvinc.r2p.service.ReferenceDataService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -28,7 +28,7 @@ import reactor.core.publisher.Mono;
 @Tag(name = "Request Control", description = "Request Control APIs for managing blocks and access controls")
 public class RequestControlController {
 
-    private final R2PWebClientService webClientService;
+    private final ReferenceDataService referenceDataService;
 
     @Operation(summary = "Request Control View Block",
             description = "View active blocks for a debtor")
@@ -43,7 +43,7 @@ public class RequestControlController {
 
         log.info("Viewing blocks for debtor: {}", request.debtorId());
 
-        return webClientService.viewBlocks(keyId, request)
+        return referenceDataService.viewBlocks(keyId, request)
                 .map(ResponseEntity::ok)
                 .doOnSuccess(response -> {
                     if (response.getBody() != null) {
@@ -68,7 +68,7 @@ public class RequestControlController {
 
         log.info("Removing block: {}", blockReferenceId);
 
-        return webClientService.removeBlock(blockReferenceId, keyId)
+        return referenceDataService.removeBlock(blockReferenceId, keyId)
                 .then(Mono.just(ResponseEntity.ok().<Void>build()))
                 .doOnSuccess(v -> log.info("Block removed successfully: {}", blockReferenceId))
                 .doOnError(error -> log.error("Failed to remove block {}: {}",
@@ -19,6 +19,8 @@ import dev.tsvinc.r2p.client.dto.request.RetrieveR2pByPaymentRequestIdsRequest;
 import dev.tsvinc.r2p.client.dto.response.MultipleRetrieveR2pResponse;
 import dev.tsvinc.r2p.client.dto.response.RetrieveR2pResponse;
 import dev.tsvinc.r2p.client.service.R2PWebClientService;
+import dev.tsvinc.r2p.domain.mapper.R2PTransactionMapper;
+import dev.tsvinc.r2p.service.LocalRetrieveService;
 import dev.tsvinc.r2p.service.validation.R2PBusinessValidationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -27,6 +29,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -34,6 +37,7 @@ import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -46,6 +50,8 @@ public class RequestToPayInboundController {
 
     private final R2PWebClientService webClientService;
     private final R2PBusinessValidationService validationService;
+    private final LocalRetrieveService localRetrieveService;
+    private final R2PTransactionMapper transactionMapper;
 
     private void addSecurityHeaders(ResponseEntity.HeadersBuilder<?> headers) {
         headers
@@ -107,37 +113,63 @@ public class RequestToPayInboundController {
                 });
     }
 
-    @Operation(summary = "Retrieve R2P", description = "Retrieve a single Request to Pay by payment request ID")
+    @Operation(summary = "Retrieve R2P", description = "Retrieve a single Request to Pay by payment request ID. " +
+            "With local-first reads enabled, fresh local state is served with a weak ETag and If-None-Match is honoured.")
     @ApiResponse(responseCode = "200", description = "R2P retrieved successfully")
+    @ApiResponse(responseCode = "304", description = "R2P unchanged since the ETag sent in If-None-Match")
     @GetMapping(value = "/{paymentRequestId}", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<RetrieveR2pResponse>> retrieveR2P(
             @Parameter(description = "Payment request ID", required = true)
             @PathVariable String paymentRequestId,
             @RequestHeader("keyID") String keyId,
             @RequestHeader(value = "x-request-affinity", required = false) String requestAffinity,
-            @RequestHeader(value = "x-correlation-id", required = false) String correlationId) {
+            @RequestHeader(value = "x-correlation-id", required = false) String correlationId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) List<String> ifNoneMatch) {
 
         Instant startTime = Instant.now();
         String affinity = requestAffinity != null ? requestAffinity : UUID.randomUUID().toString();
         String corrId = correlationId != null ? correlationId : UUID.randomUUID().toString();
 
-        return webClientService.retrieveR2P(paymentRequestId, keyId, requestAffinity)
-                .map(response -> {
-                    ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.ok();
+        return localRetrieveService.findFresh(paymentRequestId, keyId)
+                .map(transaction -> {
+                    String eTag = LocalRetrieveService.eTag(transaction);
+                    boolean notModified = LocalRetrieveService.matches(ifNoneMatch, eTag);
+                    ResponseEntity.BodyBuilder responseBuilder = notModified
+                            ? ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                            : ResponseEntity.ok();
                     addSecurityHeaders(responseBuilder);
                     addDistributedTracingHeaders(responseBuilder, corrId);
-                    
-                    return responseBuilder
-                            .headers(headers -> {
-                                headers.add("x-request-affinity", affinity);
-                                headers.add("x-processing-time",
-                                        String.valueOf(System.currentTimeMillis() - startTime.toEpochMilli()));
-                            })
-                            .body(response);
+                    responseBuilder.headers(headers -> {
+                        headers.add("x-request-affinity", affinity);
+                        headers.add("x-processing-time",
+                                String.valueOf(System.currentTimeMillis() - startTime.toEpochMilli()));
+                        headers.setETag(eTag);
+                        // Let clients keep the body and revalidate it instead of refetching
+                        headers.setCacheControl("private, no-cache");
+                    });
+                    return notModified
+                            ? responseBuilder.<RetrieveR2pResponse>build()
+                            : responseBuilder.body(transactionMapper.toRetrieveResponse(transaction));
                 })
+                .switchIfEmpty(Mono.defer(() -> webClientService.retrieveR2P(paymentRequestId, keyId, requestAffinity)
+                        .map(response -> {
+                            ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.ok();
+                            addSecurityHeaders(responseBuilder);
+                            addDistributedTracingHeaders(responseBuilder, corrId);
+
+                            return responseBuilder
+                                    .headers(headers -> {
+                                        headers.add("x-request-affinity", affinity);
+                                        headers.add("x-processing-time",
+                                                String.valueOf(System.currentTimeMillis() - startTime.toEpochMilli()));
+                                    })
+                                    .body(response);
+                        })))
                 .doOnError(error -> log.error("Error retrieving R2P: {} (correlation: {})", error.getMessage(), corrId))
                 .doOnSuccess(response -> {
-                    if (response != null && response.getBody() != null) {
+                    if (response != null && response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                        log.debug("R2P not modified: {} (correlation: {})", paymentRequestId, corrId);
+                    } else if (response != null && response.getBody() != null) {
                         log.info("R2P retrieved: {} (correlation: {})", paymentRequestId, corrId);
                     } else {
                         log.warn("R2P retrieved but response or response body was null (correlation: {})", corrId);
@@ -0,0 +1,135 @@
+package dev.tsvinc.r2p.api.controller;
+
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.events.TransactionStatusChange;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionFilter;
+import dev.tsvinc.r2p.domain.repository.RefundBalance;
+import dev.tsvinc.r2p.exception.R2PTransactionNotFoundException;
+import dev.tsvinc.r2p.infrastructure.persistence.TransactionStatusChangeFeed;
+import dev.tsvinc.r2p.service.KeyAgents;
+import dev.tsvinc.r2p.service.R2PTransactionService;
+import dev.tsvinc.r2p.service.dto.R2PTransactionDto;
+import dev.tsvinc.r2p.service.dto.TransactionPage;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/rtx/api/v1/transactions")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Transactions", description = "Keyset-paginated access to locally stored R2P transactions")
+public class TransactionQueryController {
+
+    private final R2PTransactionService transactionService;
+    private final TransactionStatusChangeFeed changeFeed;
+    private final KeyAgents keyAgents;
+
+    @Operation(summary = "List transactions",
+            description = "Returns one page in (createdAt, id) order; pass nextCursor back as cursor for the next page. "
+                    + "Only covers the agents the caller's key ID acts for")
+    @ApiResponse(responseCode = "200", description = "Page retrieved successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid cursor or page size")
+    @ApiResponse(responseCode = "403", description = "Key ID does not act for the requested agent")
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<TransactionPage>> listTransactions(
+            @RequestHeader("keyID") String keyId,
+            @Parameter(description = "Creditor or debtor agent ID; defaults to every agent of the key ID")
+            @RequestParam(required = false) String agentId,
+            @RequestParam(required = false) TransactionStatus status,
+            @Parameter(description = "Inclusive lower bound on createdAt")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Exclusive upper bound on createdAt")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Opaque cursor from a previous page") @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+
+        R2PTransactionFilter filter = new R2PTransactionFilter(keyAgents.scope(keyId, agentId), status, from, to);
+        return transactionService.findPage(filter, cursor, size)
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (page.hasNext()) {
+                        response.header("X-Next-Cursor", page.nextCursor());
+                    }
+                    return response.body(page);
+                })
+                .doOnSuccess(response -> log.debug("Listed transactions for filter: {}", filter));
+    }
+
+    @Operation(summary = "Stream transactions",
+            description = "Streams every matching transaction as newline-delimited JSON, reading one page at a time. "
+                    + "Only covers the agents the caller's key ID acts for")
+    @ApiResponse(responseCode = "200", description = "Stream started")
+    @ApiResponse(responseCode = "403", description = "Key ID does not act for the requested agent")
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<R2PTransactionDto> streamTransactions(
+            @RequestHeader("keyID") String keyId,
+            @RequestParam(required = false) String agentId,
+            @RequestParam(required = false) TransactionStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor) {
+
+        R2PTransactionFilter filter = new R2PTransactionFilter(keyAgents.scope(keyId, agentId), status, from, to);
+        return transactionService.streamTransactions(filter, cursor)
+                .doOnComplete(() -> log.info("Completed transaction stream for filter: {}", filter));
+    }
+
+    @Operation(summary = "Status change feed",
+            description = "Server-sent events for transaction creations and status changes of the agents the "
+                    + "caller's key ID acts for; delivery is at-least-once")
+    @ApiResponse(responseCode = "200", description = "Event stream started")
+    @ApiResponse(responseCode = "403", description = "Key ID does not act for the requested agent")
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<TransactionStatusChange>> statusChanges(
+            @RequestHeader("keyID") String keyId,
+            @Parameter(description = "Creditor or debtor agent ID; defaults to every agent of the key ID")
+            @RequestParam(required = false) String agentId,
+            @RequestParam(required = false) TransactionStatus status,
+            @RequestParam(required = false) String paymentRequestId) {
+        Set<String> agentIds = keyAgents.scope(keyId, agentId);
+        return changeFeed.changes()
+                .filter(change -> agentIds.contains(change.creditorAgentId())
+                        || agentIds.contains(change.debtorAgentId()))
+                .filter(change -> status == null || status == change.status())
+                .filter(change -> paymentRequestId == null || paymentRequestId.equals(change.paymentRequestId()))
+                .map(change -> ServerSentEvent.builder(change)
+                        .id(change.id() + ":" + change.version())
+                        .event("status-change")
+                        .build());
+    }
+
+    @Operation(summary = "Refund balance",
+            description = "Accepted, already refunded and remaining refundable amount of a payment request "
+                    + "of one of the agents the caller's key ID acts for")
+    @ApiResponse(responseCode = "200", description = "Balance retrieved successfully")
+    @ApiResponse(responseCode = "404", description = "Payment request not found")
+    @GetMapping(value = "/{paymentRequestId}/refund-balance", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<RefundBalance> refundBalance(@RequestHeader("keyID") String keyId,
+                                             @PathVariable String paymentRequestId) {
+        // Requests of other agents are reported as missing, so their existence is not disclosed either
+        return transactionService.findByPaymentRequestId(paymentRequestId)
+                .filter(transaction -> keyAgents.actsFor(keyId,
+                        transaction.getCreditorAgentId(), transaction.getDebtorAgentId()))
+                .flatMap(transaction -> transactionService.findRefundBalance(paymentRequestId))
+                .switchIfEmpty(Mono.error(new R2PTransactionNotFoundException("Payment request not found: " + paymentRequestId)));
+    }
+}
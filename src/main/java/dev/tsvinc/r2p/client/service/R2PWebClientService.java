@@ -27,6 +27,7 @@ import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.UUID;
 
 @Service
@@ -35,9 +36,11 @@ public class R2PWebClientService {
 
     @Qualifier("r2pWebClient")
     private final WebClient webClient;
+    private final SingleFlight singleFlight;
 
-    public R2PWebClientService(WebClient webClient) {
+    public R2PWebClientService(WebClient webClient, SingleFlight singleFlight) {
         this.webClient = webClient;
+        this.singleFlight = singleFlight;
     }
 
     /**
@@ -57,9 +60,14 @@ public class R2PWebClientService {
     }
 
     /**
-     * Retrieve a single Request to Pay by payment request ID
+     * Retrieve a single Request to Pay by payment request ID. Concurrent identical retrievals share one call.
      */
     public Mono<RetrieveR2pResponse> retrieveR2P(String paymentRequestId, String keyId, String requestAffinity) {
+        return singleFlight.execute("retrieve", Arrays.asList(keyId, paymentRequestId),
+                () -> fetchR2P(paymentRequestId, keyId));
+    }
+
+    private Mono<RetrieveR2pResponse> fetchR2P(String paymentRequestId, String keyId) {
         return webClient.get()
                 .uri("/rtx/api/v1/requestToPay/{paymentRequestId}", paymentRequestId)
                 .header("keyID", keyId)
@@ -198,9 +206,17 @@ public class R2PWebClientService {
     }
 
     /**
-     * Get reference data (available participants)
+     * Get reference data (available participants). Concurrent identical lookups share one call; each caller
+     * gets its own requestMessageId back.
      */
     public Mono<ReferenceDataResponse> getReferenceData(String keyId, ReferenceDataRequest request) {
+        return singleFlight.execute("reference-data", Arrays.asList(keyId, request.referenceDataTypes()),
+                        () -> fetchReferenceData(keyId, request))
+                .map(response -> new ReferenceDataResponse(response.availableParticipants(),
+                        request.requestMessageId(), response.responseMessageId(), response.creationDateTime()));
+    }
+
+    private Mono<ReferenceDataResponse> fetchReferenceData(String keyId, ReferenceDataRequest request) {
         return webClient.post()
                 .uri("/rtx/api/v1/requestToPay/referenceData")
                 .header("keyID", keyId)
@@ -215,9 +231,18 @@ public class R2PWebClientService {
     }
 
     /**
-     * View active blocks for a debtor
+     * View active blocks for a debtor. Concurrent identical lookups share one call; each caller gets its own
+     * requestMessageId back.
      */
     public Mono<ViewBlockResponse> viewBlocks(String keyId, ViewBlockRequest request) {
+        return singleFlight.execute("view-blocks",
+                        Arrays.asList(keyId, request.debtorIdType(), request.debtorId(), request.debtorAgentId()),
+                        () -> fetchBlocks(keyId, request))
+                .map(response -> new ViewBlockResponse(response.blockedPayees(), request.requestMessageId(),
+                        response.responseMessageId(), response.creationDateTime()));
+    }
+
+    private Mono<ViewBlockResponse> fetchBlocks(String keyId, ViewBlockRequest request) {
         return webClient.post()
                 .uri("/rtx/api/v1/requestControl/view")
                 .header("keyID", keyId)
@@ -251,6 +276,6 @@ public class R2PWebClientService {
      * Helper method to generate request message ID
      */
     public String generateRequestMessageId() {
-        return UUID.randomUUID().toString().replace("-", "").substring(0, 35);
+        return UUID.randomUUID().toString().replace("-", "");
     }
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package dev.tsvinc.r2p.client.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls: while a call for a given operation and key is in flight, further
+ * callers subscribe to it instead of starting their own. The flight is forgotten as soon as it terminates,
+ * so nothing is cached beyond the lifetime of the call and failures reach every waiting caller once.
+ */
+@Component
+@RequiredArgsConstructor
+public class SingleFlight {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Flight, Mono<?>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, OperationMeters> meters = new ConcurrentHashMap<>();
+
+    @Value("${r2p.api.webclient.single-flight.enabled:true}")
+    private boolean enabled;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("r2p.client.single-flight.in-flight", inFlight, Map::size)
+                .description("Distinct calls currently in flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code call} unless an identical call ({@code operation} and {@code key} are equal) is already in
+     * flight, in which case its outcome is shared. {@code key} must implement {@code equals}/{@code hashCode}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> execute(String operation, Object key, Supplier<Mono<T>> call) {
+        if (!enabled) {
+            return Mono.defer(call);
+        }
+        return Mono.defer(() -> {
+            Flight flight = new Flight(operation, key);
+            boolean[] started = {false};
+            Mono<T> shared = (Mono<T>) inFlight.computeIfAbsent(flight, unused -> {
+                started[0] = true;
+                return start(flight, call);
+            });
+            OperationMeters operationMeters = meters(operation);
+            (started[0] ? operationMeters.executed() : operationMeters.shared()).increment();
+            return shared;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Mono<T> start(Flight flight, Supplier<Mono<T>> call) {
+        Mono<T>[] self = new Mono[1];
+        self[0] = Mono.defer(call)
+                .doFinally(signal -> inFlight.remove(flight, self[0]))
+                .share();
+        return self[0];
+    }
+
+    private OperationMeters meters(String operation) {
+        return meters.computeIfAbsent(operation, unused -> {
+            Counter executed = counter(operation, "executed");
+            Counter shared = counter(operation, "shared");
+            Gauge.builder("r2p.client.single-flight.dedup-ratio", () -> {
+                        double total = executed.count() + shared.count();
+                        return total == 0 ? 0 : shared.count() / total;
+                    })
+                    .description("Share of calls served by another caller's in-flight call since startup")
+                    .tag("operation", operation)
+                    .register(meterRegistry);
+            return new OperationMeters(executed, shared);
+        });
+    }
+
+    private Counter counter(String operation, String result) {
+        return Counter.builder("r2p.client.single-flight.calls")
+                .description("Calls by whether they started a request or joined one in flight")
+                .tag("operation", operation)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Flight(String operation, Object key) {}
+
+    private record OperationMeters(Counter executed, Counter shared) {}
+}
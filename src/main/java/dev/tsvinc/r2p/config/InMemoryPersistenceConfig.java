@@ -0,0 +1,40 @@
+package dev.tsvinc.r2p.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tsvinc.r2p.infrastructure.persistence.memory.InMemoryTransactionStore;
+import dev.tsvinc.r2p.infrastructure.persistence.memory.TransactionJournal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+
+/**
+ * Switches transaction persistence to {@link InMemoryTransactionStore}: the write paths, their transactions
+ * and outbox, and the transaction queries all run in memory, so no database is needed for them. With
+ * {@code r2p.persistence.memory.directory} set, state is journaled there and recovered on startup;
+ * without it, state lasts for the process lifetime only.
+ */
+@Configuration
+@Slf4j
+@ConditionalOnProperty(name = "r2p.persistence.engine", havingValue = "memory")
+public class InMemoryPersistenceConfig {
+
+    @Value("${r2p.persistence.memory.directory:}")
+    private String directory;
+
+    @Value("${r2p.persistence.memory.sync-on-append:false}")
+    private boolean syncOnAppend;
+
+    @Bean(destroyMethod = "close")
+    public InMemoryTransactionStore inMemoryTransactionStore(ObjectMapper objectMapper) {
+        if (!StringUtils.hasText(directory)) {
+            log.warn("Using the in-memory persistence engine without a journal directory: state is lost on shutdown");
+            return new InMemoryTransactionStore(null);
+        }
+        return new InMemoryTransactionStore(new TransactionJournal(Path.of(directory), objectMapper, syncOnAppend));
+    }
+}
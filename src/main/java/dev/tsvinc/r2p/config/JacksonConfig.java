@@ -0,0 +1,41 @@
+package dev.tsvinc.r2p.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import io.r2dbc.postgresql.codec.Json;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Writes JSONB columns ({@link Json}) as embedded JSON rather than as an opaque bean, so entities
+     * carried in outbox event payloads round-trip.
+     */
+    @Bean
+    public Module r2dbcJsonModule() {
+        return new SimpleModule("R2dbcJsonModule")
+                .addSerializer(Json.class, new JsonSerializer<>() {
+                    @Override
+                    public void serialize(Json value, JsonGenerator generator, SerializerProvider provider)
+                            throws IOException {
+                        generator.writeRawValue(value.asString());
+                    }
+                })
+                .addDeserializer(Json.class, new JsonDeserializer<>() {
+                    @Override
+                    public Json deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+                        return Json.of(parser.readValueAsTree().toString());
+                    }
+                });
+    }
+}
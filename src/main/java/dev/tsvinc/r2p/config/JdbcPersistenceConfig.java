@@ -0,0 +1,51 @@
+package dev.tsvinc.r2p.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import dev.tsvinc.r2p.infrastructure.persistence.jdbc.JdbcTransactionStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Switches the request-processing write paths to {@link JdbcTransactionStore}. The Hikari pool is owned
+ * by the store rather than exposed as a {@code DataSource} bean, so it does not trigger JDBC
+ * auto-configuration or a second transaction manager bean next to the R2DBC one; the store's own manager
+ * runs the outbound writes and their outbox appends in one JDBC transaction.
+ */
+@Configuration
+@ConditionalOnProperty(name = "r2p.persistence.engine", havingValue = "jdbc")
+public class JdbcPersistenceConfig {
+
+    @Value("${r2p.persistence.jdbc.url:${spring.flyway.url}}")
+    private String url;
+
+    @Value("${spring.r2dbc.username}")
+    private String username;
+
+    @Value("${spring.r2dbc.password}")
+    private String password;
+
+    @Value("${r2p.persistence.jdbc.pool.max-size:20}")
+    private int maxPoolSize;
+
+    @Value("${r2p.persistence.jdbc.pool.connection-timeout:5s}")
+    private Duration connectionTimeout;
+
+    @Bean
+    public JdbcTransactionStore jdbcTransactionStore(MeterRegistry meterRegistry) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("r2p-jdbc");
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(maxPoolSize);
+        config.setConnectionTimeout(connectionTimeout.toMillis());
+        config.setMetricRegistry(meterRegistry);
+        return new JdbcTransactionStore(new HikariDataSource(config));
+    }
+}
@@ -0,0 +1,31 @@
+package dev.tsvinc.r2p.config;
+
+import dev.tsvinc.r2p.infrastructure.persistence.CancellableConnectionFactory;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Fronts the application's {@code connectionFactory}, auto-configured or {@link R2dbcRoutingConfig}'s,
+ * with {@link CancellableConnectionFactory}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "r2p.persistence.query-cancellation.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryCancellationConfig {
+
+    @Bean
+    public static BeanPostProcessor cancellableConnectionFactoryPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("connectionFactory".equals(beanName) && bean instanceof ConnectionFactory connectionFactory
+                        && !(bean instanceof CancellableConnectionFactory)) {
+                    return new CancellableConnectionFactory(connectionFactory);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package dev.tsvinc.r2p.config;
+
+import dev.tsvinc.r2p.infrastructure.persistence.ReadRoutingConnectionFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured pool with a primary pool plus one pool per streaming replica,
+ * fronted by {@link ReadRoutingConnectionFactory}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "r2p.persistence.replicas.enabled", havingValue = "true")
+public class R2dbcRoutingConfig {
+
+    @Value("${spring.r2dbc.url}")
+    private String primaryUrl;
+
+    @Value("${spring.r2dbc.username:}")
+    private String username;
+
+    @Value("${spring.r2dbc.password:}")
+    private String password;
+
+    @Value("${spring.r2dbc.pool.initial-size:5}")
+    private int initialSize;
+
+    @Value("${spring.r2dbc.pool.max-size:20}")
+    private int maxSize;
+
+    @Value("${spring.r2dbc.pool.max-idle-time:30m}")
+    private Duration maxIdleTime;
+
+    @Value("${r2p.persistence.replicas.urls:}")
+    private List<String> replicaUrls;
+
+    @Value("${r2p.persistence.replicas.pool.max-size:20}")
+    private int replicaMaxSize;
+
+    @Bean
+    public ConnectionFactory connectionFactory(MeterRegistry meterRegistry) {
+        ConnectionPool primary = pool(ReadRoutingConnectionFactory.PRIMARY, primaryUrl, maxSize, meterRegistry);
+        List<ConnectionPool> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            replicas.add(pool(ReadRoutingConnectionFactory.replicaKey(i), replicaUrls.get(i), replicaMaxSize, meterRegistry));
+        }
+        return new ReadRoutingConnectionFactory(primary, replicas, meterRegistry);
+    }
+
+    private ConnectionPool pool(String name, String url, int poolMaxSize, MeterRegistry meterRegistry) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (!username.isEmpty()) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (!password.isEmpty()) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options.build()))
+                .name(name)
+                .initialSize(Math.min(initialSize, poolMaxSize))
+                .maxSize(poolMaxSize)
+                .maxIdleTime(maxIdleTime)
+                .build());
+        new ConnectionPoolMetrics(pool, name, Tags.empty()).bindTo(meterRegistry);
+        return pool;
+    }
+}
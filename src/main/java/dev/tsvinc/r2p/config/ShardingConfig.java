@@ -0,0 +1,134 @@
+package dev.tsvinc.r2p.config;
+
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRoutingConnectionFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Wrapped;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.CompositeReactiveHealthContributor;
+import org.springframework.boot.actuate.health.ReactiveHealthContributor;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.boot.actuate.r2dbc.ConnectionFactoryHealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured pool with one pool per {@code r2p.persistence.sharding.urls} entry, fronted
+ * by {@link ShardRoutingConnectionFactory}, so {@code r2p_transactions} and everything kept beside it is
+ * split across the shards by {@link ShardRouting}. Every shard needs the migrations applied. Adding shards
+ * changes where rows hash to: append the new URLs, set {@code previous-shard-count} to the old count on
+ * every replica, run the {@code sharding} rebalance, then clear {@code previous-shard-count}.
+ */
+@Configuration
+@Slf4j
+@ConditionalOnProperty(name = "r2p.persistence.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Value("${r2p.persistence.sharding.urls:}")
+    private List<String> urls;
+
+    @Value("${r2p.persistence.sharding.previous-shard-count:0}")
+    private int previousShardCount;
+
+    @Value("${r2p.persistence.sharding.pool.max-size:20}")
+    private int maxSize;
+
+    @Value("${r2p.persistence.engine:r2dbc}")
+    private String engine;
+
+    @Value("${r2p.persistence.replicas.enabled:false}")
+    private boolean replicasEnabled;
+
+    @Value("${spring.r2dbc.username:}")
+    private String username;
+
+    @Value("${spring.r2dbc.password:}")
+    private String password;
+
+    @Value("${spring.r2dbc.pool.initial-size:5}")
+    private int initialSize;
+
+    @Value("${spring.r2dbc.pool.max-idle-time:30m}")
+    private Duration maxIdleTime;
+
+    @Bean
+    public ConnectionFactory connectionFactory(MeterRegistry meterRegistry) {
+        if (!"r2dbc".equals(engine)) {
+            throw new IllegalStateException("r2p.persistence.sharding requires the r2dbc persistence engine");
+        }
+        if (replicasEnabled) {
+            throw new IllegalStateException("r2p.persistence.sharding cannot be combined with r2p.persistence.replicas");
+        }
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("r2p.persistence.sharding.urls lists no shards");
+        }
+        List<ConnectionPool> shards = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            shards.add(pool(shardName(i), urls.get(i), meterRegistry));
+        }
+        if (previousShardCount > 0 && previousShardCount != urls.size()) {
+            log.warn("Growing from {} to {} shards; run the sharding rebalance, " +
+                    "then clear r2p.persistence.sharding.previous-shard-count", previousShardCount, urls.size());
+        }
+        return new ShardRoutingConnectionFactory(shards);
+    }
+
+    /**
+     * Replaces the auto-configured R2DBC health check, which would open a connection without selecting a
+     * shard, with one check per shard.
+     */
+    @Bean
+    public ReactiveHealthContributor r2dbcHealthContributor(ConnectionFactory connectionFactory) {
+        ConnectionFactory target = connectionFactory;
+        while (!(target instanceof ShardRoutingConnectionFactory) && target instanceof Wrapped<?> wrapped) {
+            target = (ConnectionFactory) wrapped.unwrap();
+        }
+        if (!(target instanceof ShardRoutingConnectionFactory router)) {
+            throw new IllegalStateException("Expected a sharded connection factory, got "
+                    + connectionFactory.getClass().getName());
+        }
+        Map<String, ReactiveHealthIndicator> shards = new LinkedHashMap<>();
+        for (int i = 0; i < router.shards().size(); i++) {
+            shards.put(shardName(i), new ConnectionFactoryHealthIndicator(router.shards().get(i)));
+        }
+        return CompositeReactiveHealthContributor.fromMap(shards);
+    }
+
+    private static String shardName(int index) {
+        return "shard-" + index;
+    }
+
+    private ConnectionPool pool(String name, String url, MeterRegistry meterRegistry) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (!username.isEmpty()) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (!password.isEmpty()) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options.build()))
+                .name(name)
+                .initialSize(Math.min(initialSize, maxSize))
+                .maxSize(maxSize)
+                .maxIdleTime(maxIdleTime)
+                .build());
+        new ConnectionPoolMetrics(pool, name, Tags.empty()).bindTo(meterRegistry);
+        return pool;
+    }
+}
@@ -1,6 +1,7 @@
 package dev.tsvinc.r2p.domain.entity;
 
 import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import io.r2dbc.postgresql.codec.Json;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,7 +18,7 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 @Table("r2p_transactions")
 public class R2PTransaction {
 
@@ -81,14 +82,14 @@ public class R2PTransaction {
     @Column("due_date")
     private LocalDate dueDate;
 
-    @Column("request_reason")
-    private String requestReason;
+    @Column("request_reason_json")
+    private Json requestReason;
 
     @Column("message")
     private String message;
 
     @Column("settlement_details_json")
-    private String settlementDetailsJson;
+    private Json settlementDetailsJson;
 
     @Column("original_payment_request_id")
     private String originalPaymentRequestId;
@@ -96,6 +97,12 @@ public class R2PTransaction {
     @Column("is_refund")
     private Boolean isRefund;
 
+    /**
+     * Sum of refunds raised against this transaction; maintained by {@code R2PTransactionRepository#insertRefund}.
+     */
+    @Column("refunded_amount")
+    private BigDecimal refundedAmount;
+
     @Column("created_at")
     private LocalDateTime createdAt;
 
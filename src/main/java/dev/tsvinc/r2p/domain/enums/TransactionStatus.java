@@ -1,10 +1,63 @@
 package dev.tsvinc.r2p.domain.enums;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum TransactionStatus {
     PDNG,
     RJCT,
     ACCP,
     ACSC,
     CNCL,
-    EXPD
+    EXPD;
+
+    private static final Set<TransactionStatus> TERMINAL = Collections.unmodifiableSet(EnumSet.of(ACSC, RJCT, CNCL, EXPD));
+
+    /**
+     * Allowed transitions, keyed by target status. Every guarded status update in
+     * {@code R2PTransactionRepository} is restricted to the sources listed here.
+     */
+    private static final Map<TransactionStatus, Set<TransactionStatus>> ALLOWED_SOURCES = new EnumMap<>(TransactionStatus.class);
+
+    static {
+        ALLOWED_SOURCES.put(PDNG, Collections.emptySet());
+        ALLOWED_SOURCES.put(ACCP, Collections.unmodifiableSet(EnumSet.of(PDNG)));
+        ALLOWED_SOURCES.put(ACSC, Collections.unmodifiableSet(EnumSet.of(PDNG, ACCP)));
+        ALLOWED_SOURCES.put(RJCT, Collections.unmodifiableSet(EnumSet.of(PDNG, ACCP)));
+        ALLOWED_SOURCES.put(CNCL, Collections.unmodifiableSet(EnumSet.of(PDNG, ACCP)));
+        ALLOWED_SOURCES.put(EXPD, Collections.unmodifiableSet(EnumSet.of(PDNG, ACCP)));
+    }
+
+    public boolean isTerminal() {
+        return TERMINAL.contains(this);
+    }
+
+    /**
+     * Statuses a transaction may be in for a transition to this status to be legal.
+     */
+    public Set<TransactionStatus> allowedSources() {
+        return ALLOWED_SOURCES.get(this);
+    }
+
+    public boolean canTransitionFrom(TransactionStatus source) {
+        return allowedSources().contains(source);
+    }
+
+    /**
+     * Statuses in which a transaction may still be amended or cancelled.
+     */
+    public static Set<TransactionStatus> nonTerminal() {
+        return Collections.unmodifiableSet(EnumSet.complementOf(EnumSet.copyOf(TERMINAL)));
+    }
+
+    /**
+     * Status names as bound to {@code transaction_status = ANY(:statuses)} guards.
+     */
+    public static String[] names(Collection<TransactionStatus> statuses) {
+        return statuses.stream().map(Enum::name).toArray(String[]::new);
+    }
 }
@@ -0,0 +1,19 @@
+package dev.tsvinc.r2p.domain.events;
+
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compact change record published by the {@code r2p_transaction_status} NOTIFY trigger.
+ * {@code previousStatus} is {@code null} for new transactions and for records replayed after a reconnect.
+ */
+public record TransactionStatusChange(
+        Long id,
+        String paymentRequestId,
+        TransactionStatus status,
+        TransactionStatus previousStatus,
+        LocalDateTime updatedAt,
+        Long version,
+        String creditorAgentId,
+        String debtorAgentId) {}
@@ -6,15 +6,23 @@ import dev.tsvinc.r2p.api.dto.request.InitiateR2pRequest;
 import dev.tsvinc.r2p.api.dto.request.PaymentRequestDetail;
 import dev.tsvinc.r2p.api.dto.request.RequestReason;
 import dev.tsvinc.r2p.api.dto.request.SettlementDetails;
+import dev.tsvinc.r2p.client.dto.response.PaymentRequestInitiated;
+import dev.tsvinc.r2p.client.dto.response.RetrieveR2pResponse;
 import dev.tsvinc.r2p.domain.entity.R2PTransaction;
 import dev.tsvinc.r2p.domain.enums.TransactionStatus;
 import dev.tsvinc.r2p.domain.enums.UseCase;
 import dev.tsvinc.r2p.service.dto.R2PTransactionDto;
+import io.r2dbc.postgresql.codec.Json;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Component
@@ -25,7 +33,7 @@ public class R2PTransactionMapper {
 
     public R2PTransaction createTransactionFromInitiate(InitiateR2pRequest request, PaymentRequestDetail paymentRequest) {
         return R2PTransaction.builder()
-                .paymentRequestId(UUID.randomUUID().toString().substring(0, 21))
+                .paymentRequestId(newPaymentRequestId())
                 .endToEndId(paymentRequest.endToEndId())
                 .requestMessageId(request.requestMessageId())
                 .transactionStatus(TransactionStatus.PDNG)
@@ -41,8 +49,7 @@ public class R2PTransactionMapper {
                 .debtorAlias(paymentRequest.debtorAlias())
                 .debtorAliasType(paymentRequest.debtorAliasType() != null ?
                         paymentRequest.debtorAliasType().name() : null)
-                .dueDate(request.dueDate() != null ?
-                        LocalDateTime.parse(request.dueDate() + "T23:59:59").toLocalDate() : null)
+                .dueDate(request.dueDate() != null ? LocalDate.parse(request.dueDate()) : null)
                 .requestReason(serializeToJson(request.requestReason()))
                 .isRefund(false)
                 .createdAt(LocalDateTime.now())
@@ -50,6 +57,10 @@ public class R2PTransactionMapper {
                 .build();
     }
 
+    public String newPaymentRequestId() {
+        return UUID.randomUUID().toString().substring(0, 21);
+    }
+
     public R2PTransactionDto toDto(R2PTransaction transaction) {
         return new R2PTransactionDto(
                 transaction.getPaymentRequestId(),
@@ -62,29 +73,86 @@ public class R2PTransactionMapper {
                 transaction.getAcceptedAmountCurrency(),
                 transaction.getCreditorAgentId(),
                 transaction.getDebtorAgentId(),
-                transaction.getDueDate().atStartOfDay(),
+                transaction.getDueDate() != null ? transaction.getDueDate().atStartOfDay() : null,
                 transaction.getCreatedAt(),
                 transaction.getUpdatedAt()
         );
     }
 
-    public String settlementDetailsToJson(SettlementDetails settlementDetails) {
+    /**
+     * Builds a retrieve response from the local row. Fields that are only known to Visa, such as debtor and
+     * creditor names, request options and settlement options, are left empty.
+     */
+    public RetrieveR2pResponse toRetrieveResponse(R2PTransaction transaction) {
+        SettlementDetails settlementDetails = deserializeJson(transaction.getSettlementDetailsJson(), SettlementDetails.class);
+        return new RetrieveR2pResponse(
+                transaction.getProduct(),
+                transaction.getUseCase(),
+                transaction.getTransactionStatus().name(),
+                transaction.getResponseMessageId(),
+                Instant.now().toString(),
+                transaction.getCreatedAt() != null ? transaction.getCreatedAt().toString() : null,
+                transaction.getDueDate() != null ? transaction.getDueDate().toString() : null,
+                transaction.getMessage(),
+                transaction.getCancellationReason(),
+                deserializeJson(transaction.getRequestReason(), RequestReason.class),
+                new PaymentRequestInitiated(
+                        transaction.getPaymentRequestId(),
+                        transaction.getEndToEndId(),
+                        transaction.getDebtorAgentId(),
+                        null, null, null, null,
+                        toDouble(transaction.getRequestedAmount()),
+                        transaction.getRequestedAmountCurrency(),
+                        transaction.getDebtorAlias(),
+                        transaction.getDebtorAliasType(),
+                        toDouble(transaction.getAcceptedAmount()),
+                        transaction.getAcceptedAmountCurrency(),
+                        null, null, null,
+                        transaction.getPaymentRequestType(),
+                        transaction.getOriginalPaymentRequestId()),
+                null,
+                null,
+                settlementDetails != null ? List.of(settlementDetails) : List.of(),
+                null
+        );
+    }
+
+    public Json settlementDetailsToJson(SettlementDetails settlementDetails) {
         return serializeToJson(settlementDetails);
     }
 
-    public String requestReasonToJson(RequestReason requestReason) {
+    public Json requestReasonToJson(RequestReason requestReason) {
         return serializeToJson(requestReason);
     }
 
-    private String serializeToJson(Object object) {
+    private <T> T deserializeJson(Json json, Class<T> type) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json.asArray(), type);
+        } catch (IOException e) {
+            log.error("Failed to deserialize {} from JSON", type.getSimpleName(), e);
+            return null;
+        }
+    }
+
+    private static Double toDouble(BigDecimal amount) {
+        return amount != null ? amount.doubleValue() : null;
+    }
+
+    /**
+     * Serializes straight to UTF-8 bytes; the driver sends them as JSONB without an intermediate String.
+     */
+    private Json serializeToJson(Object object) {
         if (object == null) {
             return null;
         }
         try {
-            return objectMapper.writeValueAsString(object);
+            return Json.of(objectMapper.writeValueAsBytes(object));
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize object to JSON: {}", object, e);
-            return "{}";
+            return Json.of("{}");
         }
     }
 }
\ No newline at end of file
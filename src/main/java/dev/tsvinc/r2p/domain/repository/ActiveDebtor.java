@@ -0,0 +1,10 @@
+package dev.tsvinc.r2p.domain.repository;
+
+/**
+ * Projection row of {@link R2PTransactionRepository#findMostActiveDebtors}.
+ */
+public record ActiveDebtor(
+        String debtorAlias,
+        String debtorAliasType,
+        String debtorAgentId,
+        Long transactionCount) {}
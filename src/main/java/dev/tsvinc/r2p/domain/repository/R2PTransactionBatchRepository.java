@@ -0,0 +1,20 @@
+package dev.tsvinc.r2p.domain.repository;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Bulk write operations for {@link R2PTransaction} that bypass the per-entity
+ * {@code save} round trip.
+ */
+public interface R2PTransactionBatchRepository {
+
+    /**
+     * Inserts all given (new) transactions as batched statements on a single connection and
+     * emits them back, in input order, with their generated IDs populated.
+     * Participates in the surrounding reactive transaction, if any.
+     */
+    Flux<R2PTransaction> insertAll(List<R2PTransaction> transactions);
+}
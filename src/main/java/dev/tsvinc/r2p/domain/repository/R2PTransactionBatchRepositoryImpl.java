@@ -0,0 +1,100 @@
+package dev.tsvinc.r2p.domain.repository;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import io.r2dbc.spi.Statement;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.relational.core.sql.IdentifierProcessing;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@RequiredArgsConstructor
+@Slf4j
+public class R2PTransactionBatchRepositoryImpl implements R2PTransactionBatchRepository {
+
+    /**
+     * Upper bound of bindings per statement so a single huge initiation does not build
+     * an unbounded parameter set on one connection.
+     */
+    static final int MAX_ROWS_PER_BATCH = 500;
+
+    private static final SqlIdentifier ID_COLUMN = SqlIdentifier.unquoted("id");
+
+    private final DatabaseClient databaseClient;
+    private final R2dbcEntityTemplate entityTemplate;
+
+    @Override
+    public Flux<R2PTransaction> insertAll(List<R2PTransaction> transactions) {
+        if (transactions.isEmpty()) {
+            return Flux.empty();
+        }
+        return Flux.fromIterable(transactions)
+                .buffer(MAX_ROWS_PER_BATCH)
+                .concatMap(this::insertChunk);
+    }
+
+    private Flux<R2PTransaction> insertChunk(List<R2PTransaction> chunk) {
+        List<OutboundRow> rows = chunk.stream().map(this::toOutboundRow).toList();
+        List<SqlIdentifier> columns = List.copyOf(rows.getFirst().keySet());
+        String sql = insertSql(columns);
+
+        return databaseClient.inConnectionMany(connection -> {
+                    Statement statement = connection.createStatement(sql).returnGeneratedValues(ID_COLUMN.getReference());
+                    for (int i = 0; i < rows.size(); i++) {
+                        if (i > 0) {
+                            statement.add();
+                        }
+                        bindRow(statement, columns, rows.get(i));
+                    }
+                    return Flux.from(statement.execute())
+                            .concatMap(result -> result.map((row, metadata) -> row.get(ID_COLUMN.getReference(), Long.class)));
+                })
+                .zipWithIterable(chunk, (id, transaction) -> {
+                    transaction.setId(id);
+                    return transaction;
+                })
+                .doOnComplete(() -> log.debug("Batch inserted {} transactions", chunk.size()));
+    }
+
+    private OutboundRow toOutboundRow(R2PTransaction transaction) {
+        if (transaction.getVersion() == null) {
+            transaction.setVersion(0L);
+        }
+        if (transaction.getRefundedAmount() == null) {
+            transaction.setRefundedAmount(BigDecimal.ZERO);
+        }
+        OutboundRow row = new OutboundRow();
+        entityTemplate.getConverter().write(transaction, row);
+        row.remove(ID_COLUMN);
+        return row;
+    }
+
+    private void bindRow(Statement statement, List<SqlIdentifier> columns, OutboundRow row) {
+        for (int i = 0; i < columns.size(); i++) {
+            var parameter = row.get(columns.get(i));
+            if (parameter.hasValue()) {
+                statement.bind(i, parameter.getValue());
+            } else {
+                statement.bindNull(i, parameter.getType());
+            }
+        }
+    }
+
+    private String insertSql(List<SqlIdentifier> columns) {
+        String columnList = columns.stream()
+                .map(column -> column.toSql(IdentifierProcessing.NONE))
+                .collect(Collectors.joining(", "));
+        String markers = IntStream.rangeClosed(1, columns.size())
+                .mapToObj(index -> "$" + index)
+                .collect(Collectors.joining(", "));
+        return "INSERT INTO r2p_transactions (" + columnList + ") VALUES (" + markers + ")";
+    }
+}
@@ -0,0 +1,22 @@
+package dev.tsvinc.r2p.domain.repository;
+
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Optional predicates for keyset scans; {@code null} components are not applied.
+ * {@code agentIds} matches requests where any of them is the creditor or the debtor agent, so an empty set
+ * matches nothing. The creation range is half-open, {@code [createdFrom, createdTo)}.
+ */
+public record R2PTransactionFilter(
+        Set<String> agentIds,
+        TransactionStatus status,
+        LocalDateTime createdFrom,
+        LocalDateTime createdTo) {
+
+    public static R2PTransactionFilter none() {
+        return new R2PTransactionFilter(null, null, null, null);
+    }
+}
@@ -0,0 +1,18 @@
+package dev.tsvinc.r2p.domain.repository;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+
+public interface R2PTransactionKeysetRepository {
+
+    /**
+     * Returns up to {@code limit} transactions ordered by {@code (created_at, id)} that sort strictly
+     * after the given key. A {@code null} key starts from the beginning.
+     */
+    Flux<R2PTransaction> findPageAfter(R2PTransactionFilter filter,
+                                       LocalDateTime afterCreatedAt,
+                                       Long afterId,
+                                       int limit);
+}
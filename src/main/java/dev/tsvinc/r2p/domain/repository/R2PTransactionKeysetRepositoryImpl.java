@@ -0,0 +1,102 @@
+package dev.tsvinc.r2p.domain.repository;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class R2PTransactionKeysetRepositoryImpl implements R2PTransactionKeysetRepository {
+
+    /**
+     * Rows pulled per round trip; large pages are streamed from the portal in chunks of this size
+     * instead of being materialized by the driver in one response.
+     */
+    static final int FETCH_SIZE = 250;
+
+    private static final String ORDER_AND_LIMIT = " ORDER BY created_at, id LIMIT :limit";
+
+    private final DatabaseClient databaseClient;
+    private final R2dbcEntityTemplate entityTemplate;
+
+    @Override
+    public Flux<R2PTransaction> findPageAfter(R2PTransactionFilter filter,
+                                              LocalDateTime afterCreatedAt,
+                                              Long afterId,
+                                              int limit) {
+        if (filter.agentIds() != null && filter.agentIds().isEmpty()) {
+            return Flux.empty();
+        }
+        boolean keyed = afterCreatedAt != null && afterId != null;
+        List<String> agentIds = filter.agentIds() != null ? filter.agentIds().stream().sorted().toList() : List.of();
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(pageSql(filter, agentIds.size(), keyed))
+                .filter(statement -> statement.fetchSize(Math.min(limit, FETCH_SIZE)))
+                .bind("limit", limit);
+        if (!agentIds.isEmpty()) {
+            spec = spec.bind("agentIds", agentIds);
+            for (int i = 0; i < agentIds.size(); i++) {
+                spec = spec.bind("agentId" + i, agentIds.get(i));
+            }
+        }
+        if (filter.status() != null) {
+            spec = spec.bind("status", filter.status().name());
+        }
+        if (filter.createdFrom() != null) {
+            spec = spec.bind("createdFrom", filter.createdFrom());
+        }
+        if (filter.createdTo() != null) {
+            spec = spec.bind("createdTo", filter.createdTo());
+        }
+        if (keyed) {
+            spec = spec.bind("afterCreatedAt", afterCreatedAt).bind("afterId", afterId);
+        }
+        return spec.map((row, metadata) -> entityTemplate.getConverter().read(R2PTransaction.class, row, metadata))
+                .all();
+    }
+
+    /**
+     * An agent can be on either side of a request. {@code creditor OR debtor} cannot be served in
+     * key order by one index, so each side of each agent is seeked separately on its
+     * {@code (agent, created_at, id)} index and the bounded branches are merged. Debtor branches skip
+     * rows whose creditor is one of the agents, which a creditor branch already returns.
+     */
+    private String pageSql(R2PTransactionFilter filter, int agentCount, boolean keyed) {
+        List<String> predicates = new ArrayList<>();
+        if (filter.status() != null) {
+            predicates.add("transaction_status = :status");
+        }
+        if (filter.createdFrom() != null) {
+            predicates.add("created_at >= :createdFrom");
+        }
+        if (filter.createdTo() != null) {
+            predicates.add("created_at < :createdTo");
+        }
+        if (keyed) {
+            predicates.add("(created_at, id) > (:afterCreatedAt, :afterId)");
+        }
+        if (agentCount == 0) {
+            return branch(predicates);
+        }
+        List<String> branches = new ArrayList<>();
+        for (int i = 0; i < agentCount; i++) {
+            List<String> creditorSide = new ArrayList<>(predicates);
+            creditorSide.add("creditor_agent_id = :agentId" + i);
+            branches.add("(" + branch(creditorSide) + ")");
+            List<String> debtorSide = new ArrayList<>(predicates);
+            debtorSide.add("debtor_agent_id = :agentId" + i);
+            debtorSide.add("(creditor_agent_id IS NULL OR creditor_agent_id NOT IN (:agentIds))");
+            branches.add("(" + branch(debtorSide) + ")");
+        }
+        return "SELECT * FROM (" + String.join(" UNION ALL ", branches) + ") page" + ORDER_AND_LIMIT;
+    }
+
+    private static String branch(List<String> predicates) {
+        String where = predicates.isEmpty() ? "" : " WHERE " + String.join(" AND ", predicates);
+        return "SELECT * FROM r2p_transactions" + where + ORDER_AND_LIMIT;
+    }
+}
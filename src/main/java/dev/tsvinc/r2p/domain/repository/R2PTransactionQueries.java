@@ -0,0 +1,86 @@
+package dev.tsvinc.r2p.domain.repository;
+
+/**
+ * SQL shared by {@link R2PTransactionRepository}, the event outbox and the JDBC {@link R2PTransactionStore},
+ * so both persistence engines run the same statements. Parameters use {@code :name} markers.
+ */
+public final class R2PTransactionQueries {
+
+    public static final String FIND_BY_PAYMENT_REQUEST_ID =
+            "SELECT * FROM r2p_transactions WHERE payment_request_id = :paymentRequestId";
+
+    public static final String TRANSITION_STATUS =
+            "UPDATE r2p_transactions SET transaction_status = :status, updated_at = NOW(), version = version + 1 " +
+            "WHERE payment_request_id = :paymentRequestId AND transaction_status = ANY(:fromStatuses) RETURNING *";
+
+    public static final String TRANSITION_FOR_CONFIRMATION =
+            "UPDATE r2p_transactions SET transaction_status = :status, message = COALESCE(:message, message), " +
+            "accepted_amount = COALESCE(:acceptedAmount, accepted_amount), " +
+            "accepted_amount_currency = CASE WHEN :acceptedAmount IS NULL THEN accepted_amount_currency " +
+            "ELSE :acceptedAmountCurrency END, " +
+            "settlement_details_json = COALESCE(:settlementDetails, settlement_details_json), " +
+            "updated_at = NOW(), version = version + 1 " +
+            "WHERE payment_request_id = :paymentRequestId AND end_to_end_id = :endToEndId " +
+            "AND transaction_status = ANY(:fromStatuses) RETURNING *";
+
+    public static final String TRANSITION_FOR_CANCELLATION =
+            "UPDATE r2p_transactions SET transaction_status = 'CNCL', cancellation_reason = :cancellationReason, " +
+            "updated_at = NOW(), version = version + 1 " +
+            "WHERE payment_request_id = :paymentRequestId AND transaction_status = ANY(:fromStatuses) RETURNING *";
+
+    public static final String AMEND_IN_STATUS =
+            "UPDATE r2p_transactions SET due_date = COALESCE(:dueDate, due_date), " +
+            "requested_amount = COALESCE(:requestedAmount, requested_amount), " +
+            "request_reason_json = COALESCE(:requestReason, request_reason_json), " +
+            "updated_at = NOW(), version = version + 1 " +
+            "WHERE payment_request_id = :paymentRequestId AND transaction_status = ANY(:fromStatuses) RETURNING *";
+
+    public static final String INSERT_REFUND =
+            "WITH original AS (UPDATE r2p_transactions SET refunded_amount = refunded_amount + :amount, " +
+            "updated_at = NOW(), version = version + 1 " +
+            "WHERE payment_request_id = :originalId AND transaction_status = 'ACSC' " +
+            "AND refunded_amount + :amount <= COALESCE(accepted_amount, requested_amount) " +
+            "RETURNING payment_request_id, product, requested_amount_currency, creditor_agent_id, debtor_agent_id) " +
+            "INSERT INTO r2p_transactions (payment_request_id, end_to_end_id, request_message_id, transaction_status, " +
+            "use_case, product, requested_amount, requested_amount_currency, original_payment_request_id, " +
+            "payment_request_type, is_refund, creditor_agent_id, debtor_agent_id) " +
+            "SELECT :refundId, :endToEndId, :requestMessageId, 'PDNG', :useCase, o.product, :amount, " +
+            "o.requested_amount_currency, o.payment_request_id, 'REFUND', TRUE, o.debtor_agent_id, o.creditor_agent_id " +
+            "FROM original o RETURNING *";
+
+    /**
+     * Refunds are capped as in {@link #INSERT_REFUND}: by the accepted amount, or by the requested amount
+     * when none was accepted.
+     */
+    public static final String FIND_REFUND_BALANCE =
+            "SELECT payment_request_id, COALESCE(accepted_amount_currency, requested_amount_currency) AS currency, " +
+            "accepted_amount, refunded_amount, " +
+            "COALESCE(accepted_amount, requested_amount) - refunded_amount AS remaining_amount " +
+            "FROM r2p_transactions WHERE payment_request_id = :paymentRequestId";
+
+    public static final String CLAIM_INITIATION_KEYS =
+            "INSERT INTO r2p_initiation_keys (creditor_agent_id, end_to_end_id, payment_request_id) " +
+            "SELECT :creditorAgentId, k.end_to_end_id, k.payment_request_id " +
+            "FROM unnest(CAST(:endToEndIds AS VARCHAR[]), CAST(:paymentRequestIds AS VARCHAR[])) " +
+            "AS k(end_to_end_id, payment_request_id) " +
+            "ON CONFLICT DO NOTHING RETURNING payment_request_id";
+
+    public static final String FIND_BY_INITIATION_KEYS =
+            "SELECT t.* FROM r2p_initiation_keys k " +
+            "JOIN r2p_transactions t ON t.payment_request_id = k.payment_request_id " +
+            "WHERE k.creditor_agent_id = :creditorAgentId AND k.end_to_end_id = ANY(:endToEndIds)";
+
+    public static final String EXPIRE_DUE_BATCH =
+            "WITH due AS (SELECT id, created_at FROM r2p_transactions " +
+            "WHERE transaction_status = 'PDNG' AND due_date < :today AND created_at >= :createdAfter " +
+            "ORDER BY due_date LIMIT :batchSize FOR UPDATE SKIP LOCKED) " +
+            "UPDATE r2p_transactions t SET transaction_status = 'EXPD', updated_at = NOW(), version = t.version + 1 " +
+            "FROM due WHERE t.id = due.id AND t.created_at = due.created_at AND t.transaction_status = 'PDNG' " +
+            "RETURNING t.*";
+
+    public static final String APPEND_OUTBOX_EVENT =
+            "INSERT INTO r2p_event_outbox (aggregate_id, event_type, payload) VALUES (:aggregateId, :eventType, :payload)";
+
+    private R2PTransactionQueries() {
+    }
+}
@@ -0,0 +1,32 @@
+package dev.tsvinc.r2p.domain.repository;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Queries behind the transaction API, the local retrieve path and cache warm-up, with the semantics of the
+ * {@link R2PTransactionRepository} methods of the same name. The {@code r2dbc} and {@code jdbc} engines
+ * answer them from Postgres through the repository; the {@code memory} engine answers them from its own rows.
+ */
+public interface R2PTransactionReader extends R2PTransactionKeysetRepository {
+
+    Mono<R2PTransaction> findById(Long id);
+
+    Mono<R2PTransaction> findByPaymentRequestId(String paymentRequestId);
+
+    Flux<R2PTransaction> findByTransactionStatus(String status);
+
+    Flux<R2PTransaction> findExpiredTransactions(LocalDate today, LocalDateTime createdAfter);
+
+    Flux<SettlementSystemSummary> summarizeBySettlementSystem(LocalDateTime startDate, LocalDateTime endDate);
+
+    Flux<ActiveDebtor> findMostActiveDebtors(LocalDateTime createdAfter, int limit);
+
+    Flux<R2PTransaction> findRefundsByOriginalPaymentRequestId(String originalId);
+
+    Mono<RefundBalance> findRefundBalance(String paymentRequestId);
+}
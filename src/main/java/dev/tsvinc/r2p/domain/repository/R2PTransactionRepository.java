@@ -1,6 +1,7 @@
 package dev.tsvinc.r2p.domain.repository;
 
 import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import io.r2dbc.postgresql.codec.Json;
 import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
@@ -10,10 +11,12 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Repository
-public interface R2PTransactionRepository extends R2dbcRepository<R2PTransaction, Long> {
+public interface R2PTransactionRepository extends R2dbcRepository<R2PTransaction, Long>, R2PTransactionBatchRepository,
+        R2PTransactionKeysetRepository {
 
     Mono<R2PTransaction> findByPaymentRequestId(String paymentRequestId);
 
@@ -34,8 +37,49 @@ public interface R2PTransactionRepository extends R2dbcRepository<R2PTransaction
     @Query("SELECT * FROM r2p_transactions WHERE creditor_agent_id = :agentId OR debtor_agent_id = :agentId")
     Flux<R2PTransaction> findByAgentId(@Param("agentId") String agentId);
 
-    @Query("SELECT * FROM r2p_transactions WHERE transaction_status = 'PDNG' AND due_date < :now")
-    Flux<R2PTransaction> findExpiredTransactions(@Param("now") LocalDateTime now);
+    /**
+     * Claims the {@code (creditorAgentId, endToEndId)} initiation keys that are still free and returns the
+     * payment request IDs they were claimed for. Keys that are already taken are skipped, not rejected.
+     */
+    @Query(R2PTransactionQueries.CLAIM_INITIATION_KEYS)
+    Flux<String> claimInitiationKeys(@Param("creditorAgentId") String creditorAgentId,
+                                     @Param("endToEndIds") String[] endToEndIds,
+                                     @Param("paymentRequestIds") String[] paymentRequestIds);
+
+    @Query(R2PTransactionQueries.FIND_BY_INITIATION_KEYS)
+    Flux<R2PTransaction> findByInitiationKeys(@Param("creditorAgentId") String creditorAgentId,
+                                              @Param("endToEndIds") String[] endToEndIds);
+
+    @Query("SELECT payment_request_id FROM r2p_initiation_keys " +
+            "WHERE creditor_agent_id = :creditorAgentId AND end_to_end_id = ANY(:endToEndIds)")
+    Flux<String> findInitiationPaymentRequestIds(@Param("creditorAgentId") String creditorAgentId,
+                                                 @Param("endToEndIds") String[] endToEndIds);
+
+    @Query("SELECT end_to_end_id FROM r2p_initiation_keys " +
+            "WHERE creditor_agent_id = :creditorAgentId AND end_to_end_id = ANY(:endToEndIds)")
+    Flux<String> findClaimedInitiationKeys(@Param("creditorAgentId") String creditorAgentId,
+                                           @Param("endToEndIds") String[] endToEndIds);
+
+    /**
+     * {@code due_date} holds the due day at midnight and a request stays payable for the whole of that day,
+     * so it is overdue only once {@code today} is past it. The {@code created_at} lower bound lets Postgres
+     * prune partitions older than the longest possible pending lifetime instead of probing every month's
+     * {@code due_date} index.
+     */
+    @Query("SELECT * FROM r2p_transactions WHERE transaction_status = 'PDNG' AND due_date < :today " +
+            "AND created_at >= :createdAfter")
+    Flux<R2PTransaction> findExpiredTransactions(@Param("today") LocalDate today,
+                                                 @Param("createdAfter") LocalDateTime createdAfter);
+
+    /**
+     * Claims up to {@code batchSize} overdue pending rows (as in {@link #findExpiredTransactions}) and
+     * expires them in one statement. {@code SKIP LOCKED} lets concurrent sweepers claim disjoint batches
+     * instead of queueing on each other.
+     */
+    @Query(R2PTransactionQueries.EXPIRE_DUE_BATCH)
+    Flux<R2PTransaction> expireDueBatch(@Param("today") LocalDate today,
+                                        @Param("createdAfter") LocalDateTime createdAfter,
+                                        @Param("batchSize") int batchSize);
 
     @Modifying
     @Query("UPDATE r2p_transactions SET transaction_status = :status, updated_at = NOW() WHERE payment_request_id = :paymentRequestId")
@@ -50,12 +94,90 @@ public interface R2PTransactionRepository extends R2dbcRepository<R2PTransaction
                                                   @Param("status") String status,
                                                   @Param("acceptedAmount") BigDecimal acceptedAmount,
                                                   @Param("acceptedAmountCurrency") String acceptedAmountCurrency,
-                                                  @Param("settlementDetails") String settlementDetails);
+                                                  @Param("settlementDetails") Json settlementDetails);
+
+    /**
+     * Guarded status transition: applies only while the row is in one of {@code fromStatuses}
+     * and returns the updated row, or completes empty when the transition is not legal.
+     */
+    @Query(R2PTransactionQueries.TRANSITION_STATUS)
+    Mono<R2PTransaction> transitionStatus(@Param("paymentRequestId") String paymentRequestId,
+                                          @Param("status") String status,
+                                          @Param("fromStatuses") String[] fromStatuses);
+
+    @Query(R2PTransactionQueries.TRANSITION_FOR_CONFIRMATION)
+    Mono<R2PTransaction> transitionForConfirmation(@Param("paymentRequestId") String paymentRequestId,
+                                                   @Param("endToEndId") String endToEndId,
+                                                   @Param("status") String status,
+                                                   @Param("message") String message,
+                                                   @Param("acceptedAmount") BigDecimal acceptedAmount,
+                                                   @Param("acceptedAmountCurrency") String acceptedAmountCurrency,
+                                                   @Param("settlementDetails") Json settlementDetails,
+                                                   @Param("fromStatuses") String[] fromStatuses);
+
+    @Query(R2PTransactionQueries.TRANSITION_FOR_CANCELLATION)
+    Mono<R2PTransaction> transitionForCancellation(@Param("paymentRequestId") String paymentRequestId,
+                                                   @Param("cancellationReason") String cancellationReason,
+                                                   @Param("fromStatuses") String[] fromStatuses);
+
+    @Query(R2PTransactionQueries.AMEND_IN_STATUS)
+    Mono<R2PTransaction> amendInStatus(@Param("paymentRequestId") String paymentRequestId,
+                                       @Param("dueDate") LocalDate dueDate,
+                                       @Param("requestedAmount") BigDecimal requestedAmount,
+                                       @Param("requestReason") Json requestReason,
+                                       @Param("fromStatuses") String[] fromStatuses);
+
+    @Query("SELECT * FROM r2p_transactions WHERE settlement_details_json->>'settlementSystemReferenceId' = :referenceId")
+    Flux<R2PTransaction> findBySettlementSystemReferenceId(@Param("referenceId") String referenceId);
+
+    /**
+     * Settled volume per settlement system and currency, aggregated in Postgres over the
+     * {@code settlement_details_json} JSONB column. Only settled ({@code ACSC}) transactions count.
+     */
+    @Query("SELECT settlement_details_json->>'settlementSystem' AS settlement_system, " +
+            "accepted_amount_currency AS currency, COUNT(*) AS transaction_count, " +
+            "SUM(accepted_amount) AS total_accepted_amount FROM r2p_transactions " +
+            "WHERE transaction_status = 'ACSC' AND settlement_details_json IS NOT NULL " +
+            "AND created_at >= :startDate AND created_at < :endDate " +
+            "GROUP BY settlement_details_json->>'settlementSystem', accepted_amount_currency " +
+            "ORDER BY settlement_system, currency")
+    Flux<SettlementSystemSummary> summarizeBySettlementSystem(@Param("startDate") LocalDateTime startDate,
+                                                              @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Debtors with the most requests created since {@code createdAfter}, busiest first.
+     */
+    @Query("SELECT debtor_alias, debtor_alias_type, debtor_agent_id, COUNT(*) AS transaction_count " +
+            "FROM r2p_transactions WHERE created_at >= :createdAfter AND debtor_alias IS NOT NULL " +
+            "GROUP BY debtor_alias, debtor_alias_type, debtor_agent_id " +
+            "ORDER BY transaction_count DESC LIMIT :limit")
+    Flux<ActiveDebtor> findMostActiveDebtors(@Param("createdAfter") LocalDateTime createdAfter,
+                                             @Param("limit") int limit);
 
     @Query("SELECT * FROM r2p_transactions WHERE is_refund = true AND original_payment_request_id = :originalId")
     Flux<R2PTransaction> findRefundsByOriginalPaymentRequestId(@Param("originalId") String originalId);
 
-    @Query("SELECT * FROM r2p_transactions WHERE created_at BETWEEN :startDate AND :endDate")
+    /**
+     * Adds {@code amount} to the settled original's refund ledger and inserts the refund row in one
+     * statement. The ledger update takes the original's row lock and re-checks the cap, so concurrent
+     * refunds serialize on it and can never oversubscribe the accepted amount. Completes empty when the
+     * original is missing, not settled, or has too little left to refund.
+     */
+    @Query(R2PTransactionQueries.INSERT_REFUND)
+    Mono<R2PTransaction> insertRefund(@Param("originalId") String originalId,
+                                      @Param("refundId") String refundId,
+                                      @Param("endToEndId") String endToEndId,
+                                      @Param("requestMessageId") String requestMessageId,
+                                      @Param("useCase") String useCase,
+                                      @Param("amount") BigDecimal amount);
+
+    @Query(R2PTransactionQueries.FIND_REFUND_BALANCE)
+    Mono<RefundBalance> findRefundBalance(@Param("paymentRequestId") String paymentRequestId);
+
+    /**
+     * Half-open range {@code [startDate, endDate)} on the partition key, aligned with monthly partition bounds.
+     */
+    @Query("SELECT * FROM r2p_transactions WHERE created_at >= :startDate AND created_at < :endDate")
     Flux<R2PTransaction> findByDateRange(@Param("startDate") LocalDateTime startDate,
                                          @Param("endDate") LocalDateTime endDate);
 }
\ No newline at end of file
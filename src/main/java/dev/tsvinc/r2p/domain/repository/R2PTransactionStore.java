@@ -0,0 +1,111 @@
+package dev.tsvinc.r2p.domain.repository;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import io.r2dbc.postgresql.codec.Json;
+import org.springframework.transaction.ReactiveTransactionManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Persistence SPI for the request-processing write paths, so the service layer does not depend on a
+ * particular driver stack. The engine is chosen with {@code r2p.persistence.engine}: {@code r2dbc}
+ * (default, {@code R2dbcTransactionStore}), {@code jdbc} ({@code JdbcTransactionStore}) or {@code memory}
+ * ({@code InMemoryTransactionStore}). Guarded
+ * operations complete empty when the row is missing or not in one of {@code fromStatuses}.
+ * <p>
+ * Operations join transactions of {@link #transactionManager()}, so callers that need several writes and
+ * their outbox events to commit together run them under that manager.
+ */
+public interface R2PTransactionStore {
+
+    /**
+     * Manager of the transactions this engine's operations and {@link #appendEvent} join.
+     */
+    ReactiveTransactionManager transactionManager();
+
+    /**
+     * Appends an event to {@code r2p_event_outbox} in the caller's transaction of this engine. Completes
+     * with {@code false} when there is none, leaving the append to the outbox's own R2DBC insert. Engines
+     * that keep their own outbox take every append.
+     */
+    default Mono<Boolean> appendEvent(String aggregateId, String eventType, Json payload) {
+        return Mono.just(false);
+    }
+
+    Mono<R2PTransaction> findByPaymentRequestId(String paymentRequestId);
+
+    /**
+     * Inserts a new transaction or updates an existing one under its {@code version}; a stale version
+     * fails with {@link org.springframework.dao.OptimisticLockingFailureException}.
+     */
+    Mono<R2PTransaction> save(R2PTransaction transaction);
+
+    /**
+     * Writes only the columns {@code modified} changed relative to {@code original} (see
+     * {@link TransactionColumns}) under {@code original}'s version, and returns the updated row. A stale
+     * version fails with {@link org.springframework.dao.OptimisticLockingFailureException}.
+     */
+    Mono<R2PTransaction> saveChanges(R2PTransaction original, R2PTransaction modified);
+
+    /**
+     * Inserts new transactions in as few round trips as the engine allows, emitting them in input order
+     * with their generated IDs.
+     */
+    Flux<R2PTransaction> insertAll(List<R2PTransaction> transactions);
+
+    Mono<R2PTransaction> transitionStatus(String paymentRequestId,
+                                          TransactionStatus status,
+                                          Collection<TransactionStatus> fromStatuses);
+
+    Mono<R2PTransaction> transitionForConfirmation(String paymentRequestId,
+                                                   String endToEndId,
+                                                   TransactionStatus status,
+                                                   String message,
+                                                   BigDecimal acceptedAmount,
+                                                   String acceptedAmountCurrency,
+                                                   Json settlementDetails,
+                                                   Collection<TransactionStatus> fromStatuses);
+
+    Mono<R2PTransaction> transitionForCancellation(String paymentRequestId,
+                                                   String cancellationReason,
+                                                   Collection<TransactionStatus> fromStatuses);
+
+    Mono<R2PTransaction> amendInStatus(String paymentRequestId,
+                                       LocalDate dueDate,
+                                       BigDecimal requestedAmount,
+                                       Json requestReason,
+                                       Collection<TransactionStatus> fromStatuses);
+
+    /**
+     * Adds {@code amount} to the settled original's refund ledger and inserts the refund, atomically.
+     * Completes empty when the original is missing, not settled, or has too little left to refund. With
+     * sharding, {@code refundId} must hash to the original's shard ({@code ShardRouting#colocatedId}).
+     */
+    Mono<R2PTransaction> insertRefund(String originalId,
+                                      String refundId,
+                                      String endToEndId,
+                                      String requestMessageId,
+                                      String useCase,
+                                      BigDecimal amount);
+
+    /**
+     * Claims the still-free initiation keys and returns the payment request IDs they were claimed for.
+     */
+    Flux<String> claimInitiationKeys(String creditorAgentId, List<String> endToEndIds, List<String> paymentRequestIds);
+
+    Flux<R2PTransaction> findByInitiationKeys(String creditorAgentId, List<String> endToEndIds);
+
+    /**
+     * Expires up to {@code batchSize} pending requests whose due date is before {@code today} and that were
+     * created after {@code createdAfter}, earliest due first, and returns them. Concurrent sweeps expire
+     * disjoint batches.
+     */
+    Flux<R2PTransaction> expireDueBatch(LocalDate today, LocalDateTime createdAfter, int batchSize);
+}
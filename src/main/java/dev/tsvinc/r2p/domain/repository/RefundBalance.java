@@ -0,0 +1,24 @@
+package dev.tsvinc.r2p.domain.repository;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+
+import java.math.BigDecimal;
+
+/**
+ * Projection row of {@link R2PTransactionRepository#findRefundBalance}. {@code remainingAmount} is what is
+ * left under the refund cap: the accepted amount, or the requested amount when none was accepted.
+ */
+public record RefundBalance(
+        String paymentRequestId,
+        String currency,
+        BigDecimal acceptedAmount,
+        BigDecimal refundedAmount,
+        BigDecimal remainingAmount) {
+
+    /**
+     * Total that may be refunded against {@code original}, as enforced by the guarded refund insert.
+     */
+    public static BigDecimal cap(R2PTransaction original) {
+        return original.getAcceptedAmount() != null ? original.getAcceptedAmount() : original.getRequestedAmount();
+    }
+}
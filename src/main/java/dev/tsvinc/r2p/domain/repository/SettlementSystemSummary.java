@@ -0,0 +1,12 @@
+package dev.tsvinc.r2p.domain.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Projection row of {@link R2PTransactionRepository#summarizeBySettlementSystem}.
+ */
+public record SettlementSystemSummary(
+        String settlementSystem,
+        String currency,
+        Long transactionCount,
+        BigDecimal totalAcceptedAmount) {}
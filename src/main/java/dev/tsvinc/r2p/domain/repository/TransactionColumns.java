@@ -0,0 +1,100 @@
+package dev.tsvinc.r2p.domain.repository;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import io.r2dbc.postgresql.codec.Json;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Dirty-column tracking for read-modify-write updates: compares a row as read with the row after a mutation
+ * and names the columns that changed, so {@link R2PTransactionStore#saveChanges} writes only those instead of
+ * every column. Identity, partition key and bookkeeping columns are never part of a change set.
+ */
+public final class TransactionColumns {
+
+    private static final Map<String, Function<R2PTransaction, Object>> MUTABLE = new LinkedHashMap<>();
+
+    static {
+        MUTABLE.put("end_to_end_id", R2PTransaction::getEndToEndId);
+        MUTABLE.put("request_message_id", R2PTransaction::getRequestMessageId);
+        MUTABLE.put("response_message_id", R2PTransaction::getResponseMessageId);
+        MUTABLE.put("transaction_status", R2PTransaction::getTransactionStatus);
+        MUTABLE.put("cancellation_reason", R2PTransaction::getCancellationReason);
+        MUTABLE.put("use_case", R2PTransaction::getUseCase);
+        MUTABLE.put("product", R2PTransaction::getProduct);
+        MUTABLE.put("requested_amount", R2PTransaction::getRequestedAmount);
+        MUTABLE.put("requested_amount_currency", R2PTransaction::getRequestedAmountCurrency);
+        MUTABLE.put("accepted_amount", R2PTransaction::getAcceptedAmount);
+        MUTABLE.put("accepted_amount_currency", R2PTransaction::getAcceptedAmountCurrency);
+        MUTABLE.put("creditor_agent_id", R2PTransaction::getCreditorAgentId);
+        MUTABLE.put("debtor_agent_id", R2PTransaction::getDebtorAgentId);
+        MUTABLE.put("creditor_alias", R2PTransaction::getCreditorAlias);
+        MUTABLE.put("debtor_alias", R2PTransaction::getDebtorAlias);
+        MUTABLE.put("creditor_alias_type", R2PTransaction::getCreditorAliasType);
+        MUTABLE.put("debtor_alias_type", R2PTransaction::getDebtorAliasType);
+        MUTABLE.put("due_date", R2PTransaction::getDueDate);
+        MUTABLE.put("request_reason_json", R2PTransaction::getRequestReason);
+        MUTABLE.put("message", R2PTransaction::getMessage);
+        MUTABLE.put("settlement_details_json", R2PTransaction::getSettlementDetailsJson);
+        MUTABLE.put("original_payment_request_id", R2PTransaction::getOriginalPaymentRequestId);
+        MUTABLE.put("is_refund", R2PTransaction::getIsRefund);
+        MUTABLE.put("refunded_amount", R2PTransaction::getRefundedAmount);
+        MUTABLE.put("creditor_ack_message", R2PTransaction::getCreditorAckMessage);
+        MUTABLE.put("creditor_ack_emoji", R2PTransaction::getCreditorAckEmoji);
+        MUTABLE.put("payment_request_type", R2PTransaction::getPaymentRequestType);
+    }
+
+    private TransactionColumns() {
+    }
+
+    /**
+     * Changed columns mapped to their new entity values, in a stable column order.
+     */
+    public static Map<String, Object> changed(R2PTransaction original, R2PTransaction modified) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        MUTABLE.forEach((column, accessor) -> {
+            Object before = accessor.apply(original);
+            Object after = accessor.apply(modified);
+            if (!sameValue(before, after)) {
+                changes.put(column, after);
+            }
+        });
+        return changes;
+    }
+
+    /**
+     * {@code UPDATE} of {@code columns} under the row's version, addressed by primary key so Postgres prunes
+     * to one partition. Column values bind to {@code :<column>} markers, the key to {@code :id},
+     * {@code :createdAt} and {@code :version}.
+     */
+    public static String updateSql(Collection<String> columns) {
+        String assignments = columns.stream()
+                .peek(TransactionColumns::requireMutable)
+                .map(column -> column + " = :" + column)
+                .collect(Collectors.joining(", "));
+        return "UPDATE r2p_transactions SET " + assignments + ", updated_at = NOW(), version = version + 1 " +
+                "WHERE id = :id AND created_at = :createdAt AND version = :version RETURNING *";
+    }
+
+    private static void requireMutable(String column) {
+        if (!MUTABLE.containsKey(column)) {
+            throw new IllegalArgumentException("Not an updatable column: " + column);
+        }
+    }
+
+    private static boolean sameValue(Object before, Object after) {
+        if (before instanceof BigDecimal left && after instanceof BigDecimal right) {
+            return left.compareTo(right) == 0;
+        }
+        if (before instanceof Json left && after instanceof Json right) {
+            return left == right || left.asString().equals(right.asString());
+        }
+        return Objects.equals(before, after);
+    }
+}
@@ -0,0 +1,7 @@
+package dev.tsvinc.r2p.exception;
+
+public class R2PAccessDeniedException extends RuntimeException {
+    public R2PAccessDeniedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,224 @@
+package dev.tsvinc.r2p.infrastructure.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tsvinc.r2p.client.dto.request.ViewBlockRequest;
+import dev.tsvinc.r2p.client.dto.response.BlockedPayeeInfo;
+import dev.tsvinc.r2p.client.dto.response.ViewBlockResponse;
+import dev.tsvinc.r2p.client.service.R2PWebClientService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Per-debtor cache of Visa block lists, held in Redis so every instance shares it. Each cached list also
+ * indexes its block reference IDs, because {@link #removeBlock} only knows the reference ID: removing a
+ * block evicts the owning debtor's list at once. Every eviction bumps a per-debtor version. A list fetched
+ * before an eviction is therefore not written back over it (see {@link #CACHE_IF_UNCHANGED}). A removal also
+ * leaves a tombstone for the reference ID, which covers lists that were not cached yet when it ran: a fetch
+ * that raced the removal still contains the block and is refused. Versions and tombstones expire after
+ * {@code ttl}, like the lists they guard. Redis failures degrade to calling Visa directly.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BlockListCache {
+
+    private static final String LIST_PREFIX = "r2p:blocks:";
+    private static final String VERSION_PREFIX = "r2p:blocks-version:";
+    private static final String REFERENCE_PREFIX = "r2p:block-reference:";
+    private static final String REMOVED_PREFIX = "r2p:block-removed:";
+
+    /**
+     * KEYS: version, list, reference index entries, then one tombstone per reference in the same order.
+     * ARGV: version read before the fetch, list JSON, TTL seconds.
+     */
+    private static final RedisScript<Long> CACHE_IF_UNCHANGED = RedisScript.of("""
+            if (redis.call('GET', KEYS[1]) or '0') ~= ARGV[1] then
+                return 0
+            end
+            local references = (#KEYS - 2) / 2
+            for i = 1, references do
+                if redis.call('EXISTS', KEYS[2 + references + i]) == 1 then
+                    return 0
+                end
+            end
+            redis.call('SET', KEYS[2], ARGV[2], 'EX', ARGV[3])
+            for i = 3, 2 + references do
+                redis.call('SET', KEYS[i], KEYS[2], 'EX', ARGV[3])
+            end
+            return 1
+            """, Long.class);
+
+    /**
+     * KEYS: version, list, reference index entry. ARGV: TTL seconds.
+     */
+    private static final RedisScript<Long> EVICT = RedisScript.of("""
+            redis.call('INCR', KEYS[1])
+            redis.call('EXPIRE', KEYS[1], ARGV[1])
+            return redis.call('DEL', KEYS[2], KEYS[3])
+            """, Long.class);
+
+    private final R2PWebClientService webClientService;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${r2p.cache.blocks.enabled:true}")
+    private boolean enabled;
+
+    @Value("${r2p.cache.blocks.ttl:10m}")
+    private Duration ttl;
+
+    @Value("${r2p.cache.blocks.timeout:200ms}")
+    private Duration redisTimeout;
+
+    private Counter hitCounter;
+    private Counter missCounter;
+    private Counter errorCounter;
+    private Counter invalidationCounter;
+
+    @PostConstruct
+    public void init() {
+        hitCounter = counter("hit");
+        missCounter = counter("miss");
+        errorCounter = counter("error");
+        invalidationCounter = Counter.builder("r2p.block-cache.invalidations")
+                .description("Debtor block lists evicted because one of their blocks was removed")
+                .register(meterRegistry);
+    }
+
+    public Mono<ViewBlockResponse> viewBlocks(String keyId, ViewBlockRequest request) {
+        if (!enabled) {
+            return webClientService.viewBlocks(keyId, request);
+        }
+        String listKey = LIST_PREFIX + debtorKey(request);
+        return redisTemplate.opsForValue().get(listKey)
+                .timeout(redisTimeout)
+                .map(this::deserialize)
+                .doOnNext(cached -> hitCounter.increment())
+                .onErrorResume(error -> {
+                    errorCounter.increment();
+                    log.debug("Block cache read failed for {}", listKey, error);
+                    return Mono.empty();
+                })
+                .map(cached -> new ViewBlockResponse(cached.blockedPayees(), request.requestMessageId(),
+                        cached.responseMessageId(), cached.creationDateTime()))
+                .switchIfEmpty(Mono.defer(() -> {
+                    missCounter.increment();
+                    return load(keyId, request, listKey);
+                }));
+    }
+
+    /**
+     * Removes the block at Visa, then evicts the list of the debtor it belonged to.
+     */
+    public Mono<Void> removeBlock(String blockReferenceId, String keyId) {
+        if (!enabled) {
+            return webClientService.removeBlock(blockReferenceId, keyId);
+        }
+        return webClientService.removeBlock(blockReferenceId, keyId)
+                .then(evictByReference(blockReferenceId));
+    }
+
+    /**
+     * Loads and caches the block lists of {@code debtors}, {@code concurrency} Visa calls at a time.
+     * Returns how many lists were loaded; failures are logged and skipped.
+     */
+    public Mono<Long> warmUp(String keyId, Flux<ViewBlockRequest> debtors, int concurrency) {
+        if (!enabled) {
+            return Mono.just(0L);
+        }
+        return debtors
+                .flatMap(request -> load(keyId, request, LIST_PREFIX + debtorKey(request))
+                        .onErrorResume(error -> {
+                            log.warn("Block list warm-up failed for debtor {}: {}", request.debtorId(), error.getMessage());
+                            return Mono.empty();
+                        }), concurrency)
+                .count();
+    }
+
+    private Mono<ViewBlockResponse> load(String keyId, ViewBlockRequest request, String listKey) {
+        String versionKey = VERSION_PREFIX + debtorKey(request);
+        return redisTemplate.opsForValue().get(versionKey)
+                .timeout(redisTimeout)
+                .defaultIfEmpty("0")
+                .onErrorResume(error -> Mono.just(""))
+                .flatMap(version -> webClientService.viewBlocks(keyId, request)
+                        .delayUntil(response -> version.isEmpty()
+                                ? Mono.empty()
+                                : cache(versionKey, listKey, version, response)));
+    }
+
+    private Mono<Void> cache(String versionKey, String listKey, String version, ViewBlockResponse response) {
+        List<String> referenceIds = response.blockedPayees() == null ? List.of() : response.blockedPayees().stream()
+                .map(BlockedPayeeInfo::referenceId)
+                .filter(Objects::nonNull)
+                .toList();
+        List<String> keys = new ArrayList<>(List.of(versionKey, listKey));
+        referenceIds.forEach(referenceId -> keys.add(REFERENCE_PREFIX + referenceId));
+        referenceIds.forEach(referenceId -> keys.add(REMOVED_PREFIX + referenceId));
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(response))
+                .flatMap(value -> redisTemplate.execute(CACHE_IF_UNCHANGED, keys,
+                        List.of(version, value, String.valueOf(ttl.toSeconds()))).next())
+                .timeout(redisTimeout)
+                .doOnError(error -> log.debug("Block cache write failed for {}", listKey, error))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    /**
+     * Leaves the tombstone before reading the reference index: a racing fetch either indexed the reference
+     * first, and is evicted here, or sees the tombstone and is not cached.
+     */
+    private Mono<Void> evictByReference(String blockReferenceId) {
+        String referenceKey = REFERENCE_PREFIX + blockReferenceId;
+        return Mono.defer(() -> redisTemplate.opsForValue().set(REMOVED_PREFIX + blockReferenceId, "1", ttl))
+                .then(Mono.defer(() -> redisTemplate.opsForValue().get(referenceKey)))
+                .flatMap(listKey -> redisTemplate.execute(EVICT,
+                                List.of(VERSION_PREFIX + listKey.substring(LIST_PREFIX.length()), listKey, referenceKey),
+                                List.of(String.valueOf(ttl.toSeconds())))
+                        .next()
+                        .doOnNext(deleted -> {
+                            invalidationCounter.increment();
+                            log.debug("Evicted block list {} after removing block {}", listKey, blockReferenceId);
+                        }))
+                .timeout(redisTimeout)
+                .doOnError(error -> log.warn("Failed to evict block list for removed block {}; it expires within {}",
+                        blockReferenceId, ttl, error))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    private ViewBlockResponse deserialize(String value) {
+        try {
+            return objectMapper.readValue(value, ViewBlockResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable cached block list", e);
+        }
+    }
+
+    private static String debtorKey(ViewBlockRequest request) {
+        return request.debtorIdType() + ":" + request.debtorId() + ":" + Objects.requireNonNullElse(request.debtorAgentId(), "");
+    }
+
+    private Counter counter(String result) {
+        return Counter.builder("r2p.block-cache.requests")
+                .description("Block list lookups by cache outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
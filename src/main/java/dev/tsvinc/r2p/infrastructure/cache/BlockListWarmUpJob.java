@@ -0,0 +1,63 @@
+package dev.tsvinc.r2p.infrastructure.cache;
+
+import dev.tsvinc.r2p.client.dto.request.ViewBlockRequest;
+import dev.tsvinc.r2p.client.service.R2PWebClientService;
+import dev.tsvinc.r2p.service.R2PTransactionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * Preloads the {@link BlockListCache} with the block lists of the debtors that received the most requests
+ * recently, so their first lookups after a deploy or a cache flush do not all go to Visa.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "r2p.cache.blocks.warm-up.enabled", havingValue = "true")
+public class BlockListWarmUpJob {
+
+    private final R2PTransactionService transactionService;
+    private final R2PWebClientService webClientService;
+    private final BlockListCache blockListCache;
+
+    @Value("${r2p.cache.blocks.warm-up.key-id}")
+    private String keyId;
+
+    @Value("${r2p.cache.blocks.warm-up.debtors:500}")
+    private int debtors;
+
+    @Value("${r2p.cache.blocks.warm-up.lookback:7d}")
+    private Duration lookback;
+
+    @Value("${r2p.cache.blocks.warm-up.concurrency:8}")
+    private int concurrency;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOnStartup() {
+        warmUp().subscribe();
+    }
+
+    @Scheduled(cron = "${r2p.cache.blocks.warm-up.cron:0 */10 * * * *}")
+    public Mono<Void> warmUp() {
+        return blockListCache.warmUp(keyId, transactionService
+                        .findMostActiveDebtors(LocalDateTime.now().minus(lookback), debtors)
+                        .map(debtor -> new ViewBlockRequest(debtor.debtorAlias(), debtor.debtorAliasType(),
+                                debtor.debtorAgentId(), webClientService.generateRequestMessageId(),
+                                Instant.now().toString())), concurrency)
+                .doOnSuccess(loaded -> log.info("Warmed up block lists of {} debtors", loaded))
+                .doOnError(error -> log.error("Block list warm-up failed", error))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+}
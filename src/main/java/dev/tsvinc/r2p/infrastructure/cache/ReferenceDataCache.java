@@ -0,0 +1,239 @@
+package dev.tsvinc.r2p.infrastructure.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tsvinc.r2p.client.dto.request.ReferenceDataRequest;
+import dev.tsvinc.r2p.client.dto.response.ReferenceDataResponse;
+import dev.tsvinc.r2p.client.service.R2PWebClientService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Refresh-ahead cache of Visa reference data, keyed by the caller's key ID and the sorted set of requested
+ * reference data types, so data fetched under one key ID is never served to callers using another.
+ * <ul>
+ *     <li>Entries younger than {@code refresh-after} are served as they are.</li>
+ *     <li>Older entries are still served, and a background refresh replaces them.</li>
+ *     <li>{@link #refreshAhead()} also refreshes such entries when nobody is asking.</li>
+ *     <li>Once an entry is older than {@code ttl}, callers wait for a fresh copy. If Visa fails, the stale
+ *     copy is served for up to {@code max-stale}.</li>
+ * </ul>
+ * Concurrent misses for one key share a single upstream call. Every successful fetch is written to
+ * {@code snapshot-file}. On startup, entries from that file are served straight away while they refresh.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReferenceDataCache {
+
+    private final R2PWebClientService webClientService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Mono<Entry>> inFlight = new ConcurrentHashMap<>();
+    private final Object snapshotLock = new Object();
+
+    @Value("${r2p.reference-data.cache.refresh-after:15m}")
+    private Duration refreshAfter;
+
+    @Value("${r2p.reference-data.cache.ttl:1h}")
+    private Duration ttl;
+
+    @Value("${r2p.reference-data.cache.max-stale:24h}")
+    private Duration maxStale;
+
+    @Value("${r2p.reference-data.cache.snapshot-file:}")
+    private String snapshotFile;
+
+    private Counter hitCounter;
+    private Counter staleCounter;
+    private Counter loadCounter;
+    private Counter loadFailureCounter;
+
+    /**
+     * One cached response and the key ID it was fetched with, which background refreshes reuse.
+     * {@code fromSnapshot} marks entries recovered from the snapshot file, which are served up to {@code max-stale}
+     * until the first refresh.
+     */
+    record Entry(List<String> referenceDataTypes, String keyId, ReferenceDataResponse response,
+                 Instant fetchedAt, boolean fromSnapshot) {
+
+        Duration age() {
+            return Duration.between(fetchedAt, Instant.now());
+        }
+
+        boolean olderThan(Duration limit) {
+            return age().compareTo(limit) >= 0;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        hitCounter = counter("hit");
+        staleCounter = counter("stale");
+        loadCounter = counter("load");
+        loadFailureCounter = counter("load-failure");
+        Gauge.builder("r2p.reference-data.cache.size", entries, Map::size)
+                .description("Reference data type combinations held by the cache")
+                .register(meterRegistry);
+        restoreSnapshot();
+    }
+
+    public Mono<ReferenceDataResponse> get(String keyId, ReferenceDataRequest request) {
+        List<String> types = request.referenceDataTypes().stream().distinct().sorted().toList();
+        String key = key(keyId, types);
+        return Mono.defer(() -> {
+            Entry entry = entries.get(key);
+            if (entry != null && !entry.olderThan(entry.fromSnapshot() ? maxStale : ttl)) {
+                if (entry.fromSnapshot() || entry.olderThan(refreshAfter)) {
+                    load(key, entry.keyId(), types).subscribe(refreshed -> { }, error -> { });
+                }
+                hitCounter.increment();
+                return Mono.just(entry);
+            }
+            return load(key, keyId, types)
+                    .onErrorResume(error -> {
+                        if (entry == null || entry.olderThan(maxStale)) {
+                            return Mono.error(error);
+                        }
+                        staleCounter.increment();
+                        log.warn("Serving reference data for {} fetched at {} after upstream failure: {}",
+                                key, entry.fetchedAt(), error.getMessage());
+                        return Mono.just(entry);
+                    });
+        }).map(entry -> new ReferenceDataResponse(entry.response().availableParticipants(),
+                request.requestMessageId(),
+                entry.response().responseMessageId(),
+                entry.response().creationDateTime()));
+    }
+
+    /**
+     * Refreshes entries past {@code refresh-after} before a caller finds them expired.
+     */
+    @Scheduled(fixedDelayString = "${r2p.reference-data.cache.refresh-check-interval-ms:60000}",
+            initialDelayString = "${r2p.reference-data.cache.refresh-check-interval-ms:60000}")
+    public Mono<Void> refreshAhead() {
+        return Flux.fromIterable(entries.entrySet())
+                .filter(cached -> cached.getValue().fromSnapshot() || cached.getValue().olderThan(refreshAfter))
+                .concatMap(cached -> load(cached.getKey(), cached.getValue().keyId(),
+                        cached.getValue().referenceDataTypes())
+                        .onErrorResume(error -> Mono.empty()))
+                .then();
+    }
+
+    /**
+     * Fetches {@code types} from Visa, sharing one call among concurrent loads of the same key.
+     */
+    @SuppressWarnings("unchecked")
+    private Mono<Entry> load(String key, String keyId, List<String> types) {
+        return inFlight.computeIfAbsent(key, unused -> {
+            Mono<Entry>[] self = new Mono[1];
+            self[0] = Mono.defer(() -> {
+                        loadCounter.increment();
+                        return webClientService.getReferenceData(keyId, new ReferenceDataRequest(types,
+                                webClientService.generateRequestMessageId(), Instant.now().toString()));
+                    })
+                    .map(response -> new Entry(types, keyId, response, Instant.now(), false))
+                    .doOnNext(entry -> entries.put(key, entry))
+                    .flatMap(entry -> writeSnapshot().thenReturn(entry))
+                    .doOnError(error -> {
+                        loadFailureCounter.increment();
+                        log.warn("Failed to load reference data for {}: {}", key, error.getMessage());
+                    })
+                    .doFinally(signal -> inFlight.remove(key, self[0]))
+                    .cache();
+            return self[0];
+        });
+    }
+
+    private void restoreSnapshot() {
+        if (!StringUtils.hasText(snapshotFile) || !Files.exists(Path.of(snapshotFile))) {
+            return;
+        }
+        try {
+            Map<String, Entry> snapshot = objectMapper.readValue(Path.of(snapshotFile).toFile(),
+                    new TypeReference<Map<String, Entry>>() {
+                    });
+            snapshot.values().forEach(entry -> {
+                if (!entry.olderThan(maxStale)) {
+                    entries.put(key(entry.keyId(), entry.referenceDataTypes()), new Entry(entry.referenceDataTypes(), entry.keyId(), entry.response(),
+                            entry.fetchedAt(), true));
+                }
+            });
+            log.info("Restored {} reference data entries from {}", entries.size(), snapshotFile);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable reference data snapshot {}", snapshotFile, e);
+        }
+    }
+
+    /**
+     * Replaces the snapshot file atomically, so a crash mid-write leaves the previous snapshot intact. Writes
+     * are serialized so a snapshot taken earlier cannot replace a later one, and each uses its own temporary
+     * file so instances sharing the path never interleave.
+     */
+    private Mono<Void> writeSnapshot() {
+        if (!StringUtils.hasText(snapshotFile)) {
+            return Mono.empty();
+        }
+        return Mono.<Void>fromRunnable(() -> {
+                    Path target = Path.of(snapshotFile).toAbsolutePath();
+                    synchronized (snapshotLock) {
+                        Path temporary = null;
+                        try {
+                            temporary = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+                            objectMapper.writeValue(temporary.toFile(), Map.copyOf(entries));
+                            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+                                    StandardCopyOption.ATOMIC_MOVE);
+                        } catch (IOException e) {
+                            log.warn("Failed to write reference data snapshot {}", snapshotFile, e);
+                            deleteQuietly(temporary);
+                        }
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static String key(String keyId, List<String> types) {
+        return keyId + ":" + String.join(",", types);
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("Failed to delete {}", path, e);
+        }
+    }
+
+    private Counter counter(String result) {
+        return Counter.builder("r2p.reference-data.cache.requests")
+                .description("Reference data lookups by cache outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
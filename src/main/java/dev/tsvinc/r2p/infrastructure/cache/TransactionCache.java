@@ -0,0 +1,320 @@
+package dev.tsvinc.r2p.infrastructure.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of transactions by {@code paymentRequestId}: a bounded in-process Caffeine cache
+ * (W-TinyLFU eviction) in front of Redis, in front of the database. Writers call {@link #invalidate}, which
+ * evicts both tiers, tells other instances to evict their in-process copy over Redis pub/sub, and evicts
+ * again once the surrounding reactive transaction completes, so a concurrent reader cannot re-cache the
+ * pre-commit row. In Redis the same guarantee comes from a per-key generation that every eviction bumps:
+ * a loader reads the generation together with the cached value and may only write back if it is unchanged
+ * (see {@link #CACHE_IF_UNCHANGED}), so a load that started before another instance's commit cannot land
+ * after that instance's eviction. Redis failures degrade to database reads; both tiers expire entries as a
+ * backstop for missed invalidations.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionCache {
+
+    private static final String KEY_PREFIX = "r2p:transaction:";
+    private static final String GENERATION_PREFIX = "r2p:transaction-generation:";
+
+    /**
+     * KEYS: transaction, generation. ARGV: generation read before the load, row version, row JSON, TTL millis.
+     * Also refuses to replace a cached row with an older version.
+     */
+    private static final RedisScript<Long> CACHE_IF_UNCHANGED = RedisScript.of("""
+            if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then
+                return 0
+            end
+            local current = redis.call('GET', KEYS[1])
+            if current then
+                local ok, cached = pcall(cjson.decode, current)
+                if ok and type(cached.version) == 'number' and cached.version > tonumber(ARGV[2]) then
+                    return 0
+                end
+            end
+            redis.call('SET', KEYS[1], ARGV[3], 'PX', ARGV[4])
+            return 1
+            """, Long.class);
+
+    /**
+     * KEYS: transaction, generation. ARGV: TTL millis, which keeps the generation alive for as long as any
+     * load that read the previous one could still write back.
+     */
+    private static final RedisScript<Long> EVICT = RedisScript.of("""
+            redis.call('DEL', KEYS[1])
+            redis.call('INCR', KEYS[2])
+            redis.call('PEXPIRE', KEYS[2], ARGV[1])
+            return 1
+            """, Long.class);
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    @Value("${r2p.cache.transactions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${r2p.cache.transactions.local.max-size:10000}")
+    private long localMaxSize;
+
+    @Value("${r2p.cache.transactions.local.ttl:30s}")
+    private Duration localTtl;
+
+    @Value("${r2p.cache.transactions.redis.enabled:true}")
+    private boolean redisEnabled;
+
+    @Value("${r2p.cache.transactions.redis.ttl:5m}")
+    private Duration redisTtl;
+
+    @Value("${r2p.cache.transactions.redis.timeout:200ms}")
+    private Duration redisTimeout;
+
+    @Value("${r2p.cache.transactions.redis.invalidation-channel:r2p:transaction-invalidations}")
+    private String invalidationChannel;
+
+    private Cache<String, R2PTransaction> local;
+    private Counter redisHitCounter;
+    private Counter redisMissCounter;
+    private Counter redisErrorCounter;
+    private Counter remoteInvalidationCounter;
+    private Disposable invalidationSubscription;
+
+    @PostConstruct
+    public void init() {
+        local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, "transactions");
+
+        redisHitCounter = Counter.builder("r2p.cache.redis.gets")
+                .description("Transaction lookups answered by the Redis cache tier")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        redisMissCounter = Counter.builder("r2p.cache.redis.gets")
+                .description("Transaction lookups answered by the Redis cache tier")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        redisErrorCounter = Counter.builder("r2p.cache.redis.gets")
+                .description("Transaction lookups answered by the Redis cache tier")
+                .tag("result", "error")
+                .register(meterRegistry);
+        remoteInvalidationCounter = Counter.builder("r2p.cache.remote.invalidations")
+                .description("In-process cache entries evicted on another instance's write")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void listenForInvalidations() {
+        if (!enabled || !redisEnabled) {
+            return;
+        }
+        // Invalidations published while unsubscribed are lost, so every (re)subscription starts cold
+        invalidationSubscription = redisTemplate.listenToChannel(invalidationChannel)
+                .doOnSubscribe(subscription -> local.invalidateAll())
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.warn("Transaction cache invalidation listener failed, resubscribing",
+                                signal.failure())))
+                .subscribe(message -> onRemoteInvalidation(message.getMessage()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (invalidationSubscription != null) {
+            invalidationSubscription.dispose();
+        }
+    }
+
+    /**
+     * Returns a private copy of the cached transaction, loading it with {@code loader} on a miss in both
+     * tiers. Absent transactions are not cached.
+     */
+    public Mono<R2PTransaction> get(String paymentRequestId, Supplier<Mono<R2PTransaction>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return Mono.defer(() -> {
+            R2PTransaction cached = local.getIfPresent(paymentRequestId);
+            if (cached != null) {
+                return Mono.just(cached.toBuilder().build());
+            }
+            long generation = generation(paymentRequestId);
+            return fromRedis(paymentRequestId)
+                    .flatMap(cachedOrGeneration -> {
+                        if (cachedOrGeneration.transaction() != null) {
+                            putLocal(paymentRequestId, cachedOrGeneration.transaction(), generation);
+                            return Mono.just(cachedOrGeneration.transaction());
+                        }
+                        return Mono.defer(loader).delayUntil(transaction -> put(paymentRequestId, transaction,
+                                generation, cachedOrGeneration.redisGeneration()));
+                    })
+                    .map(transaction -> transaction.toBuilder().build());
+        });
+    }
+
+    /**
+     * Evicts {@code paymentRequestId} from both tiers on every instance; call it with every write.
+     */
+    public Mono<Void> invalidate(String paymentRequestId) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return evict(paymentRequestId)
+                .then(TransactionSynchronizationManager.forCurrentTransaction()
+                        .doOnNext(synchronizationManager -> synchronizationManager.registerSynchronization(
+                                new TransactionSynchronization() {
+                                    @Override
+                                    public Mono<Void> afterCompletion(int status) {
+                                        return evict(paymentRequestId);
+                                    }
+                                }))
+                        .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+                        .then());
+    }
+
+    private Mono<Void> evict(String paymentRequestId) {
+        return Mono.defer(() -> {
+            bumpGeneration(paymentRequestId);
+            local.invalidate(paymentRequestId);
+            if (!redisEnabled) {
+                return Mono.empty();
+            }
+            return redisTemplate.execute(EVICT, List.of(KEY_PREFIX + paymentRequestId,
+                            GENERATION_PREFIX + paymentRequestId), List.of(String.valueOf(redisTtl.toMillis())))
+                    .then(redisTemplate.convertAndSend(invalidationChannel, instanceId + ":" + paymentRequestId))
+                    .timeout(redisTimeout)
+                    .doOnError(error -> log.warn("Failed to invalidate cached transaction {} in Redis",
+                            paymentRequestId, error))
+                    .onErrorResume(error -> Mono.empty())
+                    .then();
+        });
+    }
+
+    private void onRemoteInvalidation(String message) {
+        int separator = message.indexOf(':');
+        if (separator < 0 || message.startsWith(instanceId + ":")) {
+            return;
+        }
+        String paymentRequestId = message.substring(separator + 1);
+        bumpGeneration(paymentRequestId);
+        local.invalidate(paymentRequestId);
+        remoteInvalidationCounter.increment();
+    }
+
+    /**
+     * The cached row, or on a miss the Redis generation to write back under; a null generation means the
+     * Redis tier is disabled or failed, and the loaded row is then only cached in process.
+     */
+    private record RedisLookup(R2PTransaction transaction, String redisGeneration) {
+    }
+
+    private Mono<RedisLookup> fromRedis(String paymentRequestId) {
+        if (!redisEnabled) {
+            return Mono.just(new RedisLookup(null, null));
+        }
+        return redisTemplate.opsForValue()
+                .multiGet(List.of(KEY_PREFIX + paymentRequestId, GENERATION_PREFIX + paymentRequestId))
+                .timeout(redisTimeout)
+                .map(values -> values.get(0) != null
+                        ? new RedisLookup(deserialize(values.get(0)), null)
+                        : new RedisLookup(null, Objects.requireNonNullElse(values.get(1), "0")))
+                .doOnNext(lookup -> (lookup.transaction() != null ? redisHitCounter : redisMissCounter).increment())
+                .onErrorResume(error -> {
+                    redisErrorCounter.increment();
+                    log.debug("Redis cache read failed for transaction {}", paymentRequestId, error);
+                    return Mono.just(new RedisLookup(null, null));
+                });
+    }
+
+    /**
+     * Caches a freshly loaded row unless an invalidation for its key raced with the load, on this instance
+     * (local generation) or on any other (Redis generation).
+     */
+    private Mono<Void> put(String paymentRequestId, R2PTransaction transaction, long generation,
+                           String redisGeneration) {
+        if (!putLocal(paymentRequestId, transaction, generation) || redisGeneration == null) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(transaction))
+                .flatMap(value -> redisTemplate.execute(CACHE_IF_UNCHANGED,
+                        List.of(KEY_PREFIX + paymentRequestId, GENERATION_PREFIX + paymentRequestId),
+                        List.of(redisGeneration, String.valueOf(Objects.requireNonNullElse(transaction.getVersion(), 0L)),
+                                value, String.valueOf(redisTtl.toMillis()))).next())
+                .timeout(redisTimeout)
+                .doOnError(error -> log.debug("Redis cache write failed for transaction {}", paymentRequestId, error))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    private boolean putLocal(String paymentRequestId, R2PTransaction transaction, long generation) {
+        if (generation(paymentRequestId) != generation) {
+            return false;
+        }
+        local.put(paymentRequestId, transaction.toBuilder().build());
+        if (generation(paymentRequestId) != generation) {
+            local.invalidate(paymentRequestId);
+            return false;
+        }
+        return true;
+    }
+
+    private R2PTransaction deserialize(String value) {
+        try {
+            return objectMapper.readValue(value, R2PTransaction.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable cached transaction", e);
+        }
+    }
+
+    private long generation(String paymentRequestId) {
+        return generations.get(stripe(paymentRequestId));
+    }
+
+    private void bumpGeneration(String paymentRequestId) {
+        generations.incrementAndGet(stripe(paymentRequestId));
+    }
+
+    private static int stripe(String paymentRequestId) {
+        return Math.floorMod(paymentRequestId.hashCode(), GENERATION_STRIPES);
+    }
+}
@@ -0,0 +1,160 @@
+package dev.tsvinc.r2p.infrastructure.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionQueries;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStore;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import io.r2dbc.postgresql.codec.Json;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Data access for {@code r2p_event_outbox} (see V10 migration). With sharding, each shard keeps the events
+ * of the payment requests it holds; {@link OutboxRelay} selects the shard for everything but {@link #append}.
+ */
+@Component
+@RequiredArgsConstructor
+public class EventOutbox {
+
+    private static final int MAX_ERROR_LENGTH = 2_000;
+
+    private final DatabaseClient databaseClient;
+    private final ObjectMapper objectMapper;
+    private final R2PTransactionStore transactionStore;
+    private final ShardRouting shardRouting;
+
+    /**
+     * Appends {@code event} for {@code aggregateId}. Participates in the caller's transaction, on the
+     * persistence engine's own connection where it has one, so the event commits or rolls back together
+     * with the change it describes. With sharding, that transaction must be on the aggregate's shard.
+     */
+    public Mono<Void> append(String aggregateId, Object event) {
+        String eventType = event.getClass().getName();
+        return Mono.fromCallable(() -> Json.of(objectMapper.writeValueAsBytes(event)))
+                .flatMap(payload -> transactionStore.appendEvent(aggregateId, eventType, payload)
+                        .filter(appended -> !appended)
+                        .flatMap(unused -> shardRouting.on(aggregateId,
+                                databaseClient.sql(R2PTransactionQueries.APPEND_OUTBOX_EVENT)
+                                        .bind("aggregateId", aggregateId)
+                                        .bind("eventType", eventType)
+                                        .bind("payload", payload)
+                                        .then())));
+    }
+
+    /**
+     * Leases up to {@code batchSize} pending events in id order to {@code leaseToken} until {@code lease}
+     * from now. Aggregates are claimed whole: candidate aggregates are first taken with a
+     * transaction-scoped advisory lock, skipping those another relay is claiming, and the lease is then
+     * written in a second statement whose snapshot already sees every lease committed before those locks
+     * were granted, so an aggregate with a live lease is never claimed twice. Aggregates with an event
+     * whose {@code next_attempt_at} is still ahead are skipped. Must run inside a transaction, which should
+     * commit right after; delivery happens outside it.
+     */
+    Flux<OutboxEvent> claimBatch(int batchSize, UUID leaseToken, Duration lease) {
+        return databaseClient.sql("SELECT aggregate_id FROM (SELECT DISTINCT aggregate_id FROM " +
+                        "(SELECT aggregate_id FROM r2p_event_outbox WHERE NOT dead_lettered " +
+                        "AND (leased_until IS NULL OR leased_until < clock_timestamp()) " +
+                        "AND (next_attempt_at IS NULL OR next_attempt_at <= clock_timestamp()) " +
+                        "ORDER BY id LIMIT :batchSize) c) candidates " +
+                        "WHERE pg_try_advisory_xact_lock(hashtext('r2p_event_outbox'), hashtext(aggregate_id))")
+                .bind("batchSize", batchSize)
+                .map(row -> row.get("aggregate_id", String.class))
+                .all()
+                .collectList()
+                .flatMapMany(aggregates -> aggregates.isEmpty()
+                        ? Flux.empty()
+                        : lease(aggregates, batchSize, leaseToken, lease))
+                .sort(Comparator.comparing(OutboxEvent::id));
+    }
+
+    private Flux<OutboxEvent> lease(List<String> aggregates, int batchSize, UUID leaseToken, Duration lease) {
+        return databaseClient.sql("UPDATE r2p_event_outbox o SET lease_token = :leaseToken, " +
+                        "leased_until = clock_timestamp() + CAST(:leaseMillis AS FLOAT8) * INTERVAL '1 millisecond' " +
+                        "FROM (SELECT e.id FROM r2p_event_outbox e WHERE e.aggregate_id = ANY(:aggregates) " +
+                        "AND NOT e.dead_lettered AND NOT EXISTS (SELECT 1 FROM r2p_event_outbox l " +
+                        "WHERE l.aggregate_id = e.aggregate_id AND NOT l.dead_lettered " +
+                        "AND (l.leased_until >= clock_timestamp() OR l.next_attempt_at > clock_timestamp())) " +
+                        "ORDER BY e.id LIMIT :batchSize FOR UPDATE SKIP LOCKED) claimed " +
+                        "WHERE o.id = claimed.id " +
+                        "RETURNING o.id, o.aggregate_id, o.event_type, o.payload, o.attempts, " +
+                        "EXTRACT(EPOCH FROM clock_timestamp() - o.created_at)::FLOAT8 AS age_seconds")
+                .bind("leaseToken", leaseToken)
+                .bind("leaseMillis", lease.toMillis())
+                .bind("aggregates", aggregates.toArray(String[]::new))
+                .bind("batchSize", batchSize)
+                .map(row -> new OutboxEvent(
+                        row.get("id", Long.class),
+                        row.get("aggregate_id", String.class),
+                        row.get("event_type", String.class),
+                        row.get("payload", Json.class),
+                        row.get("attempts", Integer.class),
+                        row.get("age_seconds", Double.class)))
+                .all();
+    }
+
+    /**
+     * Deletes delivered events, unless their lease expired and another relay has taken them over.
+     */
+    Mono<Long> delete(List<Long> ids, UUID leaseToken) {
+        if (ids.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return databaseClient.sql("DELETE FROM r2p_event_outbox WHERE id = ANY(:ids) AND lease_token = :leaseToken")
+                .bind("ids", ids.toArray(Long[]::new))
+                .bind("leaseToken", leaseToken)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Hands leased events that were not delivered back to the next claim.
+     */
+    Mono<Long> release(List<Long> ids, UUID leaseToken) {
+        if (ids.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return databaseClient.sql("UPDATE r2p_event_outbox SET lease_token = NULL, leased_until = NULL " +
+                        "WHERE id = ANY(:ids) AND lease_token = :leaseToken")
+                .bind("ids", ids.toArray(Long[]::new))
+                .bind("leaseToken", leaseToken)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Records a failed delivery and releases the event's lease, holding the event and the rest of its
+     * aggregate back for {@code backoff}; returns whether the event has now been dead-lettered.
+     */
+    Mono<Boolean> recordFailure(Long id, UUID leaseToken, Throwable error, int maxAttempts, Duration backoff) {
+        String message = String.valueOf(error.getMessage());
+        return databaseClient.sql("UPDATE r2p_event_outbox SET attempts = attempts + 1, last_error = :error, " +
+                        "dead_lettered = attempts + 1 >= :maxAttempts, lease_token = NULL, leased_until = NULL, " +
+                        "next_attempt_at = clock_timestamp() + CAST(:backoffMillis AS FLOAT8) * INTERVAL '1 millisecond' " +
+                        "WHERE id = :id AND lease_token = :leaseToken RETURNING dead_lettered")
+                .bind("error", message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message)
+                .bind("maxAttempts", maxAttempts)
+                .bind("backoffMillis", backoff.toMillis())
+                .bind("id", id)
+                .bind("leaseToken", leaseToken)
+                .map(row -> row.get("dead_lettered", Boolean.class))
+                .one();
+    }
+
+    /**
+     * Age in seconds of the oldest undelivered event, or zero when the backlog is empty.
+     */
+    Mono<Double> oldestPendingAgeSeconds() {
+        return databaseClient.sql("SELECT COALESCE(EXTRACT(EPOCH FROM clock_timestamp() - MIN(created_at)), 0)::FLOAT8 " +
+                        "AS age_seconds FROM r2p_event_outbox WHERE NOT dead_lettered")
+                .map(row -> row.get("age_seconds", Double.class))
+                .one();
+    }
+}
@@ -0,0 +1,146 @@
+package dev.tsvinc.r2p.infrastructure.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tsvinc.r2p.infrastructure.persistence.memory.InMemoryTransactionStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link OutboxRelay} for the in-memory persistence engine: delivers the events {@link InMemoryTransactionStore}
+ * published on commit, in publication order, and acknowledges them once listeners have taken them. There is
+ * one outbox per process, so a single worker walks it. A failed event holds back the rest of its aggregate's
+ * events for the same backoff {@link OutboxRelay} applies, and is dead-lettered (logged and dropped) after
+ * {@code max-attempts} failures. Attempt counts and backoffs live in this relay and start over after a
+ * restart; delivery is at-least-once.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnExpression("${r2p.outbox.relay.enabled:true} and '${r2p.persistence.engine:r2dbc}' == 'memory'")
+public class InMemoryOutboxRelay {
+
+    private final InMemoryTransactionStore transactionStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${r2p.outbox.relay.batch-size:200}")
+    private int batchSize;
+
+    @Value("${r2p.outbox.relay.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    @Value("${r2p.outbox.relay.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${r2p.outbox.relay.backoff.initial:1s}")
+    private Duration initialBackoff;
+
+    @Value("${r2p.outbox.relay.backoff.max:5m}")
+    private Duration maxBackoff;
+
+    private final Map<Long, Integer> failedAttempts = new ConcurrentHashMap<>();
+    private final Map<String, Instant> nextAttemptAt = new ConcurrentHashMap<>();
+
+    private Counter deliveredCounter;
+    private Counter failedCounter;
+    private Counter deadLetteredCounter;
+    private Timer lagTimer;
+
+    @PostConstruct
+    public void init() {
+        deliveredCounter = Counter.builder("r2p.outbox.delivered")
+                .description("Number of outbox events delivered to listeners")
+                .register(meterRegistry);
+
+        failedCounter = Counter.builder("r2p.outbox.failed")
+                .description("Number of failed outbox deliveries")
+                .register(meterRegistry);
+
+        deadLetteredCounter = Counter.builder("r2p.outbox.dead.lettered")
+                .description("Number of outbox events moved aside after max-attempts failures")
+                .register(meterRegistry);
+
+        lagTimer = Timer.builder("r2p.outbox.lag")
+                .description("Time from appending an outbox event to its delivery")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Walks the outbox batch by batch, capped at {@code max-batches-per-run}. Aggregates that fail stay
+     * blocked until their backoff has passed.
+     */
+    @Scheduled(fixedDelayString = "${r2p.outbox.relay.fixed-delay-ms:1000}",
+            initialDelayString = "${r2p.outbox.relay.initial-delay-ms:5000}")
+    public Mono<Void> relay() {
+        Instant now = Instant.now();
+        nextAttemptAt.values().removeIf(at -> !at.isAfter(now));
+        Set<String> blockedAggregates = new HashSet<>(nextAttemptAt.keySet());
+        return drainBatch(null, blockedAggregates)
+                .expand(batch -> batch.size() == batchSize
+                        ? drainBatch(batch.getLast().id(), blockedAggregates)
+                        : Mono.empty())
+                .take(maxBatchesPerRun)
+                .doOnError(error -> log.error("In-memory outbox relay run failed", error))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    private Mono<List<OutboxEvent>> drainBatch(Long afterId, Set<String> blockedAggregates) {
+        return Mono.fromSupplier(() -> transactionStore.pendingEvents(afterId, batchSize))
+                .flatMap(batch -> deliver(batch, blockedAggregates).thenReturn(batch));
+    }
+
+    private Mono<Void> deliver(List<OutboxEvent> batch, Set<String> blockedAggregates) {
+        List<Long> done = new ArrayList<>(batch.size());
+        return Flux.fromIterable(batch)
+                .filter(event -> !blockedAggregates.contains(event.aggregateId()))
+                .concatMap(event -> Mono.fromRunnable(() -> OutboxRelay.dispatch(event, objectMapper, eventPublisher))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .then(Mono.fromRunnable(() -> {
+                            done.add(event.id());
+                            failedAttempts.remove(event.id());
+                            deliveredCounter.increment();
+                            lagTimer.record(Duration.ofMillis((long) (event.ageSeconds() * 1000)));
+                        }))
+                        .onErrorResume(error -> Mono.fromRunnable(() -> {
+                            failedCounter.increment();
+                            int attempts = failedAttempts.merge(event.id(), 1, Integer::sum);
+                            if (attempts >= maxAttempts) {
+                                done.add(event.id());
+                                failedAttempts.remove(event.id());
+                                deadLetteredCounter.increment();
+                                log.error("Dead-lettered outbox event {} ({}) for paymentRequestId: {} after {} attempts",
+                                        event.id(), event.eventType(), event.aggregateId(), attempts, error);
+                            } else {
+                                blockedAggregates.add(event.aggregateId());
+                                nextAttemptAt.put(event.aggregateId(),
+                                        Instant.now().plus(OutboxRelay.backoff(attempts, initialBackoff, maxBackoff)));
+                                log.warn("Outbox event {} ({}) for paymentRequestId: {} failed, will retry: {}",
+                                        event.id(), event.eventType(), event.aggregateId(), error.getMessage());
+                            }
+                        })))
+                .then(Mono.fromRunnable(() -> transactionStore.acknowledgeEvents(done)));
+    }
+}
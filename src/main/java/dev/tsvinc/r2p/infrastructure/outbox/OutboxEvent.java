@@ -0,0 +1,14 @@
+package dev.tsvinc.r2p.infrastructure.outbox;
+
+import io.r2dbc.postgresql.codec.Json;
+
+/**
+ * An outbox event claimed for delivery; {@code ageSeconds} is its age when it was claimed.
+ */
+public record OutboxEvent(
+        Long id,
+        String aggregateId,
+        String eventType,
+        Json payload,
+        int attempts,
+        double ageSeconds) {}
@@ -0,0 +1,210 @@
+package dev.tsvinc.r2p.infrastructure.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers outbox events to {@link ApplicationEventPublisher} listeners after the writing transaction
+ * has committed. Each worker leases a batch in a short transaction, delivers it in id order without
+ * holding a transaction or connection, then deletes the delivered rows and releases the rest. Delivery
+ * is at-least-once: a crash mid-batch leaves the lease to expire after {@code lease}, and the batch is
+ * delivered again. When an event fails, the rest of its aggregate's batch is held back to keep
+ * per-payment-request order, and the aggregate is not claimed again before an exponential backoff from
+ * {@code backoff.initial} up to {@code backoff.max} has passed, so a short downstream outage does not use
+ * up {@code max-attempts}. {@code lease} must exceed the time listeners take for one batch. With sharding,
+ * every shard's outbox gets its own {@code parallelism} workers.
+ * <p>
+ * The in-memory persistence engine keeps its own outbox, delivered by {@link InMemoryOutboxRelay} instead.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnExpression("${r2p.outbox.relay.enabled:true} and '${r2p.persistence.engine:r2dbc}' != 'memory'")
+public class OutboxRelay {
+
+    private static final String EVENT_PACKAGE = "dev.tsvinc.r2p.domain.events.";
+
+    private final EventOutbox eventOutbox;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final TransactionalOperator transactionalOperator;
+    private final ShardRouting shardRouting;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${r2p.outbox.relay.batch-size:200}")
+    private int batchSize;
+
+    @Value("${r2p.outbox.relay.parallelism:4}")
+    private int parallelism;
+
+    @Value("${r2p.outbox.relay.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    @Value("${r2p.outbox.relay.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${r2p.outbox.relay.lease:5m}")
+    private Duration lease;
+
+    @Value("${r2p.outbox.relay.backoff.initial:1s}")
+    private Duration initialBackoff;
+
+    @Value("${r2p.outbox.relay.backoff.max:5m}")
+    private Duration maxBackoff;
+
+    private final AtomicLong oldestPendingAgeMillis = new AtomicLong();
+
+    private Counter deliveredCounter;
+    private Counter failedCounter;
+    private Counter deadLetteredCounter;
+    private Timer lagTimer;
+
+    @PostConstruct
+    public void init() {
+        deliveredCounter = Counter.builder("r2p.outbox.delivered")
+                .description("Number of outbox events delivered to listeners")
+                .register(meterRegistry);
+
+        failedCounter = Counter.builder("r2p.outbox.failed")
+                .description("Number of failed outbox deliveries")
+                .register(meterRegistry);
+
+        deadLetteredCounter = Counter.builder("r2p.outbox.dead.lettered")
+                .description("Number of outbox events moved aside after max-attempts failures")
+                .register(meterRegistry);
+
+        lagTimer = Timer.builder("r2p.outbox.lag")
+                .description("Time from appending an outbox event to its delivery")
+                .register(meterRegistry);
+
+        Gauge.builder("r2p.outbox.oldest.age", oldestPendingAgeMillis, age -> age.get() / 1000.0)
+                .description("Age in seconds of the oldest undelivered outbox event")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code parallelism} workers per shard that each drain full batches back to back, capped at
+     * {@code max-batches-per-run} per worker.
+     */
+    @Scheduled(fixedDelayString = "${r2p.outbox.relay.fixed-delay-ms:1000}",
+            initialDelayString = "${r2p.outbox.relay.initial-delay-ms:5000}")
+    public Mono<Void> relay() {
+        return Flux.range(0, shardRouting.shardCount())
+                .flatMap(shard -> Flux.range(0, parallelism)
+                        .flatMap(worker -> drainBatch(shard)
+                                .expand(claimed -> claimed == batchSize ? drainBatch(shard) : Mono.empty())
+                                .take(maxBatchesPerRun), parallelism), shardRouting.shardCount())
+                .then(shardRouting.fanOut(shard -> eventOutbox.oldestPendingAgeSeconds()).reduce(Math::max))
+                .doOnNext(age -> oldestPendingAgeMillis.set((long) (age * 1000)))
+                .doOnError(error -> log.error("Outbox relay run failed", error))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    Mono<Integer> drainBatch(int shard) {
+        UUID leaseToken = UUID.randomUUID();
+        return shardRouting.onShard(shard, eventOutbox.claimBatch(batchSize, leaseToken, lease)
+                        .collectList()
+                        .as(transactionalOperator::transactional))
+                .flatMap(batch -> batch.isEmpty()
+                        ? Mono.just(0)
+                        : deliver(shard, batch, leaseToken, System.nanoTime()).thenReturn(batch.size()));
+    }
+
+    private Mono<Void> deliver(int shard, List<OutboxEvent> batch, UUID leaseToken, long claimedAtNanos) {
+        List<Long> delivered = new ArrayList<>(batch.size());
+        List<Long> failed = new ArrayList<>();
+        Set<String> blockedAggregates = new HashSet<>();
+        return Flux.fromIterable(batch)
+                .filter(event -> !blockedAggregates.contains(event.aggregateId()))
+                .concatMap(event -> Mono.fromRunnable(() -> dispatch(event))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .then(Mono.fromRunnable(() -> {
+                            delivered.add(event.id());
+                            deliveredCounter.increment();
+                            lagTimer.record(Duration.ofMillis((long) (event.ageSeconds() * 1000))
+                                    .plusNanos(System.nanoTime() - claimedAtNanos));
+                        }))
+                        .onErrorResume(error -> {
+                            blockedAggregates.add(event.aggregateId());
+                            failed.add(event.id());
+                            failedCounter.increment();
+                            Duration backoff = backoff(event.attempts() + 1, initialBackoff, maxBackoff);
+                            return shardRouting.onShard(shard,
+                                            eventOutbox.recordFailure(event.id(), leaseToken, error, maxAttempts, backoff))
+                                    .doOnNext(deadLettered -> logFailure(event, error, deadLettered))
+                                    .then();
+                        }))
+                .then(Mono.defer(() -> shardRouting.onShard(shard, eventOutbox.delete(delivered, leaseToken))))
+                .then(Mono.defer(() -> shardRouting.onShard(shard, eventOutbox.release(batch.stream()
+                        .map(OutboxEvent::id)
+                        .filter(id -> !delivered.contains(id) && !failed.contains(id))
+                        .toList(), leaseToken))))
+                .then();
+    }
+
+    private void dispatch(OutboxEvent event) {
+        dispatch(event, objectMapper, eventPublisher);
+    }
+
+    /**
+     * Deserializes {@code event} into its domain event class and publishes it to the listeners.
+     */
+    static void dispatch(OutboxEvent event, ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher) {
+        if (!event.eventType().startsWith(EVENT_PACKAGE)) {
+            throw new IllegalStateException("Unexpected outbox event type: " + event.eventType());
+        }
+        try {
+            Object payload = objectMapper.readValue(event.payload().asArray(), Class.forName(event.eventType()));
+            eventPublisher.publishEvent(payload);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to deliver outbox event " + event.id(), e);
+        }
+    }
+
+    /**
+     * Delay before the next delivery of an event that has failed {@code attempts} times: {@code initial},
+     * doubled per further failure and capped at {@code max}.
+     */
+    static Duration backoff(int attempts, Duration initial, Duration max) {
+        int doublings = Math.min(Math.max(attempts - 1, 0), 30);
+        Duration backoff = initial.multipliedBy(1L << doublings);
+        return backoff.compareTo(max) > 0 ? max : backoff;
+    }
+
+    private void logFailure(OutboxEvent event, Throwable error, boolean deadLettered) {
+        if (deadLettered) {
+            deadLetteredCounter.increment();
+            log.error("Dead-lettered outbox event {} ({}) for paymentRequestId: {} after {} attempts",
+                    event.id(), event.eventType(), event.aggregateId(), event.attempts() + 1, error);
+        } else {
+            log.warn("Outbox event {} ({}) for paymentRequestId: {} failed, will retry: {}",
+                    event.id(), event.eventType(), event.aggregateId(), error.getMessage());
+        }
+    }
+}
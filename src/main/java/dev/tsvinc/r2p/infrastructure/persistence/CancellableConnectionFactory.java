@@ -0,0 +1,206 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Batch;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.ConnectionMetadata;
+import io.r2dbc.spi.IsolationLevel;
+import io.r2dbc.spi.Statement;
+import io.r2dbc.spi.TransactionDefinition;
+import io.r2dbc.spi.ValidationDepth;
+import io.r2dbc.spi.Wrapped;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.DisposableBean;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Hands out connections that honour {@link QueryCancellation}: a connection acquired by a marked query
+ * that gets cancelled sends a Postgres cancel request on close and is then discarded rather than reused.
+ * Unmarked work gets the delegate's connections unchanged. Delegates lifecycle callbacks so the wrapped
+ * pool is still disposed with the context.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class CancellableConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory>, DisposableBean {
+
+    private final ConnectionFactory delegate;
+
+    @Override
+    public Publisher<? extends Connection> create() {
+        return Mono.deferContextual(context -> {
+            Mono<? extends Connection> connection = Mono.from(delegate.create());
+            return context.<QueryCancellation.Handle>getOrEmpty(QueryCancellation.HANDLE_KEY)
+                    .<Mono<? extends Connection>>map(handle -> connection.map(target -> new CancellableConnection(target, handle)))
+                    .orElse(connection);
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return delegate.getMetadata();
+    }
+
+    @Override
+    public ConnectionFactory unwrap() {
+        return delegate;
+    }
+
+    /**
+     * Destroy method of the auto-configured {@code ConnectionPool} bean.
+     */
+    public void dispose() {
+        if (delegate instanceof Disposable disposable) {
+            disposable.dispose();
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (delegate instanceof DisposableBean disposableBean) {
+            disposableBean.destroy();
+        }
+    }
+
+    @RequiredArgsConstructor
+    static final class CancellableConnection implements Connection, Wrapped<Connection> {
+
+        private final Connection delegate;
+        private final QueryCancellation.Handle handle;
+
+        /**
+         * Postgres applies a cancel request asynchronously to whatever its backend is running when the request
+         * arrives. Once cancelled, the physical connection is therefore closed instead of going back to the pool,
+         * where the late cancel could hit the next borrower's statement. Closing it makes the pool's validation
+         * on acquire discard the slot.
+         */
+        @Override
+        public Publisher<Void> close() {
+            if (!handle.isCancelled()) {
+                return delegate.close();
+            }
+            PostgresqlConnection physical = physicalConnection();
+            if (physical == null) {
+                return delegate.close();
+            }
+            Mono<Void> discard = physical == delegate
+                    ? Mono.empty()
+                    : Mono.defer(() -> Mono.from(physical.close()))
+                            .doOnError(error -> log.debug("Failed to close cancelled connection", error))
+                            .onErrorResume(error -> Mono.empty());
+            return cancelRequest(physical)
+                    .then(discard)
+                    .then(Mono.defer(() -> Mono.from(delegate.close())));
+        }
+
+        private PostgresqlConnection physicalConnection() {
+            Object target = delegate;
+            while (!(target instanceof PostgresqlConnection) && target instanceof Wrapped<?> wrapped) {
+                target = wrapped.unwrap();
+            }
+            return target instanceof PostgresqlConnection postgresConnection ? postgresConnection : null;
+        }
+
+        private static Mono<Void> cancelRequest(PostgresqlConnection connection) {
+            return connection.cancelRequest()
+                    .doOnError(error -> log.warn("Failed to send cancel request for abandoned query", error))
+                    .onErrorResume(error -> Mono.empty());
+        }
+
+        @Override
+        public Connection unwrap() {
+            return delegate;
+        }
+
+        @Override
+        public Publisher<Void> beginTransaction() {
+            return delegate.beginTransaction();
+        }
+
+        @Override
+        public Publisher<Void> beginTransaction(TransactionDefinition definition) {
+            return delegate.beginTransaction(definition);
+        }
+
+        @Override
+        public Publisher<Void> commitTransaction() {
+            return delegate.commitTransaction();
+        }
+
+        @Override
+        public Batch createBatch() {
+            return delegate.createBatch();
+        }
+
+        @Override
+        public Publisher<Void> createSavepoint(String name) {
+            return delegate.createSavepoint(name);
+        }
+
+        @Override
+        public Statement createStatement(String sql) {
+            return delegate.createStatement(sql);
+        }
+
+        @Override
+        public boolean isAutoCommit() {
+            return delegate.isAutoCommit();
+        }
+
+        @Override
+        public ConnectionMetadata getMetadata() {
+            return delegate.getMetadata();
+        }
+
+        @Override
+        public IsolationLevel getTransactionIsolationLevel() {
+            return delegate.getTransactionIsolationLevel();
+        }
+
+        @Override
+        public Publisher<Void> releaseSavepoint(String name) {
+            return delegate.releaseSavepoint(name);
+        }
+
+        @Override
+        public Publisher<Void> rollbackTransaction() {
+            return delegate.rollbackTransaction();
+        }
+
+        @Override
+        public Publisher<Void> rollbackTransactionToSavepoint(String name) {
+            return delegate.rollbackTransactionToSavepoint(name);
+        }
+
+        @Override
+        public Publisher<Void> setAutoCommit(boolean autoCommit) {
+            return delegate.setAutoCommit(autoCommit);
+        }
+
+        @Override
+        public Publisher<Void> setLockWaitTimeout(Duration timeout) {
+            return delegate.setLockWaitTimeout(timeout);
+        }
+
+        @Override
+        public Publisher<Void> setStatementTimeout(Duration timeout) {
+            return delegate.setStatementTimeout(timeout);
+        }
+
+        @Override
+        public Publisher<Void> setTransactionIsolationLevel(IsolationLevel isolationLevel) {
+            return delegate.setTransactionIsolationLevel(isolationLevel);
+        }
+
+        @Override
+        public Publisher<Boolean> validate(ValidationDepth depth) {
+            return delegate.validate(depth);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Wrapped;
+
+/**
+ * Access to driver-specific features (COPY, LISTEN/NOTIFY) behind pool and Spring connection proxies.
+ */
+public final class PostgresConnections {
+
+    private PostgresConnections() {
+    }
+
+    public static PostgresqlConnection unwrap(Connection connection) {
+        Object candidate = connection;
+        while (!(candidate instanceof PostgresqlConnection) && candidate instanceof Wrapped<?> wrapped) {
+            candidate = wrapped.unwrap();
+        }
+        if (candidate instanceof PostgresqlConnection postgresqlConnection) {
+            return postgresqlConnection;
+        }
+        throw new IllegalStateException("Expected a PostgreSQL connection, got " + connection.getClass().getName());
+    }
+}
@@ -0,0 +1,66 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Marks queries whose subscribers may go away mid-flight, typically because the HTTP client disconnected.
+ * When a marked query is cancelled, every connection it still holds sends a Postgres cancel request and is
+ * discarded instead of going back to the pool (see {@link CancellableConnectionFactory}), rather than
+ * letting the server run the query to completion while the connection drains the remaining rows.
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryCancellation {
+
+    static final String HANDLE_KEY = QueryCancellation.class.getName() + ".HANDLE";
+
+    private final MeterRegistry meterRegistry;
+
+    public <T> Flux<T> cancellable(String queryType, Flux<T> query) {
+        return Flux.defer(() -> {
+            Handle handle = new Handle();
+            return query.doOnCancel(() -> cancelled(queryType, handle))
+                    .contextWrite(context -> context.put(HANDLE_KEY, handle));
+        });
+    }
+
+    public <T> Mono<T> cancellable(String queryType, Mono<T> query) {
+        return Mono.defer(() -> {
+            Handle handle = new Handle();
+            return query.doOnCancel(() -> cancelled(queryType, handle))
+                    .contextWrite(context -> context.put(HANDLE_KEY, handle));
+        });
+    }
+
+    private void cancelled(String queryType, Handle handle) {
+        handle.cancel();
+        Counter.builder("r2p.query.cancellations")
+                .description("Queries abandoned by their subscriber before completing")
+                .tag("query", queryType)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Cancellation state of one marked query, shared by every connection the query acquires.
+     */
+    static final class Handle {
+
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        void cancel() {
+            cancelled.set(true);
+        }
+
+        boolean isCancelled() {
+            return cancelled.get();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.Connection;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of {@code r2p_transactions} (see V2 migration) rolling:
+ * creates partitions ahead of the current month and detaches, and optionally drops,
+ * partitions older than the retention window, together with the initiation keys (V8) and
+ * payment request IDs (V12) of those months.
+ * <p>
+ * Every replica schedules the job, but a run first takes a session-level advisory lock and is skipped
+ * while another replica holds it, so creates and detaches never race. {@code DETACH ... CONCURRENTLY}
+ * cannot run inside a transaction, so the lock is held by a connection pinned for the run rather than
+ * by a transaction, and released before that connection goes back to the pool. With sharding, each shard
+ * is maintained in turn under a lock of its own, and a shard that fails does not hold back the others.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "r2p.persistence.partitions.maintenance.enabled", havingValue = "true", matchIfMissing = true)
+public class R2PPartitionMaintenanceJob {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("r2p_transactions_p(\\d{6})");
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String LOCK_KEY = "hashtext('r2p_partition_maintenance')";
+
+    private final DatabaseClient databaseClient;
+    private final ShardRouting shardRouting;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${r2p.persistence.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${r2p.persistence.partitions.retention-months:24}")
+    private int retentionMonths;
+
+    @Value("${r2p.persistence.partitions.drop-detached:false}")
+    private boolean dropDetached;
+
+    private Counter createdCounter;
+    private Counter detachedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void init() {
+        createdCounter = Counter.builder("r2p.partitions.ensured")
+                .description("Number of monthly partitions ensured ahead of time")
+                .register(meterRegistry);
+
+        detachedCounter = Counter.builder("r2p.partitions.detached")
+                .description("Number of expired monthly partitions detached")
+                .register(meterRegistry);
+
+        failedCounter = Counter.builder("r2p.partitions.maintenance.failures")
+                .description("Number of partition maintenance runs that failed")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainPartitionsOnStartup() {
+        maintainPartitions().subscribe();
+    }
+
+    @Scheduled(cron = "${r2p.persistence.partitions.maintenance.cron:0 15 2 * * *}")
+    public Mono<Void> maintainPartitions() {
+        return Flux.range(0, shardRouting.shardCount())
+                .concatMap(shard -> shardRouting.onShard(shard, databaseClient.inConnection(connection -> Mono.usingWhen(
+                                advisoryLock(connection, "pg_try_advisory_lock"),
+                                locked -> locked ? maintain() : skip(),
+                                locked -> locked ? advisoryLock(connection, "pg_advisory_unlock") : Mono.empty())))
+                        .doOnError(error -> {
+                            failedCounter.increment();
+                            log.error("Partition maintenance failed for r2p_transactions on shard {}", shard, error);
+                        })
+                        .onErrorResume(error -> Mono.empty()))
+                .then();
+    }
+
+    private Mono<Void> maintain() {
+        YearMonth currentMonth = YearMonth.now();
+        return createPartitionsAhead(currentMonth)
+                .then(detachExpiredPartitions(currentMonth.minusMonths(retentionMonths)))
+                .then(pruneInitiationKeys(currentMonth.minusMonths(retentionMonths)))
+                .then(prunePaymentRequestIds(currentMonth.minusMonths(retentionMonths)))
+                .doOnSuccess(unused -> log.info("Partition maintenance completed for r2p_transactions"));
+    }
+
+    private Mono<Void> skip() {
+        return Mono.fromRunnable(() ->
+                log.info("Partition maintenance for r2p_transactions is running on another replica, skipping"));
+    }
+
+    private static Mono<Boolean> advisoryLock(Connection connection, String function) {
+        return Flux.from(connection.createStatement("SELECT " + function + "(" + LOCK_KEY + ") AS locked").execute())
+                .concatMap(result -> result.map((row, metadata) -> Boolean.TRUE.equals(row.get("locked", Boolean.class))))
+                .next();
+    }
+
+    Mono<Void> createPartitionsAhead(YearMonth currentMonth) {
+        return Flux.range(0, monthsAhead + 1)
+                .map(currentMonth::plusMonths)
+                .concatMap(month -> databaseClient.sql("SELECT r2p_create_monthly_partition(:monthStart)")
+                        .bind("monthStart", month.atDay(1))
+                        .then()
+                        .doOnSuccess(unused -> createdCounter.increment()))
+                .then();
+    }
+
+    /**
+     * Detaches every monthly partition strictly older than {@code oldestRetainedMonth}.
+     * Detaching is a catalog operation, so retention no longer costs a bulk DELETE. Partitions are
+     * detached {@code CONCURRENTLY}, which holds only SHARE UPDATE EXCLUSIVE on the parent; a detach
+     * interrupted between its two transactions is left pending and is finalized on the next run.
+     */
+    Mono<Void> detachExpiredPartitions(YearMonth oldestRetainedMonth) {
+        return databaseClient.sql("SELECT c.relname AS partition_name, i.inhdetachpending AS pending " +
+                        "FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "JOIN pg_class p ON p.oid = i.inhparent " +
+                        "WHERE p.relname = 'r2p_transactions'")
+                .map(row -> new AttachedPartition(row.get("partition_name", String.class),
+                        Boolean.TRUE.equals(row.get("pending", Boolean.class))))
+                .all()
+                .filter(partition -> PARTITION_NAME.matcher(partition.name()).matches())
+                .filter(partition -> partition.pending() || isOlderThan(partition.name(), oldestRetainedMonth))
+                .concatMap(this::detachPartition)
+                .then();
+    }
+
+    Mono<Void> pruneInitiationKeys(YearMonth oldestRetainedMonth) {
+        return databaseClient.sql("DELETE FROM r2p_initiation_keys WHERE created_at < :cutoff")
+                .bind("cutoff", oldestRetainedMonth.atDay(1).atStartOfDay())
+                .fetch()
+                .rowsUpdated()
+                .doOnNext(deleted -> log.info("Pruned {} initiation keys older than {}", deleted, oldestRetainedMonth))
+                .then();
+    }
+
+    Mono<Void> prunePaymentRequestIds(YearMonth oldestRetainedMonth) {
+        return databaseClient.sql("DELETE FROM r2p_payment_request_ids WHERE created_at < :cutoff")
+                .bind("cutoff", oldestRetainedMonth.atDay(1).atStartOfDay())
+                .fetch()
+                .rowsUpdated()
+                .doOnNext(deleted -> log.info("Pruned {} payment request IDs older than {}", deleted,
+                        oldestRetainedMonth))
+                .then();
+    }
+
+    private Mono<Void> detachPartition(AttachedPartition partition) {
+        String partitionName = partition.name();
+        // Partition names are validated against PARTITION_NAME, so they are safe to inline.
+        // CONCURRENTLY cannot run in a transaction block, so this must stay outside any TransactionalOperator.
+        String sql = "ALTER TABLE r2p_transactions DETACH PARTITION " + partitionName
+                + (partition.pending() ? " FINALIZE" : " CONCURRENTLY");
+        Mono<Void> detach = databaseClient.sql(sql)
+                .then()
+                .doOnSuccess(unused -> {
+                    detachedCounter.increment();
+                    log.info("Detached expired partition: {}", partitionName);
+                });
+        if (!dropDetached) {
+            return detach;
+        }
+        return detach.then(databaseClient.sql("DROP TABLE " + partitionName).then())
+                .doOnSuccess(unused -> log.info("Dropped detached partition: {}", partitionName));
+    }
+
+    private static boolean isOlderThan(String partitionName, YearMonth oldestRetainedMonth) {
+        Matcher matcher = PARTITION_NAME.matcher(partitionName);
+        return matcher.matches()
+                && YearMonth.parse(matcher.group(1), PARTITION_MONTH).isBefore(oldestRetainedMonth);
+    }
+
+    private record AttachedPartition(String name, boolean pending) {
+    }
+}
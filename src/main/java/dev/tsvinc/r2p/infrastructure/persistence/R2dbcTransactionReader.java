@@ -0,0 +1,150 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.repository.ActiveDebtor;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionFilter;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionReader;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionRepository;
+import dev.tsvinc.r2p.domain.repository.RefundBalance;
+import dev.tsvinc.r2p.domain.repository.SettlementSystemSummary;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * {@link R2PTransactionReader} on the R2DBC repository, for every engine that keeps its rows in Postgres.
+ * Reads go through the routing connection factory, so {@link ReadRouting} can send them to a replica.
+ * With sharding, lookups by payment request ID go to the shard holding it and every other query runs on
+ * all shards with the results merged. Transaction IDs are only unique within a shard, and while
+ * {@code ShardRebalancer} moves a row it can briefly be seen on both shards.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnExpression("'${r2p.persistence.engine:r2dbc}' != 'memory'")
+public class R2dbcTransactionReader implements R2PTransactionReader {
+
+    private static final Comparator<R2PTransaction> KEYSET_ORDER =
+            Comparator.comparing(R2PTransaction::getCreatedAt).thenComparing(R2PTransaction::getId);
+
+    private final R2PTransactionRepository repository;
+    private final ShardRouting shardRouting;
+
+    /**
+     * With sharding, fails with {@link IncorrectResultSizeDataAccessException} when several shards hold a
+     * row with this ID.
+     */
+    @Override
+    public Mono<R2PTransaction> findById(Long id) {
+        if (!shardRouting.isEnabled()) {
+            return repository.findById(id);
+        }
+        return shardRouting.fanOut(shard -> repository.findById(id))
+                .collectList()
+                .flatMap(found -> found.size() > 1
+                        ? Mono.error(new IncorrectResultSizeDataAccessException(
+                                "Transaction ID " + id + " exists on " + found.size() + " shards", 1, found.size()))
+                        : Mono.justOrEmpty(found.stream().findFirst()));
+    }
+
+    @Override
+    public Mono<R2PTransaction> findByPaymentRequestId(String paymentRequestId) {
+        return shardRouting.on(paymentRequestId, repository.findByPaymentRequestId(paymentRequestId));
+    }
+
+    @Override
+    public Flux<R2PTransaction> findByTransactionStatus(String status) {
+        return shardRouting.fanOut(shard -> repository.findByTransactionStatus(status));
+    }
+
+    @Override
+    public Flux<R2PTransaction> findExpiredTransactions(LocalDate today, LocalDateTime createdAfter) {
+        return shardRouting.fanOut(shard -> repository.findExpiredTransactions(today, createdAfter));
+    }
+
+    /**
+     * With sharding, reads up to {@code limit} rows from every shard and keeps the first {@code limit} of
+     * the merge, so pages stay in {@code (created_at, id)} order across shards.
+     */
+    @Override
+    public Flux<R2PTransaction> findPageAfter(R2PTransactionFilter filter,
+                                              LocalDateTime afterCreatedAt,
+                                              Long afterId,
+                                              int limit) {
+        return shardRouting.fanOutOrdered(shard -> repository.findPageAfter(filter, afterCreatedAt, afterId, limit),
+                        KEYSET_ORDER)
+                .take(limit);
+    }
+
+    @Override
+    public Flux<SettlementSystemSummary> summarizeBySettlementSystem(LocalDateTime startDate, LocalDateTime endDate) {
+        if (!shardRouting.isEnabled()) {
+            return repository.summarizeBySettlementSystem(startDate, endDate);
+        }
+        return shardRouting.fanOut(shard -> repository.summarizeBySettlementSystem(startDate, endDate))
+                .collect(Collectors.groupingBy(summary -> Arrays.asList(summary.settlementSystem(), summary.currency())))
+                .flatMapIterable(Map::values)
+                .map(R2dbcTransactionReader::combineSummaries)
+                .sort(Comparator.comparing(SettlementSystemSummary::settlementSystem,
+                                Comparator.nullsLast(Comparator.<String>naturalOrder()))
+                        .thenComparing(SettlementSystemSummary::currency,
+                                Comparator.nullsLast(Comparator.<String>naturalOrder())));
+    }
+
+    /**
+     * With sharding, ranks the sum of every shard's top {@code limit}, so a debtor just outside the top of
+     * each shard can be missed; good enough to pick cache warm-up candidates.
+     */
+    @Override
+    public Flux<ActiveDebtor> findMostActiveDebtors(LocalDateTime createdAfter, int limit) {
+        if (!shardRouting.isEnabled()) {
+            return repository.findMostActiveDebtors(createdAfter, limit);
+        }
+        return shardRouting.fanOut(shard -> repository.findMostActiveDebtors(createdAfter, limit))
+                .collect(Collectors.groupingBy(debtor -> Arrays.asList(
+                        debtor.debtorAlias(), debtor.debtorAliasType(), debtor.debtorAgentId())))
+                .flatMapIterable(Map::values)
+                .map(R2dbcTransactionReader::combineDebtors)
+                .sort(Comparator.comparing(ActiveDebtor::transactionCount).reversed())
+                .take(limit);
+    }
+
+    @Override
+    public Flux<R2PTransaction> findRefundsByOriginalPaymentRequestId(String originalId) {
+        return shardRouting.fanOut(shard -> repository.findRefundsByOriginalPaymentRequestId(originalId));
+    }
+
+    @Override
+    public Mono<RefundBalance> findRefundBalance(String paymentRequestId) {
+        return shardRouting.on(paymentRequestId, repository.findRefundBalance(paymentRequestId));
+    }
+
+    private static SettlementSystemSummary combineSummaries(Collection<SettlementSystemSummary> shards) {
+        SettlementSystemSummary first = shards.iterator().next();
+        return new SettlementSystemSummary(first.settlementSystem(), first.currency(),
+                shards.stream().mapToLong(SettlementSystemSummary::transactionCount).sum(),
+                shards.stream().map(SettlementSystemSummary::totalAcceptedAmount)
+                        .filter(Objects::nonNull)
+                        .reduce(BigDecimal::add)
+                        .orElse(null));
+    }
+
+    private static ActiveDebtor combineDebtors(Collection<ActiveDebtor> shards) {
+        ActiveDebtor first = shards.iterator().next();
+        return new ActiveDebtor(first.debtorAlias(), first.debtorAliasType(), first.debtorAgentId(),
+                shards.stream().mapToLong(ActiveDebtor::transactionCount).sum());
+    }
+}
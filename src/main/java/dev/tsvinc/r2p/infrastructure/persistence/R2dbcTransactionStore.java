@@ -0,0 +1,249 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionRepository;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStore;
+import dev.tsvinc.r2p.domain.repository.TransactionColumns;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import io.r2dbc.postgresql.codec.Json;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.ReactiveTransactionManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Default {@link R2PTransactionStore} on Spring Data R2DBC. Operations join the caller's reactive
+ * transaction, so state changes and their outbox events commit together. With sharding, each operation
+ * runs on the shard {@link ShardRouting} routes its payment request or initiation key to; inside a
+ * transaction, that must be the shard the transaction is bound to.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "r2p.persistence.engine", havingValue = "r2dbc", matchIfMissing = true)
+public class R2dbcTransactionStore implements R2PTransactionStore {
+
+    private final R2PTransactionRepository repository;
+    private final R2dbcEntityTemplate entityTemplate;
+    private final ReactiveTransactionManager transactionManager;
+    private final ShardRouting shardRouting;
+
+    @Override
+    public ReactiveTransactionManager transactionManager() {
+        return transactionManager;
+    }
+
+    @Override
+    public Mono<R2PTransaction> findByPaymentRequestId(String paymentRequestId) {
+        return shardRouting.on(paymentRequestId, repository.findByPaymentRequestId(paymentRequestId));
+    }
+
+    @Override
+    public Mono<R2PTransaction> save(R2PTransaction transaction) {
+        return shardRouting.on(transaction.getPaymentRequestId(), repository.save(transaction));
+    }
+
+    @Override
+    public Mono<R2PTransaction> saveChanges(R2PTransaction original, R2PTransaction modified) {
+        Map<String, Object> changes = TransactionColumns.changed(original, modified);
+        if (changes.isEmpty()) {
+            return Mono.just(modified);
+        }
+        OutboundRow row = new OutboundRow();
+        entityTemplate.getConverter().write(modified, row);
+        DatabaseClient.GenericExecuteSpec update = entityTemplate.getDatabaseClient()
+                .sql(TransactionColumns.updateSql(changes.keySet()))
+                .bind("id", original.getId())
+                .bind("createdAt", original.getCreatedAt())
+                .bind("version", original.getVersion());
+        for (SqlIdentifier column : row.keySet()) {
+            String name = column.getReference();
+            if (changes.containsKey(name)) {
+                var parameter = row.get(column);
+                update = parameter.hasValue()
+                        ? update.bind(name, parameter.getValue())
+                        : update.bindNull(name, parameter.getType());
+            }
+        }
+        return shardRouting.on(original.getPaymentRequestId(), update
+                .map((result, metadata) -> entityTemplate.getConverter().read(R2PTransaction.class, result, metadata))
+                .one()
+                .switchIfEmpty(Mono.error(() -> new OptimisticLockingFailureException(
+                        "Failed to update transaction " + original.getId() + " at version " + original.getVersion()))));
+    }
+
+    /**
+     * New rows go to the current shard of their payment request ID, one batch per shard. Outside a
+     * transaction, each shard's batch commits on its own.
+     */
+    @Override
+    public Flux<R2PTransaction> insertAll(List<R2PTransaction> transactions) {
+        if (!shardRouting.isEnabled()) {
+            return repository.insertAll(transactions);
+        }
+        Map<Integer, List<R2PTransaction>> byShard = transactions.stream()
+                .collect(Collectors.groupingBy(transaction -> shardRouting.shardOf(transaction.getPaymentRequestId()),
+                        LinkedHashMap::new, Collectors.toList()));
+        return Flux.fromIterable(byShard.entrySet())
+                .concatMap(shard -> shardRouting.onShardMany(shard.getKey(), repository.insertAll(shard.getValue())))
+                .collectMap(R2PTransaction::getPaymentRequestId)
+                .flatMapIterable(inserted -> transactions.stream()
+                        .map(transaction -> inserted.get(transaction.getPaymentRequestId()))
+                        .toList());
+    }
+
+    @Override
+    public Mono<R2PTransaction> transitionStatus(String paymentRequestId,
+                                                 TransactionStatus status,
+                                                 Collection<TransactionStatus> fromStatuses) {
+        return shardRouting.on(paymentRequestId,
+                repository.transitionStatus(paymentRequestId, status.name(), TransactionStatus.names(fromStatuses)));
+    }
+
+    @Override
+    public Mono<R2PTransaction> transitionForConfirmation(String paymentRequestId,
+                                                          String endToEndId,
+                                                          TransactionStatus status,
+                                                          String message,
+                                                          BigDecimal acceptedAmount,
+                                                          String acceptedAmountCurrency,
+                                                          Json settlementDetails,
+                                                          Collection<TransactionStatus> fromStatuses) {
+        return shardRouting.on(paymentRequestId, repository.transitionForConfirmation(paymentRequestId, endToEndId,
+                status.name(), message, acceptedAmount, acceptedAmountCurrency, settlementDetails,
+                TransactionStatus.names(fromStatuses)));
+    }
+
+    @Override
+    public Mono<R2PTransaction> transitionForCancellation(String paymentRequestId,
+                                                          String cancellationReason,
+                                                          Collection<TransactionStatus> fromStatuses) {
+        return shardRouting.on(paymentRequestId, repository.transitionForCancellation(paymentRequestId,
+                cancellationReason, TransactionStatus.names(fromStatuses)));
+    }
+
+    @Override
+    public Mono<R2PTransaction> amendInStatus(String paymentRequestId,
+                                              LocalDate dueDate,
+                                              BigDecimal requestedAmount,
+                                              Json requestReason,
+                                              Collection<TransactionStatus> fromStatuses) {
+        return shardRouting.on(paymentRequestId, repository.amendInStatus(paymentRequestId, dueDate,
+                requestedAmount, requestReason, TransactionStatus.names(fromStatuses)));
+    }
+
+    @Override
+    public Mono<R2PTransaction> insertRefund(String originalId,
+                                             String refundId,
+                                             String endToEndId,
+                                             String requestMessageId,
+                                             String useCase,
+                                             BigDecimal amount) {
+        if (!shardRouting.isColocated(refundId, originalId)) {
+            return Mono.error(new IllegalArgumentException("Refund " + refundId
+                    + " is not colocated with its original " + originalId));
+        }
+        return shardRouting.on(originalId,
+                repository.insertRefund(originalId, refundId, endToEndId, requestMessageId, useCase, amount));
+    }
+
+    /**
+     * With sharding, keys are claimed on the shard {@link ShardRouting#initiationKey} hashes to, one batch
+     * per shard. While shards are being added, a key still on its previous shard counts as taken.
+     */
+    @Override
+    public Flux<String> claimInitiationKeys(String creditorAgentId,
+                                            List<String> endToEndIds,
+                                            List<String> paymentRequestIds) {
+        if (!shardRouting.isEnabled()) {
+            return repository.claimInitiationKeys(creditorAgentId,
+                    endToEndIds.toArray(String[]::new), paymentRequestIds.toArray(String[]::new));
+        }
+        return claimedOnPreviousShards(creditorAgentId, endToEndIds)
+                .flatMapMany(taken -> {
+                    Map<Integer, List<Integer>> byShard = new LinkedHashMap<>();
+                    for (int i = 0; i < endToEndIds.size(); i++) {
+                        if (!taken.contains(endToEndIds.get(i))) {
+                            byShard.computeIfAbsent(keyShard(creditorAgentId, endToEndIds.get(i)),
+                                    shard -> new ArrayList<>()).add(i);
+                        }
+                    }
+                    return Flux.fromIterable(byShard.entrySet())
+                            .concatMap(shard -> shardRouting.onShardMany(shard.getKey(), repository.claimInitiationKeys(
+                                    creditorAgentId,
+                                    shard.getValue().stream().map(endToEndIds::get).toArray(String[]::new),
+                                    shard.getValue().stream().map(paymentRequestIds::get).toArray(String[]::new))));
+                });
+    }
+
+    /**
+     * With sharding, the payment request IDs are looked up on the keys' shards and their rows on theirs,
+     * outside the caller's transaction, so rows inserted by that transaction are not found.
+     */
+    @Override
+    public Flux<R2PTransaction> findByInitiationKeys(String creditorAgentId, List<String> endToEndIds) {
+        if (!shardRouting.isEnabled()) {
+            return repository.findByInitiationKeys(creditorAgentId, endToEndIds.toArray(String[]::new));
+        }
+        Map<Integer, List<String>> byShard = new LinkedHashMap<>();
+        for (String endToEndId : endToEndIds) {
+            String key = ShardRouting.initiationKey(creditorAgentId, endToEndId);
+            byShard.computeIfAbsent(shardRouting.previousShardOf(key), shard -> new ArrayList<>()).add(endToEndId);
+            if (shardRouting.shardOf(key) != shardRouting.previousShardOf(key)) {
+                byShard.computeIfAbsent(shardRouting.shardOf(key), shard -> new ArrayList<>()).add(endToEndId);
+            }
+        }
+        return shardRouting.outsideTransaction(Flux.fromIterable(byShard.entrySet())
+                .concatMap(shard -> shardRouting.onShardMany(shard.getKey(), repository.findInitiationPaymentRequestIds(
+                        creditorAgentId, shard.getValue().toArray(String[]::new))))
+                .distinct()
+                .concatMap(paymentRequestId -> findByPaymentRequestId(paymentRequestId)));
+    }
+
+    /**
+     * Expires a batch on the shard the caller selected; sharded sweeps run once per shard.
+     */
+    @Override
+    public Flux<R2PTransaction> expireDueBatch(LocalDate today, LocalDateTime createdAfter, int batchSize) {
+        return repository.expireDueBatch(today, createdAfter, batchSize);
+    }
+
+    private int keyShard(String creditorAgentId, String endToEndId) {
+        return shardRouting.shardOf(ShardRouting.initiationKey(creditorAgentId, endToEndId));
+    }
+
+    private Mono<Set<String>> claimedOnPreviousShards(String creditorAgentId, List<String> endToEndIds) {
+        Map<Integer, List<String>> moving = new LinkedHashMap<>();
+        for (String endToEndId : endToEndIds) {
+            String key = ShardRouting.initiationKey(creditorAgentId, endToEndId);
+            if (shardRouting.previousShardOf(key) != shardRouting.shardOf(key)) {
+                moving.computeIfAbsent(shardRouting.previousShardOf(key), shard -> new ArrayList<>()).add(endToEndId);
+            }
+        }
+        if (moving.isEmpty()) {
+            return Mono.just(Set.of());
+        }
+        return shardRouting.outsideTransaction(Flux.fromIterable(moving.entrySet())
+                        .concatMap(shard -> shardRouting.onShardMany(shard.getKey(), repository.findClaimedInitiationKeys(
+                                creditorAgentId, shard.getValue().toArray(String[]::new)))))
+                .collect(Collectors.toSet());
+    }
+}
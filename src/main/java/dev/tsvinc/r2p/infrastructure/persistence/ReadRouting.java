@@ -0,0 +1,72 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Marks queries as safe to serve from a read replica, see {@link ReadRoutingConnectionFactory}.
+ * Unmarked work always runs on the primary. Reads keyed by a {@code paymentRequestId} written by
+ * this instance within the read-your-writes window also stay on the primary, so a caller never
+ * observes replication lag on a request it just changed.
+ */
+@Component
+public class ReadRouting {
+
+    static final String READ_ONLY_KEY = ReadRouting.class.getName() + ".READ_ONLY";
+
+    private static final int PRUNE_THRESHOLD = 10_000;
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+
+    public ReadRouting(@Value("${r2p.persistence.replicas.enabled:false}") boolean enabled,
+                       @Value("${r2p.persistence.replicas.read-your-writes-window:5s}") Duration readYourWritesWindow) {
+        this.enabled = enabled;
+        this.windowNanos = readYourWritesWindow.toNanos();
+    }
+
+    public <T> Mono<T> read(Mono<T> query) {
+        return enabled ? query.contextWrite(context -> context.put(READ_ONLY_KEY, true)) : query;
+    }
+
+    public <T> Flux<T> read(Flux<T> query) {
+        return enabled ? query.contextWrite(context -> context.put(READ_ONLY_KEY, true)) : query;
+    }
+
+    public <T> Mono<T> read(String paymentRequestId, Mono<T> query) {
+        return recentlyWritten(paymentRequestId) ? query : read(query);
+    }
+
+    public void recordWrite(String paymentRequestId) {
+        if (!enabled || paymentRequestId == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        recentWrites.put(paymentRequestId, now);
+        if (recentWrites.size() > PRUNE_THRESHOLD) {
+            recentWrites.values().removeIf(writtenAt -> now - writtenAt > windowNanos);
+        }
+    }
+
+    boolean recentlyWritten(String paymentRequestId) {
+        if (!enabled || paymentRequestId == null) {
+            return false;
+        }
+        Long writtenAt = recentWrites.get(paymentRequestId);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - writtenAt > windowNanos) {
+            recentWrites.remove(paymentRequestId, writtenAt);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,92 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.Closeable;
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.r2dbc.connection.lookup.AbstractRoutingConnectionFactory;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends work marked by {@link ReadRouting#read} to the replicas in round-robin order and everything
+ * else, including anything running inside a reactive transaction, to the primary.
+ */
+@Slf4j
+public class ReadRoutingConnectionFactory extends AbstractRoutingConnectionFactory implements DisposableBean {
+
+    public static final String PRIMARY = "primary";
+
+    private final List<ConnectionFactory> targets = new ArrayList<>();
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+
+    public ReadRoutingConnectionFactory(ConnectionFactory primary,
+                                        List<? extends ConnectionFactory> replicas,
+                                        MeterRegistry meterRegistry) {
+        Map<String, ConnectionFactory> lookup = new HashMap<>();
+        lookup.put(PRIMARY, primary);
+        targets.add(primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = replicaKey(i);
+            lookup.put(key, replicas.get(i));
+            replicaKeys.add(key);
+            targets.add(replicas.get(i));
+        }
+        setTargetConnectionFactories(lookup);
+        setDefaultTargetConnectionFactory(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+
+        primaryRoutes = Counter.builder("r2p.r2dbc.routed")
+                .description("Connections handed out by the read-routing connection factory")
+                .tag("target", "primary")
+                .register(meterRegistry);
+        replicaRoutes = Counter.builder("r2p.r2dbc.routed")
+                .description("Connections handed out by the read-routing connection factory")
+                .tag("target", "replica")
+                .register(meterRegistry);
+    }
+
+    public static String replicaKey(int index) {
+        return "replica-" + index;
+    }
+
+    @Override
+    protected Mono<Object> determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .<Object>map(synchronizationManager -> PRIMARY)
+                .onErrorResume(NoTransactionException.class, e -> Mono.deferContextual(context ->
+                        Mono.just(context.getOrDefault(ReadRouting.READ_ONLY_KEY, false) && !replicaKeys.isEmpty()
+                                ? nextReplicaKey()
+                                : PRIMARY)))
+                .doOnNext(key -> (PRIMARY.equals(key) ? primaryRoutes : replicaRoutes).increment());
+    }
+
+    private String nextReplicaKey() {
+        return replicaKeys.get(Math.floorMod(nextReplica.getAndIncrement(), replicaKeys.size()));
+    }
+
+    @Override
+    public void destroy() {
+        Flux.fromIterable(targets)
+                .filter(Closeable.class::isInstance)
+                .flatMap(target -> Mono.from(((Closeable) target).close()))
+                .doOnError(error -> log.warn("Failed to close routed connection pool", error))
+                .onErrorResume(error -> Mono.empty())
+                .blockLast(Duration.ofSeconds(10));
+    }
+}
@@ -0,0 +1,46 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import dev.tsvinc.r2p.domain.repository.SettlementSystemSummary;
+import dev.tsvinc.r2p.infrastructure.persistence.rollup.DailyVolume;
+import dev.tsvinc.r2p.infrastructure.persistence.rollup.DailyVolumeRollupService;
+import dev.tsvinc.r2p.service.R2PTransactionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.jmx.annotation.JmxEndpoint;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Operator reports, invoked as the {@code settlementSystems} ({@code from}, {@code to} as ISO date-times) and
+ * {@code dailyVolume} ({@code from}, {@code to} as ISO dates, optional {@code agentId} and {@code currency})
+ * operations of the {@code org.springframework.boot:type=Endpoint,name=Transactionreports} MBean.
+ * Both report totals across every agent, so the endpoint is JMX-only and cannot be exposed over HTTP.
+ */
+@Component
+@JmxEndpoint(id = "transactionreports")
+@RequiredArgsConstructor
+public class TransactionReportsEndpoint {
+
+    private final R2PTransactionService transactionService;
+    private final DailyVolumeRollupService rollupService;
+
+    @ReadOperation
+    public Mono<List<SettlementSystemSummary>> settlementSystems(String from, String to) {
+        return transactionService.summarizeBySettlementSystem(LocalDateTime.parse(from), LocalDateTime.parse(to))
+                .collectList();
+    }
+
+    @ReadOperation
+    public Mono<List<DailyVolume>> dailyVolume(String from,
+                                               String to,
+                                               @Nullable String agentId,
+                                               @Nullable String currency) {
+        return rollupService.findDailyVolume(LocalDate.parse(from), LocalDate.parse(to), agentId, currency)
+                .collectList();
+    }
+}
@@ -0,0 +1,224 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.events.TransactionStatusChange;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+/**
+ * Hot feed of transaction status changes from the {@code r2p_transaction_status} NOTIFY channel (V6).
+ * One LISTEN connection is held while anyone is subscribed and is shared by every subscriber; it issues
+ * {@code UNLISTEN} before going back to the pool, so its next borrower receives no notifications.
+ * A dropped connection is re-established with backoff, and changes missed meanwhile are replayed
+ * from {@code updated_at}, so delivery is at-least-once: consumers should tolerate duplicates,
+ * using {@code version} to discard stale records. With sharding, each shard has a LISTEN connection and
+ * replay point of its own, and the feed merges them.
+ */
+@Component
+@Slf4j
+public class TransactionStatusChangeFeed {
+
+    static final String CHANNEL = "r2p_transaction_status";
+
+    private final ConnectionFactory connectionFactory;
+    private final ShardRouting shardRouting;
+    private final ObjectMapper objectMapper;
+    private final Duration heartbeatInterval;
+    private final Duration gapFillOverlap;
+    private final long pendingLookbackDays;
+    private final int subscriberBufferSize;
+    private final List<AtomicReference<LocalDateTime>> lastSeen;
+    private final Flux<TransactionStatusChange> changes;
+    private final Counter receivedCounter;
+    private final Counter replayedCounter;
+    private final Counter reconnectCounter;
+    private final Counter droppedCounter;
+
+    public TransactionStatusChangeFeed(ConnectionFactory connectionFactory,
+                                       ShardRouting shardRouting,
+                                       ObjectMapper objectMapper,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${r2p.changefeed.heartbeat-interval:30s}") Duration heartbeatInterval,
+                                       @Value("${r2p.changefeed.gap-fill-overlap:5s}") Duration gapFillOverlap,
+                                       @Value("${r2p.persistence.partitions.pending-lookback-days:90}") long pendingLookbackDays,
+                                       @Value("${r2p.changefeed.subscriber-buffer-size:10000}") int subscriberBufferSize) {
+        this.connectionFactory = connectionFactory;
+        this.shardRouting = shardRouting;
+        this.objectMapper = objectMapper;
+        this.heartbeatInterval = heartbeatInterval;
+        this.gapFillOverlap = gapFillOverlap;
+        this.pendingLookbackDays = pendingLookbackDays;
+        this.subscriberBufferSize = subscriberBufferSize;
+        this.lastSeen = IntStream.range(0, shardRouting.shardCount())
+                .mapToObj(shard -> new AtomicReference<LocalDateTime>())
+                .toList();
+
+        this.receivedCounter = Counter.builder("r2p.changefeed.received")
+                .description("Status changes received through LISTEN/NOTIFY")
+                .register(meterRegistry);
+        this.replayedCounter = Counter.builder("r2p.changefeed.replayed")
+                .description("Status changes replayed from updated_at after a reconnect")
+                .register(meterRegistry);
+        this.reconnectCounter = Counter.builder("r2p.changefeed.reconnects")
+                .description("LISTEN connections re-established after a failure")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("r2p.changefeed.dropped")
+                .description("Status changes dropped for subscribers that fell too far behind")
+                .register(meterRegistry);
+
+        this.changes = Flux.merge(IntStream.range(0, shardRouting.shardCount())
+                        .mapToObj(shard -> Flux.defer(() -> listen(shard))
+                                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                                        .maxBackoff(Duration.ofSeconds(30))
+                                        .doBeforeRetry(signal -> {
+                                            reconnectCounter.increment();
+                                            log.warn("Status change feed lost its connection to shard {}, " +
+                                                            "reconnecting (attempt {})",
+                                                    shard, signal.totalRetries() + 1, signal.failure());
+                                        })))
+                        .toList())
+                .share();
+    }
+
+    /**
+     * Subscribes to the shared feed. A subscriber that falls more than
+     * {@code r2p.changefeed.subscriber-buffer-size} changes behind loses the oldest ones rather than
+     * stalling everyone else.
+     */
+    public Flux<TransactionStatusChange> changes() {
+        return changes.onBackpressureBuffer(subscriberBufferSize,
+                dropped -> droppedCounter.increment(), BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    private Flux<TransactionStatusChange> listen(int shard) {
+        AtomicReference<LocalDateTime> shardLastSeen = lastSeen.get(shard);
+        return shardRouting.onShardMany(shard, Flux.usingWhen(Mono.from(connectionFactory.create()),
+                                connection -> listen(PostgresConnections.unwrap(connection), shardLastSeen),
+                                this::release))
+                .doOnNext(change -> shardLastSeen.accumulateAndGet(change.updatedAt(),
+                        (current, candidate) -> current == null || candidate.isAfter(current) ? candidate : current));
+    }
+
+    /**
+     * Stops listening before the connection goes back to the pool. A connection that cannot run
+     * {@code UNLISTEN} is broken and is closed all the same.
+     */
+    private Mono<Void> release(Connection connection) {
+        return Flux.from(connection.createStatement("UNLISTEN *").execute())
+                .flatMap(result -> result.getRowsUpdated())
+                .then()
+                .onErrorResume(error -> {
+                    log.debug("UNLISTEN failed on the status change connection: {}", error.getMessage());
+                    return Mono.empty();
+                })
+                .then(Mono.from(connection.close()));
+    }
+
+    /**
+     * Notifications are buffered from before LISTEN is issued, so nothing committed while the
+     * replay query runs is lost between the two.
+     */
+    private Flux<TransactionStatusChange> listen(PostgresqlConnection connection,
+                                                 AtomicReference<LocalDateTime> lastSeen) {
+        Sinks.Many<Notification> live = Sinks.many().unicast().onBackpressureBuffer();
+        Disposable notifications = connection.getNotifications().subscribe(
+                live::tryEmitNext,
+                live::tryEmitError,
+                () -> live.tryEmitError(new IllegalStateException("LISTEN connection closed")));
+
+        LocalDateTime replayFrom = lastSeen.get();
+        Flux<TransactionStatusChange> liveChanges = live.asFlux()
+                .filter(notification -> CHANNEL.equals(notification.getName()))
+                .concatMap(this::parse)
+                .doOnNext(change -> receivedCounter.increment());
+
+        return connection.createStatement("LISTEN " + CHANNEL).execute()
+                .flatMap(result -> result.getRowsUpdated())
+                .then(markFirstListen(connection, lastSeen))
+                .thenMany(Flux.concat(replay(connection, replayFrom), liveChanges)
+                        .mergeWith(heartbeat(connection)))
+                .doOnSubscribe(subscription -> log.info("Listening for transaction status changes on {}", CHANNEL))
+                .doFinally(signal -> notifications.dispose());
+    }
+
+    /**
+     * Anchors the replay point of the first connection in database time, which is also what
+     * {@code updated_at} is written in.
+     */
+    private Mono<Void> markFirstListen(PostgresqlConnection connection, AtomicReference<LocalDateTime> lastSeen) {
+        if (lastSeen.get() != null) {
+            return Mono.empty();
+        }
+        return connection.createStatement("SELECT LOCALTIMESTAMP AS now").execute()
+                .flatMap(result -> result.map((row, metadata) -> row.get("now", LocalDateTime.class)))
+                .next()
+                .doOnNext(now -> lastSeen.compareAndSet(null, now))
+                .then();
+    }
+
+    private Flux<TransactionStatusChange> replay(PostgresqlConnection connection, LocalDateTime replayFrom) {
+        if (replayFrom == null) {
+            return Flux.empty();
+        }
+        LocalDateTime since = replayFrom.minus(gapFillOverlap);
+        return connection.createStatement("SELECT id, payment_request_id, transaction_status, updated_at, version, " +
+                        "creditor_agent_id, debtor_agent_id FROM r2p_transactions " +
+                        "WHERE updated_at > $1 AND created_at >= $2 ORDER BY updated_at")
+                .bind("$1", since)
+                .bind("$2", since.minusDays(pendingLookbackDays))
+                .execute()
+                .flatMap(result -> result.map((row, metadata) -> new TransactionStatusChange(
+                        row.get("id", Long.class),
+                        row.get("payment_request_id", String.class),
+                        TransactionStatus.valueOf(row.get("transaction_status", String.class)),
+                        null,
+                        row.get("updated_at", LocalDateTime.class),
+                        row.get("version", Long.class),
+                        row.get("creditor_agent_id", String.class),
+                        row.get("debtor_agent_id", String.class))))
+                .doOnNext(change -> replayedCounter.increment())
+                .doOnComplete(() -> log.info("Replayed status changes since {}", since));
+    }
+
+    /**
+     * An idle LISTEN connection can die silently; a periodic round trip surfaces that as an error.
+     */
+    private Flux<TransactionStatusChange> heartbeat(PostgresqlConnection connection) {
+        return Flux.interval(heartbeatInterval)
+                .concatMap(tick -> connection.createStatement("SELECT 1").execute()
+                        .flatMap(result -> result.map((row, metadata) -> 1))
+                        .then())
+                .thenMany(Flux.empty());
+    }
+
+    private Mono<TransactionStatusChange> parse(Notification notification) {
+        try {
+            return Mono.just(objectMapper.readValue(notification.getParameter(), TransactionStatusChange.class));
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed status change notification: {}", notification.getParameter(), e);
+            return Mono.empty();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package dev.tsvinc.r2p.infrastructure.persistence.archive;
+
+public enum ArchiveFormat {
+    /**
+     * RFC 4180 CSV with a header row naming the columns, as read by {@code COPY ... (FORMAT csv)}.
+     */
+    CSV,
+    /**
+     * PostgreSQL binary COPY format covering every column in table order, e.g. from
+     * {@code COPY r2p_transactions TO STDOUT (FORMAT binary)}.
+     */
+    BINARY
+}
@@ -0,0 +1,6 @@
+package dev.tsvinc.r2p.infrastructure.persistence.archive;
+
+/**
+ * Outcome of an archive run; {@code skipped} counts imported rows that already existed.
+ */
+public record ArchiveResult(String operation, String file, long rows, long skipped) {}
@@ -0,0 +1,305 @@
+package dev.tsvinc.r2p.infrastructure.persistence.archive;
+
+import dev.tsvinc.r2p.infrastructure.persistence.PostgresConnections;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves {@code r2p_transactions} rows to and from archive files without materializing them.
+ * Imports stream the file through the COPY protocol into a temporary staging table and merge it
+ * with {@code ON CONFLICT DO NOTHING}, so a partially restored month can be re-imported safely.
+ * Exports stream a single-snapshot cursor to CSV that the import reads back; files ending in
+ * {@code .gz} are gzip-compressed.
+ * <p>
+ * With sharding, an export writes the shards one after the other into the same file, each from a snapshot
+ * of its own, and an import reads the file once per shard and keeps the rows whose payment request hashes
+ * to it. Neither should run while {@code ShardRebalancer} is moving rows.
+ */
+@Service
+@Slf4j
+public class R2PTransactionArchiveService {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int FETCH_SIZE = 1_000;
+    private static final Pattern COLUMN_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final String STAGING_TABLE = "r2p_transactions_import";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final ShardRouting shardRouting;
+    private final Path directory;
+    private final Counter exportedCounter;
+    private final Counter importedCounter;
+
+    public R2PTransactionArchiveService(DatabaseClient databaseClient,
+                                        TransactionalOperator transactionalOperator,
+                                        ShardRouting shardRouting,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${r2p.archive.directory:archives}") Path directory) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.shardRouting = shardRouting;
+        this.directory = directory.toAbsolutePath().normalize();
+        this.exportedCounter = Counter.builder("r2p.archive.rows")
+                .description("Number of transaction rows moved through archive files")
+                .tag("direction", "export")
+                .register(meterRegistry);
+        this.importedCounter = Counter.builder("r2p.archive.rows")
+                .description("Number of transaction rows moved through archive files")
+                .tag("direction", "import")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Writes every transaction created in {@code [from, to)} to {@code fileName} as CSV.
+     */
+    public Mono<ArchiveResult> exportCsv(LocalDateTime from, LocalDateTime to, String fileName) {
+        return Mono.defer(() -> {
+            Path target = resolve(fileName);
+            return shardRouting.onShard(0, tableColumns())
+                    .flatMap(columns -> Mono.using(
+                            () -> openWriter(target, columns),
+                            writer -> Flux.range(0, shardRouting.shardCount())
+                                    .concatMap(shard -> shardRouting.onShard(shard, exportRows(columns, from, to)
+                                            .publishOn(Schedulers.boundedElastic())
+                                            .doOnNext(line -> write(writer, line))
+                                            .count()
+                                            .as(transactionalOperator::transactional)))
+                                    .reduce(0L, Long::sum),
+                            this::close))
+                    .doOnNext(rows -> exportedCounter.increment(rows))
+                    .map(rows -> new ArchiveResult("export", target.toString(), rows, 0))
+                    .doOnSuccess(result -> log.info("Exported {} transactions created in [{}, {}) to {}",
+                            result.rows(), from, to, target));
+        });
+    }
+
+    public Mono<ArchiveResult> importArchive(String fileName, ArchiveFormat format) {
+        return Mono.defer(() -> {
+            Path source = resolve(fileName);
+            return Flux.range(0, shardRouting.shardCount())
+                    .concatMap(shard -> shardRouting.onShard(shard, importShard(source, format, shard)))
+                    .collectList()
+                    .map(shards -> {
+                        long inserted = shards.stream().mapToLong(ArchiveResult::rows).sum();
+                        return new ArchiveResult("import", source.toString(), inserted,
+                                shards.getFirst().skipped() + shards.getFirst().rows() - inserted);
+                    })
+                    .doOnNext(result -> importedCounter.increment(result.rows()))
+                    .doOnSuccess(result -> log.info("Imported {} transactions from {} ({} already present)",
+                            result.rows(), source, result.skipped()));
+        });
+    }
+
+    private Mono<ArchiveResult> importShard(Path source, ArchiveFormat format, int shard) {
+        return Mono.using(
+                        () -> openInput(source),
+                        input -> copyIntoStaging(input, format)
+                                .flatMap(copied -> ensurePartitions().then(mergeStaging(shard)).map(inserted -> new ArchiveResult(
+                                        "import", source.toString(), inserted, copied - inserted))),
+                        this::close)
+                .as(transactionalOperator::transactional)
+                .flatMap(result -> advanceIdSequence().thenReturn(result));
+    }
+
+    private Mono<List<String>> tableColumns() {
+        return databaseClient.sql("SELECT column_name FROM information_schema.columns " +
+                        "WHERE table_schema = current_schema() AND table_name = 'r2p_transactions' " +
+                        "ORDER BY ordinal_position")
+                .map(row -> row.get("column_name", String.class))
+                .all()
+                .collectList();
+    }
+
+    /**
+     * Columns are cast to text server-side so every value is written exactly as COPY would read it.
+     */
+    private Flux<String> exportRows(List<String> columns, LocalDateTime from, LocalDateTime to) {
+        String selectList = columns.stream()
+                .map(column -> column + "::text AS " + column)
+                .collect(Collectors.joining(", "));
+        return databaseClient.sql("SELECT " + selectList + " FROM r2p_transactions " +
+                        "WHERE created_at >= :from AND created_at < :to ORDER BY created_at, id")
+                .filter(statement -> statement.fetchSize(FETCH_SIZE))
+                .bind("from", from)
+                .bind("to", to)
+                .map(row -> {
+                    String[] values = new String[columns.size()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = row.get(i, String.class);
+                    }
+                    return csvLine(values);
+                })
+                .all();
+    }
+
+    private Mono<Long> copyIntoStaging(InputStream input, ArchiveFormat format) {
+        return databaseClient.sql("CREATE TEMP TABLE " + STAGING_TABLE +
+                        " (LIKE r2p_transactions INCLUDING DEFAULTS) ON COMMIT DROP")
+                .then()
+                .then(Mono.fromCallable(() -> copySql(input, format)).subscribeOn(Schedulers.boundedElastic()))
+                .flatMap(sql -> databaseClient.inConnection(connection ->
+                        PostgresConnections.unwrap(connection).copyIn(sql, content(input))));
+    }
+
+    /**
+     * There is no default partition (V12), so the months being restored need their partitions first.
+     */
+    private Mono<Void> ensurePartitions() {
+        return databaseClient.sql("SELECT r2p_create_monthly_partition(month_start) FROM (" +
+                        "SELECT DISTINCT date_trunc('month', created_at)::DATE AS month_start FROM " +
+                        STAGING_TABLE + ") months")
+                .then();
+    }
+
+    /**
+     * With sharding, only the rows that hash to {@code shard} (V17) are merged into it.
+     */
+    private Mono<Long> mergeStaging(int shard) {
+        if (!shardRouting.isEnabled()) {
+            return databaseClient.sql("INSERT INTO r2p_transactions SELECT * FROM " + STAGING_TABLE +
+                            " ON CONFLICT DO NOTHING")
+                    .fetch()
+                    .rowsUpdated();
+        }
+        return databaseClient.sql("INSERT INTO r2p_transactions SELECT * FROM " + STAGING_TABLE +
+                        " WHERE r2p_shard_of(payment_request_id, :shardCount) = :shard ON CONFLICT DO NOTHING")
+                .bind("shardCount", shardRouting.shardCount())
+                .bind("shard", shard)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Imported rows keep their archived ids, so the sequence must move past them.
+     */
+    private Mono<Void> advanceIdSequence() {
+        return databaseClient.sql("SELECT setval('r2p_transactions_id_seq', GREATEST(" +
+                        "(SELECT COALESCE(MAX(id), 1) FROM r2p_transactions), " +
+                        "(SELECT last_value FROM r2p_transactions_id_seq)))")
+                .then();
+    }
+
+    /**
+     * CSV archives name their columns in the header, so older archives still load after columns are
+     * added; the header is consumed here and the remaining bytes go to COPY as-is.
+     */
+    private String copySql(InputStream input, ArchiveFormat format) throws IOException {
+        if (format == ArchiveFormat.BINARY) {
+            return "COPY " + STAGING_TABLE + " FROM STDIN (FORMAT binary)";
+        }
+        List<String> columns = Arrays.stream(readLine(input).split(",", -1))
+                .map(column -> column.replace("\"", "").trim())
+                .toList();
+        if (columns.isEmpty() || !columns.stream().allMatch(column -> COLUMN_NAME.matcher(column).matches())) {
+            throw new IllegalArgumentException("Archive header is not a list of column names");
+        }
+        return "COPY " + STAGING_TABLE + " (" + String.join(", ", columns) + ") FROM STDIN (FORMAT csv)";
+    }
+
+    private static Flux<ByteBuf> content(InputStream input) {
+        return DataBufferUtils.readInputStream(() -> input, new NettyDataBufferFactory(ByteBufAllocator.DEFAULT), CHUNK_SIZE)
+                .map(NettyDataBufferFactory::toByteBuf)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Path resolve(String fileName) {
+        Path path = directory.resolve(fileName).normalize();
+        if (!path.startsWith(directory)) {
+            throw new IllegalArgumentException("Archive file must be inside " + directory);
+        }
+        return path;
+    }
+
+    private static Writer openWriter(Path target, List<String> columns) throws IOException {
+        Files.createDirectories(target.getParent());
+        OutputStream output = Files.newOutputStream(target);
+        if (target.getFileName().toString().endsWith(".gz")) {
+            output = new GZIPOutputStream(output, CHUNK_SIZE);
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), CHUNK_SIZE);
+        writer.write(String.join(",", columns));
+        writer.write('\n');
+        return writer;
+    }
+
+    private static InputStream openInput(Path source) throws IOException {
+        InputStream input = new BufferedInputStream(Files.newInputStream(source), CHUNK_SIZE);
+        return source.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(input, CHUNK_SIZE) : input;
+    }
+
+    private static String readLine(InputStream input) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int next;
+        while ((next = input.read()) != -1 && next != '\n') {
+            line.write(next);
+        }
+        return line.toString(StandardCharsets.UTF_8).stripTrailing();
+    }
+
+    /**
+     * Non-null values are always quoted, so an unquoted empty field unambiguously means NULL.
+     */
+    static String csvLine(String[] values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            if (values[i] != null) {
+                line.append('"').append(values[i].replace("\"", "\"\"")).append('"');
+            }
+        }
+        return line.append('\n').toString();
+    }
+
+    private static void write(Writer writer, String line) {
+        try {
+            writer.write(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.warn("Failed to close archive file", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package dev.tsvinc.r2p.infrastructure.persistence.archive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.jmx.annotation.JmxEndpoint;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Operator trigger for archive runs, invoked as the {@code run} operation of the
+ * {@code org.springframework.boot:type=Endpoint,name=Transactionarchive} MBean with
+ * {@code operation} {@code export} (plus {@code file}, {@code from}, {@code to}) or {@code import}
+ * (plus {@code file} and an optional {@code format}). Files are resolved inside {@code r2p.archive.directory}.
+ * Imports write to {@code r2p_transactions}, so the endpoint is JMX-only and cannot be exposed over HTTP.
+ */
+@Component
+@JmxEndpoint(id = "transactionarchive")
+@RequiredArgsConstructor
+public class TransactionArchiveEndpoint {
+
+    private final R2PTransactionArchiveService archiveService;
+
+    @WriteOperation
+    public Mono<ArchiveResult> run(@Selector String operation,
+                                   String file,
+                                   @Nullable String from,
+                                   @Nullable String to,
+                                   @Nullable ArchiveFormat format) {
+        return switch (operation) {
+            case "export" -> {
+                if (from == null || to == null) {
+                    yield Mono.error(new IllegalArgumentException("Export requires 'from' and 'to'"));
+                }
+                yield archiveService.exportCsv(LocalDateTime.parse(from), LocalDateTime.parse(to), file);
+            }
+            case "import" -> archiveService.importArchive(file, format != null ? format : ArchiveFormat.CSV);
+            default -> Mono.error(new IllegalArgumentException("Unknown archive operation: " + operation));
+        };
+    }
+}
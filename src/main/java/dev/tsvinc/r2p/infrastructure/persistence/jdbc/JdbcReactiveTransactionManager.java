@@ -0,0 +1,173 @@
+package dev.tsvinc.r2p.infrastructure.persistence.jdbc;
+
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.reactive.AbstractReactiveTransactionManager;
+import org.springframework.transaction.reactive.GenericReactiveTransaction;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/**
+ * Reactive transactions over one pooled JDBC connection, so a chain of {@link JdbcTransactionStore} calls
+ * and its outbox appends commit or roll back together. The connection is bound to the reactive transaction
+ * context under the pool, and every blocking call runs on the store's virtual-thread scheduler.
+ * {@code PROPAGATION_NESTED} runs behind a savepoint, as the group committer expects.
+ * <p>
+ * Owned by the store rather than registered as a bean, so it does not displace the R2DBC transaction
+ * manager that the rest of the application uses.
+ */
+class JdbcReactiveTransactionManager extends AbstractReactiveTransactionManager {
+
+    private final DataSource dataSource;
+    private final Scheduler scheduler;
+
+    JdbcReactiveTransactionManager(DataSource dataSource, Scheduler scheduler) {
+        this.dataSource = dataSource;
+        this.scheduler = scheduler;
+    }
+
+    private static final class ConnectionHolder {
+
+        private final Connection connection;
+        private boolean rollbackOnly;
+
+        private ConnectionHolder(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    private static final class JdbcTransactionObject {
+
+        private ConnectionHolder holder;
+        private Savepoint savepoint;
+
+        private JdbcTransactionObject(ConnectionHolder holder) {
+            this.holder = holder;
+        }
+    }
+
+    /**
+     * Connection of the transaction this manager runs for the caller, or empty outside one.
+     */
+    Mono<Connection> currentConnection() {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .mapNotNull(synchronizationManager -> (ConnectionHolder) synchronizationManager.getResource(dataSource))
+                .map(holder -> holder.connection)
+                .onErrorResume(NoTransactionException.class, e -> Mono.empty());
+    }
+
+    @Override
+    protected Object doGetTransaction(TransactionSynchronizationManager synchronizationManager) {
+        return new JdbcTransactionObject((ConnectionHolder) synchronizationManager.getResource(dataSource));
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+        return ((JdbcTransactionObject) transaction).holder != null;
+    }
+
+    @Override
+    protected Mono<Void> doBegin(TransactionSynchronizationManager synchronizationManager,
+                                 Object transaction,
+                                 TransactionDefinition definition) {
+        JdbcTransactionObject txObject = (JdbcTransactionObject) transaction;
+        if (txObject.holder != null) {
+            return run(() -> txObject.savepoint = txObject.holder.connection.setSavepoint());
+        }
+        return Mono.fromCallable(() -> {
+                    Connection connection = dataSource.getConnection();
+                    try {
+                        connection.setAutoCommit(false);
+                        if (definition.getIsolationLevel() != TransactionDefinition.ISOLATION_DEFAULT) {
+                            connection.setTransactionIsolation(definition.getIsolationLevel());
+                        }
+                        return connection;
+                    } catch (SQLException e) {
+                        connection.close();
+                        throw e;
+                    }
+                })
+                .subscribeOn(scheduler)
+                .onErrorMap(SQLException.class,
+                        e -> new CannotCreateTransactionException("Could not open JDBC connection for transaction", e))
+                .doOnNext(connection -> {
+                    txObject.holder = new ConnectionHolder(connection);
+                    synchronizationManager.bindResource(dataSource, txObject.holder);
+                })
+                .then();
+    }
+
+    @Override
+    protected Mono<Void> doCommit(TransactionSynchronizationManager synchronizationManager,
+                                  GenericReactiveTransaction status) {
+        JdbcTransactionObject txObject = (JdbcTransactionObject) status.getTransaction();
+        Connection connection = txObject.holder.connection;
+        if (txObject.savepoint != null) {
+            return run(() -> connection.releaseSavepoint(txObject.savepoint));
+        }
+        if (txObject.holder.rollbackOnly) {
+            return run(connection::rollback).then(Mono.error(() -> new UnexpectedRollbackException(
+                    "Transaction rolled back because a participating operation marked it rollback-only")));
+        }
+        return run(connection::commit);
+    }
+
+    @Override
+    protected Mono<Void> doRollback(TransactionSynchronizationManager synchronizationManager,
+                                    GenericReactiveTransaction status) {
+        JdbcTransactionObject txObject = (JdbcTransactionObject) status.getTransaction();
+        Connection connection = txObject.holder.connection;
+        if (txObject.savepoint != null) {
+            return run(() -> {
+                connection.rollback(txObject.savepoint);
+                connection.releaseSavepoint(txObject.savepoint);
+            });
+        }
+        return run(connection::rollback);
+    }
+
+    @Override
+    protected Mono<Void> doSetRollbackOnly(TransactionSynchronizationManager synchronizationManager,
+                                           GenericReactiveTransaction status) {
+        return Mono.fromRunnable(() -> ((JdbcTransactionObject) status.getTransaction()).holder.rollbackOnly = true);
+    }
+
+    @Override
+    protected Mono<Void> doCleanupAfterCompletion(TransactionSynchronizationManager synchronizationManager,
+                                                  Object transaction) {
+        JdbcTransactionObject txObject = (JdbcTransactionObject) transaction;
+        if (txObject.savepoint != null) {
+            txObject.savepoint = null;
+            return Mono.empty();
+        }
+        synchronizationManager.unbindResource(dataSource);
+        // Returning the connection to the pool restores auto-commit and the default isolation level
+        return run(txObject.holder.connection::close);
+    }
+
+    private Mono<Void> run(SqlAction action) {
+        return Mono.<Void>fromRunnable(() -> {
+                    try {
+                        action.run();
+                    } catch (SQLException e) {
+                        throw new TransactionSystemException("JDBC transaction operation failed", e);
+                    }
+                })
+                .subscribeOn(scheduler);
+    }
+
+    @FunctionalInterface
+    private interface SqlAction {
+
+        void run() throws SQLException;
+    }
+}
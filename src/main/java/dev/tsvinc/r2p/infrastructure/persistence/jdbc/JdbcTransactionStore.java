@@ -0,0 +1,356 @@
+package dev.tsvinc.r2p.infrastructure.persistence.jdbc;
+
+import com.zaxxer.hikari.HikariDataSource;
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionQueries;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStore;
+import dev.tsvinc.r2p.domain.repository.TransactionColumns;
+import io.r2dbc.postgresql.codec.Json;
+import org.postgresql.util.PGobject;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.ReactiveTransactionManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * {@link R2PTransactionStore} on blocking JDBC and HikariCP. Every call runs on its own virtual thread,
+ * so a blocked statement parks a cheap carrier-less thread instead of an event-loop or elastic thread,
+ * and concurrency is bounded by the Hikari pool rather than by a thread pool.
+ * <p>
+ * Each operation is a single statement running the same SQL as the R2DBC engine. Inside a transaction of
+ * {@link #transactionManager()} operations and outbox appends share that transaction's connection and commit
+ * together; outside one each statement auto-commits.
+ */
+public class JdbcTransactionStore implements R2PTransactionStore, DisposableBean {
+
+    private static final String INSERT_COLUMNS = "payment_request_id, end_to_end_id, request_message_id, " +
+            "response_message_id, transaction_status, cancellation_reason, use_case, product, requested_amount, " +
+            "requested_amount_currency, accepted_amount, accepted_amount_currency, creditor_agent_id, debtor_agent_id, " +
+            "creditor_alias, debtor_alias, creditor_alias_type, debtor_alias_type, due_date, request_reason_json, " +
+            "message, settlement_details_json, original_payment_request_id, is_refund, refunded_amount, created_at, " +
+            "updated_at, creditor_ack_message, creditor_ack_emoji, payment_request_type, version";
+
+    private static final String INSERT = "INSERT INTO r2p_transactions (" + INSERT_COLUMNS + ") VALUES (" +
+            ":paymentRequestId, :endToEndId, :requestMessageId, :responseMessageId, :transactionStatus, " +
+            ":cancellationReason, :useCase, :product, :requestedAmount, :requestedAmountCurrency, :acceptedAmount, " +
+            ":acceptedAmountCurrency, :creditorAgentId, :debtorAgentId, :creditorAlias, :debtorAlias, " +
+            ":creditorAliasType, :debtorAliasType, :dueDate, :requestReason, :message, :settlementDetails, " +
+            ":originalPaymentRequestId, :isRefund, :refundedAmount, :createdAt, :updatedAt, :creditorAckMessage, " +
+            ":creditorAckEmoji, :paymentRequestType, :version)";
+
+    private static final String UPDATE = "UPDATE r2p_transactions SET end_to_end_id = :endToEndId, " +
+            "request_message_id = :requestMessageId, response_message_id = :responseMessageId, " +
+            "transaction_status = :transactionStatus, cancellation_reason = :cancellationReason, use_case = :useCase, " +
+            "product = :product, requested_amount = :requestedAmount, requested_amount_currency = :requestedAmountCurrency, " +
+            "accepted_amount = :acceptedAmount, accepted_amount_currency = :acceptedAmountCurrency, " +
+            "creditor_agent_id = :creditorAgentId, debtor_agent_id = :debtorAgentId, creditor_alias = :creditorAlias, " +
+            "debtor_alias = :debtorAlias, creditor_alias_type = :creditorAliasType, debtor_alias_type = :debtorAliasType, " +
+            "due_date = :dueDate, request_reason_json = :requestReason, message = :message, " +
+            "settlement_details_json = :settlementDetails, original_payment_request_id = :originalPaymentRequestId, " +
+            "is_refund = :isRefund, refunded_amount = :refundedAmount, updated_at = :updatedAt, " +
+            "creditor_ack_message = :creditorAckMessage, creditor_ack_emoji = :creditorAckEmoji, " +
+            "payment_request_type = :paymentRequestType, version = version + 1 " +
+            "WHERE id = :id AND version = :version RETURNING *";
+
+    private final HikariDataSource dataSource;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Scheduler scheduler;
+    private final JdbcReactiveTransactionManager transactionManager;
+
+    public JdbcTransactionStore(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.scheduler = Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "r2p-jdbc");
+        this.transactionManager = new JdbcReactiveTransactionManager(dataSource, scheduler);
+    }
+
+    @Override
+    public ReactiveTransactionManager transactionManager() {
+        return transactionManager;
+    }
+
+    @Override
+    public Mono<Boolean> appendEvent(String aggregateId, String eventType, Json payload) {
+        return transactionManager.currentConnection()
+                .flatMap(connection -> call(jdbc -> jdbc.update(R2PTransactionQueries.APPEND_OUTBOX_EVENT,
+                        new MapSqlParameterSource()
+                                .addValue("aggregateId", aggregateId)
+                                .addValue("eventType", eventType)
+                                .addValue("payload", jsonb(payload), Types.OTHER))))
+                .map(appended -> true)
+                .defaultIfEmpty(false);
+    }
+
+    @Override
+    public Mono<R2PTransaction> findByPaymentRequestId(String paymentRequestId) {
+        return queryOne(R2PTransactionQueries.FIND_BY_PAYMENT_REQUEST_ID,
+                new MapSqlParameterSource("paymentRequestId", paymentRequestId));
+    }
+
+    @Override
+    public Mono<R2PTransaction> save(R2PTransaction transaction) {
+        if (transaction.getId() == null) {
+            return insertAll(List.of(transaction)).single();
+        }
+        return queryOne(UPDATE, parameters(transaction).addValue("id", transaction.getId()))
+                .switchIfEmpty(Mono.error(() -> new OptimisticLockingFailureException(
+                        "Failed to update transaction " + transaction.getId() + " at version " + transaction.getVersion())));
+    }
+
+    @Override
+    public Mono<R2PTransaction> saveChanges(R2PTransaction original, R2PTransaction modified) {
+        Map<String, Object> changes = TransactionColumns.changed(original, modified);
+        if (changes.isEmpty()) {
+            return Mono.just(modified);
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("id", original.getId())
+                .addValue("createdAt", original.getCreatedAt(), Types.TIMESTAMP)
+                .addValue("version", original.getVersion());
+        changes.forEach((column, value) -> {
+            if (value instanceof Json json) {
+                parameters.addValue(column, jsonb(json), Types.OTHER);
+            } else if (value instanceof TransactionStatus status) {
+                parameters.addValue(column, status.name(), Types.VARCHAR);
+            } else {
+                parameters.addValue(column, value);
+            }
+        });
+        return queryOne(TransactionColumns.updateSql(changes.keySet()), parameters)
+                .switchIfEmpty(Mono.error(() -> new OptimisticLockingFailureException(
+                        "Failed to update transaction " + original.getId() + " at version " + original.getVersion())));
+    }
+
+    @Override
+    public Flux<R2PTransaction> insertAll(List<R2PTransaction> transactions) {
+        if (transactions.isEmpty()) {
+            return Flux.empty();
+        }
+        return call(jdbc -> {
+            SqlParameterSource[] batch = transactions.stream()
+                    .map(transaction -> {
+                        if (transaction.getVersion() == null) {
+                            transaction.setVersion(0L);
+                        }
+                        if (transaction.getRefundedAmount() == null) {
+                            transaction.setRefundedAmount(BigDecimal.ZERO);
+                        }
+                        return parameters(transaction);
+                    })
+                    .toArray(SqlParameterSource[]::new);
+            KeyHolder keys = new GeneratedKeyHolder();
+            jdbc.batchUpdate(INSERT, batch, keys, new String[]{"id"});
+            List<Map<String, Object>> generated = keys.getKeyList();
+            for (int i = 0; i < transactions.size(); i++) {
+                transactions.get(i).setId(((Number) generated.get(i).get("id")).longValue());
+            }
+            return transactions;
+        }).flatMapIterable(inserted -> inserted);
+    }
+
+    @Override
+    public Mono<R2PTransaction> transitionStatus(String paymentRequestId,
+                                                 TransactionStatus status,
+                                                 Collection<TransactionStatus> fromStatuses) {
+        return queryOne(R2PTransactionQueries.TRANSITION_STATUS, new MapSqlParameterSource()
+                .addValue("paymentRequestId", paymentRequestId)
+                .addValue("status", status.name())
+                .addValue("fromStatuses", TransactionStatus.names(fromStatuses)));
+    }
+
+    @Override
+    public Mono<R2PTransaction> transitionForConfirmation(String paymentRequestId,
+                                                          String endToEndId,
+                                                          TransactionStatus status,
+                                                          String message,
+                                                          BigDecimal acceptedAmount,
+                                                          String acceptedAmountCurrency,
+                                                          Json settlementDetails,
+                                                          Collection<TransactionStatus> fromStatuses) {
+        return queryOne(R2PTransactionQueries.TRANSITION_FOR_CONFIRMATION, new MapSqlParameterSource()
+                .addValue("paymentRequestId", paymentRequestId)
+                .addValue("endToEndId", endToEndId)
+                .addValue("status", status.name())
+                .addValue("message", message, Types.VARCHAR)
+                .addValue("acceptedAmount", acceptedAmount, Types.NUMERIC)
+                .addValue("acceptedAmountCurrency", acceptedAmountCurrency, Types.VARCHAR)
+                .addValue("settlementDetails", jsonb(settlementDetails), Types.OTHER)
+                .addValue("fromStatuses", TransactionStatus.names(fromStatuses)));
+    }
+
+    @Override
+    public Mono<R2PTransaction> transitionForCancellation(String paymentRequestId,
+                                                          String cancellationReason,
+                                                          Collection<TransactionStatus> fromStatuses) {
+        return queryOne(R2PTransactionQueries.TRANSITION_FOR_CANCELLATION, new MapSqlParameterSource()
+                .addValue("paymentRequestId", paymentRequestId)
+                .addValue("cancellationReason", cancellationReason, Types.VARCHAR)
+                .addValue("fromStatuses", TransactionStatus.names(fromStatuses)));
+    }
+
+    @Override
+    public Mono<R2PTransaction> amendInStatus(String paymentRequestId,
+                                              LocalDate dueDate,
+                                              BigDecimal requestedAmount,
+                                              Json requestReason,
+                                              Collection<TransactionStatus> fromStatuses) {
+        return queryOne(R2PTransactionQueries.AMEND_IN_STATUS, new MapSqlParameterSource()
+                .addValue("paymentRequestId", paymentRequestId)
+                .addValue("dueDate", dueDate, Types.DATE)
+                .addValue("requestedAmount", requestedAmount, Types.NUMERIC)
+                .addValue("requestReason", jsonb(requestReason), Types.OTHER)
+                .addValue("fromStatuses", TransactionStatus.names(fromStatuses)));
+    }
+
+    @Override
+    public Mono<R2PTransaction> insertRefund(String originalId,
+                                             String refundId,
+                                             String endToEndId,
+                                             String requestMessageId,
+                                             String useCase,
+                                             BigDecimal amount) {
+        return queryOne(R2PTransactionQueries.INSERT_REFUND, new MapSqlParameterSource()
+                .addValue("originalId", originalId)
+                .addValue("refundId", refundId)
+                .addValue("endToEndId", endToEndId)
+                .addValue("requestMessageId", requestMessageId, Types.VARCHAR)
+                .addValue("useCase", useCase)
+                .addValue("amount", amount, Types.NUMERIC));
+    }
+
+    @Override
+    public Flux<String> claimInitiationKeys(String creditorAgentId,
+                                            List<String> endToEndIds,
+                                            List<String> paymentRequestIds) {
+        return call(jdbc -> jdbc.queryForList(R2PTransactionQueries.CLAIM_INITIATION_KEYS,
+                new MapSqlParameterSource()
+                        .addValue("creditorAgentId", creditorAgentId)
+                        .addValue("endToEndIds", endToEndIds.toArray(String[]::new))
+                        .addValue("paymentRequestIds", paymentRequestIds.toArray(String[]::new)),
+                String.class))
+                .flatMapIterable(claimed -> claimed);
+    }
+
+    @Override
+    public Flux<R2PTransaction> findByInitiationKeys(String creditorAgentId, List<String> endToEndIds) {
+        return call(jdbc -> jdbc.query(R2PTransactionQueries.FIND_BY_INITIATION_KEYS,
+                new MapSqlParameterSource()
+                        .addValue("creditorAgentId", creditorAgentId)
+                        .addValue("endToEndIds", endToEndIds.toArray(String[]::new)),
+                R2PTransactionRowMapper.INSTANCE))
+                .flatMapIterable(transactions -> transactions);
+    }
+
+    @Override
+    public Flux<R2PTransaction> expireDueBatch(LocalDate today, LocalDateTime createdAfter, int batchSize) {
+        return call(jdbc -> jdbc.query(R2PTransactionQueries.EXPIRE_DUE_BATCH,
+                new MapSqlParameterSource()
+                        .addValue("today", today)
+                        .addValue("createdAfter", createdAfter)
+                        .addValue("batchSize", batchSize),
+                R2PTransactionRowMapper.INSTANCE))
+                .flatMapIterable(transactions -> transactions);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+        dataSource.close();
+    }
+
+    private Mono<R2PTransaction> queryOne(String sql, SqlParameterSource parameters) {
+        return call(jdbc -> jdbc.query(sql, parameters, R2PTransactionRowMapper.INSTANCE))
+                .flatMap(rows -> Mono.justOrEmpty(rows.stream().findFirst()));
+    }
+
+    /**
+     * Runs {@code statement} on a virtual thread, on the connection of the caller's transaction if it is in
+     * one and on a pooled connection otherwise.
+     */
+    private <T> Mono<T> call(Function<NamedParameterJdbcTemplate, T> statement) {
+        return transactionManager.currentConnection()
+                .map(this::templateFor)
+                .defaultIfEmpty(jdbcTemplate)
+                .flatMap(template -> Mono.fromCallable(() -> statement.apply(template)).subscribeOn(scheduler));
+    }
+
+    private NamedParameterJdbcTemplate templateFor(Connection connection) {
+        JdbcTemplate template = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        template.setExceptionTranslator(jdbcTemplate.getJdbcTemplate().getExceptionTranslator());
+        return new NamedParameterJdbcTemplate(template);
+    }
+
+    private static MapSqlParameterSource parameters(R2PTransaction transaction) {
+        return new MapSqlParameterSource()
+                .addValue("paymentRequestId", transaction.getPaymentRequestId(), Types.VARCHAR)
+                .addValue("endToEndId", transaction.getEndToEndId(), Types.VARCHAR)
+                .addValue("requestMessageId", transaction.getRequestMessageId(), Types.VARCHAR)
+                .addValue("responseMessageId", transaction.getResponseMessageId(), Types.VARCHAR)
+                .addValue("transactionStatus", transaction.getTransactionStatus() != null
+                        ? transaction.getTransactionStatus().name() : null, Types.VARCHAR)
+                .addValue("cancellationReason", transaction.getCancellationReason(), Types.VARCHAR)
+                .addValue("useCase", transaction.getUseCase(), Types.VARCHAR)
+                .addValue("product", transaction.getProduct(), Types.VARCHAR)
+                .addValue("requestedAmount", transaction.getRequestedAmount(), Types.NUMERIC)
+                .addValue("requestedAmountCurrency", transaction.getRequestedAmountCurrency(), Types.VARCHAR)
+                .addValue("acceptedAmount", transaction.getAcceptedAmount(), Types.NUMERIC)
+                .addValue("acceptedAmountCurrency", transaction.getAcceptedAmountCurrency(), Types.VARCHAR)
+                .addValue("creditorAgentId", transaction.getCreditorAgentId(), Types.VARCHAR)
+                .addValue("debtorAgentId", transaction.getDebtorAgentId(), Types.VARCHAR)
+                .addValue("creditorAlias", transaction.getCreditorAlias(), Types.VARCHAR)
+                .addValue("debtorAlias", transaction.getDebtorAlias(), Types.VARCHAR)
+                .addValue("creditorAliasType", transaction.getCreditorAliasType(), Types.VARCHAR)
+                .addValue("debtorAliasType", transaction.getDebtorAliasType(), Types.VARCHAR)
+                .addValue("dueDate", transaction.getDueDate(), Types.DATE)
+                .addValue("requestReason", jsonb(transaction.getRequestReason()), Types.OTHER)
+                .addValue("message", transaction.getMessage(), Types.VARCHAR)
+                .addValue("settlementDetails", jsonb(transaction.getSettlementDetailsJson()), Types.OTHER)
+                .addValue("originalPaymentRequestId", transaction.getOriginalPaymentRequestId(), Types.VARCHAR)
+                .addValue("isRefund", transaction.getIsRefund(), Types.BOOLEAN)
+                .addValue("refundedAmount", transaction.getRefundedAmount(), Types.NUMERIC)
+                .addValue("createdAt", transaction.getCreatedAt() != null ? transaction.getCreatedAt() : LocalDateTime.now(),
+                        Types.TIMESTAMP)
+                .addValue("updatedAt", LocalDateTime.now(), Types.TIMESTAMP)
+                .addValue("creditorAckMessage", transaction.getCreditorAckMessage(), Types.VARCHAR)
+                .addValue("creditorAckEmoji", transaction.getCreditorAckEmoji(), Types.VARCHAR)
+                .addValue("paymentRequestType", transaction.getPaymentRequestType(), Types.VARCHAR)
+                .addValue("version", transaction.getVersion(), Types.BIGINT);
+    }
+
+    private static PGobject jsonb(Json json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            PGobject value = new PGobject();
+            value.setType("jsonb");
+            value.setValue(json.asString());
+            return value;
+        } catch (SQLException e) {
+            throw new IllegalArgumentException("Invalid JSON value", e);
+        }
+    }
+}
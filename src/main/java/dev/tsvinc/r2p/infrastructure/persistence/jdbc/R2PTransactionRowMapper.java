@@ -0,0 +1,67 @@
+package dev.tsvinc.r2p.infrastructure.persistence.jdbc;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import io.r2dbc.postgresql.codec.Json;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Maps {@code r2p_transactions} rows to the same entity the R2DBC engine produces.
+ */
+final class R2PTransactionRowMapper implements RowMapper<R2PTransaction> {
+
+    static final R2PTransactionRowMapper INSTANCE = new R2PTransactionRowMapper();
+
+    @Override
+    public R2PTransaction mapRow(ResultSet rs, int rowNum) throws SQLException {
+        String status = rs.getString("transaction_status");
+        return R2PTransaction.builder()
+                .id(rs.getLong("id"))
+                .paymentRequestId(rs.getString("payment_request_id"))
+                .endToEndId(rs.getString("end_to_end_id"))
+                .requestMessageId(rs.getString("request_message_id"))
+                .responseMessageId(rs.getString("response_message_id"))
+                .transactionStatus(status != null ? TransactionStatus.valueOf(status) : null)
+                .cancellationReason(rs.getString("cancellation_reason"))
+                .useCase(rs.getString("use_case"))
+                .product(rs.getString("product"))
+                .requestedAmount(rs.getObject("requested_amount", BigDecimal.class))
+                .requestedAmountCurrency(rs.getString("requested_amount_currency"))
+                .acceptedAmount(rs.getObject("accepted_amount", BigDecimal.class))
+                .acceptedAmountCurrency(rs.getString("accepted_amount_currency"))
+                .creditorAgentId(rs.getString("creditor_agent_id"))
+                .debtorAgentId(rs.getString("debtor_agent_id"))
+                .creditorAlias(rs.getString("creditor_alias"))
+                .debtorAlias(rs.getString("debtor_alias"))
+                .creditorAliasType(rs.getString("creditor_alias_type"))
+                .debtorAliasType(rs.getString("debtor_alias_type"))
+                .dueDate(toLocalDate(rs.getObject("due_date", LocalDateTime.class)))
+                .requestReason(json(rs.getString("request_reason_json")))
+                .message(rs.getString("message"))
+                .settlementDetailsJson(json(rs.getString("settlement_details_json")))
+                .originalPaymentRequestId(rs.getString("original_payment_request_id"))
+                .isRefund(rs.getObject("is_refund", Boolean.class))
+                .refundedAmount(rs.getObject("refunded_amount", BigDecimal.class))
+                .createdAt(rs.getObject("created_at", LocalDateTime.class))
+                .updatedAt(rs.getObject("updated_at", LocalDateTime.class))
+                .creditorAckMessage(rs.getString("creditor_ack_message"))
+                .creditorAckEmoji(rs.getString("creditor_ack_emoji"))
+                .paymentRequestType(rs.getString("payment_request_type"))
+                .version(rs.getObject("version", Long.class))
+                .build();
+    }
+
+    private static LocalDate toLocalDate(LocalDateTime value) {
+        return value != null ? value.toLocalDate() : null;
+    }
+
+    private static Json json(String value) {
+        return value != null ? Json.of(value) : null;
+    }
+}
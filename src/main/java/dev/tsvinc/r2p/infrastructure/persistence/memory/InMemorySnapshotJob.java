@@ -0,0 +1,30 @@
+package dev.tsvinc.r2p.infrastructure.persistence.memory;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically compacts the in-memory engine's change log into a snapshot, bounding recovery time.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "r2p.persistence.engine", havingValue = "memory")
+public class InMemorySnapshotJob {
+
+    private final InMemoryTransactionStore store;
+
+    @Scheduled(fixedDelayString = "${r2p.persistence.memory.snapshot-interval-ms:60000}",
+            initialDelayString = "${r2p.persistence.memory.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        try {
+            store.snapshot();
+            log.debug("Snapshot written for {} in-memory transactions", store.count());
+        } catch (RuntimeException e) {
+            log.error("Failed to snapshot in-memory transactions", e);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package dev.tsvinc.r2p.infrastructure.persistence.memory;
+
+import dev.tsvinc.r2p.infrastructure.persistence.memory.TransactionJournal.OutboxEntry;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.reactive.AbstractReactiveTransactionManager;
+import org.springframework.transaction.reactive.GenericReactiveTransaction;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reactive transactions for {@link InMemoryTransactionStore}. Changes apply to the store as they are made
+ * and are visible to other callers straight away; each one records how to take it back in the transaction's
+ * {@link UndoLog}, and a rollback runs those actions newest first. Outbox events wait in the log and reach
+ * the store's outbox only when the outermost transaction commits. {@code PROPAGATION_NESTED} marks the log,
+ * and a nested rollback takes back only what was recorded after the mark, as the group committer expects.
+ * <p>
+ * Owned by the store rather than registered as a bean, so it does not displace the R2DBC transaction
+ * manager that the rest of the application uses.
+ */
+class InMemoryTransactionManager extends AbstractReactiveTransactionManager {
+
+    private final Consumer<List<OutboxEntry>> publisher;
+
+    /**
+     * @param publisher takes the outbox events of each committed transaction, in append order
+     */
+    InMemoryTransactionManager(Consumer<List<OutboxEntry>> publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * Undo actions and pending outbox events of one transaction, shared by its nested transactions.
+     */
+    static final class UndoLog {
+
+        private final List<Runnable> undoActions = new ArrayList<>();
+        private final List<OutboxEntry> events = new ArrayList<>();
+        private boolean rollbackOnly;
+
+        synchronized void onRollback(Runnable undo) {
+            undoActions.add(undo);
+        }
+
+        synchronized void append(OutboxEntry event) {
+            events.add(event);
+        }
+
+        private synchronized int undoMark() {
+            return undoActions.size();
+        }
+
+        private synchronized int eventMark() {
+            return events.size();
+        }
+
+        private synchronized List<OutboxEntry> events() {
+            return List.copyOf(events);
+        }
+
+        private synchronized void rollBackTo(int undoMark, int eventMark) {
+            for (int i = undoActions.size() - 1; i >= undoMark; i--) {
+                undoActions.remove(i).run();
+            }
+            events.subList(eventMark, events.size()).clear();
+        }
+    }
+
+    private static final class MemoryTransactionObject {
+
+        private UndoLog undoLog;
+        private int undoMark = -1;
+        private int eventMark;
+
+        private MemoryTransactionObject(UndoLog undoLog) {
+            this.undoLog = undoLog;
+        }
+
+        private boolean nested() {
+            return undoMark >= 0;
+        }
+    }
+
+    /**
+     * Undo log of the transaction this manager runs for the caller, or empty outside one.
+     */
+    Mono<UndoLog> currentUndoLog() {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .mapNotNull(synchronizationManager -> (UndoLog) synchronizationManager.getResource(this))
+                .onErrorResume(NoTransactionException.class, e -> Mono.empty());
+    }
+
+    @Override
+    protected Object doGetTransaction(TransactionSynchronizationManager synchronizationManager) {
+        return new MemoryTransactionObject((UndoLog) synchronizationManager.getResource(this));
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+        return ((MemoryTransactionObject) transaction).undoLog != null;
+    }
+
+    @Override
+    protected Mono<Void> doBegin(TransactionSynchronizationManager synchronizationManager,
+                                 Object transaction,
+                                 TransactionDefinition definition) {
+        MemoryTransactionObject txObject = (MemoryTransactionObject) transaction;
+        return Mono.fromRunnable(() -> {
+            if (txObject.undoLog != null) {
+                txObject.undoMark = txObject.undoLog.undoMark();
+                txObject.eventMark = txObject.undoLog.eventMark();
+                return;
+            }
+            txObject.undoLog = new UndoLog();
+            synchronizationManager.bindResource(this, txObject.undoLog);
+        });
+    }
+
+    @Override
+    protected Mono<Void> doCommit(TransactionSynchronizationManager synchronizationManager,
+                                  GenericReactiveTransaction status) {
+        MemoryTransactionObject txObject = (MemoryTransactionObject) status.getTransaction();
+        if (txObject.nested()) {
+            return Mono.empty();
+        }
+        UndoLog undoLog = txObject.undoLog;
+        if (undoLog.rollbackOnly) {
+            return Mono.<Void>fromRunnable(() -> undoLog.rollBackTo(0, 0))
+                    .then(Mono.error(() -> new UnexpectedRollbackException(
+                            "Transaction rolled back because a participating operation marked it rollback-only")));
+        }
+        return Mono.fromRunnable(() -> {
+            List<OutboxEntry> events = undoLog.events();
+            if (!events.isEmpty()) {
+                publisher.accept(events);
+            }
+        });
+    }
+
+    @Override
+    protected Mono<Void> doRollback(TransactionSynchronizationManager synchronizationManager,
+                                    GenericReactiveTransaction status) {
+        MemoryTransactionObject txObject = (MemoryTransactionObject) status.getTransaction();
+        return Mono.fromRunnable(() -> {
+            if (txObject.nested()) {
+                txObject.undoLog.rollBackTo(txObject.undoMark, txObject.eventMark);
+            } else {
+                txObject.undoLog.rollBackTo(0, 0);
+            }
+        });
+    }
+
+    @Override
+    protected Mono<Void> doSetRollbackOnly(TransactionSynchronizationManager synchronizationManager,
+                                           GenericReactiveTransaction status) {
+        return Mono.fromRunnable(() -> ((MemoryTransactionObject) status.getTransaction()).undoLog.rollbackOnly = true);
+    }
+
+    @Override
+    protected Mono<Void> doCleanupAfterCompletion(TransactionSynchronizationManager synchronizationManager,
+                                                  Object transaction) {
+        MemoryTransactionObject txObject = (MemoryTransactionObject) transaction;
+        return Mono.fromRunnable(() -> {
+            if (txObject.nested()) {
+                txObject.undoMark = -1;
+            } else {
+                synchronizationManager.unbindResource(this);
+            }
+        });
+    }
+}
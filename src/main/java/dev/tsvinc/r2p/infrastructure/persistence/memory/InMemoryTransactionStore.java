@@ -0,0 +1,833 @@
+package dev.tsvinc.r2p.infrastructure.persistence.memory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.repository.ActiveDebtor;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionFilter;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionReader;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStore;
+import dev.tsvinc.r2p.domain.repository.RefundBalance;
+import dev.tsvinc.r2p.domain.repository.SettlementSystemSummary;
+import dev.tsvinc.r2p.domain.repository.TransactionColumns;
+import dev.tsvinc.r2p.infrastructure.outbox.OutboxEvent;
+import dev.tsvinc.r2p.infrastructure.persistence.memory.InMemoryTransactionManager.UndoLog;
+import dev.tsvinc.r2p.infrastructure.persistence.memory.TransactionJournal.Change;
+import dev.tsvinc.r2p.infrastructure.persistence.memory.TransactionJournal.InitiationKey;
+import dev.tsvinc.r2p.infrastructure.persistence.memory.TransactionJournal.OutboxEntry;
+import dev.tsvinc.r2p.infrastructure.persistence.memory.TransactionJournal.Snapshot;
+import io.r2dbc.postgresql.codec.Json;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.ReactiveTransactionManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link R2PTransactionStore} held in memory, for load tests and edge deployments without Postgres.
+ * Rows live in a concurrent primary index on {@code paymentRequestId} with concurrent secondary indexes on
+ * {@code endToEndId}, agent IDs and status. Stored rows are never mutated: every change swaps in a new copy
+ * with the next {@code version}, and callers only ever see copies.
+ * <p>
+ * Inside a transaction of {@link #transactionManager()} every change records how to take it back, so a
+ * rollback removes the rows it inserted, releases the initiation keys it claimed and restores the rows it
+ * updated, unless another caller has changed them since. Restored rows take the next version rather than
+ * their old one. Outbox events go to the store's own outbox when the transaction commits, for
+ * {@code InMemoryOutboxRelay} to deliver. The store also answers the {@link R2PTransactionReader} queries,
+ * so this engine runs without a database.
+ * <p>
+ * With a {@link TransactionJournal} every change is appended to its log before the call completes, and
+ * {@link #snapshot()} compacts the log into a snapshot. Replay keeps the highest version of each row, so
+ * log records of concurrent changes may land in any order.
+ */
+public class InMemoryTransactionStore implements R2PTransactionStore, R2PTransactionReader, AutoCloseable {
+
+    private static final String REFUND_TYPE = "REFUND";
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static final Comparator<R2PTransaction> KEY_ORDER =
+            Comparator.comparing(R2PTransaction::getCreatedAt).thenComparing(R2PTransaction::getId);
+
+    private final Map<String, R2PTransaction> transactions = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byEndToEndId = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byAgentId = new ConcurrentHashMap<>();
+    private final Map<TransactionStatus, Set<String>> byStatus = new ConcurrentHashMap<>();
+    private final Map<KeyId, String> initiationKeys = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+
+    /**
+     * Published outbox events in id order; an event stays here until it is acknowledged.
+     */
+    private final NavigableMap<Long, OutboxEntry> outbox = new ConcurrentSkipListMap<>();
+    private final AtomicLong lastEventId = new AtomicLong();
+
+    /**
+     * Changes share the read side; {@link #snapshot()} takes the write side to cut a consistent state.
+     */
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+    private final TransactionJournal journal;
+    private final InMemoryTransactionManager transactionManager;
+
+    /**
+     * @param journal durability for the store, or {@code null} to keep state only for the process lifetime
+     */
+    public InMemoryTransactionStore(TransactionJournal journal) {
+        this.journal = journal;
+        this.transactionManager = new InMemoryTransactionManager(this::publish);
+        if (journal != null) {
+            journal.recover(this::restore, this::replay);
+        }
+    }
+
+    private record KeyId(String creditorAgentId, String endToEndId) {
+    }
+
+    private record SummaryKey(String settlementSystem, String currency) {
+    }
+
+    private record DebtorKey(String debtorAlias, String debtorAliasType, String debtorAgentId) {
+    }
+
+    @Override
+    public ReactiveTransactionManager transactionManager() {
+        return transactionManager;
+    }
+
+    /**
+     * Holds the event until the caller's transaction commits, or publishes it at once outside one. Always
+     * completes with {@code true}: this engine never falls back to the Postgres outbox.
+     */
+    @Override
+    public Mono<Boolean> appendEvent(String aggregateId, String eventType, Json payload) {
+        return Mono.fromSupplier(() -> new OutboxEntry(null, aggregateId, eventType, payload, LocalDateTime.now()))
+                .flatMap(event -> transactionManager.currentUndoLog()
+                        .doOnNext(undoLog -> undoLog.append(event))
+                        .switchIfEmpty(Mono.fromRunnable(() -> publish(List.of(event))))
+                        .thenReturn(true));
+    }
+
+    /**
+     * Up to {@code limit} undelivered outbox events in publication order, starting after {@code afterId}
+     * ({@code null} for the oldest). {@code attempts} is always zero; retries are the relay's to count.
+     */
+    public List<OutboxEvent> pendingEvents(Long afterId, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        return (afterId != null ? outbox.tailMap(afterId, false) : outbox).values().stream()
+                .limit(limit)
+                .map(event -> new OutboxEvent(event.id(), event.aggregateId(), event.eventType(), event.payload(), 0,
+                        Duration.between(event.appendedAt(), now).toMillis() / 1000.0))
+                .toList();
+    }
+
+    /**
+     * Removes delivered or dead-lettered events from the outbox.
+     */
+    public void acknowledgeEvents(List<Long> ids) {
+        change(() -> {
+            List<Long> removed = ids.stream().filter(id -> outbox.remove(id) != null).toList();
+            if (journal != null && !removed.isEmpty()) {
+                journal.append(new Change(null, null, null, null, null, removed));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Mono<R2PTransaction> findById(Long id) {
+        return Mono.fromSupplier(() -> transactions.values().stream()
+                .filter(row -> row.getId().equals(id))
+                .findFirst()
+                .map(InMemoryTransactionStore::copy)
+                .orElse(null));
+    }
+
+    @Override
+    public Mono<R2PTransaction> findByPaymentRequestId(String paymentRequestId) {
+        return Mono.fromSupplier(() -> copy(transactions.get(paymentRequestId)));
+    }
+
+    public Flux<R2PTransaction> findByEndToEndId(String endToEndId) {
+        return lookup(byEndToEndId.get(endToEndId));
+    }
+
+    /**
+     * Transactions where {@code agentId} is the creditor or the debtor agent.
+     */
+    public Flux<R2PTransaction> findByAgentId(String agentId) {
+        return lookup(byAgentId.get(agentId));
+    }
+
+    public Flux<R2PTransaction> findByTransactionStatus(TransactionStatus status) {
+        return lookup(byStatus.get(status));
+    }
+
+    @Override
+    public Flux<R2PTransaction> findByTransactionStatus(String status) {
+        return Flux.fromArray(TransactionStatus.values())
+                .filter(candidate -> candidate.name().equals(status))
+                .concatMap(this::findByTransactionStatus);
+    }
+
+    @Override
+    public Flux<R2PTransaction> findExpiredTransactions(LocalDate today, LocalDateTime createdAfter) {
+        return Flux.defer(() -> Flux.fromStream(due(today, createdAfter).map(InMemoryTransactionStore::copy)));
+    }
+
+    @Override
+    public Flux<R2PTransaction> findPageAfter(R2PTransactionFilter filter,
+                                              LocalDateTime afterCreatedAt,
+                                              Long afterId,
+                                              int limit) {
+        boolean keyed = afterCreatedAt != null && afterId != null;
+        return Flux.defer(() -> Flux.fromStream((filter.agentIds() != null
+                ? filter.agentIds().stream().flatMap(agentId -> rows(byAgentId.get(agentId))).distinct()
+                : transactions.values().stream())
+                .filter(row -> filter.status() == null || row.getTransactionStatus() == filter.status())
+                .filter(row -> filter.createdFrom() == null || !row.getCreatedAt().isBefore(filter.createdFrom()))
+                .filter(row -> filter.createdTo() == null || row.getCreatedAt().isBefore(filter.createdTo()))
+                .filter(row -> !keyed || row.getCreatedAt().isAfter(afterCreatedAt)
+                        || row.getCreatedAt().isEqual(afterCreatedAt) && row.getId() > afterId)
+                .sorted(KEY_ORDER)
+                .limit(limit)
+                .map(InMemoryTransactionStore::copy)));
+    }
+
+    @Override
+    public Flux<SettlementSystemSummary> summarizeBySettlementSystem(LocalDateTime startDate, LocalDateTime endDate) {
+        Comparator<String> nullsLast = Comparator.nullsLast(Comparator.naturalOrder());
+        return Flux.defer(() -> {
+            Map<SummaryKey, List<R2PTransaction>> groups = new TreeMap<>(Comparator
+                    .comparing(SummaryKey::settlementSystem, nullsLast)
+                    .thenComparing(SummaryKey::currency, nullsLast));
+            rows(byStatus.get(TransactionStatus.ACSC))
+                    .filter(row -> row.getSettlementDetailsJson() != null)
+                    .filter(row -> !row.getCreatedAt().isBefore(startDate) && row.getCreatedAt().isBefore(endDate))
+                    .forEach(row -> groups.computeIfAbsent(new SummaryKey(settlementSystem(row.getSettlementDetailsJson()),
+                            row.getAcceptedAmountCurrency()), unused -> new ArrayList<>()).add(row));
+            return Flux.fromIterable(groups.entrySet())
+                    .map(group -> new SettlementSystemSummary(group.getKey().settlementSystem(),
+                            group.getKey().currency(), (long) group.getValue().size(),
+                            group.getValue().stream()
+                                    .map(R2PTransaction::getAcceptedAmount)
+                                    .filter(Objects::nonNull)
+                                    .reduce(BigDecimal::add)
+                                    .orElse(null)));
+        });
+    }
+
+    @Override
+    public Flux<ActiveDebtor> findMostActiveDebtors(LocalDateTime createdAfter, int limit) {
+        return Flux.defer(() -> Flux.fromStream(transactions.values().stream()
+                .filter(row -> row.getDebtorAlias() != null && !row.getCreatedAt().isBefore(createdAfter))
+                .collect(Collectors.groupingBy(row -> new DebtorKey(row.getDebtorAlias(), row.getDebtorAliasType(),
+                        row.getDebtorAgentId()), Collectors.counting()))
+                .entrySet().stream()
+                .sorted(Map.Entry.<DebtorKey, Long>comparingByValue().reversed())
+                .limit(limit)
+                .map(debtor -> new ActiveDebtor(debtor.getKey().debtorAlias(), debtor.getKey().debtorAliasType(),
+                        debtor.getKey().debtorAgentId(), debtor.getValue()))));
+    }
+
+    @Override
+    public Flux<R2PTransaction> findRefundsByOriginalPaymentRequestId(String originalId) {
+        return Flux.defer(() -> Flux.fromStream(transactions.values().stream()
+                .filter(row -> Boolean.TRUE.equals(row.getIsRefund())
+                        && originalId.equals(row.getOriginalPaymentRequestId()))
+                .map(InMemoryTransactionStore::copy)));
+    }
+
+    @Override
+    public Mono<RefundBalance> findRefundBalance(String paymentRequestId) {
+        return Mono.fromSupplier(() -> {
+            R2PTransaction row = transactions.get(paymentRequestId);
+            if (row == null) {
+                return null;
+            }
+            return new RefundBalance(paymentRequestId,
+                    row.getAcceptedAmountCurrency() != null
+                            ? row.getAcceptedAmountCurrency() : row.getRequestedAmountCurrency(),
+                    row.getAcceptedAmount(), row.getRefundedAmount(),
+                    RefundBalance.cap(row).subtract(row.getRefundedAmount()));
+        });
+    }
+
+    public long count() {
+        return transactions.size();
+    }
+
+    @Override
+    public Mono<R2PTransaction> save(R2PTransaction transaction) {
+        if (transaction.getId() == null) {
+            return insertAll(List.of(transaction)).single();
+        }
+        return write(undoLog -> {
+            R2PTransaction[] saved = new R2PTransaction[2];
+            transactions.compute(transaction.getPaymentRequestId(), (paymentRequestId, current) -> {
+                if (current == null || !Objects.equals(current.getVersion(), transaction.getVersion())) {
+                    throw new OptimisticLockingFailureException("Failed to update transaction "
+                            + transaction.getId() + " at version " + transaction.getVersion());
+                }
+                saved[0] = current;
+                saved[1] = transaction.toBuilder()
+                        .createdAt(current.getCreatedAt())
+                        .updatedAt(LocalDateTime.now())
+                        .version(current.getVersion() + 1)
+                        .build();
+                reindex(current, saved[1]);
+                return saved[1];
+            });
+            onRollback(undoLog, () -> revert(saved[0], saved[1]));
+            log(List.of(saved[1]), List.of());
+            return copy(saved[1]);
+        });
+    }
+
+    /**
+     * Rows are replaced as a whole in memory, so this is {@link #save} guarded by {@code original}'s version.
+     */
+    @Override
+    public Mono<R2PTransaction> saveChanges(R2PTransaction original, R2PTransaction modified) {
+        if (TransactionColumns.changed(original, modified).isEmpty()) {
+            return Mono.just(modified);
+        }
+        return save(modified.toBuilder().version(original.getVersion()).build());
+    }
+
+    @Override
+    public Flux<R2PTransaction> insertAll(List<R2PTransaction> transactions) {
+        if (transactions.isEmpty()) {
+            return Flux.empty();
+        }
+        return write(undoLog -> {
+            List<R2PTransaction> inserted = new ArrayList<>(transactions.size());
+            try {
+                for (R2PTransaction transaction : transactions) {
+                    inserted.add(insert(transaction));
+                }
+            } catch (DuplicateKeyException e) {
+                inserted.forEach(this::remove);
+                throw e;
+            }
+            inserted.forEach(row -> onRollback(undoLog, () -> removeInserted(row)));
+            log(inserted, List.of());
+            return inserted.stream().map(InMemoryTransactionStore::copy).toList();
+        }).flatMapIterable(inserted -> inserted);
+    }
+
+    @Override
+    public Mono<R2PTransaction> transitionStatus(String paymentRequestId,
+                                                 TransactionStatus status,
+                                                 Collection<TransactionStatus> fromStatuses) {
+        return update(paymentRequestId, current -> fromStatuses.contains(current.getTransactionStatus())
+                ? current.toBuilder().transactionStatus(status).build()
+                : null);
+    }
+
+    @Override
+    public Mono<R2PTransaction> transitionForConfirmation(String paymentRequestId,
+                                                          String endToEndId,
+                                                          TransactionStatus status,
+                                                          String message,
+                                                          BigDecimal acceptedAmount,
+                                                          String acceptedAmountCurrency,
+                                                          Json settlementDetails,
+                                                          Collection<TransactionStatus> fromStatuses) {
+        return update(paymentRequestId, current -> {
+            if (!current.getEndToEndId().equals(endToEndId)
+                    || !fromStatuses.contains(current.getTransactionStatus())) {
+                return null;
+            }
+            R2PTransaction.R2PTransactionBuilder next = current.toBuilder().transactionStatus(status);
+            if (message != null) {
+                next.message(message);
+            }
+            if (acceptedAmount != null) {
+                next.acceptedAmount(acceptedAmount).acceptedAmountCurrency(acceptedAmountCurrency);
+            }
+            if (settlementDetails != null) {
+                next.settlementDetailsJson(settlementDetails);
+            }
+            return next.build();
+        });
+    }
+
+    @Override
+    public Mono<R2PTransaction> transitionForCancellation(String paymentRequestId,
+                                                          String cancellationReason,
+                                                          Collection<TransactionStatus> fromStatuses) {
+        return update(paymentRequestId, current -> fromStatuses.contains(current.getTransactionStatus())
+                ? current.toBuilder()
+                        .transactionStatus(TransactionStatus.CNCL)
+                        .cancellationReason(cancellationReason)
+                        .build()
+                : null);
+    }
+
+    @Override
+    public Mono<R2PTransaction> amendInStatus(String paymentRequestId,
+                                              LocalDate dueDate,
+                                              BigDecimal requestedAmount,
+                                              Json requestReason,
+                                              Collection<TransactionStatus> fromStatuses) {
+        return update(paymentRequestId, current -> {
+            if (!fromStatuses.contains(current.getTransactionStatus())) {
+                return null;
+            }
+            R2PTransaction.R2PTransactionBuilder next = current.toBuilder();
+            if (dueDate != null) {
+                next.dueDate(dueDate);
+            }
+            if (requestedAmount != null) {
+                next.requestedAmount(requestedAmount);
+            }
+            if (requestReason != null) {
+                next.requestReason(requestReason);
+            }
+            return next.build();
+        });
+    }
+
+    @Override
+    public Mono<R2PTransaction> insertRefund(String originalId,
+                                             String refundId,
+                                             String endToEndId,
+                                             String requestMessageId,
+                                             String useCase,
+                                             BigDecimal amount) {
+        return write(undoLog -> {
+            R2PTransaction original = apply(originalId, current -> {
+                BigDecimal refunded = current.getRefundedAmount() != null ? current.getRefundedAmount() : BigDecimal.ZERO;
+                BigDecimal refundable = RefundBalance.cap(current);
+                if (current.getTransactionStatus() != TransactionStatus.ACSC
+                        || refundable == null
+                        || refunded.add(amount).compareTo(refundable) > 0) {
+                    return null;
+                }
+                return current.toBuilder().refundedAmount(refunded.add(amount)).build();
+            }, undoLog);
+            if (original == null) {
+                return null;
+            }
+            R2PTransaction refund;
+            try {
+                refund = insert(R2PTransaction.builder()
+                        .paymentRequestId(refundId)
+                        .endToEndId(endToEndId)
+                        .requestMessageId(requestMessageId)
+                        .transactionStatus(TransactionStatus.PDNG)
+                        .useCase(useCase)
+                        .product(original.getProduct())
+                        .requestedAmount(amount)
+                        .requestedAmountCurrency(original.getRequestedAmountCurrency())
+                        .originalPaymentRequestId(originalId)
+                        .paymentRequestType(REFUND_TYPE)
+                        .isRefund(true)
+                        .creditorAgentId(original.getDebtorAgentId())
+                        .debtorAgentId(original.getCreditorAgentId())
+                        .build());
+            } catch (DuplicateKeyException e) {
+                R2PTransaction restored = apply(originalId, current ->
+                        current.toBuilder().refundedAmount(current.getRefundedAmount().subtract(amount)).build(), null);
+                log(List.of(restored), List.of());
+                throw e;
+            }
+            onRollback(undoLog, () -> removeInserted(refund));
+            log(List.of(original, refund), List.of());
+            return copy(refund);
+        });
+    }
+
+    @Override
+    public Flux<String> claimInitiationKeys(String creditorAgentId,
+                                            List<String> endToEndIds,
+                                            List<String> paymentRequestIds) {
+        return write(undoLog -> {
+            List<InitiationKey> claimed = new ArrayList<>();
+            for (int i = 0; i < endToEndIds.size(); i++) {
+                KeyId key = new KeyId(creditorAgentId, endToEndIds.get(i));
+                if (initiationKeys.putIfAbsent(key, paymentRequestIds.get(i)) == null) {
+                    claimed.add(new InitiationKey(creditorAgentId, endToEndIds.get(i), paymentRequestIds.get(i)));
+                }
+            }
+            if (!claimed.isEmpty()) {
+                onRollback(undoLog, () -> release(claimed));
+            }
+            log(List.of(), claimed);
+            return claimed.stream().map(InitiationKey::paymentRequestId).toList();
+        }).flatMapIterable(claimed -> claimed);
+    }
+
+    @Override
+    public Flux<R2PTransaction> findByInitiationKeys(String creditorAgentId, List<String> endToEndIds) {
+        return Flux.fromIterable(endToEndIds)
+                .mapNotNull(endToEndId -> initiationKeys.get(new KeyId(creditorAgentId, endToEndId)))
+                .mapNotNull(paymentRequestId -> copy(transactions.get(paymentRequestId)));
+    }
+
+    /**
+     * Each row is expired under its own atomic status check, so concurrent sweeps never expire a row twice.
+     */
+    @Override
+    public Flux<R2PTransaction> expireDueBatch(LocalDate today, LocalDateTime createdAfter, int batchSize) {
+        return write(undoLog -> {
+            List<R2PTransaction> expired = due(today, createdAfter)
+                    .sorted(Comparator.comparing(R2PTransaction::getDueDate))
+                    .limit(batchSize)
+                    .map(row -> apply(row.getPaymentRequestId(), current ->
+                            current.getTransactionStatus() == TransactionStatus.PDNG
+                                    ? current.toBuilder().transactionStatus(TransactionStatus.EXPD).build()
+                                    : null, undoLog))
+                    .filter(Objects::nonNull)
+                    .toList();
+            log(expired, List.of());
+            return expired.stream().map(InMemoryTransactionStore::copy).toList();
+        }).flatMapIterable(expired -> expired);
+    }
+
+    /**
+     * Writes a snapshot of the current state and starts a new change log generation. No-op without a journal.
+     */
+    public synchronized void snapshot() {
+        if (journal == null) {
+            return;
+        }
+        Snapshot snapshot;
+        snapshotLock.writeLock().lock();
+        try {
+            long generation = journal.rotate();
+            snapshot = new Snapshot(generation, lastId.get(), List.copyOf(transactions.values()),
+                    initiationKeys.entrySet().stream()
+                            .map(entry -> new InitiationKey(entry.getKey().creditorAgentId(),
+                                    entry.getKey().endToEndId(), entry.getValue()))
+                            .toList(),
+                    List.copyOf(outbox.values()));
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+        journal.writeSnapshot(snapshot);
+    }
+
+    @Override
+    public void close() {
+        if (journal != null) {
+            snapshot();
+            journal.close();
+        }
+    }
+
+    private Mono<R2PTransaction> update(String paymentRequestId, UnaryOperator<R2PTransaction> mutation) {
+        return write(undoLog -> {
+            R2PTransaction updated = apply(paymentRequestId, mutation, undoLog);
+            if (updated == null) {
+                return null;
+            }
+            log(List.of(updated), List.of());
+            return copy(updated);
+        });
+    }
+
+    /**
+     * Atomically replaces the row with {@code mutation}'s result under the next version and returns it,
+     * or returns {@code null} when the row is missing or {@code mutation} declines with {@code null}.
+     * With an {@code undoLog}, rolling back restores the row as it was.
+     */
+    private R2PTransaction apply(String paymentRequestId, UnaryOperator<R2PTransaction> mutation, UndoLog undoLog) {
+        R2PTransaction[] updated = new R2PTransaction[2];
+        transactions.computeIfPresent(paymentRequestId, (key, current) -> {
+            R2PTransaction next = mutation.apply(current);
+            if (next == null) {
+                return current;
+            }
+            next.setUpdatedAt(LocalDateTime.now());
+            next.setVersion(current.getVersion() + 1);
+            reindex(current, next);
+            updated[0] = current;
+            updated[1] = next;
+            return next;
+        });
+        if (updated[1] != null) {
+            onRollback(undoLog, () -> revert(updated[0], updated[1]));
+        }
+        return updated[1];
+    }
+
+    private R2PTransaction insert(R2PTransaction transaction) {
+        LocalDateTime now = LocalDateTime.now();
+        R2PTransaction row = transaction.toBuilder()
+                .id(transaction.getId() != null ? transaction.getId() : lastId.incrementAndGet())
+                .version(transaction.getVersion() != null ? transaction.getVersion() : 0L)
+                .refundedAmount(transaction.getRefundedAmount() != null ? transaction.getRefundedAmount() : BigDecimal.ZERO)
+                .isRefund(transaction.getIsRefund() != null ? transaction.getIsRefund() : Boolean.FALSE)
+                .createdAt(transaction.getCreatedAt() != null ? transaction.getCreatedAt() : now)
+                .updatedAt(transaction.getUpdatedAt() != null ? transaction.getUpdatedAt() : now)
+                .build();
+        if (transactions.putIfAbsent(row.getPaymentRequestId(), row) != null) {
+            throw new DuplicateKeyException("Duplicate payment request ID: " + row.getPaymentRequestId());
+        }
+        reindex(null, row);
+        transaction.setId(row.getId());
+        return row;
+    }
+
+    private void remove(R2PTransaction row) {
+        if (transactions.remove(row.getPaymentRequestId(), row)) {
+            reindex(row, null);
+        }
+    }
+
+    /**
+     * Takes back an update: puts {@code previous}'s content back under the next version, provided the row
+     * is still the one the update wrote.
+     */
+    private void revert(R2PTransaction previous, R2PTransaction written) {
+        change(() -> {
+            R2PTransaction[] restored = new R2PTransaction[1];
+            transactions.computeIfPresent(previous.getPaymentRequestId(), (key, current) -> {
+                if (current != written) {
+                    return current;
+                }
+                restored[0] = previous.toBuilder()
+                        .updatedAt(LocalDateTime.now())
+                        .version(current.getVersion() + 1)
+                        .build();
+                reindex(current, restored[0]);
+                return restored[0];
+            });
+            if (restored[0] != null) {
+                log(List.of(restored[0]), List.of());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Takes back an insert: removes the row with {@code inserted}'s ID, whatever was written to it since.
+     */
+    private void removeInserted(R2PTransaction inserted) {
+        change(() -> {
+            R2PTransaction[] removed = new R2PTransaction[1];
+            transactions.computeIfPresent(inserted.getPaymentRequestId(), (key, current) -> {
+                if (!current.getId().equals(inserted.getId())) {
+                    return current;
+                }
+                reindex(current, null);
+                removed[0] = current;
+                return null;
+            });
+            if (journal != null && removed[0] != null) {
+                journal.append(new Change(null, null, List.of(removed[0]), null, null, null));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Takes back a claim: frees each key that is still held for the payment request it was claimed for.
+     */
+    private void release(List<InitiationKey> claimed) {
+        change(() -> {
+            List<InitiationKey> released = claimed.stream()
+                    .filter(key -> initiationKeys.remove(new KeyId(key.creditorAgentId(), key.endToEndId()),
+                            key.paymentRequestId()))
+                    .toList();
+            if (journal != null && !released.isEmpty()) {
+                journal.append(new Change(null, null, null, released, null, null));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Numbers {@code events} and adds them to the outbox in one step, so the relay never sees a later
+     * event before an earlier one.
+     */
+    private void publish(List<OutboxEntry> events) {
+        change(() -> {
+            synchronized (outbox) {
+                List<OutboxEntry> published = events.stream()
+                        .map(event -> new OutboxEntry(lastEventId.incrementAndGet(), event.aggregateId(),
+                                event.eventType(), event.payload(), event.appendedAt()))
+                        .toList();
+                published.forEach(event -> outbox.put(event.id(), event));
+                if (journal != null) {
+                    journal.append(new Change(null, null, null, null, published, null));
+                }
+            }
+            return null;
+        });
+    }
+
+    private void restore(Snapshot snapshot) {
+        lastId.set(snapshot.lastId());
+        replay(new Change(snapshot.transactions(), snapshot.keys(), null, null, snapshot.events(), null));
+    }
+
+    private void replay(Change change) {
+        for (R2PTransaction row : change.transactions()) {
+            transactions.compute(row.getPaymentRequestId(), (key, current) -> {
+                if (current != null && current.getVersion() > row.getVersion()) {
+                    return current;
+                }
+                reindex(current, row);
+                return row;
+            });
+            lastId.accumulateAndGet(row.getId(), Math::max);
+        }
+        for (R2PTransaction row : change.removed()) {
+            transactions.computeIfPresent(row.getPaymentRequestId(), (key, current) -> {
+                if (!current.getId().equals(row.getId())) {
+                    return current;
+                }
+                reindex(current, null);
+                return null;
+            });
+        }
+        for (InitiationKey key : change.keys()) {
+            initiationKeys.put(new KeyId(key.creditorAgentId(), key.endToEndId()), key.paymentRequestId());
+        }
+        for (InitiationKey key : change.releasedKeys()) {
+            initiationKeys.remove(new KeyId(key.creditorAgentId(), key.endToEndId()), key.paymentRequestId());
+        }
+        for (OutboxEntry event : change.events()) {
+            outbox.put(event.id(), event);
+            lastEventId.accumulateAndGet(event.id(), Math::max);
+        }
+        change.deliveredEvents().forEach(outbox::remove);
+    }
+
+    private void reindex(R2PTransaction previous, R2PTransaction next) {
+        String paymentRequestId = previous != null ? previous.getPaymentRequestId() : next.getPaymentRequestId();
+        reindex(byEndToEndId, paymentRequestId, keys(previous, R2PTransaction::getEndToEndId),
+                keys(next, R2PTransaction::getEndToEndId));
+        reindex(byAgentId, paymentRequestId, agentIds(previous), agentIds(next));
+        reindex(byStatus, paymentRequestId, keys(previous, R2PTransaction::getTransactionStatus),
+                keys(next, R2PTransaction::getTransactionStatus));
+    }
+
+    private static <K> void reindex(Map<K, Set<String>> index, String paymentRequestId, Set<K> previous, Set<K> next) {
+        for (K key : previous) {
+            if (!next.contains(key)) {
+                index.computeIfPresent(key, (unused, ids) -> {
+                    ids.remove(paymentRequestId);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+        for (K key : next) {
+            if (!previous.contains(key)) {
+                index.compute(key, (unused, ids) -> {
+                    Set<String> updated = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                    updated.add(paymentRequestId);
+                    return updated;
+                });
+            }
+        }
+    }
+
+    private static <K> Set<K> keys(R2PTransaction row, Function<R2PTransaction, K> key) {
+        return row != null && key.apply(row) != null ? Set.of(key.apply(row)) : Set.of();
+    }
+
+    private static Set<String> agentIds(R2PTransaction row) {
+        if (row == null) {
+            return Set.of();
+        }
+        return Set.copyOf(Stream.of(row.getCreditorAgentId(), row.getDebtorAgentId()).filter(Objects::nonNull).toList());
+    }
+
+    private Flux<R2PTransaction> lookup(Set<String> paymentRequestIds) {
+        return Flux.defer(() -> Flux.fromStream(rows(paymentRequestIds).map(InMemoryTransactionStore::copy)));
+    }
+
+    /**
+     * Stored rows for an index entry. These are not copies: callers copy whatever they hand out.
+     */
+    private Stream<R2PTransaction> rows(Set<String> paymentRequestIds) {
+        if (paymentRequestIds == null) {
+            return Stream.empty();
+        }
+        return List.copyOf(paymentRequestIds).stream().map(transactions::get).filter(Objects::nonNull);
+    }
+
+    /**
+     * Pending rows due before {@code today} and created at or after {@code createdAfter}.
+     */
+    private Stream<R2PTransaction> due(LocalDate today, LocalDateTime createdAfter) {
+        return rows(byStatus.get(TransactionStatus.PDNG))
+                .filter(row -> row.getDueDate() != null && row.getDueDate().isBefore(today))
+                .filter(row -> !row.getCreatedAt().isBefore(createdAfter));
+    }
+
+    private static String settlementSystem(Json settlementDetails) {
+        try {
+            JsonNode settlementSystem = JSON.readTree(settlementDetails.asString()).get("settlementSystem");
+            return settlementSystem != null && !settlementSystem.isNull() ? settlementSystem.asText() : null;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Malformed settlement details: " + settlementDetails.asString(), e);
+        }
+    }
+
+    /**
+     * Runs {@code change} under the shared snapshot lock with the caller's undo log, or {@code null} outside
+     * a transaction of this store. A {@code null} result completes empty.
+     */
+    private <T> Mono<T> write(Function<UndoLog, T> change) {
+        return transactionManager.currentUndoLog()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .mapNotNull(undoLog -> change(() -> change.apply(undoLog.orElse(null))));
+    }
+
+    private <T> T change(Supplier<T> change) {
+        snapshotLock.readLock().lock();
+        try {
+            return change.get();
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    private static void onRollback(UndoLog undoLog, Runnable undo) {
+        if (undoLog != null) {
+            undoLog.onRollback(undo);
+        }
+    }
+
+    private void log(List<R2PTransaction> rows, List<InitiationKey> keys) {
+        if (journal != null && (!rows.isEmpty() || !keys.isEmpty())) {
+            journal.append(new Change(rows, keys));
+        }
+    }
+
+    private static R2PTransaction copy(R2PTransaction row) {
+        return row != null ? row.toBuilder().build() : null;
+    }
+}
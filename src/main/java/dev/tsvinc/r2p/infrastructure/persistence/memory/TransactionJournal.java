@@ -0,0 +1,239 @@
+package dev.tsvinc.r2p.infrastructure.persistence.memory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import io.r2dbc.postgresql.codec.Json;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Durability for {@link InMemoryTransactionStore}: a snapshot file written and read through a memory
+ * mapping, plus an append-only change log of length-prefixed JSON records. Each snapshot starts a new
+ * log generation ({@code changes-<generation>.log}); recovery loads the snapshot and replays the logs of
+ * its generation onwards, stopping at a torn trailing record.
+ */
+@Slf4j
+public class TransactionJournal implements AutoCloseable {
+
+    static final String SNAPSHOT_FILE = "snapshot.json";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final boolean syncOnAppend;
+
+    private long generation;
+    private FileChannel changeLog;
+
+    public TransactionJournal(Path directory, ObjectMapper objectMapper, boolean syncOnAppend) {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+        this.syncOnAppend = syncOnAppend;
+    }
+
+    /**
+     * Full state at the start of a log generation, including the outbox events not yet delivered.
+     */
+    public record Snapshot(long generation,
+                           long lastId,
+                           List<R2PTransaction> transactions,
+                           List<InitiationKey> keys,
+                           List<OutboxEntry> events) {
+
+        public Snapshot {
+            events = events != null ? events : List.of();
+        }
+    }
+
+    /**
+     * One atomic change: the new state of every row it touched, the initiation keys it claimed, and what a
+     * rollback took back ({@code removed} rows it had inserted, {@code releasedKeys} it had claimed). Outbox
+     * events are recorded when they are published and again when they are delivered. Components missing
+     * from older records read as empty.
+     */
+    public record Change(List<R2PTransaction> transactions,
+                         List<InitiationKey> keys,
+                         List<R2PTransaction> removed,
+                         List<InitiationKey> releasedKeys,
+                         List<OutboxEntry> events,
+                         List<Long> deliveredEvents) {
+
+        public Change {
+            transactions = transactions != null ? transactions : List.of();
+            keys = keys != null ? keys : List.of();
+            removed = removed != null ? removed : List.of();
+            releasedKeys = releasedKeys != null ? releasedKeys : List.of();
+            events = events != null ? events : List.of();
+            deliveredEvents = deliveredEvents != null ? deliveredEvents : List.of();
+        }
+
+        public Change(List<R2PTransaction> transactions, List<InitiationKey> keys) {
+            this(transactions, keys, null, null, null, null);
+        }
+    }
+
+    public record InitiationKey(String creditorAgentId, String endToEndId, String paymentRequestId) {
+    }
+
+    /**
+     * An outbox event of the in-memory engine; {@code id} is assigned when its transaction commits.
+     */
+    public record OutboxEntry(Long id, String aggregateId, String eventType, Json payload, LocalDateTime appendedAt) {
+    }
+
+    /**
+     * Passes the last snapshot (empty when the directory holds no state yet) to {@code restore}, feeds every
+     * change logged after it to {@code replay}, and opens the log for appending.
+     */
+    public synchronized void recover(Consumer<Snapshot> restore, Consumer<Change> replay) {
+        try {
+            Files.createDirectories(directory);
+            Snapshot snapshot = readSnapshot();
+            restore.accept(snapshot);
+            generation = snapshot.generation();
+            int replayed = 0;
+            for (Path file : logFiles(generation)) {
+                replayed += replayLog(file, replay);
+            }
+            log.info("Recovered {} transactions from snapshot generation {} and {} logged changes",
+                    snapshot.transactions().size(), generation, replayed);
+            openLog();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover transaction journal in " + directory, e);
+        }
+    }
+
+    public synchronized void append(Change change) {
+        try {
+            byte[] record = objectMapper.writeValueAsBytes(change);
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + record.length);
+            buffer.putInt(record.length).put(record).flip();
+            while (buffer.hasRemaining()) {
+                changeLog.write(buffer);
+            }
+            if (syncOnAppend) {
+                changeLog.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to transaction journal", e);
+        }
+    }
+
+    /**
+     * Switches appends to a new log generation and returns it. Changes appended from now on belong to
+     * the snapshot that will be written for that generation.
+     */
+    public synchronized long rotate() {
+        try {
+            changeLog.force(false);
+            changeLog.close();
+            generation++;
+            openLog();
+            return generation;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to rotate transaction journal", e);
+        }
+    }
+
+    /**
+     * Writes {@code snapshot} through a memory mapping, atomically replaces the previous snapshot and
+     * deletes the logs it supersedes.
+     */
+    public void writeSnapshot(Snapshot snapshot) {
+        try {
+            byte[] content = objectMapper.writeValueAsBytes(snapshot);
+            Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, content.length);
+                mapped.put(content);
+                mapped.force();
+            }
+            Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (Path file : logFiles(0)) {
+                if (generationOf(file) < snapshot.generation()) {
+                    Files.delete(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write transaction snapshot", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (changeLog != null) {
+                changeLog.force(false);
+                changeLog.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close transaction journal", e);
+        }
+    }
+
+    private Snapshot readSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return new Snapshot(0, 0, List.of(), List.of(), List.of());
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] content = new byte[mapped.remaining()];
+            mapped.get(content);
+            return objectMapper.readValue(content, Snapshot.class);
+        }
+    }
+
+    private int replayLog(Path file, Consumer<Change> replay) throws IOException {
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+        int replayed = 0;
+        while (content.remaining() >= Integer.BYTES) {
+            int length = content.getInt();
+            if (length < 0 || length > content.remaining()) {
+                log.warn("Ignoring torn record at the end of {}", file);
+                break;
+            }
+            byte[] record = new byte[length];
+            content.get(record);
+            replay.accept(objectMapper.readValue(record, Change.class));
+            replayed++;
+        }
+        return replayed;
+    }
+
+    private void openLog() throws IOException {
+        changeLog = FileChannel.open(directory.resolve("changes-" + generation + ".log"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> logFiles(long fromGeneration) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> logs = new ArrayList<>(files
+                    .filter(file -> file.getFileName().toString().matches("changes-\\d+\\.log"))
+                    .filter(file -> generationOf(file) >= fromGeneration)
+                    .toList());
+            logs.sort((left, right) -> Long.compare(generationOf(left), generationOf(right)));
+            return logs;
+        }
+    }
+
+    private static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("changes-".length(), name.length() - ".log".length()));
+    }
+}
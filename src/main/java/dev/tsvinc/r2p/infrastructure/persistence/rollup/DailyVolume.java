@@ -0,0 +1,17 @@
+package dev.tsvinc.r2p.infrastructure.persistence.rollup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One {@code r2p_daily_volume} bucket. Transactions without a creditor agent or currency are
+ * counted under an empty string.
+ */
+public record DailyVolume(
+        LocalDate day,
+        String creditorAgentId,
+        String currency,
+        String transactionStatus,
+        Long transactionCount,
+        BigDecimal totalRequestedAmount,
+        BigDecimal totalAcceptedAmount) {}
@@ -0,0 +1,49 @@
+package dev.tsvinc.r2p.infrastructure.persistence.rollup;
+
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Folds the daily volume deltas appended by the V13 triggers into {@code r2p_daily_volume}, draining
+ * full batches back to back up to {@code max-batches-per-run} on each shard.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "r2p.rollup.fold.enabled", havingValue = "true", matchIfMissing = true)
+public class DailyVolumeFoldJob {
+
+    private final DailyVolumeRollupService rollupService;
+    private final ShardRouting shardRouting;
+
+    @Value("${r2p.rollup.fold.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${r2p.rollup.fold.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Scheduled(fixedDelayString = "${r2p.rollup.fold.fixed-delay-ms:1000}",
+            initialDelayString = "${r2p.rollup.fold.initial-delay-ms:5000}")
+    public Mono<Void> fold() {
+        return Flux.range(0, shardRouting.shardCount())
+                .flatMap(shard -> rollupService.foldDeltas(shard, batchSize)
+                        .expand(folded -> folded == batchSize ? rollupService.foldDeltas(shard, batchSize) : Mono.empty())
+                        .take(maxBatchesPerRun), shardRouting.shardCount())
+                .reduce(0L, Long::sum)
+                .doOnNext(folded -> {
+                    if (folded > 0) {
+                        log.debug("Folded {} daily volume deltas", folded);
+                    }
+                })
+                .doOnError(error -> log.error("Daily volume fold failed", error))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+}
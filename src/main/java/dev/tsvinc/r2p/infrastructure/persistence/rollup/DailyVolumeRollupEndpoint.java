@@ -0,0 +1,28 @@
+package dev.tsvinc.r2p.infrastructure.persistence.rollup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.jmx.annotation.JmxEndpoint;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Operator trigger for rebuilding one day of the volume rollup, invoked as the {@code rebuild} operation
+ * of the {@code org.springframework.boot:type=Endpoint,name=Dailyvolume} MBean with e.g. {@code day=2024-01-15}.
+ * A rebuild locks the rollup against writers, so the endpoint is JMX-only and cannot be exposed over HTTP.
+ */
+@Component
+@JmxEndpoint(id = "dailyvolume")
+@RequiredArgsConstructor
+public class DailyVolumeRollupEndpoint {
+
+    private final DailyVolumeRollupService rollupService;
+
+    @WriteOperation
+    public Mono<List<DailyVolume>> rebuild(String day) {
+        return rollupService.rebuildDay(LocalDate.parse(day)).collectList();
+    }
+}
@@ -0,0 +1,207 @@
+package dev.tsvinc.r2p.infrastructure.persistence.rollup;
+
+import dev.tsvinc.r2p.infrastructure.persistence.ReadRouting;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.Readable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reads and repairs the {@code r2p_daily_volume} rollup (see V9 and V13 migrations). Triggers on
+ * {@code r2p_transactions} append per-statement deltas to {@code r2p_daily_volume_delta}, which
+ * {@link #foldDeltas} moves into the buckets; reads add the unfolded deltas, so they never aggregate
+ * raw transaction rows and are current as of the last commit. With sharding, every shard keeps the rollup
+ * of its own rows, and reads add up the shards' buckets.
+ */
+@Service
+@Slf4j
+public class DailyVolumeRollupService {
+
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Comparator<DailyVolume> BUCKET_ORDER = Comparator.comparing(DailyVolume::day)
+            .thenComparing(DailyVolume::creditorAgentId)
+            .thenComparing(DailyVolume::currency)
+            .thenComparing(DailyVolume::transactionStatus);
+    private static final String BUCKET_COLUMNS = "day, creditor_agent_id, currency, transaction_status, " +
+            "transaction_count, total_requested_amount, total_accepted_amount";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final ReadRouting readRouting;
+    private final ShardRouting shardRouting;
+    private final Counter rebuildCounter;
+    private final Counter foldedCounter;
+
+    public DailyVolumeRollupService(DatabaseClient databaseClient,
+                                    TransactionalOperator transactionalOperator,
+                                    ReadRouting readRouting,
+                                    ShardRouting shardRouting,
+                                    MeterRegistry meterRegistry) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.readRouting = readRouting;
+        this.shardRouting = shardRouting;
+        this.rebuildCounter = Counter.builder("r2p.rollup.rebuilds")
+                .description("Number of daily volume rollup days rebuilt from r2p_transactions")
+                .register(meterRegistry);
+        this.foldedCounter = Counter.builder("r2p.rollup.deltas.folded")
+                .description("Number of daily volume deltas folded into r2p_daily_volume")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Buckets for days in {@code [from, to)}, optionally narrowed to one creditor agent and currency.
+     * Buckets emptied by status changes are left out.
+     */
+    public Flux<DailyVolume> findDailyVolume(LocalDate from, LocalDate to, String creditorAgentId, String currency) {
+        if (!shardRouting.isEnabled()) {
+            return readRouting.read(queryDailyVolume(from, to, creditorAgentId, currency));
+        }
+        return combine(shardRouting.fanOut(shard -> queryDailyVolume(from, to, creditorAgentId, currency)));
+    }
+
+    private Flux<DailyVolume> queryDailyVolume(LocalDate from, LocalDate to, String creditorAgentId, String currency) {
+        String where = " WHERE day >= :from AND day < :to" +
+                (creditorAgentId != null ? " AND creditor_agent_id = :creditorAgentId" : "") +
+                (currency != null ? " AND currency = :currency" : "");
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("SELECT day, creditor_agent_id, currency, " +
+                        "transaction_status, SUM(transaction_count)::BIGINT AS transaction_count, " +
+                        "SUM(total_requested_amount) AS total_requested_amount, " +
+                        "SUM(total_accepted_amount) AS total_accepted_amount FROM (" +
+                        "SELECT " + BUCKET_COLUMNS + " FROM r2p_daily_volume" + where +
+                        " UNION ALL SELECT " + BUCKET_COLUMNS + " FROM r2p_daily_volume_delta" + where +
+                        ") buckets GROUP BY day, creditor_agent_id, currency, transaction_status " +
+                        "HAVING SUM(transaction_count) <> 0 " +
+                        "ORDER BY day, creditor_agent_id, currency, transaction_status")
+                .bind("from", from)
+                .bind("to", to);
+        if (creditorAgentId != null) {
+            spec = spec.bind("creditorAgentId", creditorAgentId);
+        }
+        if (currency != null) {
+            spec = spec.bind("currency", currency);
+        }
+        return spec.map(DailyVolumeRollupService::toDailyVolume).all();
+    }
+
+    /**
+     * Adds up the buckets several shards returned for the same key, leaving out those that cancel out.
+     */
+    private static Flux<DailyVolume> combine(Flux<DailyVolume> buckets) {
+        return buckets
+                .collect(Collectors.toMap(
+                        bucket -> List.of(bucket.day(), bucket.creditorAgentId(), bucket.currency(),
+                                bucket.transactionStatus()),
+                        bucket -> bucket,
+                        (left, right) -> new DailyVolume(left.day(), left.creditorAgentId(), left.currency(),
+                                left.transactionStatus(),
+                                left.transactionCount() + right.transactionCount(),
+                                left.totalRequestedAmount().add(right.totalRequestedAmount()),
+                                left.totalAcceptedAmount().add(right.totalAcceptedAmount()))))
+                .flatMapIterable(byKey -> byKey.values().stream()
+                        .filter(bucket -> bucket.transactionCount() != 0)
+                        .sorted(BUCKET_ORDER)
+                        .toList());
+    }
+
+    /**
+     * Moves up to {@code limit} of the oldest deltas on {@code shard} into their buckets in one transaction
+     * and returns how many were folded. Concurrent folders skip each other's deltas, and buckets are
+     * upserted in key order so two folders never deadlock.
+     */
+    public Mono<Long> foldDeltas(int shard, int limit) {
+        return shardRouting.onShard(shard, databaseClient.sql("WITH folded AS (DELETE FROM r2p_daily_volume_delta WHERE id IN (" +
+                        "SELECT id FROM r2p_daily_volume_delta ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+                        "RETURNING *), " +
+                        "applied AS (INSERT INTO r2p_daily_volume AS v (" + BUCKET_COLUMNS + ") " +
+                        "SELECT day, creditor_agent_id, currency, transaction_status, SUM(transaction_count), " +
+                        "SUM(total_requested_amount), SUM(total_accepted_amount) FROM folded " +
+                        "GROUP BY 1, 2, 3, 4 ORDER BY 1, 2, 3, 4 " +
+                        "ON CONFLICT (day, creditor_agent_id, currency, transaction_status) DO UPDATE " +
+                        "SET transaction_count = v.transaction_count + EXCLUDED.transaction_count, " +
+                        "total_requested_amount = v.total_requested_amount + EXCLUDED.total_requested_amount, " +
+                        "total_accepted_amount = v.total_accepted_amount + EXCLUDED.total_accepted_amount) " +
+                        "SELECT count(*) AS folded FROM folded")
+                .bind("limit", limit)
+                .map(row -> row.get("folded", Long.class))
+                .one())
+                .doOnNext(foldedCounter::increment);
+    }
+
+    /**
+     * Recomputes every bucket of {@code day} from {@code r2p_transactions}. The delta table is locked
+     * against concurrent triggers and folders for the duration, so writes racing the rebuild are neither
+     * lost nor counted twice. Days whose monthly partition is no longer attached are refused, since
+     * rebuilding them would erase history that only the rollup still holds. With sharding, every shard
+     * rebuilds its own buckets in a transaction of its own, and the combined buckets are returned.
+     */
+    public Flux<DailyVolume> rebuildDay(LocalDate day) {
+        Flux<DailyVolume> rebuilt = shardRouting.fanOut(shard -> rebuildShard(day));
+        return (shardRouting.isEnabled() ? combine(rebuilt) : rebuilt)
+                .doOnComplete(() -> {
+                    rebuildCounter.increment();
+                    log.info("Rebuilt daily volume rollup for {}", day);
+                });
+    }
+
+    private Flux<DailyVolume> rebuildShard(LocalDate day) {
+        String partition = "r2p_transactions_p" + day.format(PARTITION_MONTH);
+        return databaseClient.sql("SELECT to_regclass(:partition) IS NOT NULL AS attached")
+                .bind("partition", partition)
+                .map(row -> row.get("attached", Boolean.class))
+                .one()
+                .flatMapMany(attached -> {
+                    if (!Boolean.TRUE.equals(attached)) {
+                        return Flux.error(new IllegalArgumentException(
+                                "No attached partition holds " + day + "; refusing to rebuild its rollup"));
+                    }
+                    return recompute(day);
+                });
+    }
+
+    private Flux<DailyVolume> recompute(LocalDate day) {
+        return databaseClient.sql("LOCK TABLE r2p_daily_volume_delta IN SHARE ROW EXCLUSIVE MODE").then()
+                .then(databaseClient.sql("DELETE FROM r2p_daily_volume_delta WHERE day = :day")
+                        .bind("day", day)
+                        .then())
+                .then(databaseClient.sql("DELETE FROM r2p_daily_volume WHERE day = :day")
+                        .bind("day", day)
+                        .then())
+                .thenMany(databaseClient.sql("INSERT INTO r2p_daily_volume (day, creditor_agent_id, currency, " +
+                                "transaction_status, transaction_count, total_requested_amount, total_accepted_amount) " +
+                                "SELECT created_at::DATE, COALESCE(creditor_agent_id, ''), " +
+                                "COALESCE(requested_amount_currency, ''), transaction_status, COUNT(*), " +
+                                "COALESCE(SUM(requested_amount), 0), COALESCE(SUM(accepted_amount), 0) " +
+                                "FROM r2p_transactions WHERE created_at >= :from AND created_at < :to " +
+                                "GROUP BY 1, 2, 3, 4 RETURNING *")
+                        .bind("from", day.atStartOfDay())
+                        .bind("to", day.plusDays(1).atStartOfDay())
+                        .map(DailyVolumeRollupService::toDailyVolume)
+                        .all())
+                .as(transactionalOperator::transactional);
+    }
+
+    private static DailyVolume toDailyVolume(Readable row) {
+        return new DailyVolume(
+                row.get("day", LocalDate.class),
+                row.get("creditor_agent_id", String.class),
+                row.get("currency", String.class),
+                row.get("transaction_status", String.class),
+                row.get("transaction_count", Long.class),
+                row.get("total_requested_amount", BigDecimal.class),
+                row.get("total_accepted_amount", BigDecimal.class));
+    }
+}
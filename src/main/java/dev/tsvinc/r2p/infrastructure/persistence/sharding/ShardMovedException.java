@@ -0,0 +1,14 @@
+package dev.tsvinc.r2p.infrastructure.persistence.sharding;
+
+import org.springframework.dao.TransientDataAccessException;
+
+/**
+ * The row a transaction was bound to has been moved to its new shard by {@link ShardRebalancer} since it
+ * was located. Retrying locates it again.
+ */
+public class ShardMovedException extends TransientDataAccessException {
+
+    public ShardMovedException(String message) {
+        super(message);
+    }
+}
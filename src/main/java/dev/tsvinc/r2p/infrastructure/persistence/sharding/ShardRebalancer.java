@@ -0,0 +1,242 @@
+package dev.tsvinc.r2p.infrastructure.persistence.sharding;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves rows onto the shard they hash to after shards were added, see {@link ShardRouting}. A payment
+ * request moves together with its refunds: in a transaction on its current shard their
+ * {@code r2p_payment_request_ids} entries and rows are locked, any copy a failed earlier run left on the
+ * target is replaced in a transaction there, and the source rows are deleted before the source transaction
+ * commits. Writers locate and pin the same entries, so they either finish before the move or retry on the
+ * new shard. A payment request whose outbox still holds events is skipped, so its events are never
+ * delivered out of order from two shards; run the rebalance again once the relay has caught up.
+ * <p>
+ * Between the target commit and the source commit both copies exist, and fan-out reads may briefly see
+ * both. Should the source commit fail, the target copy is left over until the next run replaces it; the
+ * run reports the rows it could not move, and {@code previous-shard-count} must stay set until a run moves
+ * and skips nothing. Archive imports and exports should not run meanwhile.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "r2p.persistence.sharding.enabled", havingValue = "true")
+public class ShardRebalancer {
+
+    private static final int PAGE_SIZE = 500;
+
+    private final ShardRouting shardRouting;
+    private final DatabaseClient databaseClient;
+    private final R2PTransactionRepository repository;
+    private final TransactionalOperator transactionalOperator;
+
+    public record RebalanceReport(long transactionsMoved, long transactionsSkipped, long initiationKeysMoved) {
+    }
+
+    private enum Outcome { MOVED, SKIPPED, GONE }
+
+    private record InitiationKeyRow(String creditorAgentId, String endToEndId, String paymentRequestId,
+                                    LocalDateTime createdAt) {
+    }
+
+    /**
+     * {@code r2p_transactions} rows per shard, keyed like the shards' connection pools.
+     */
+    public Mono<Map<String, Long>> rowCounts() {
+        return Flux.range(0, shardRouting.shardCount())
+                .concatMap(shard -> shardRouting.onShard(shard, databaseClient
+                                .sql("SELECT COUNT(*) AS row_count FROM r2p_transactions")
+                                .map(row -> row.get("row_count", Long.class))
+                                .one())
+                        .map(count -> Map.entry("shard-" + shard, count)))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new);
+    }
+
+    public Mono<RebalanceReport> rebalance() {
+        if (!shardRouting.isResizing()) {
+            return Mono.error(new IllegalStateException(
+                    "Nothing to rebalance: r2p.persistence.sharding.previous-shard-count is not set"));
+        }
+        return Flux.range(0, shardRouting.shardCount())
+                .concatMap(this::moveTransactions)
+                .collectList()
+                .zipWhen(outcomes -> Flux.range(0, shardRouting.shardCount())
+                        .concatMap(this::moveInitiationKeys)
+                        .reduce(0L, Long::sum))
+                .map(result -> new RebalanceReport(
+                        result.getT1().stream().filter(Outcome.MOVED::equals).count(),
+                        result.getT1().stream().filter(Outcome.SKIPPED::equals).count(),
+                        result.getT2()))
+                .doOnNext(report -> log.info("Shard rebalance completed: {}", report));
+    }
+
+    private Flux<Outcome> moveTransactions(int shard) {
+        return misplacedPage(shard, "")
+                .expand(page -> page.size() < PAGE_SIZE ? Mono.empty() : misplacedPage(shard, page.getLast()))
+                .concatMapIterable(page -> page)
+                .concatMap(paymentRequestId -> moveTransaction(shard, paymentRequestId));
+    }
+
+    private Mono<List<String>> misplacedPage(int shard, String after) {
+        return shardRouting.onShard(shard, databaseClient
+                .sql("SELECT payment_request_id FROM r2p_payment_request_ids " +
+                        "WHERE payment_request_id > :after AND r2p_shard_of(payment_request_id, :shardCount) <> :shard " +
+                        "ORDER BY payment_request_id LIMIT :limit")
+                .bind("after", after)
+                .bind("shardCount", shardRouting.shardCount())
+                .bind("shard", shard)
+                .bind("limit", PAGE_SIZE)
+                .map(row -> row.get("payment_request_id", String.class))
+                .all()
+                .collectList());
+    }
+
+    /**
+     * Moves {@code paymentRequestId} with its original, if it is a refund, and the original's refunds.
+     */
+    private Mono<Outcome> moveTransaction(int source, String paymentRequestId) {
+        return shardRouting.onShard(source, lockGroup(paymentRequestId)
+                .flatMap(group -> group.isEmpty()
+                        ? Mono.just(Outcome.GONE)
+                        : hasPendingEvents(group).flatMap(pending -> pending
+                                ? Mono.just(Outcome.SKIPPED)
+                                : move(group)))
+                .as(transactionalOperator::transactional))
+                .doOnNext(outcome -> {
+                    if (outcome == Outcome.SKIPPED) {
+                        log.info("Payment request {} has undelivered outbox events; left on shard {}",
+                                paymentRequestId, source);
+                    }
+                });
+    }
+
+    /**
+     * Locks the ID entries and rows of the group {@code paymentRequestId} belongs to and returns its IDs.
+     */
+    private Mono<List<String>> lockGroup(String paymentRequestId) {
+        return databaseClient.sql("SELECT COALESCE(original_payment_request_id, payment_request_id) AS anchor " +
+                        "FROM r2p_transactions WHERE payment_request_id = :paymentRequestId")
+                .bind("paymentRequestId", paymentRequestId)
+                .map(row -> row.get("anchor", String.class))
+                .one()
+                .flatMap(anchor -> databaseClient.sql("SELECT k.payment_request_id FROM r2p_payment_request_ids k " +
+                                "WHERE k.payment_request_id = :anchor OR k.payment_request_id IN (" +
+                                "SELECT payment_request_id FROM r2p_transactions WHERE original_payment_request_id = :anchor) " +
+                                "ORDER BY k.payment_request_id FOR UPDATE")
+                        .bind("anchor", anchor)
+                        .map(row -> row.get("payment_request_id", String.class))
+                        .all()
+                        .collectList())
+                .flatMap(group -> group.isEmpty()
+                        ? Mono.just(group)
+                        : databaseClient.sql("SELECT id FROM r2p_transactions " +
+                                        "WHERE payment_request_id = ANY(:group) ORDER BY id FOR UPDATE")
+                                .bind("group", group.toArray(String[]::new))
+                                .fetch()
+                                .all()
+                                .then(Mono.just(group)))
+                .defaultIfEmpty(List.of());
+    }
+
+    private Mono<Boolean> hasPendingEvents(List<String> group) {
+        return databaseClient.sql("SELECT EXISTS (SELECT 1 FROM r2p_event_outbox " +
+                        "WHERE aggregate_id = ANY(:group) AND NOT dead_lettered) AS pending")
+                .bind("group", group.toArray(String[]::new))
+                .map(row -> Boolean.TRUE.equals(row.get("pending", Boolean.class)))
+                .one();
+    }
+
+    private Mono<Outcome> move(List<String> group) {
+        int target = shardRouting.shardOf(group.getFirst());
+        return repository.findByPaymentRequestIdIn(group.toArray(String[]::new))
+                .collectList()
+                .flatMap(rows -> shardRouting.outsideTransaction(shardRouting.onShardMany(target,
+                                copy(group, rows).as(transactionalOperator::transactional)))
+                        .then(databaseClient.sql("DELETE FROM r2p_transactions WHERE payment_request_id = ANY(:group)")
+                                .bind("group", group.toArray(String[]::new))
+                                .then()))
+                .thenReturn(Outcome.MOVED);
+    }
+
+    /**
+     * A shard added later has no partitions for older months yet, so they are created first.
+     */
+    private Flux<R2PTransaction> copy(List<String> group, List<R2PTransaction> rows) {
+        return Flux.fromIterable(rows)
+                .map(row -> row.getCreatedAt().toLocalDate().withDayOfMonth(1))
+                .distinct()
+                .concatMap(month -> databaseClient.sql("SELECT r2p_create_monthly_partition(:monthStart)")
+                        .bind("monthStart", month)
+                        .then())
+                .then(databaseClient.sql("DELETE FROM r2p_transactions WHERE payment_request_id = ANY(:group)")
+                        .bind("group", group.toArray(String[]::new))
+                        .then())
+                .thenMany(repository.insertAll(rows));
+    }
+
+    private Mono<Long> moveInitiationKeys(int shard) {
+        return keyPage(shard, "", "")
+                .expand(page -> page.size() < PAGE_SIZE
+                        ? Mono.empty()
+                        : keyPage(shard, page.getLast().creditorAgentId(), page.getLast().endToEndId()))
+                .concatMapIterable(page -> page)
+                .concatMap(key -> moveInitiationKey(shard, key))
+                .count();
+    }
+
+    private Mono<Void> moveInitiationKey(int source, InitiationKeyRow key) {
+        int target = shardRouting.shardOf(ShardRouting.initiationKey(key.creditorAgentId(), key.endToEndId()));
+        Flux<Void> insert = databaseClient.sql("INSERT INTO r2p_initiation_keys (creditor_agent_id, end_to_end_id, " +
+                        "payment_request_id, created_at) VALUES (:creditorAgentId, :endToEndId, :paymentRequestId, :createdAt) " +
+                        "ON CONFLICT DO NOTHING")
+                .bind("creditorAgentId", key.creditorAgentId())
+                .bind("endToEndId", key.endToEndId())
+                .bind("paymentRequestId", key.paymentRequestId())
+                .bind("createdAt", key.createdAt())
+                .then()
+                .flux();
+        return shardRouting.onShard(source, databaseClient.sql("DELETE FROM r2p_initiation_keys " +
+                                "WHERE creditor_agent_id = :creditorAgentId AND end_to_end_id = :endToEndId")
+                        .bind("creditorAgentId", key.creditorAgentId())
+                        .bind("endToEndId", key.endToEndId())
+                        .fetch()
+                        .rowsUpdated()
+                        .filter(deleted -> deleted > 0)
+                        .flatMap(deleted -> shardRouting.outsideTransaction(
+                                shardRouting.onShardMany(target, insert)).then())
+                        .as(transactionalOperator::transactional));
+    }
+
+    private Mono<List<InitiationKeyRow>> keyPage(int shard, String afterAgent, String afterEndToEndId) {
+        return shardRouting.onShard(shard, databaseClient
+                .sql("SELECT creditor_agent_id, end_to_end_id, payment_request_id, created_at FROM r2p_initiation_keys " +
+                        "WHERE (creditor_agent_id, end_to_end_id) > (:afterAgent, :afterEndToEndId) " +
+                        "AND r2p_shard_of(creditor_agent_id || ':' || end_to_end_id, :shardCount) <> :shard " +
+                        "ORDER BY creditor_agent_id, end_to_end_id LIMIT :limit")
+                .bind("afterAgent", afterAgent)
+                .bind("afterEndToEndId", afterEndToEndId)
+                .bind("shardCount", shardRouting.shardCount())
+                .bind("shard", shard)
+                .bind("limit", PAGE_SIZE)
+                .map(row -> new InitiationKeyRow(
+                        row.get("creditor_agent_id", String.class),
+                        row.get("end_to_end_id", String.class),
+                        row.get("payment_request_id", String.class),
+                        row.get("created_at", LocalDateTime.class)))
+                .all()
+                .collectList());
+    }
+}
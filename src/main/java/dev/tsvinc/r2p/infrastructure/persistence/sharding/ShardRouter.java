@@ -0,0 +1,56 @@
+package dev.tsvinc.r2p.infrastructure.persistence.sharding;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Maps keys to shards with a stable 64-bit hash and Lamping and Veach's jump consistent hash. The mapping
+ * depends only on the key and the shard count, and growing from {@code n} to {@code n + 1} shards moves only
+ * about {@code 1 / (n + 1)} of the keys, all of them onto the new shard. The V17 function
+ * {@code r2p_shard_of(key, shard_count)} computes the same mapping in SQL.
+ */
+public final class ShardRouter {
+
+    private final int shardCount;
+
+    public ShardRouter(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shardCount = shardCount;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public int shardFor(String key) {
+        return shardCount == 1 ? 0 : jump(hash(key), shardCount);
+    }
+
+    /**
+     * The first 8 bytes of the MD5 of the UTF-8 key, big-endian, which is what Postgres gets from
+     * {@code ('x' || substr(md5(key), 1, 16))::bit(64)::bigint}.
+     */
+    static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+
+    static int jump(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
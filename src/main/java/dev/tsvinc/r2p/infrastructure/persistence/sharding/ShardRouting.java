@@ -0,0 +1,316 @@
+package dev.tsvinc.r2p.infrastructure.persistence.sharding;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Selects the shard that {@link ShardRoutingConnectionFactory} hands connections from, when
+ * {@code r2p.persistence.sharding} splits {@code r2p_transactions} across databases. A request's row and
+ * its outbox events live on the shard its {@code paymentRequestId} hashes to ({@link ShardRouter}), and
+ * refund IDs are drawn to hash beside their original. An initiation key lives on the shard
+ * {@link #initiationKey} hashes to, and the payment request IDs claimed under it are drawn to hash to the
+ * same shard. Every write path therefore stays on one database and commits in one local transaction.
+ * Unsharded, every method runs its work unchanged.
+ * <p>
+ * A transaction is bound to the shard selected when it began. Work for a payment request that lives on
+ * another shard fails instead of silently running on the wrong database.
+ * <p>
+ * While shards are being added, {@code previous-shard-count} is set and rows that hash to a new shard may
+ * still be on their previous one until {@link ShardRebalancer} moves them. {@link #locate} checks the
+ * previous shard first, and work on a row found there first takes a {@code FOR KEY SHARE} lock on its
+ * {@code r2p_payment_request_ids} entry, which the rebalancer locks {@code FOR UPDATE} while it moves the
+ * row; if the row has gone in the meantime, the work is retried once on its new shard.
+ */
+@Component
+public class ShardRouting {
+
+    static final String SHARD_KEY = ShardRouting.class.getName() + ".SHARD";
+
+    private final boolean enabled;
+    private final ShardRouter router;
+    private final ShardRouter previousRouter;
+    private final Supplier<DatabaseClient> databaseClient;
+    private final Supplier<ReactiveTransactionManager> transactionManager;
+    private volatile TransactionalOperator transactions;
+    private volatile TransactionalOperator suspending;
+
+    @Autowired
+    public ShardRouting(@Value("${r2p.persistence.sharding.enabled:false}") boolean enabled,
+                        @Value("${r2p.persistence.sharding.urls:}") List<String> urls,
+                        @Value("${r2p.persistence.sharding.previous-shard-count:0}") int previousShardCount,
+                        ObjectProvider<DatabaseClient> databaseClient,
+                        ObjectProvider<ReactiveTransactionManager> transactionManager) {
+        this(enabled, enabled ? urls.size() : 1, enabled ? previousShardCount : 0,
+                databaseClient::getObject, transactionManager::getObject);
+    }
+
+    public ShardRouting(int shardCount,
+                        int previousShardCount,
+                        DatabaseClient databaseClient,
+                        ReactiveTransactionManager transactionManager) {
+        this(true, shardCount, previousShardCount, () -> databaseClient, () -> transactionManager);
+    }
+
+    private ShardRouting(boolean enabled,
+                         int shardCount,
+                         int previousShardCount,
+                         Supplier<DatabaseClient> databaseClient,
+                         Supplier<ReactiveTransactionManager> transactionManager) {
+        if (previousShardCount > shardCount) {
+            throw new IllegalArgumentException("Shards can only be added: previous-shard-count " + previousShardCount
+                    + " exceeds the " + shardCount + " configured shards");
+        }
+        this.enabled = enabled;
+        this.router = new ShardRouter(shardCount);
+        this.previousRouter = previousShardCount > 0 && previousShardCount != shardCount
+                ? new ShardRouter(previousShardCount)
+                : null;
+        this.databaseClient = databaseClient;
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * Routing for a single database, for engines and tests without sharding.
+     */
+    public static ShardRouting unsharded() {
+        return new ShardRouting(false, 1, 0, () -> {
+            throw new IllegalStateException("Sharding is disabled");
+        }, () -> {
+            throw new IllegalStateException("Sharding is disabled");
+        });
+    }
+
+    /**
+     * The key an initiation's {@code (creditorAgentId, endToEndId)} pair is routed by.
+     */
+    public static String initiationKey(String creditorAgentId, String endToEndId) {
+        return creditorAgentId + ":" + endToEndId;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int shardCount() {
+        return router.shardCount();
+    }
+
+    /**
+     * Whether rows may still be waiting on their previous shard for {@link ShardRebalancer}.
+     */
+    public boolean isResizing() {
+        return previousRouter != null;
+    }
+
+    public int previousShardCount() {
+        return previousRouter != null ? previousRouter.shardCount() : shardCount();
+    }
+
+    public int shardOf(String key) {
+        return enabled ? router.shardFor(key) : 0;
+    }
+
+    public int previousShardOf(String key) {
+        return previousRouter != null ? previousRouter.shardFor(key) : shardOf(key);
+    }
+
+    /**
+     * Draws IDs from {@code generator} until one hashes to {@code shard}, so a new row can be written in a
+     * transaction already bound to that shard.
+     */
+    public String colocatedId(int shard, Supplier<String> generator) {
+        String id = generator.get();
+        while (enabled && router.shardFor(id) != shard) {
+            id = generator.get();
+        }
+        return id;
+    }
+
+    /**
+     * Draws IDs from {@code generator} until one hashes to the same shard as {@code anchorId}, under the
+     * previous shard count as well while shards are being added, so the new row sits beside the anchor's
+     * row wherever that is and moves with it.
+     */
+    public String colocatedId(String anchorId, Supplier<String> generator) {
+        String id = generator.get();
+        while (!isColocated(id, anchorId)) {
+            id = generator.get();
+        }
+        return id;
+    }
+
+    public boolean isColocated(String id, String anchorId) {
+        return shardOf(id) == shardOf(anchorId) && previousShardOf(id) == previousShardOf(anchorId);
+    }
+
+    /**
+     * The shard holding {@code paymentRequestId}'s row: its previous shard while it is still there, its
+     * current shard otherwise. Must not be called inside a transaction.
+     */
+    public Mono<Integer> locate(String paymentRequestId) {
+        int current = shardOf(paymentRequestId);
+        int previous = previousShardOf(paymentRequestId);
+        if (previous == current) {
+            return Mono.just(current);
+        }
+        return onShard(previous, databaseClient.get()
+                .sql("SELECT payment_request_id FROM r2p_payment_request_ids WHERE payment_request_id = :paymentRequestId")
+                .bind("paymentRequestId", paymentRequestId)
+                .fetch()
+                .first()
+                .map(row -> previous))
+                .defaultIfEmpty(current);
+    }
+
+    /**
+     * Runs {@code work} on the shard holding {@code paymentRequestId}. Inside a transaction, the transaction
+     * must already be bound to that shard. Wrap a transaction around {@code work} rather than around this
+     * call, so the transaction begins on the right shard.
+     */
+    public <T> Mono<T> on(String paymentRequestId, Mono<T> work) {
+        if (!enabled) {
+            return work;
+        }
+        return boundShard().flatMap(bound -> bound.isPresent()
+                ? join(bound.get(), paymentRequestId).then(work)
+                : Mono.defer(() -> locate(paymentRequestId).flatMap(shard -> run(shard, paymentRequestId, work)))
+                        .retryWhen(Retry.max(1).filter(ShardMovedException.class::isInstance)));
+    }
+
+    public <T> Mono<T> onShard(int shard, Mono<T> work) {
+        if (!enabled) {
+            return work;
+        }
+        return boundShard().flatMap(bound -> bound.isPresent() && bound.get() != shard
+                ? Mono.error(crossShard("Shard " + shard, bound.get()))
+                : work.contextWrite(context -> context.put(SHARD_KEY, shard)));
+    }
+
+    public <T> Flux<T> onShardMany(int shard, Flux<T> work) {
+        if (!enabled) {
+            return work;
+        }
+        return boundShard().flatMapMany(bound -> bound.isPresent() && bound.get() != shard
+                ? Flux.error(crossShard("Shard " + shard, bound.get()))
+                : work.contextWrite(context -> context.put(SHARD_KEY, shard)));
+    }
+
+    /**
+     * Runs {@code query} on every shard concurrently and merges the results as they arrive.
+     */
+    public <T> Flux<T> fanOut(IntFunction<? extends Publisher<T>> query) {
+        if (!enabled) {
+            return Flux.from(query.apply(0));
+        }
+        return Flux.range(0, shardCount())
+                .flatMap(shard -> onShardMany(shard, Flux.from(query.apply(shard))), shardCount());
+    }
+
+    /**
+     * Runs {@code query}, which must emit in {@code order}, on every shard concurrently and merges the
+     * results in {@code order}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Flux<T> fanOutOrdered(IntFunction<Flux<T>> query, Comparator<? super T> order) {
+        if (!enabled) {
+            return query.apply(0);
+        }
+        Publisher<T>[] shards = IntStream.range(0, shardCount())
+                .mapToObj(shard -> onShardMany(shard, Flux.defer(() -> query.apply(shard))))
+                .toArray(Publisher[]::new);
+        return Flux.mergeComparing(order, shards);
+    }
+
+    /**
+     * Runs {@code work} outside the caller's transaction, e.g. to look at another shard from within one.
+     */
+    public <T> Flux<T> outsideTransaction(Flux<T> work) {
+        return enabled ? work.as(suspending()::transactional) : work;
+    }
+
+    private <T> Mono<T> run(int shard, String paymentRequestId, Mono<T> work) {
+        if (shard == shardOf(paymentRequestId)) {
+            return onShard(shard, work);
+        }
+        return onShard(shard, pin(shard, paymentRequestId).then(work).as(transactions()::transactional));
+    }
+
+    private Mono<Void> join(int bound, String paymentRequestId) {
+        int current = shardOf(paymentRequestId);
+        int previous = previousShardOf(paymentRequestId);
+        if (previous != current && bound == previous) {
+            return pin(bound, paymentRequestId);
+        }
+        return bound == current
+                ? Mono.empty()
+                : Mono.error(crossShard("Payment request " + paymentRequestId + " on shard " + current, bound));
+    }
+
+    /**
+     * Keeps {@link ShardRebalancer} from moving {@code paymentRequestId} off {@code shard} until the current
+     * transaction ends, or fails with {@link ShardMovedException} if it already has.
+     */
+    private Mono<Void> pin(int shard, String paymentRequestId) {
+        return databaseClient.get()
+                .sql("SELECT payment_request_id FROM r2p_payment_request_ids " +
+                        "WHERE payment_request_id = :paymentRequestId FOR KEY SHARE")
+                .bind("paymentRequestId", paymentRequestId)
+                .fetch()
+                .first()
+                .switchIfEmpty(Mono.error(() -> new ShardMovedException(
+                        "Payment request " + paymentRequestId + " has moved off shard " + shard)))
+                .then();
+    }
+
+    /**
+     * The shard of the transaction the caller runs in, if any.
+     */
+    private Mono<Optional<Integer>> boundShard() {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isActualTransactionActive)
+                .flatMap(synchronizationManager -> Mono.deferContextual(context ->
+                        Mono.justOrEmpty(context.<Integer>getOrEmpty(SHARD_KEY))))
+                .map(Optional::of)
+                .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    private static IllegalStateException crossShard(String target, int bound) {
+        return new IllegalStateException(target + " cannot be reached from a transaction on shard " + bound);
+    }
+
+    private TransactionalOperator transactions() {
+        if (transactions == null) {
+            transactions = TransactionalOperator.create(transactionManager.get());
+        }
+        return transactions;
+    }
+
+    private TransactionalOperator suspending() {
+        if (suspending == null) {
+            suspending = TransactionalOperator.create(transactionManager.get(),
+                    new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_NOT_SUPPORTED));
+        }
+        return suspending;
+    }
+}
@@ -0,0 +1,70 @@
+package dev.tsvinc.r2p.infrastructure.persistence.sharding;
+
+import io.r2dbc.spi.Closeable;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.r2dbc.connection.lookup.AbstractRoutingConnectionFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out connections from the shard selected by {@link ShardRouting}. Everything built on the
+ * application's connection factory, the repository, {@code DatabaseClient} and the transaction manager,
+ * therefore works on one shard at a time. Work that selected no shard fails rather than picking one.
+ */
+@Slf4j
+public class ShardRoutingConnectionFactory extends AbstractRoutingConnectionFactory implements DisposableBean {
+
+    private final List<ConnectionFactory> shards;
+
+    public ShardRoutingConnectionFactory(List<? extends ConnectionFactory> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = List.copyOf(shards);
+        Map<Integer, ConnectionFactory> lookup = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            lookup.put(i, shards.get(i));
+        }
+        setTargetConnectionFactories(lookup);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    public List<ConnectionFactory> shards() {
+        return shards;
+    }
+
+    @Override
+    protected Mono<Object> determineCurrentLookupKey() {
+        return Mono.deferContextual(context -> context.getOrEmpty(ShardRouting.SHARD_KEY)
+                .map(Mono::just)
+                .orElseGet(() -> Mono.error(new IllegalStateException(
+                        "No shard selected; run the work through ShardRouting"))));
+    }
+
+    /**
+     * Every shard runs the same Postgres version, so the first one stands for all of them.
+     */
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return shards.getFirst().getMetadata();
+    }
+
+    @Override
+    public void destroy() {
+        Flux.fromIterable(shards)
+                .filter(Closeable.class::isInstance)
+                .flatMap(shard -> Mono.from(((Closeable) shard).close()))
+                .doOnError(error -> log.warn("Failed to close shard connection pool", error))
+                .onErrorResume(error -> Mono.empty())
+                .blockLast(Duration.ofSeconds(10));
+    }
+}
@@ -0,0 +1,36 @@
+package dev.tsvinc.r2p.infrastructure.persistence.sharding;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.jmx.annotation.JmxEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Operator view of the shards, the {@code org.springframework.boot:type=Endpoint,name=Sharding} MBean:
+ * {@code rowCounts} returns the rows per shard and {@code rebalance} moves rows onto the shards added since
+ * {@code previous-shard-count}. A rebalance rewrites rows across databases, so the endpoint is JMX-only and
+ * cannot be exposed over HTTP.
+ */
+@Component
+@JmxEndpoint(id = "sharding")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "r2p.persistence.sharding.enabled", havingValue = "true")
+public class ShardingEndpoint {
+
+    private final ShardRebalancer rebalancer;
+
+    @ReadOperation
+    public Mono<Map<String, Long>> rowCounts() {
+        return rebalancer.rowCounts();
+    }
+
+    @WriteOperation
+    public Mono<ShardRebalancer.RebalanceReport> rebalance() {
+        return rebalancer.rebalance();
+    }
+}
@@ -0,0 +1,65 @@
+package dev.tsvinc.r2p.service;
+
+import dev.tsvinc.r2p.exception.R2PAccessDeniedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Agents each API key ID acts for, from {@code r2p.key-agents}. Visa scopes its reads to the caller's key ID;
+ * everything we answer from our own tables is scoped the same way through this mapping. A key ID that is not
+ * mapped acts for no agent.
+ */
+@Component
+public class KeyAgents {
+
+    private final Map<String, Set<String>> agentsByKeyId;
+
+    /**
+     * @param keyAgents key ID to the comma-separated agent IDs it acts for
+     */
+    public KeyAgents(@Value("#{${r2p.key-agents:{:}}}") Map<String, String> keyAgents) {
+        this.agentsByKeyId = keyAgents.entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey,
+                        entry -> Arrays.stream(entry.getValue().split(","))
+                                .map(String::trim)
+                                .filter(agentId -> !agentId.isEmpty())
+                                .collect(Collectors.toUnmodifiableSet())));
+    }
+
+    public boolean isEmpty() {
+        return agentsByKeyId.values().stream().allMatch(Set::isEmpty);
+    }
+
+    public Set<String> agentsOf(String keyId) {
+        return keyId != null ? agentsByKeyId.getOrDefault(keyId, Set.of()) : Set.of();
+    }
+
+    /**
+     * Whether {@code keyId} acts for the creditor or the debtor agent of a request.
+     */
+    public boolean actsFor(String keyId, String creditorAgentId, String debtorAgentId) {
+        Set<String> agentIds = agentsOf(keyId);
+        return agentIds.contains(creditorAgentId) || agentIds.contains(debtorAgentId);
+    }
+
+    /**
+     * Agents a query by {@code keyId} may cover: only {@code agentId} when one is requested, otherwise every
+     * agent the key ID acts for. Fails with {@link R2PAccessDeniedException} when the key ID does not act for
+     * the requested agent, or for any agent at all.
+     */
+    public Set<String> scope(String keyId, String agentId) {
+        Set<String> agentIds = agentsOf(keyId);
+        if (agentId != null && !agentIds.contains(agentId)) {
+            throw new R2PAccessDeniedException("Key ID " + keyId + " does not act for agent " + agentId);
+        }
+        if (agentIds.isEmpty()) {
+            throw new R2PAccessDeniedException("Key ID " + keyId + " does not act for any agent");
+        }
+        return agentId != null ? Set.of(agentId) : agentIds;
+    }
+}
@@ -0,0 +1,129 @@
+package dev.tsvinc.r2p.service;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Decides whether a retrieve can be answered from our own {@code r2p_transactions} row instead of Visa.
+ * Rows in a terminal status never change again. Other rows are trusted for {@code max-age} after their
+ * last update, which covers the usual delay between a status change at Visa and its callback reaching us.
+ * <p>
+ * Visa scopes retrieves to the caller's key ID, so a row is only answered locally to a key ID that
+ * {@link KeyAgents} maps to the row's creditor or debtor agent. Anything else goes to Visa, which applies its
+ * own checks. Enabling local-first reads without configuring {@code r2p.key-agents} therefore changes
+ * nothing, which is logged as a warning at startup.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LocalRetrieveService {
+
+    private final R2PTransactionService transactionService;
+    private final KeyAgents keyAgents;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${r2p.retrieve.local-first.enabled:false}")
+    private boolean enabled;
+
+    @Value("${r2p.retrieve.local-first.max-age:30s}")
+    private Duration maxAge;
+
+    private Counter freshCounter;
+    private Counter staleCounter;
+    private Counter absentCounter;
+    private Counter foreignCounter;
+
+    @PostConstruct
+    public void init() {
+        freshCounter = counter("fresh");
+        staleCounter = counter("stale");
+        absentCounter = counter("absent");
+        foreignCounter = counter("foreign");
+        if (enabled && keyAgents.isEmpty()) {
+            log.warn("r2p.retrieve.local-first.enabled is set but r2p.key-agents maps no key ID to an agent; "
+                    + "every retrieve will still go to Visa");
+        }
+    }
+
+    /**
+     * The local row, if local-first reads are enabled, {@code keyId} acts for one of the row's agents and the
+     * row is fresh; empty otherwise.
+     */
+    public Mono<R2PTransaction> findFresh(String paymentRequestId, String keyId) {
+        if (!enabled || keyAgents.agentsOf(keyId).isEmpty()) {
+            return Mono.empty();
+        }
+        return transactionService.findByPaymentRequestId(paymentRequestId)
+                .switchIfEmpty(Mono.fromRunnable(absentCounter::increment))
+                .filter(transaction -> {
+                    boolean own = keyAgents.actsFor(keyId,
+                            transaction.getCreditorAgentId(), transaction.getDebtorAgentId());
+                    if (!own) {
+                        foreignCounter.increment();
+                    }
+                    return own;
+                })
+                .filter(transaction -> {
+                    boolean fresh = isFresh(transaction, LocalDateTime.now());
+                    (fresh ? freshCounter : staleCounter).increment();
+                    return fresh;
+                })
+                .onErrorResume(error -> {
+                    log.warn("Local lookup of {} failed, falling back to Visa: {}", paymentRequestId, error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    boolean isFresh(R2PTransaction transaction, LocalDateTime now) {
+        if (transaction.getTransactionStatus() == null) {
+            return false;
+        }
+        if (transaction.getTransactionStatus().isTerminal()) {
+            return true;
+        }
+        return transaction.getUpdatedAt() != null && !transaction.getUpdatedAt().plus(maxAge).isBefore(now);
+    }
+
+    /**
+     * Weak entity tag of the row. Weak because the response body also carries a per-request
+     * {@code creationDateTime}; the tag changes exactly when the row's {@code version} does.
+     */
+    public static String eTag(R2PTransaction transaction) {
+        return "W/\"" + transaction.getPaymentRequestId() + "-" + transaction.getVersion() + "\"";
+    }
+
+    /**
+     * Weak comparison as required for {@code If-None-Match} (RFC 9110, section 13.1.2).
+     */
+    public static boolean matches(List<String> ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = stripWeak(eTag);
+        return ifNoneMatch.stream()
+                .map(String::trim)
+                .anyMatch(candidate -> "*".equals(candidate) || stripWeak(candidate).equals(opaqueTag));
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private Counter counter(String result) {
+        return Counter.builder("r2p.retrieve.local-first.lookups")
+                .description("Local-first retrieve lookups by outcome; stale, absent and foreign fall back to Visa")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -17,74 +17,67 @@ import dev.tsvinc.r2p.domain.events.R2PRejectedEvent;
 import dev.tsvinc.r2p.domain.events.R2PReminderEvent;
 import dev.tsvinc.r2p.domain.events.R2PSettledEvent;
 import dev.tsvinc.r2p.domain.events.R2PTaggingEvent;
+import dev.tsvinc.r2p.infrastructure.outbox.EventOutbox;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
+/**
+ * Records domain events in the transactional outbox instead of publishing them in-line. Each method
+ * must be composed into the same reactive transaction as the write it reports; OutboxRelay delivers
+ * the events to {@code ApplicationEventPublisher} listeners once that transaction has committed.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class R2PEventPublisher {
 
-    private final ApplicationEventPublisher eventPublisher;
+    private final EventOutbox eventOutbox;
 
-    public void publishConfirmationEvent(R2PTransaction transaction, ConfirmR2pRequest request) {
-        publishEvent(new R2PConfirmationEvent(transaction, request));
+    public Mono<Void> publishConfirmationEvent(R2PTransaction transaction, ConfirmR2pRequest request) {
+        return publishEvent(transaction, new R2PConfirmationEvent(transaction, request));
     }
 
-    public void publishInitiationEvent(R2PTransaction transaction, InitiateR2pRequest request) {
-        publishEvent(new R2PInitiationEvent(transaction, request));
+    public Mono<Void> publishInitiationEvent(R2PTransaction transaction, InitiateR2pRequest request) {
+        return publishEvent(transaction, new R2PInitiationEvent(transaction, request));
     }
 
-    public void publishTaggingEvent(R2PTransaction transaction, TransactionTaggingRequest request) {
-        publishEvent(new R2PTaggingEvent(transaction, request));
+    public Mono<Void> publishTaggingEvent(R2PTransaction transaction, TransactionTaggingRequest request) {
+        return publishEvent(transaction, new R2PTaggingEvent(transaction, request));
     }
 
-    public void publishRefundEvent(R2PTransaction transaction, RefundR2pRequest request) {
-        publishEvent(new R2PRefundEvent(transaction, request));
+    public Mono<Void> publishRefundEvent(R2PTransaction transaction, RefundR2pRequest request) {
+        return publishEvent(transaction, new R2PRefundEvent(transaction, request));
     }
 
-    public void publishCancellationEvent(R2PTransaction transaction, CancelR2pRequest request) {
-        publishEvent(new R2PCancellationEvent(transaction, request));
+    public Mono<Void> publishCancellationEvent(R2PTransaction transaction, CancelR2pRequest request) {
+        return publishEvent(transaction, new R2PCancellationEvent(transaction, request));
     }
 
-    public void publishAmendmentEvent(R2PTransaction transaction, AmendR2pRequest request) {
-        publishEvent(new R2PAmendmentEvent(transaction, request));
+    public Mono<Void> publishAmendmentEvent(R2PTransaction transaction, AmendR2pRequest request) {
+        return publishEvent(transaction, new R2PAmendmentEvent(transaction, request));
     }
 
     public Mono<Void> publishReminderEvent(R2PTransaction transaction, String agentId) {
-        return Mono.fromRunnable(() -> publishEvent(new R2PReminderEvent(transaction, agentId)))
-                .subscribeOn(Schedulers.boundedElastic())
-                .then();
+        return publishEvent(transaction, new R2PReminderEvent(transaction, agentId));
     }
 
     public Mono<Void> publishExpiredEvent(R2PTransaction transaction, String agentId) {
-        return Mono.fromRunnable(() -> publishEvent(new R2PExpiredEvent(transaction, agentId)))
-                .subscribeOn(Schedulers.boundedElastic())
-                .then();
+        return publishEvent(transaction, new R2PExpiredEvent(transaction, agentId));
     }
 
     public Mono<Void> publishRejectedEvent(R2PTransaction transaction, String agentId) {
-        return Mono.fromRunnable(() -> publishEvent(new R2PRejectedEvent(transaction, agentId)))
-                .subscribeOn(Schedulers.boundedElastic())
-                .then();
+        return publishEvent(transaction, new R2PRejectedEvent(transaction, agentId));
     }
 
     public Mono<Void> publishSettledEvent(R2PTransaction transaction, String agentId) {
-        return Mono.fromRunnable(() -> publishEvent(new R2PSettledEvent(transaction, agentId)))
-                .subscribeOn(Schedulers.boundedElastic())
-                .then();
+        return publishEvent(transaction, new R2PSettledEvent(transaction, agentId));
     }
 
-    private void publishEvent(Object event) {
-        try {
-            eventPublisher.publishEvent(event);
-            log.debug("Published event: {}", event.getClass().getSimpleName());
-        } catch (Exception e) {
-            log.error("Failed to publish event: {}", event.getClass().getSimpleName(), e);
-        }
+    private Mono<Void> publishEvent(R2PTransaction transaction, Object event) {
+        return eventOutbox.append(transaction.getPaymentRequestId(), event)
+                .doOnSuccess(unused -> log.debug("Queued event: {}", event.getClass().getSimpleName()))
+                .doOnError(error -> log.error("Failed to queue event: {}", event.getClass().getSimpleName(), error));
     }
-}
\ No newline at end of file
+}
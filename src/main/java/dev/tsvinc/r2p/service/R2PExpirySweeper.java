@@ -0,0 +1,106 @@
+package dev.tsvinc.r2p.service;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStore;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Expires pending requests whose due date has passed, without waiting for an EXPIRED notification.
+ * Every replica may run it: batches are claimed with {@code FOR UPDATE SKIP LOCKED}, so concurrent
+ * sweeps split the backlog between them rather than expiring the same rows twice. Each batch commits
+ * together with its outbox events in a transaction of the persistence engine. With sharding, every shard
+ * is swept concurrently, each in batches of its own.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "r2p.expiry.sweeper.enabled", havingValue = "true", matchIfMissing = true)
+public class R2PExpirySweeper {
+
+    private final R2PTransactionService transactionService;
+    private final R2PEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final R2PTransactionStore transactionStore;
+    private final ShardRouting shardRouting;
+
+    @Value("${r2p.expiry.sweeper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${r2p.expiry.sweeper.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    private Counter expiredCounter;
+    private Counter batchCounter;
+    private Timer batchTimer;
+    private TransactionalOperator transactionalOperator;
+
+    @PostConstruct
+    public void init() {
+        transactionalOperator = TransactionalOperator.create(transactionStore.transactionManager());
+
+        expiredCounter = Counter.builder("r2p.expiry.expired")
+                .description("Number of pending transactions expired by the sweeper")
+                .register(meterRegistry);
+
+        batchCounter = Counter.builder("r2p.expiry.batches")
+                .description("Number of expiry batches claimed by the sweeper")
+                .register(meterRegistry);
+
+        batchTimer = Timer.builder("r2p.expiry.batch.duration")
+                .description("Time to claim, expire and publish one expiry batch")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Drains full batches back to back on each shard until a short batch shows its backlog is empty, capped
+     * at {@code max-batches-per-run} per shard so one run cannot monopolize the connection pool.
+     */
+    @Scheduled(fixedDelayString = "${r2p.expiry.sweeper.fixed-delay-ms:30000}",
+            initialDelayString = "${r2p.expiry.sweeper.initial-delay-ms:30000}")
+    public Mono<Void> sweep() {
+        return Flux.range(0, shardRouting.shardCount())
+                .flatMap(shard -> sweepBatch(shard)
+                        .expand(expired -> expired == batchSize ? sweepBatch(shard) : Mono.empty())
+                        .take(maxBatchesPerRun), shardRouting.shardCount())
+                .reduce(0L, Long::sum)
+                .doOnNext(total -> {
+                    if (total > 0) {
+                        log.info("Expiry sweep expired {} pending transactions", total);
+                    }
+                })
+                .doOnError(error -> log.error("Expiry sweep failed", error))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    Mono<Long> sweepBatch(int shard) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return shardRouting.onShard(shard, transactionService.expireDueBatch(batchSize)
+                        .concatMap(this::publishExpired)
+                        .count()
+                        .as(transactionalOperator::transactional))
+                .doOnNext(expired -> {
+                    sample.stop(batchTimer);
+                    batchCounter.increment();
+                    expiredCounter.increment(expired);
+                });
+    }
+
+    private Mono<R2PTransaction> publishExpired(R2PTransaction transaction) {
+        return eventPublisher.publishExpiredEvent(transaction, transaction.getCreditorAgentId())
+                .thenReturn(transaction);
+    }
+}
@@ -1,16 +1,35 @@
 package dev.tsvinc.r2p.service;
 
 import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.mapper.R2PTransactionMapper;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionFilter;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionReader;
 import dev.tsvinc.r2p.domain.repository.R2PTransactionRepository;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStore;
+import dev.tsvinc.r2p.domain.repository.RefundBalance;
+import dev.tsvinc.r2p.domain.repository.ActiveDebtor;
+import dev.tsvinc.r2p.domain.repository.SettlementSystemSummary;
+import dev.tsvinc.r2p.exception.R2PTransactionValidationException;
+import dev.tsvinc.r2p.infrastructure.cache.TransactionCache;
+import dev.tsvinc.r2p.infrastructure.persistence.QueryCancellation;
+import dev.tsvinc.r2p.infrastructure.persistence.ReadRouting;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import dev.tsvinc.r2p.service.dto.R2PTransactionDto;
+import dev.tsvinc.r2p.service.dto.TransactionCursor;
+import dev.tsvinc.r2p.service.dto.TransactionPage;
+import io.r2dbc.postgresql.codec.Json;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -18,9 +37,29 @@ import java.time.LocalDateTime;
 public class R2PTransactionService {
 
     private final R2PTransactionRepository transactionRepository;
+    private final R2PTransactionReader transactionReader;
+    private final R2PTransactionStore transactionStore;
+    private final R2PTransactionMapper transactionMapper;
+    private final ReadRouting readRouting;
+    private final QueryCancellation queryCancellation;
+    private final TransactionCache transactionCache;
+    private final ShardRouting shardRouting;
+    private final TransactionalOperator transactionalOperator;
+
+    /**
+     * Upper bound on how long a request can stay pending; bounds expiry scans to recent partitions.
+     */
+    @Value("${r2p.persistence.partitions.pending-lookback-days:90}")
+    private long pendingLookbackDays;
+
+    @Value("${r2p.api.transactions.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${r2p.api.transactions.max-page-size:1000}")
+    private int maxPageSize;
 
     public Mono<R2PTransaction> findById(Long id) {
-        return transactionRepository.findById(id)
+        return readRouting.read(transactionReader.findById(id))
                 .doOnSuccess(transaction -> {
                     if (transaction != null) {
                         log.debug("Found transaction with ID: {}", id);
@@ -32,7 +71,8 @@ public class R2PTransactionService {
     }
 
     public Mono<R2PTransaction> findByPaymentRequestId(String paymentRequestId) {
-        return transactionRepository.findByPaymentRequestId(paymentRequestId)
+        return transactionCache.get(paymentRequestId, () ->
+                        readRouting.read(paymentRequestId, transactionReader.findByPaymentRequestId(paymentRequestId)))
                 .doOnSuccess(transaction -> {
                     if (transaction != null) {
                         log.debug("Found transaction with payment request ID: {}", paymentRequestId);
@@ -49,32 +89,38 @@ public class R2PTransactionService {
         }
         transaction.setUpdatedAt(LocalDateTime.now());
 
-        return transactionRepository.save(transaction)
+        return transactionStore.save(transaction)
+                .doOnNext(saved -> readRouting.recordWrite(saved.getPaymentRequestId()))
+                .delayUntil(saved -> transactionCache.invalidate(saved.getPaymentRequestId()))
                 .doOnSuccess(saved -> log.debug("Saved transaction with payment request ID: {}", saved.getPaymentRequestId()))
                 .doOnError(error -> log.error("Error saving transaction: {}", transaction, error));
     }
 
-    @Transactional
     public Mono<R2PTransaction> updateTransactionStatus(String paymentRequestId, String status) {
-        return transactionRepository.updateTransactionStatus(paymentRequestId, status)
-                .then(transactionRepository.findByPaymentRequestId(paymentRequestId))
+        readRouting.recordWrite(paymentRequestId);
+        return shardRouting.on(paymentRequestId, transactionRepository.updateTransactionStatus(paymentRequestId, status)
+                        .then(transactionCache.invalidate(paymentRequestId))
+                        .then(transactionRepository.findByPaymentRequestId(paymentRequestId))
+                        .as(transactionalOperator::transactional))
                 .doOnSuccess(transaction -> log.debug("Updated transaction status to {} for payment request ID: {}",
                         status, paymentRequestId))
                 .doOnError(error -> log.error("Error updating transaction status for payment request ID: {}",
                         paymentRequestId, error));
     }
 
-    @Transactional
     public Mono<R2PTransaction> updateTransactionWithSettlement(
             String paymentRequestId,
             String status,
             BigDecimal acceptedAmount,
             String acceptedAmountCurrency,
-            String settlementDetails) {
+            Json settlementDetails) {
 
-        return transactionRepository.updateTransactionWithSettlement(
-                        paymentRequestId, status, acceptedAmount, acceptedAmountCurrency, settlementDetails)
-                .then(transactionRepository.findByPaymentRequestId(paymentRequestId))
+        readRouting.recordWrite(paymentRequestId);
+        return shardRouting.on(paymentRequestId, transactionRepository.updateTransactionWithSettlement(
+                                paymentRequestId, status, acceptedAmount, acceptedAmountCurrency, settlementDetails)
+                        .then(transactionCache.invalidate(paymentRequestId))
+                        .then(transactionRepository.findByPaymentRequestId(paymentRequestId))
+                        .as(transactionalOperator::transactional))
                 .doOnSuccess(transaction -> log.debug("Updated transaction with settlement details for payment request ID: {}",
                         paymentRequestId))
                 .doOnError(error -> log.error("Error updating transaction with settlement for payment request ID: {}",
@@ -82,25 +128,107 @@ public class R2PTransactionService {
     }
 
     public Flux<R2PTransaction> findByTransactionStatus(String status) {
-        return transactionRepository.findByTransactionStatus(status)
+        return readRouting.read(transactionReader.findByTransactionStatus(status))
                 .doOnComplete(() -> log.debug("Retrieved transactions with status: {}", status))
                 .doOnError(error -> log.error("Error finding transactions with status: {}", status, error));
     }
 
     public Flux<R2PTransaction> findExpiredTransactions() {
-        return transactionRepository.findExpiredTransactions(LocalDateTime.now())
+        return readRouting.read(transactionReader.findExpiredTransactions(LocalDate.now(),
+                        LocalDateTime.now().minusDays(pendingLookbackDays)))
                 .doOnComplete(() -> log.debug("Retrieved expired transactions"))
                 .doOnError(error -> log.error("Error finding expired transactions", error));
     }
 
+    /**
+     * Expires a batch on the shard the caller selected, see {@link R2PExpirySweeper}.
+     */
+    public Flux<R2PTransaction> expireDueBatch(int batchSize) {
+        return transactionStore.expireDueBatch(LocalDate.now(),
+                        LocalDateTime.now().minusDays(pendingLookbackDays), batchSize)
+                .doOnNext(expired -> readRouting.recordWrite(expired.getPaymentRequestId()))
+                .delayUntil(expired -> transactionCache.invalidate(expired.getPaymentRequestId()))
+                .doOnError(error -> log.error("Error expiring due transactions", error));
+    }
+
+    /**
+     * Returns the page of transactions following {@code cursor} in {@code (created_at, id)} order.
+     * One extra row is read to decide whether a next page exists without a count query.
+     */
+    public Mono<TransactionPage> findPage(R2PTransactionFilter filter, String cursor, Integer size) {
+        return queryCancellation.cancellable("transaction-page", page(filter, cursor, size));
+    }
+
+    /**
+     * Walks every transaction matching {@code filter} page by page at the maximum page size, so
+     * memory stays bounded by one page and no connection is held between pages.
+     */
+    public Flux<R2PTransactionDto> streamTransactions(R2PTransactionFilter filter, String cursor) {
+        return queryCancellation.cancellable("transaction-stream", page(filter, cursor, maxPageSize)
+                .expand(page -> page.hasNext() ? page(filter, page.nextCursor(), maxPageSize) : Mono.empty())
+                .concatMapIterable(TransactionPage::transactions));
+    }
+
+    private Mono<TransactionPage> page(R2PTransactionFilter filter, String cursor, Integer size) {
+        return Mono.defer(() -> {
+            int pageSize = resolvePageSize(size);
+            TransactionCursor after = cursor != null ? TransactionCursor.decode(cursor) : null;
+            return readRouting.read(transactionReader.findPageAfter(filter,
+                            after != null ? after.createdAt() : null,
+                            after != null ? after.id() : null,
+                            pageSize + 1))
+                    .collectList()
+                    .map(rows -> toPage(rows, pageSize));
+        }).doOnError(error -> log.error("Error reading transaction page for filter: {}", filter, error));
+    }
+
+    private TransactionPage toPage(List<R2PTransaction> rows, int pageSize) {
+        boolean hasNext = rows.size() > pageSize;
+        List<R2PTransaction> content = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasNext ? TransactionCursor.after(content.getLast()).encode() : null;
+        return TransactionPage.of(content.stream().map(transactionMapper::toDto).toList(), nextCursor);
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        if (size < 1) {
+            throw new R2PTransactionValidationException("Page size must be positive");
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    public Flux<SettlementSystemSummary> summarizeBySettlementSystem(LocalDateTime from, LocalDateTime to) {
+        return queryCancellation.cancellable("settlement-system-report",
+                        readRouting.read(transactionReader.summarizeBySettlementSystem(from, to)))
+                .doOnError(error -> log.error("Error summarizing settlement systems between {} and {}", from, to, error));
+    }
+
+    public Flux<ActiveDebtor> findMostActiveDebtors(LocalDateTime createdAfter, int limit) {
+        return readRouting.read(transactionReader.findMostActiveDebtors(createdAfter, limit))
+                .doOnError(error -> log.error("Error finding most active debtors since {}", createdAfter, error));
+    }
+
     public Flux<R2PTransaction> findRefundsByOriginalPaymentRequestId(String originalId) {
-        return transactionRepository.findRefundsByOriginalPaymentRequestId(originalId)
+        return readRouting.read(transactionReader.findRefundsByOriginalPaymentRequestId(originalId))
                 .doOnComplete(() -> log.debug("Retrieved refunds for original payment request ID: {}", originalId))
                 .doOnError(error -> log.error("Error finding refunds for original payment request ID: {}", originalId, error));
     }
 
+    /**
+     * Reads the original's refund ledger directly, so the cost does not grow with the number of refunds.
+     */
+    public Mono<RefundBalance> findRefundBalance(String paymentRequestId) {
+        return readRouting.read(paymentRequestId, transactionReader.findRefundBalance(paymentRequestId))
+                .doOnError(error -> log.error("Error reading refund balance for payment request ID: {}",
+                        paymentRequestId, error));
+    }
+
     public Mono<Void> deleteById(Long id) {
-        return transactionRepository.deleteById(id)
+        return transactionReader.findById(id)
+                .flatMap(transaction -> transactionCache.invalidate(transaction.getPaymentRequestId())
+                        .then(shardRouting.on(transaction.getPaymentRequestId(), transactionRepository.deleteById(id))))
                 .doOnSuccess(unused -> log.debug("Deleted transaction with ID: {}", id))
                 .doOnError(error -> log.error("Error deleting transaction with ID: {}", id, error));
     }
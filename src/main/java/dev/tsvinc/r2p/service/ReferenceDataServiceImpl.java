@@ -5,6 +5,8 @@ import dev.tsvinc.r2p.client.dto.request.ViewBlockRequest;
 import dev.tsvinc.r2p.client.dto.response.ReferenceDataResponse;
 import dev.tsvinc.r2p.client.dto.response.ViewBlockResponse;
 import dev.tsvinc.r2p.client.service.R2PWebClientService;
+import dev.tsvinc.r2p.infrastructure.cache.BlockListCache;
+import dev.tsvinc.r2p.infrastructure.cache.ReferenceDataCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -16,12 +18,14 @@ import reactor.core.publisher.Mono;
 public class ReferenceDataServiceImpl implements ReferenceDataService {
 
     private final R2PWebClientService webClientService;
+    private final ReferenceDataCache referenceDataCache;
+    private final BlockListCache blockListCache;
 
     @Override
     public Mono<ReferenceDataResponse> getReferenceData(String keyId, ReferenceDataRequest request) {
         log.debug("Getting reference data for types: {}", request.referenceDataTypes());
-        return webClientService.getReferenceData(keyId, request)
-                .doOnSuccess(response -> log.info("Retrieved {} participants",
+        return referenceDataCache.get(keyId, request)
+                .doOnSuccess(response -> log.debug("Retrieved {} participants",
                         response.availableParticipants().size()))
                 .doOnError(error -> log.error("Failed to get reference data: {}", error.getMessage()));
     }
@@ -29,7 +33,7 @@ public class ReferenceDataServiceImpl implements ReferenceDataService {
     @Override
     public Mono<ViewBlockResponse> viewBlocks(String keyId, ViewBlockRequest request) {
         log.debug("Viewing blocks for debtor: {}", request.debtorId());
-        return webClientService.viewBlocks(keyId, request)
+        return blockListCache.viewBlocks(keyId, request)
                 .doOnSuccess(response -> log.info("Retrieved {} blocks for debtor: {}",
                         response.blockedPayees().size(), request.debtorId()))
                 .doOnError(error -> log.error("Failed to view blocks: {}", error.getMessage()));
@@ -38,7 +42,7 @@ public class ReferenceDataServiceImpl implements ReferenceDataService {
     @Override
     public Mono<Void> removeBlock(String blockReferenceId, String keyId) {
         log.debug("Removing block: {}", blockReferenceId);
-        return webClientService.removeBlock(blockReferenceId, keyId)
+        return blockListCache.removeBlock(blockReferenceId, keyId)
                 .doOnSuccess(v -> log.info("Block removed: {}", blockReferenceId))
                 .doOnError(error -> log.error("Failed to remove block: {}", error.getMessage()));
     }
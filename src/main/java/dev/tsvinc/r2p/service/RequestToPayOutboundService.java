@@ -20,16 +20,25 @@ import dev.tsvinc.r2p.domain.entity.R2PTransaction;
 import dev.tsvinc.r2p.domain.enums.TransactionStatus;
 import dev.tsvinc.r2p.domain.enums.UseCase;
 import dev.tsvinc.r2p.domain.mapper.R2PTransactionMapper;
-import dev.tsvinc.r2p.domain.repository.R2PTransactionRepository;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStore;
+import dev.tsvinc.r2p.domain.repository.RefundBalance;
 import dev.tsvinc.r2p.exception.R2PBusinessException;
 import dev.tsvinc.r2p.exception.R2PNotFoundException;
+import dev.tsvinc.r2p.infrastructure.cache.TransactionCache;
+import dev.tsvinc.r2p.infrastructure.persistence.ReadRouting;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import dev.tsvinc.r2p.service.concurrency.GroupCommitter;
+import dev.tsvinc.r2p.service.concurrency.MergePolicy;
+import dev.tsvinc.r2p.service.concurrency.OptimisticUpdateExecutor;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import io.r2dbc.spi.R2dbcTransientException;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
@@ -38,26 +47,48 @@ import reactor.util.retry.Retry;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RequestToPayOutboundService {
 
-    private final R2PTransactionRepository transactionRepository;
+    private final R2PTransactionStore transactionStore;
     private final R2PTransactionMapper transactionMapper;
     private final R2PEventPublisher eventPublisher;
+    private final ReadRouting readRouting;
+    private final TransactionCache transactionCache;
+    private final OptimisticUpdateExecutor optimisticUpdateExecutor;
+    private final GroupCommitter groupCommitter;
+    private final ShardRouting shardRouting;
     private final MeterRegistry meterRegistry;
 
     private Counter confirmationCounter;
     private Counter initiationCounter;
     private Counter cancellationCounter;
     private Counter refundCounter;
+    private Counter duplicateCallbackCounter;
+    private Counter replayedInitiationCounter;
+
+    /**
+     * Transactions of the persistence engine, so each write, its initiation key claims and its outbox
+     * events commit or roll back together whichever engine is configured. With sharding, each transaction
+     * begins inside {@link ShardRouting}, on the shard holding the payment request it changes.
+     */
+    private TransactionalOperator transactions;
 
     @PostConstruct
     public void init() {
+        transactions = TransactionalOperator.create(transactionStore.transactionManager());
+
         confirmationCounter = Counter.builder("r2p.outbound.confirmations")
                 .description("Number of R2P confirmations processed")
                 .register(meterRegistry);
@@ -73,54 +104,77 @@ public class RequestToPayOutboundService {
         refundCounter = Counter.builder("r2p.outbound.refunds")
                 .description("Number of R2P refunds processed")
                 .register(meterRegistry);
+
+        duplicateCallbackCounter = Counter.builder("r2p.outbound.duplicates")
+                .description("Number of repeated confirmations or cancellations acknowledged without a write")
+                .register(meterRegistry);
+
+        replayedInitiationCounter = Counter.builder("r2p.outbound.initiations.replayed")
+                .description("Number of retried initiation items answered with the original payment request")
+                .register(meterRegistry);
     }
 
-    @Transactional
     public Mono<ConfirmR2pResponse> processConfirmation(
             String paymentRequestId, String keyId, String requestAffinity, ConfirmR2pRequest request) {
-        return transactionRepository
-                .findByPaymentRequestId(paymentRequestId)
-                .switchIfEmpty(Mono.error(new R2PNotFoundException("Payment request not found: " + paymentRequestId)))
-                .filter(transaction -> transaction.getEndToEndId().equals(request.endToEndId()))
-                .switchIfEmpty(Mono.error(new R2PBusinessException("End-to-end ID mismatch")))
-                .flatMap(transaction -> updateTransactionForConfirmation(transaction, request))
-                .flatMap(transactionRepository::save)
+        return shardRouting.on(paymentRequestId, transactionStore
+                .transitionForConfirmation(
+                        paymentRequestId,
+                        request.endToEndId(),
+                        request.transactionStatus(),
+                        confirmationMessage(request),
+                        request.acceptedAmount(),
+                        request.acceptedAmountCurrency(),
+                        request.settlementDetails() != null
+                                ? transactionMapper.settlementDetailsToJson(request.settlementDetails())
+                                : null,
+                        request.transactionStatus().allowedSources())
                 .doOnNext(transaction -> {
+                    readRouting.recordWrite(transaction.getPaymentRequestId());
                     confirmationCounter.increment();
-                    eventPublisher.publishConfirmationEvent(transaction, request);
                 })
+                .delayUntil(transaction -> transactionCache.invalidate(transaction.getPaymentRequestId()))
+                .flatMap(transaction -> eventPublisher.publishConfirmationEvent(transaction, request)
+                        .thenReturn(transaction))
                 .map(transaction -> ConfirmR2pResponse.create(request))
+                .switchIfEmpty(Mono.defer(() -> rejectConfirmation(paymentRequestId, request)
+                        .map(transaction -> ConfirmR2pResponse.create(request))))
+                .as(transactions::transactional))
                 .subscribeOn(Schedulers.boundedElastic());
     }
 
     public Mono<Void> processTransactionTagging(
             String keyId, String requestAffinity, TransactionTaggingRequest request) {
-        return transactionRepository
-                .findByPaymentRequestId(request.taggedTransaction().transactionId())
-                .switchIfEmpty(Mono.error(new R2PNotFoundException(
-                        "Transaction not found: " + request.taggedTransaction().transactionId())))
-                .flatMap(transaction -> updateTransactionWithTagging(transaction, request))
-                .flatMap(transactionRepository::save)
-                .doOnNext(transaction -> eventPublisher.publishTaggingEvent(transaction, request))
+        return groupCommitter
+                .submit(request.taggedTransaction().transactionId(), () -> optimisticUpdateExecutor
+                        .update("tagging", request.taggedTransaction().transactionId(), MergePolicy.REAPPLY,
+                                transaction -> applyTagging(transaction, request))
+                        .doOnNext(transaction -> readRouting.recordWrite(transaction.getPaymentRequestId()))
+                        .flatMap(transaction -> eventPublisher.publishTaggingEvent(transaction, request)
+                                .thenReturn(transaction)))
                 .then()
                 .subscribeOn(Schedulers.boundedElastic());
     }
 
-    @Transactional
     public Mono<RefundR2pResponse> processRefund(
             String originalPaymentRequestId, String keyId, String requestAffinity, RefundR2pRequest request) {
-        return transactionRepository
-                .findByPaymentRequestId(originalPaymentRequestId)
-                .switchIfEmpty(Mono.error(
-                        new R2PNotFoundException("Original payment request not found: " + originalPaymentRequestId)))
-                .filter(transaction -> TransactionStatus.ACSC.equals(transaction.getTransactionStatus()))
-                .switchIfEmpty(Mono.error(new R2PBusinessException("Can only refund settled transactions")))
-                .flatMap(originalTransaction -> createRefundTransaction(originalTransaction, request))
-                .flatMap(transactionRepository::save)
+        RefundPaymentRequest refundRequest = request.paymentRequests().getFirst();
+        return shardRouting.on(originalPaymentRequestId, transactionStore
+                .insertRefund(originalPaymentRequestId,
+                        shardRouting.colocatedId(originalPaymentRequestId,
+                                () -> "RFD" + UUID.randomUUID().toString().substring(0, 18)),
+                        refundRequest.endToEndId(),
+                        request.requestMessageId(),
+                        UseCase.P2P.name(),
+                        refundRequest.requestedAmount())
+                .switchIfEmpty(Mono.defer(() -> rejectRefund(originalPaymentRequestId, refundRequest)))
                 .doOnNext(transaction -> {
+                    readRouting.recordWrite(originalPaymentRequestId);
+                    readRouting.recordWrite(transaction.getPaymentRequestId());
                     refundCounter.increment();
-                    eventPublisher.publishRefundEvent(transaction, request);
                 })
+                .delayUntil(transaction -> transactionCache.invalidate(originalPaymentRequestId))
+                .flatMap(transaction -> eventPublisher.publishRefundEvent(transaction, request)
+                        .thenReturn(transaction))
                 .map(transaction -> RefundR2pResponse.create(
                         request,
                         List.of(new PaymentRequestMinResponse(
@@ -128,44 +182,45 @@ public class RequestToPayOutboundService {
                                 transaction.getEndToEndId(),
                                 TransactionStatus.PDNG,
                                 null,
-                                null))));
+                                null))))
+                .as(transactions::transactional));
     }
 
-    @Transactional
     public Mono<CancelR2pResponse> processCancellation(
             String paymentRequestId, String keyId, String requestAffinity, CancelR2pRequest request) {
-        return transactionRepository
-                .findByPaymentRequestId(paymentRequestId)
-                .switchIfEmpty(Mono.error(new R2PNotFoundException("Payment request not found: " + paymentRequestId)))
-                .filter(transaction -> isTerminalStatus(transaction.getTransactionStatus()))
-                .switchIfEmpty(Mono.error(new R2PBusinessException("Cannot cancel transaction in terminal status")))
-                .flatMap(transaction -> updateTransactionForCancellation(transaction, request))
-                .flatMap(transactionRepository::save)
+        return shardRouting.on(paymentRequestId, transactionStore
+                .transitionForCancellation(
+                        paymentRequestId,
+                        request.cancellationReason(),
+                        TransactionStatus.CNCL.allowedSources())
                 .doOnNext(transaction -> {
+                    readRouting.recordWrite(transaction.getPaymentRequestId());
                     cancellationCounter.increment();
-                    eventPublisher.publishCancellationEvent(transaction, request);
                 })
+                .delayUntil(transaction -> transactionCache.invalidate(transaction.getPaymentRequestId()))
+                .flatMap(transaction -> eventPublisher.publishCancellationEvent(transaction, request)
+                        .thenReturn(transaction))
                 .map(transaction -> CancelR2pResponse.create(request))
+                .switchIfEmpty(Mono.defer(() -> rejectCancellation(paymentRequestId)
+                        .map(transaction -> CancelR2pResponse.create(request))))
+                .as(transactions::transactional))
                 .subscribeOn(Schedulers.boundedElastic());
     }
 
-    @Transactional
     public Mono<InitiateR2pResponse> processInitiation(
             String keyId, String requestAffinity, InitiateR2pRequest request) {
         return Flux.fromIterable(request.paymentRequests())
-                .flatMap(paymentRequest -> createTransactionFromInitiate(request, paymentRequest))
-                .flatMap(transactionRepository::save)
-                .doOnNext(transaction -> {
-                    initiationCounter.increment();
-                    eventPublisher.publishInitiationEvent(transaction, request);
-                })
-                .map(transaction -> new PaymentRequestMinResponse(
-                        transaction.getPaymentRequestId(),
-                        transaction.getEndToEndId(),
-                        TransactionStatus.PDNG,
-                        transaction.getDebtorAlias(),
-                        transaction.getDebtorAliasType()))
+                .concatMap(paymentRequest -> createTransactionFromInitiate(request, paymentRequest))
                 .collectList()
+                .flatMap(candidates -> initiate(request, candidates))
+                .map(transactions -> transactions.stream()
+                        .map(transaction -> new PaymentRequestMinResponse(
+                                transaction.getPaymentRequestId(),
+                                transaction.getEndToEndId(),
+                                transaction.getTransactionStatus(),
+                                transaction.getDebtorAlias(),
+                                transaction.getDebtorAliasType()))
+                        .toList())
                 .map(paymentResponses -> new InitiateR2pResponse(
                         UUID.randomUUID().toString(),
                         paymentResponses,
@@ -174,19 +229,118 @@ public class RequestToPayOutboundService {
                 .subscribeOn(Schedulers.boundedElastic());
     }
 
-    @Transactional
+    /**
+     * Runs {@link #insertOnce} in one transaction per shard the items' initiation keys hash to, drawing new
+     * payment request IDs that hash to the same shard, so each key and its row commit together. Unsharded,
+     * that is a single transaction; with sharding, a request spanning shards commits shard by shard, and a
+     * retry after a partial failure replays the items that were committed. Results keep the order of the
+     * request.
+     */
+    private Mono<List<R2PTransaction>> initiate(InitiateR2pRequest request, List<R2PTransaction> candidates) {
+        String creditorAgentId = request.creditor().creditorAgentId();
+        if (!shardRouting.isEnabled()) {
+            return insertOnce(request, candidates).as(transactions::transactional);
+        }
+        Map<Integer, List<R2PTransaction>> byShard = candidates.stream()
+                .collect(Collectors.groupingBy(candidate -> shardRouting.shardOf(
+                                ShardRouting.initiationKey(creditorAgentId, candidate.getEndToEndId())),
+                        LinkedHashMap::new, Collectors.toList()));
+        return Flux.fromIterable(byShard.entrySet())
+                .concatMap(shard -> shardRouting.onShard(shard.getKey(),
+                        insertOnce(request, colocate(shard.getKey(), shard.getValue())).as(transactions::transactional)))
+                .collectList()
+                .map(results -> {
+                    Map<String, R2PTransaction> byEndToEndId = new HashMap<>();
+                    results.forEach(result -> result.forEach(transaction ->
+                            byEndToEndId.putIfAbsent(transaction.getEndToEndId(), transaction)));
+                    return candidates.stream()
+                            .map(candidate -> byEndToEndId.get(candidate.getEndToEndId()))
+                            .toList();
+                });
+    }
+
+    private List<R2PTransaction> colocate(int shard, List<R2PTransaction> candidates) {
+        candidates.stream()
+                .filter(candidate -> shardRouting.shardOf(candidate.getPaymentRequestId()) != shard)
+                .forEach(candidate -> candidate.setPaymentRequestId(
+                        shardRouting.colocatedId(shard, transactionMapper::newPaymentRequestId)));
+        return candidates;
+    }
+
+    /**
+     * Inserts only the items whose {@code (creditorAgentId, endToEndId)} key this call claims. Items a
+     * previous attempt already created resolve to that original row, so client retries neither create
+     * duplicates nor re-publish initiation events. Results keep the order of the request.
+     */
+    private Mono<List<R2PTransaction>> insertOnce(InitiateR2pRequest request, List<R2PTransaction> candidates) {
+        String creditorAgentId = request.creditor().creditorAgentId();
+        List<String> endToEndIds = candidates.stream().map(R2PTransaction::getEndToEndId).toList();
+        return transactionStore
+                .claimInitiationKeys(creditorAgentId, endToEndIds,
+                        candidates.stream().map(R2PTransaction::getPaymentRequestId).toList())
+                .collect(Collectors.toSet())
+                .flatMap(claimed -> transactionStore
+                        .insertAll(candidates.stream()
+                                .filter(candidate -> claimed.contains(candidate.getPaymentRequestId()))
+                                .toList())
+                        .doOnNext(transaction -> {
+                            readRouting.recordWrite(transaction.getPaymentRequestId());
+                            initiationCounter.increment();
+                        })
+                        .concatMap(transaction -> eventPublisher.publishInitiationEvent(transaction, request)
+                                .thenReturn(transaction))
+                        .collectMap(R2PTransaction::getEndToEndId)
+                        .flatMap(inserted -> inserted.size() == candidates.size()
+                                ? Mono.just(inserted)
+                                : transactionStore.findByInitiationKeys(creditorAgentId, endToEndIds.stream()
+                                                .filter(endToEndId -> !inserted.containsKey(endToEndId))
+                                                .toList())
+                                        .collectMap(R2PTransaction::getEndToEndId)
+                                        .map(replayed -> {
+                                            Map<String, R2PTransaction> byEndToEndId = new HashMap<>(replayed);
+                                            byEndToEndId.putAll(inserted);
+                                            return byEndToEndId;
+                                        }))
+                        .map(byEndToEndId -> candidates.stream()
+                                .map(candidate -> resolveInitiation(candidate, claimed, byEndToEndId))
+                                .toList()));
+    }
+
+    private R2PTransaction resolveInitiation(
+            R2PTransaction candidate, Set<String> claimed, Map<String, R2PTransaction> byEndToEndId) {
+        R2PTransaction transaction = byEndToEndId.get(candidate.getEndToEndId());
+        if (transaction == null) {
+            // The key outlived its transaction row, e.g. after the partition holding it was detached
+            throw new R2PBusinessException("End-to-end ID already used: " + candidate.getEndToEndId());
+        }
+        if (!claimed.contains(candidate.getPaymentRequestId())) {
+            replayedInitiationCounter.increment();
+            log.debug("Replaying initiation for endToEndId: {} as paymentRequestId: {}",
+                    candidate.getEndToEndId(), transaction.getPaymentRequestId());
+        }
+        return transaction;
+    }
+
     public Mono<AmendR2pResponse> processAmendment(
             String paymentRequestId, String keyId, String requestAffinity, AmendR2pRequest request) {
-        return transactionRepository
-                .findByPaymentRequestId(paymentRequestId)
-                .switchIfEmpty(Mono.error(new R2PNotFoundException("Payment request not found: " + paymentRequestId)))
-                .filter(transaction -> isTerminalStatus(transaction.getTransactionStatus()))
-                .switchIfEmpty(Mono.error(new R2PBusinessException("Cannot amend transaction in terminal status")))
-                .flatMap(transaction -> updateTransactionForAmendment(transaction, request))
-                .flatMap(transactionRepository::save)
-                .doOnNext(transaction -> eventPublisher.publishAmendmentEvent(transaction, request))
+        return shardRouting.on(paymentRequestId, transactionStore
+                .amendInStatus(
+                        paymentRequestId,
+                        request.dueDate() != null ? LocalDate.parse(request.dueDate()) : null,
+                        request.paymentRequest() != null ? request.paymentRequest().requestedAmount() : null,
+                        request.requestReason() != null
+                                ? transactionMapper.requestReasonToJson(request.requestReason())
+                                : null,
+                        TransactionStatus.nonTerminal())
+                .switchIfEmpty(Mono.defer(() -> rejectTransition(
+                        paymentRequestId, "Cannot amend transaction in terminal status")))
+                .doOnNext(transaction -> readRouting.recordWrite(transaction.getPaymentRequestId()))
+                .delayUntil(transaction -> transactionCache.invalidate(transaction.getPaymentRequestId()))
+                .flatMap(transaction -> eventPublisher.publishAmendmentEvent(transaction, request)
+                        .thenReturn(transaction))
                 .map(transaction ->
                         AmendR2pResponse.create(paymentRequestId, request, transaction.getTransactionStatus()))
+                .as(transactions::transactional))
                 .subscribeOn(Schedulers.boundedElastic());
     }
 
@@ -197,155 +351,132 @@ public class RequestToPayOutboundService {
                 .subscribeOn(Schedulers.boundedElastic());
     }
 
-    private Mono<R2PTransaction> updateTransactionForConfirmation(
-            R2PTransaction transaction, ConfirmR2pRequest request) {
-        return Mono.fromCallable(() -> {
-            transaction.setTransactionStatus(request.transactionStatus());
-
-            if (request.statusReason() != null) {
-                transaction.setMessage(
-                        request.statusReason() + (request.message() != null ? " - " + request.message() : ""));
-            } else if (request.message() != null) {
-                transaction.setMessage(request.message());
-            }
-
-            // Updated to handle BigDecimal
-            if (request.acceptedAmount() != null) {
-                transaction.setAcceptedAmount(request.acceptedAmount()); // Now BigDecimal
-                transaction.setAcceptedAmountCurrency(request.acceptedAmountCurrency());
-            }
-
-            if (request.settlementDetails() != null) {
-                transaction.setSettlementDetailsJson(
-                        transactionMapper.settlementDetailsToJson(request.settlementDetails()));
-            }
-
-            return transaction;
-        });
+    private String confirmationMessage(ConfirmR2pRequest request) {
+        if (request.statusReason() != null) {
+            return request.statusReason() + (request.message() != null ? " - " + request.message() : "");
+        }
+        return request.message();
     }
 
-    private Mono<R2PTransaction> updateTransactionWithTagging(
-            R2PTransaction transaction, TransactionTaggingRequest request) {
-        return Mono.fromCallable(() -> {
-            transaction.setCreditorAckMessage(request.messageEvent().creditorAckMessage());
-            transaction.setCreditorAckEmoji(request.messageEvent().creditorAckEmoji());
-            return transaction;
-        });
+    /**
+     * Resolves why a guarded confirmation matched no row, so callers keep getting
+     * not-found vs. business errors. Only runs on the (rare) failure path. A repeated
+     * confirmation that is already applied is acknowledged without another write or event.
+     */
+    private Mono<R2PTransaction> rejectConfirmation(String paymentRequestId, ConfirmR2pRequest request) {
+        return transactionStore
+                .findByPaymentRequestId(paymentRequestId)
+                .switchIfEmpty(Mono.error(new R2PNotFoundException("Payment request not found: " + paymentRequestId)))
+                .flatMap(transaction -> {
+                    if (!transaction.getEndToEndId().equals(request.endToEndId())) {
+                        return Mono.error(new R2PBusinessException("End-to-end ID mismatch"));
+                    }
+                    if (transaction.getTransactionStatus() == request.transactionStatus()) {
+                        return acknowledgeDuplicate("confirmation", transaction);
+                    }
+                    return Mono.error(new R2PBusinessException("Cannot confirm transaction in status "
+                            + transaction.getTransactionStatus() + " as " + request.transactionStatus()));
+                });
     }
 
-    private Mono<R2PTransaction> createRefundTransaction(R2PTransaction originalTransaction, RefundR2pRequest request) {
-        return Mono.fromCallable(() -> {
-            RefundPaymentRequest refundRequest = request.paymentRequests().getFirst();
-
-            // Validate the refund amount doesn't exceed original transaction amount (BigDecimal comparison)
-            if (originalTransaction.getAcceptedAmount() != null
-                    && refundRequest.requestedAmount().compareTo(originalTransaction.getAcceptedAmount()) > 0) {
-                throw new R2PBusinessException("Refund amount cannot exceed the original transaction amount");
-            }
-
-            R2PTransaction refundTransaction = new R2PTransaction();
-            refundTransaction.setPaymentRequestId(
-                    "RFD" + UUID.randomUUID().toString().substring(0, 18));
-            refundTransaction.setEndToEndId(refundRequest.endToEndId());
-            refundTransaction.setRequestMessageId(request.requestMessageId());
-            refundTransaction.setTransactionStatus(TransactionStatus.PDNG);
-            refundTransaction.setUseCase(UseCase.P2P.name());
-            refundTransaction.setRequestedAmount(refundRequest.requestedAmount()); // BigDecimal
-            refundTransaction.setRequestedAmountCurrency(originalTransaction.getRequestedAmountCurrency());
-            refundTransaction.setOriginalPaymentRequestId(originalTransaction.getPaymentRequestId());
-            refundTransaction.setPaymentRequestType("REFUND");
-
-            // Copy relevant fields from original transaction
-            refundTransaction.setCreditorAgentId(originalTransaction.getDebtorAgentId());
-            refundTransaction.setDebtorAgentId(originalTransaction.getCreditorAgentId());
-
-            return refundTransaction;
-        });
+    private Mono<R2PTransaction> rejectCancellation(String paymentRequestId) {
+        return transactionStore
+                .findByPaymentRequestId(paymentRequestId)
+                .switchIfEmpty(Mono.error(new R2PNotFoundException("Payment request not found: " + paymentRequestId)))
+                .flatMap(transaction -> transaction.getTransactionStatus() == TransactionStatus.CNCL
+                        ? acknowledgeDuplicate("cancellation", transaction)
+                        : Mono.error(new R2PBusinessException("Cannot cancel transaction in terminal status")));
     }
 
-    private Mono<R2PTransaction> updateTransactionForCancellation(
-            R2PTransaction transaction, CancelR2pRequest request) {
-        return Mono.fromCallable(() -> {
-            transaction.setTransactionStatus(TransactionStatus.CNCL);
-            transaction.setCancellationReason(request.cancellationReason());
-            return transaction;
-        });
+    private Mono<R2PTransaction> acknowledgeDuplicate(String operation, R2PTransaction transaction) {
+        duplicateCallbackCounter.increment();
+        log.debug("Acknowledging repeated {} for paymentRequestId: {}", operation, transaction.getPaymentRequestId());
+        return Mono.just(transaction);
     }
 
-    private Mono<R2PTransaction> createTransactionFromInitiate(
-            InitiateR2pRequest request, PaymentRequestDetail paymentRequest) {
-        return Mono.fromCallable(() -> transactionMapper.createTransactionFromInitiate(request, paymentRequest));
+    private Mono<R2PTransaction> rejectTransition(String paymentRequestId, String message) {
+        return transactionStore
+                .findByPaymentRequestId(paymentRequestId)
+                .switchIfEmpty(Mono.error(new R2PNotFoundException("Payment request not found: " + paymentRequestId)))
+                .flatMap(transaction -> Mono.error(new R2PBusinessException(message)));
     }
 
-    private Mono<R2PTransaction> updateTransactionForAmendment(R2PTransaction transaction, AmendR2pRequest request) {
-        return Mono.fromCallable(() -> {
-            if (request.dueDate() != null) {
-                transaction.setDueDate(LocalDate.parse(request.dueDate()));
-            }
-
-            // Updated to handle BigDecimal
-            if (request.paymentRequest() != null && request.paymentRequest().requestedAmount() != null) {
-                transaction.setRequestedAmount(request.paymentRequest().requestedAmount()); // BigDecimal
-            }
+    private boolean applyTagging(R2PTransaction transaction, TransactionTaggingRequest request) {
+        String message = request.messageEvent().creditorAckMessage();
+        String emoji = request.messageEvent().creditorAckEmoji();
+        if (Objects.equals(transaction.getCreditorAckMessage(), message)
+                && Objects.equals(transaction.getCreditorAckEmoji(), emoji)) {
+            return false;
+        }
+        transaction.setCreditorAckMessage(message);
+        transaction.setCreditorAckEmoji(emoji);
+        return true;
+    }
 
-            if (request.requestReason() != null) {
-                transaction.setRequestReason(transactionMapper.requestReasonToJson(request.requestReason()));
-            }
+    /**
+     * Resolves why the guarded refund insert matched no original. Only runs on the failure path.
+     */
+    private Mono<R2PTransaction> rejectRefund(String originalPaymentRequestId, RefundPaymentRequest refundRequest) {
+        return transactionStore
+                .findByPaymentRequestId(originalPaymentRequestId)
+                .switchIfEmpty(Mono.error(
+                        new R2PNotFoundException("Original payment request not found: " + originalPaymentRequestId)))
+                .flatMap(original -> Mono.error(!TransactionStatus.ACSC.equals(original.getTransactionStatus())
+                        ? new R2PBusinessException("Can only refund settled transactions")
+                        : new R2PBusinessException("Refund amount " + refundRequest.requestedAmount()
+                                + " exceeds the remaining refundable amount "
+                                + RefundBalance.cap(original).subtract(original.getRefundedAmount()))));
+    }
 
-            return transaction;
-        });
+    private Mono<R2PTransaction> createTransactionFromInitiate(
+            InitiateR2pRequest request, PaymentRequestDetail paymentRequest) {
+        return Mono.fromCallable(() -> transactionMapper.createTransactionFromInitiate(request, paymentRequest));
     }
 
     private Mono<Void> processNotificationEvent(ReminderEvent event, String agentId) {
-        return transactionRepository
-                .findByPaymentRequestId(event.paymentRequestId())
-                .flatMap(transaction -> {
-                    switch (event.eventType()) {
-                        case "REMINDER" -> {
-                            return eventPublisher
-                                    .publishReminderEvent(transaction, agentId)
-                                    .then();
-                        }
-                        case "EXPIRED" -> {
-                            transaction.setTransactionStatus(TransactionStatus.EXPD);
-                            return transactionRepository
-                                    .save(transaction)
-                                    .then(eventPublisher.publishExpiredEvent(transaction, agentId))
-                                    .then();
-                        }
-                        case "REJECTED" -> {
-                            transaction.setTransactionStatus(TransactionStatus.RJCT);
-                            return transactionRepository
-                                    .save(transaction)
-                                    .then(eventPublisher.publishRejectedEvent(transaction, agentId))
-                                    .then();
-                        }
-                        case "SETTLED" -> {
-                            transaction.setTransactionStatus(TransactionStatus.ACSC);
-                            return transactionRepository
-                                    .save(transaction)
-                                    .then(eventPublisher.publishSettledEvent(transaction, agentId))
-                                    .then();
-                        }
-                        default -> {
-                            return Mono.empty();
-                        }
-                    }
-                })
-                .retryWhen(Retry.backoff(3, Duration.ofMillis(100)))
+        String paymentRequestId = event.paymentRequestId();
+        Mono<Void> processing = switch (event.eventType()) {
+            case "REMINDER" -> transactionCache
+                    .get(paymentRequestId, () -> transactionStore.findByPaymentRequestId(paymentRequestId))
+                    .flatMap(transaction -> eventPublisher.publishReminderEvent(transaction, agentId));
+            case "EXPIRED" -> transitionOnNotification(paymentRequestId, TransactionStatus.EXPD)
+                    .flatMap(transaction -> eventPublisher.publishExpiredEvent(transaction, agentId));
+            case "REJECTED" -> transitionOnNotification(paymentRequestId, TransactionStatus.RJCT)
+                    .flatMap(transaction -> eventPublisher.publishRejectedEvent(transaction, agentId));
+            case "SETTLED" -> transitionOnNotification(paymentRequestId, TransactionStatus.ACSC)
+                    .flatMap(transaction -> eventPublisher.publishSettledEvent(transaction, agentId));
+            default -> Mono.empty();
+        };
+
+        // The transition and its outbox event commit together, group-committed with concurrent callbacks.
+        // Guarded transitions are idempotent, so only transient infrastructure failures are worth retrying,
+        // each in a fresh transaction
+        return groupCommitter
+                .submit(paymentRequestId, () -> processing)
+                .retryWhen(Retry.backoff(3, Duration.ofMillis(100)).filter(this::isTransient))
                 .onErrorResume(error -> {
                     log.error(
                             "Failed to process notification event for paymentRequestId: {}",
-                            event.paymentRequestId(),
+                            paymentRequestId,
                             error);
                     return Mono.empty();
                 });
     }
 
-    private boolean isTerminalStatus(TransactionStatus status) {
-        return !TransactionStatus.ACSC.equals(status)
-                && !TransactionStatus.RJCT.equals(status)
-                && !TransactionStatus.CNCL.equals(status)
-                && !TransactionStatus.EXPD.equals(status);
+    private boolean isTransient(Throwable error) {
+        return error instanceof TransientDataAccessException || error instanceof R2dbcTransientException;
+    }
+
+    private Mono<R2PTransaction> transitionOnNotification(String paymentRequestId, TransactionStatus target) {
+        return transactionStore
+                .transitionStatus(paymentRequestId, target, target.allowedSources())
+                .doOnNext(transaction -> readRouting.recordWrite(paymentRequestId))
+                .delayUntil(transaction -> transactionCache.invalidate(paymentRequestId))
+                .doOnSuccess(transaction -> {
+                    if (transaction == null) {
+                        log.debug("Ignoring {} notification for paymentRequestId: {} (unknown or not in {})",
+                                target, paymentRequestId, target.allowedSources());
+                    }
+                });
     }
 }
\ No newline at end of file
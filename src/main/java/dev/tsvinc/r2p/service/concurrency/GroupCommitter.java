@@ -0,0 +1,195 @@
+package dev.tsvinc.r2p.service.concurrency;
+
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStore;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardMovedException;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Group commit for small, high-rate writes: operations submitted within {@code window-ms} of each other, up
+ * to {@code max-batch-size}, run back to back in one transaction, so a burst of callbacks pays for one
+ * commit and WAL flush instead of one each. Each caller's {@code Mono} completes with its own result only
+ * after the shared commit.
+ * <p>
+ * Each operation runs in a nested transaction, i.e. behind its own SAVEPOINT, so a failing operation rolls
+ * back only its own writes and the rest of the batch still commits; no operation ever runs twice. If the
+ * shared commit itself fails, every caller in the batch gets that error.
+ * <p>
+ * With sharding, operations are batched per shard of the payment request they change, since a transaction
+ * spans a single shard. An operation whose row {@code ShardRebalancer} moves before its batch starts fails
+ * with {@link ShardMovedException} and is submitted once more for its new shard.
+ * <p>
+ * The stage only pays off when the operations write through the R2DBC transaction, so it is on by default
+ * for the {@code r2dbc} engine only; elsewhere it would just add the window to every write.
+ */
+@Component
+@Slf4j
+public class GroupCommitter {
+
+    private final TransactionalOperator transactionalOperator;
+    private final TransactionalOperator savepointOperator;
+    private final ShardRouting shardRouting;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${r2p.persistence.group-commit.enabled:#{'${r2p.persistence.engine:r2dbc}' == 'r2dbc'}}")
+    private boolean enabled;
+
+    @Value("${r2p.persistence.group-commit.window-ms:5}")
+    private long windowMs;
+
+    @Value("${r2p.persistence.group-commit.max-batch-size:64}")
+    private int maxBatchSize;
+
+    @Value("${r2p.persistence.group-commit.parallelism:4}")
+    private int parallelism;
+
+    private final Sinks.Many<Pending<?>> submissions = Sinks.many().unicast().onBackpressureBuffer();
+
+    private Disposable pipeline;
+    private DistributionSummary batchSize;
+    private Timer waitTime;
+    private Counter rolledBack;
+
+    /**
+     * Commits through the persistence engine's transactions, which its writes and outbox appends join.
+     */
+    @Autowired
+    public GroupCommitter(R2PTransactionStore transactionStore, ShardRouting shardRouting, MeterRegistry meterRegistry) {
+        this(transactionStore.transactionManager(), shardRouting, meterRegistry);
+    }
+
+    public GroupCommitter(ReactiveTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this(transactionManager, ShardRouting.unsharded(), meterRegistry);
+    }
+
+    public GroupCommitter(ReactiveTransactionManager transactionManager,
+                          ShardRouting shardRouting,
+                          MeterRegistry meterRegistry) {
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+        this.savepointOperator = TransactionalOperator.create(transactionManager,
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_NESTED));
+        this.shardRouting = shardRouting;
+        this.meterRegistry = meterRegistry;
+    }
+
+    private record Pending<T>(int shard, Supplier<Mono<T>> operation, Sinks.One<T> result, long submittedAt) {
+
+        Mono<Signal<?>> run(TransactionalOperator savepointOperator) {
+            return Mono.defer(operation).as(savepointOperator::transactional).materialize().map(signal -> signal);
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Signal<?> signal) {
+            if (signal.isOnNext()) {
+                result.tryEmitValue((T) signal.get());
+            } else if (signal.isOnError()) {
+                result.tryEmitError(signal.getThrowable());
+            } else {
+                result.tryEmitEmpty();
+            }
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        batchSize = DistributionSummary.builder("r2p.groupcommit.batch.size")
+                .description("Number of operations committed together")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        waitTime = Timer.builder("r2p.groupcommit.wait")
+                .description("Time an operation waited for its batch to start")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        rolledBack = Counter.builder("r2p.groupcommit.rolled.back")
+                .description("Number of operations rolled back to their savepoint within a committed batch")
+                .register(meterRegistry);
+
+        if (enabled) {
+            pipeline = submissions.asFlux()
+                    .groupBy(Pending::shard)
+                    .flatMap(shard -> shard
+                            .bufferTimeout(maxBatchSize, Duration.ofMillis(windowMs), true)
+                            .flatMap(batch -> commit(shard.key(), batch), parallelism),
+                            shardRouting.shardCount())
+                    .subscribe();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pipeline != null) {
+            pipeline.dispose();
+        }
+    }
+
+    /**
+     * Runs {@code operation}, which changes {@code paymentRequestId}, in a transaction shared with
+     * concurrently submitted operations on the same shard. With group commit disabled, it runs in a
+     * transaction of its own.
+     */
+    public <T> Mono<T> submit(String paymentRequestId, Supplier<Mono<T>> operation) {
+        if (!enabled) {
+            return shardRouting.on(paymentRequestId, Mono.defer(operation).as(transactionalOperator::transactional));
+        }
+        return shardRouting.locate(paymentRequestId)
+                .flatMap(shard -> {
+                    Sinks.One<T> result = Sinks.one();
+                    submissions.emitNext(new Pending<>(shard, operation, result, System.nanoTime()),
+                            Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+                    return result.asMono();
+                })
+                .retryWhen(Retry.max(1).filter(ShardMovedException.class::isInstance));
+    }
+
+    private Mono<Void> commit(int shard, List<Pending<?>> batch) {
+        long started = System.nanoTime();
+        batchSize.record(batch.size());
+        batch.forEach(pending -> waitTime.record(started - pending.submittedAt(), TimeUnit.NANOSECONDS));
+
+        return shardRouting.onShard(shard, Flux.fromIterable(batch)
+                        .concatMap(pending -> pending.run(savepointOperator))
+                        .collectList()
+                        .as(transactionalOperator::transactional))
+                .doOnNext(signals -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        Signal<?> signal = signals.get(i);
+                        if (signal.isOnError()) {
+                            rolledBack.increment();
+                        }
+                        batch.get(i).complete(signal);
+                    }
+                })
+                .then()
+                .onErrorResume(error -> {
+                    log.warn("Group commit of {} operations failed", batch.size(), error);
+                    batch.forEach(pending -> pending.complete(Signal.error(error)));
+                    return Mono.empty();
+                });
+    }
+}
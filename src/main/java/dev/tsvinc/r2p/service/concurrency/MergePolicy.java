@@ -0,0 +1,19 @@
+package dev.tsvinc.r2p.service.concurrency;
+
+/**
+ * What {@link OptimisticUpdateExecutor} does when a concurrent writer bumped the row version first.
+ */
+public enum MergePolicy {
+    /**
+     * Re-read the row and apply the same mutation on top of the winner's changes.
+     */
+    REAPPLY,
+    /**
+     * Keep the concurrent writer's row as the result; the losing mutation is dropped.
+     */
+    KEEP_EXISTING,
+    /**
+     * Surface the conflict to the caller.
+     */
+    FAIL
+}
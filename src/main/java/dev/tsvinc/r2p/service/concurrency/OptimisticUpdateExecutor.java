@@ -0,0 +1,94 @@
+package dev.tsvinc.r2p.service.concurrency;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStore;
+import dev.tsvinc.r2p.exception.R2PBusinessException;
+import dev.tsvinc.r2p.exception.R2PNotFoundException;
+import dev.tsvinc.r2p.infrastructure.cache.TransactionCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Read-modify-write on a single transaction under its {@code @Version}. On a version conflict only the
+ * caller's mutation is re-applied to a fresh read, as its {@link MergePolicy} allows, instead of
+ * re-running the whole request pipeline. Mutations that are already reflected in the row, such as
+ * duplicate callbacks, complete without a write; others write only the columns they changed.
+ * The first attempt may start from the cached row; a version conflict means it was stale, so retries read
+ * the database.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OptimisticUpdateExecutor {
+
+    private final R2PTransactionStore transactionStore;
+    private final TransactionCache transactionCache;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${r2p.concurrency.optimistic.max-attempts:5}")
+    private int maxAttempts;
+
+    public Mono<R2PTransaction> update(String operation,
+                                       String paymentRequestId,
+                                       MergePolicy policy,
+                                       TransactionMutation mutation) {
+        return attempt(operation, paymentRequestId, policy, mutation, 1);
+    }
+
+    private Mono<R2PTransaction> attempt(String operation,
+                                         String paymentRequestId,
+                                         MergePolicy policy,
+                                         TransactionMutation mutation,
+                                         int attempt) {
+        meterRegistry.counter("r2p.optimistic.attempts", "operation", operation).increment();
+        Mono<R2PTransaction> read = attempt == 1
+                ? transactionCache.get(paymentRequestId, () -> transactionStore.findByPaymentRequestId(paymentRequestId))
+                : transactionStore.findByPaymentRequestId(paymentRequestId);
+        return read
+                .switchIfEmpty(Mono.error(new R2PNotFoundException("Transaction not found: " + paymentRequestId)))
+                .flatMap(transaction -> {
+                    R2PTransaction original = transaction.toBuilder().build();
+                    if (!mutation.apply(transaction)) {
+                        meterRegistry.counter("r2p.optimistic.noops", "operation", operation).increment();
+                        return Mono.just(transaction);
+                    }
+                    return transactionStore.saveChanges(original, transaction)
+                            .delayUntil(saved -> transactionCache.invalidate(paymentRequestId));
+                })
+                .onErrorResume(OptimisticLockingFailureException.class, conflict -> {
+                    meterRegistry.counter("r2p.optimistic.conflicts", "operation", operation).increment();
+                    return resolve(operation, paymentRequestId, policy, mutation, attempt, conflict);
+                });
+    }
+
+    private Mono<R2PTransaction> resolve(String operation,
+                                         String paymentRequestId,
+                                         MergePolicy policy,
+                                         TransactionMutation mutation,
+                                         int attempt,
+                                         OptimisticLockingFailureException conflict) {
+        return switch (policy) {
+            case KEEP_EXISTING -> {
+                log.debug("Keeping concurrent {} write for paymentRequestId: {}", operation, paymentRequestId);
+                yield transactionStore.findByPaymentRequestId(paymentRequestId);
+            }
+            case FAIL -> Mono.error(conflict);
+            case REAPPLY -> {
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("r2p.optimistic.exhausted", "operation", operation).increment();
+                    log.warn("Giving up {} for paymentRequestId: {} after {} conflicting attempts",
+                            operation, paymentRequestId, attempt);
+                    yield Mono.error(new R2PBusinessException(
+                            "Concurrent modification of transaction " + paymentRequestId + ", please retry"));
+                }
+                log.debug("Re-applying {} for paymentRequestId: {} (attempt {})", operation, paymentRequestId, attempt + 1);
+                yield attempt(operation, paymentRequestId, policy, mutation, attempt + 1);
+            }
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package dev.tsvinc.r2p.service.concurrency;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+
+@FunctionalInterface
+public interface TransactionMutation {
+
+    /**
+     * Applies the intended change to a freshly read row.
+     *
+     * @return {@code false} when the row already reflects the change, so nothing needs writing
+     */
+    boolean apply(R2PTransaction transaction);
+}
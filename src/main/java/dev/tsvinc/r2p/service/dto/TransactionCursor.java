@@ -0,0 +1,41 @@
+package dev.tsvinc.r2p.service.dto;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.exception.R2PTransactionValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the {@code (created_at, id)} keyset order. Clients only ever see the opaque
+ * {@link #encode() encoded} form, so the key layout can change without breaking them.
+ */
+public record TransactionCursor(LocalDateTime createdAt, Long id) {
+
+    private static final String VERSION = "v1";
+    private static final String SEPARATOR = "|";
+
+    public static TransactionCursor after(R2PTransaction transaction) {
+        return new TransactionCursor(transaction.getCreatedAt(), transaction.getId());
+    }
+
+    public String encode() {
+        String raw = VERSION + SEPARATOR + createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TransactionCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR);
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new R2PTransactionValidationException("Invalid cursor");
+            }
+            return new TransactionCursor(LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new R2PTransactionValidationException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package dev.tsvinc.r2p.service.dto;
+
+import java.util.List;
+
+/**
+ * One keyset page of transactions; {@code nextCursor} is {@code null} on the last page.
+ */
+public record TransactionPage(
+        List<R2PTransactionDto> transactions,
+        int size,
+        boolean hasNext,
+        String nextCursor) {
+
+    public static TransactionPage of(List<R2PTransactionDto> transactions, String nextCursor) {
+        return new TransactionPage(transactions, transactions.size(), nextCursor != null, nextCursor);
+    }
+}
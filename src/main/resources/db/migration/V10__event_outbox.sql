@@ -0,0 +1,21 @@
+-- V10__event_outbox.sql
+-- Transactional outbox for domain events. Rows are appended by R2PEventPublisher in the same
+-- transaction as the state change they describe and deleted by OutboxRelay once delivered, so the
+-- table only holds the undelivered backlog. aggregate_id is the payment request ID; the relay
+-- delivers each aggregate's events in id order and moves events that keep failing aside
+-- (dead_lettered) so they stop blocking the aggregate.
+
+CREATE TABLE r2p_event_outbox
+(
+    id            BIGSERIAL PRIMARY KEY,
+    aggregate_id  VARCHAR(35)  NOT NULL,
+    event_type    VARCHAR(128) NOT NULL,
+    payload       JSONB        NOT NULL,
+    created_at    TIMESTAMP    NOT NULL DEFAULT NOW(),
+    attempts      INTEGER      NOT NULL DEFAULT 0,
+    last_error    TEXT,
+    dead_lettered BOOLEAN      NOT NULL DEFAULT FALSE
+);
+
+CREATE INDEX idx_event_outbox_pending ON r2p_event_outbox (id) WHERE NOT dead_lettered;
+CREATE INDEX idx_event_outbox_aggregate ON r2p_event_outbox (aggregate_id, id) WHERE NOT dead_lettered;
@@ -0,0 +1,7 @@
+-- V11__updated_at_index.sql
+-- TransactionStatusChangeFeed replays missed changes with updated_at > :since after a reconnect.
+-- Without an index that replay scans every partition the created_at floor keeps. Declared on the
+-- partitioned parent, the index is created on every existing partition and on each partition
+-- R2PPartitionMaintenanceJob adds later.
+
+CREATE INDEX idx_updated_at ON r2p_transactions (updated_at);
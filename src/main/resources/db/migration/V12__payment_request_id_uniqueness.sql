@@ -0,0 +1,101 @@
+-- V12__payment_request_id_uniqueness.sql
+-- The V2 unique index on (payment_request_id, created_at) only makes payment_request_id unique within
+-- a month, while lookups by payment_request_id expect at most one row. As V8 does for initiation keys,
+-- global uniqueness is enforced in an unpartitioned side table, kept in step with r2p_transactions by
+-- statement-level triggers so every insert path (batch insert, refunds, archive import, shard moves) is
+-- covered. Registering the same row again (same created_at) is a no-op, so restoring an archived month
+-- or copying a row between shards stays idempotent. IDs older than the partition retention window are
+-- pruned by R2PPartitionMaintenanceJob together with the initiation keys.
+--
+-- DETACH PARTITION ... CONCURRENTLY is not allowed while the parent has a default partition, so the
+-- default partition is folded into monthly partitions and dropped; inserts outside every monthly
+-- partition now fail instead of landing there, and the archive import creates the months it restores.
+
+CREATE TABLE r2p_payment_request_ids
+(
+    payment_request_id VARCHAR(35) NOT NULL PRIMARY KEY,
+    created_at         TIMESTAMP   NOT NULL
+);
+
+CREATE INDEX idx_payment_request_ids_created_at ON r2p_payment_request_ids (created_at);
+
+-- Backfill, keeping the oldest row for any duplicate id
+INSERT INTO r2p_payment_request_ids (payment_request_id, created_at)
+SELECT DISTINCT ON (payment_request_id) payment_request_id, created_at
+FROM r2p_transactions
+ORDER BY payment_request_id, created_at, id;
+
+CREATE OR REPLACE FUNCTION r2p_register_payment_request_ids() RETURNS TRIGGER AS
+$$
+DECLARE
+    duplicate_id VARCHAR(35);
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO r2p_payment_request_ids (payment_request_id, created_at)
+        SELECT payment_request_id, created_at
+        FROM new_rows
+        ON CONFLICT DO NOTHING;
+
+        SELECT n.payment_request_id
+        INTO duplicate_id
+        FROM new_rows n
+                 JOIN r2p_payment_request_ids k ON k.payment_request_id = n.payment_request_id
+        WHERE k.created_at <> n.created_at
+        LIMIT 1;
+
+        IF duplicate_id IS NOT NULL THEN
+            RAISE EXCEPTION 'duplicate key value violates unique constraint "r2p_payment_request_ids_pkey"'
+                USING ERRCODE = 'unique_violation',
+                    CONSTRAINT = 'r2p_payment_request_ids_pkey',
+                    DETAIL = format('Key (payment_request_id)=(%s) already exists.', duplicate_id);
+        END IF;
+    ELSE
+        DELETE
+        FROM r2p_payment_request_ids k
+            USING old_rows o
+        WHERE k.payment_request_id = o.payment_request_id
+          AND k.created_at = o.created_at;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER r2p_payment_request_ids_insert
+    AFTER INSERT
+    ON r2p_transactions
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION r2p_register_payment_request_ids();
+
+CREATE TRIGGER r2p_payment_request_ids_delete
+    AFTER DELETE
+    ON r2p_transactions
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION r2p_register_payment_request_ids();
+
+-- Move rows out of the default partition into standalone monthly tables and attach them; writing to
+-- the tables before attaching keeps the rollup and notify triggers on the parent from firing again.
+ALTER TABLE r2p_transactions DETACH PARTITION r2p_transactions_default;
+
+DO
+$$
+DECLARE
+    month_start    DATE;
+    partition_name TEXT;
+BEGIN
+    FOR month_start IN SELECT DISTINCT date_trunc('month', created_at)::DATE FROM r2p_transactions_default
+        LOOP
+            partition_name := 'r2p_transactions_p' || to_char(month_start, 'YYYYMM');
+            EXECUTE format('CREATE TABLE %I (LIKE r2p_transactions INCLUDING DEFAULTS INCLUDING CONSTRAINTS)',
+                           partition_name);
+            EXECUTE format('INSERT INTO %I SELECT * FROM r2p_transactions_default ' ||
+                           'WHERE created_at >= %L AND created_at < %L',
+                           partition_name, month_start, (month_start + INTERVAL '1 month')::DATE);
+            EXECUTE format('ALTER TABLE r2p_transactions ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                           partition_name, month_start, (month_start + INTERVAL '1 month')::DATE);
+        END LOOP;
+END
+$$;
+
+DROP TABLE r2p_transactions_default;
@@ -0,0 +1,67 @@
+-- V13__daily_volume_deltas.sql
+-- The V9 triggers upserted one shared r2p_daily_volume row per (day, agent, currency, status), so every
+-- concurrent writer for an agent and day queued on that row's lock, and multi-row statements locking
+-- buckets in different orders could deadlock. The triggers now only append the statement's aggregated
+-- delta to r2p_daily_volume_delta, which takes no row locks; DailyVolumeRollupService folds the deltas
+-- into r2p_daily_volume in the background and adds the unfolded remainder on read.
+
+CREATE TABLE r2p_daily_volume_delta
+(
+    id                     BIGSERIAL PRIMARY KEY,
+    day                    DATE           NOT NULL,
+    creditor_agent_id      VARCHAR(35)    NOT NULL,
+    currency               VARCHAR(3)     NOT NULL,
+    transaction_status     VARCHAR(10)    NOT NULL,
+    transaction_count      BIGINT         NOT NULL,
+    total_requested_amount DECIMAL(21, 2) NOT NULL,
+    total_accepted_amount  DECIMAL(21, 2) NOT NULL
+);
+
+CREATE INDEX idx_daily_volume_delta_day ON r2p_daily_volume_delta (day);
+
+CREATE OR REPLACE FUNCTION r2p_apply_daily_volume_delta() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO r2p_daily_volume_delta (day, creditor_agent_id, currency, transaction_status,
+                                            transaction_count, total_requested_amount, total_accepted_amount)
+        SELECT created_at::DATE, COALESCE(creditor_agent_id, ''), COALESCE(requested_amount_currency, ''),
+               transaction_status, COUNT(*), COALESCE(SUM(requested_amount), 0), COALESCE(SUM(accepted_amount), 0)
+        FROM new_rows
+        GROUP BY 1, 2, 3, 4;
+    ELSIF TG_OP = 'UPDATE' THEN
+        WITH changed AS (SELECT o.id, o.created_at
+                         FROM old_rows o
+                                  JOIN new_rows n ON n.id = o.id AND n.created_at = o.created_at
+                         WHERE (o.transaction_status, o.creditor_agent_id, o.requested_amount_currency,
+                                o.requested_amount, o.accepted_amount)
+                                   IS DISTINCT FROM
+                               (n.transaction_status, n.creditor_agent_id, n.requested_amount_currency,
+                                n.requested_amount, n.accepted_amount)),
+             delta AS (SELECT o.created_at, o.creditor_agent_id, o.requested_amount_currency, o.transaction_status,
+                              -1 AS sign, o.requested_amount, o.accepted_amount
+                       FROM old_rows o
+                                JOIN changed c ON c.id = o.id AND c.created_at = o.created_at
+                       UNION ALL
+                       SELECT n.created_at, n.creditor_agent_id, n.requested_amount_currency, n.transaction_status,
+                              1, n.requested_amount, n.accepted_amount
+                       FROM new_rows n
+                                JOIN changed c ON c.id = n.id AND c.created_at = n.created_at)
+        INSERT INTO r2p_daily_volume_delta (day, creditor_agent_id, currency, transaction_status,
+                                            transaction_count, total_requested_amount, total_accepted_amount)
+        SELECT created_at::DATE, COALESCE(creditor_agent_id, ''), COALESCE(requested_amount_currency, ''),
+               transaction_status, SUM(sign), COALESCE(SUM(sign * requested_amount), 0),
+               COALESCE(SUM(sign * accepted_amount), 0)
+        FROM delta
+        GROUP BY 1, 2, 3, 4;
+    ELSIF TG_OP = 'DELETE' THEN
+        INSERT INTO r2p_daily_volume_delta (day, creditor_agent_id, currency, transaction_status,
+                                            transaction_count, total_requested_amount, total_accepted_amount)
+        SELECT created_at::DATE, COALESCE(creditor_agent_id, ''), COALESCE(requested_amount_currency, ''),
+               transaction_status, -COUNT(*), -COALESCE(SUM(requested_amount), 0), -COALESCE(SUM(accepted_amount), 0)
+        FROM old_rows
+        GROUP BY 1, 2, 3, 4;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
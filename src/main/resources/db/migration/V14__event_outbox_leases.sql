@@ -0,0 +1,10 @@
+-- V14__event_outbox_leases.sql
+-- OutboxRelay used to hold its claim transaction, with row and advisory locks and a pooled connection,
+-- open while listeners ran. Claims are now leases: a short transaction stamps the batch with the
+-- relay's lease_token and leased_until and commits, delivery runs without a transaction, and only the
+-- lease holder deletes or releases its rows. A lease left behind by a crashed relay expires and the
+-- events are claimed again.
+
+ALTER TABLE r2p_event_outbox
+    ADD COLUMN leased_until TIMESTAMP,
+    ADD COLUMN lease_token  UUID;
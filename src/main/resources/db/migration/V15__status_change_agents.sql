@@ -0,0 +1,19 @@
+-- V15__status_change_agents.sql
+-- Status change notifications now name the request's creditor and debtor agents, so
+-- TransactionStatusChangeFeed subscribers only receive changes for the agents their key ID acts for.
+
+CREATE OR REPLACE FUNCTION r2p_notify_transaction_status() RETURNS TRIGGER AS
+$$
+BEGIN
+    PERFORM pg_notify('r2p_transaction_status', json_build_object(
+            'id', NEW.id,
+            'paymentRequestId', NEW.payment_request_id,
+            'status', NEW.transaction_status,
+            'previousStatus', CASE WHEN TG_OP = 'UPDATE' THEN OLD.transaction_status END,
+            'updatedAt', NEW.updated_at,
+            'version', NEW.version,
+            'creditorAgentId', NEW.creditor_agent_id,
+            'debtorAgentId', NEW.debtor_agent_id)::TEXT);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,8 @@
+-- V16__event_outbox_backoff.sql
+-- A failed event used to be claimable again on the relay's next poll, so a downstream outage of a few
+-- seconds used up max-attempts and dead-lettered the event. OutboxRelay now stamps next_attempt_at with
+-- an exponential backoff when it records a failure, and aggregates with an event backing off are not
+-- claimed before then.
+
+ALTER TABLE r2p_event_outbox
+    ADD COLUMN next_attempt_at TIMESTAMP;
@@ -0,0 +1,25 @@
+-- V17__shard_routing_function.sql
+-- With r2p.persistence.sharding enabled, r2p_transactions is split across several databases by a stable
+-- hash of payment_request_id (ShardRouter). The shard rebalancer and the archive import need the same
+-- mapping inside SQL, so this function reproduces ShardRouter exactly: the first 8 bytes of the MD5 of
+-- the key as a 64-bit integer, fed to Lamping and Veach's jump consistent hash. The 64-bit arithmetic
+-- is done in NUMERIC modulo 2^64 and the division in FLOAT8, as in Java, so both sides agree on every key.
+
+CREATE OR REPLACE FUNCTION r2p_shard_of(key TEXT, shard_count INT) RETURNS INT AS
+$$
+DECLARE
+    signed_hash BIGINT  := ('x' || substr(md5(key), 1, 16))::BIT(64)::BIGINT;
+    hash        NUMERIC := signed_hash::NUMERIC + CASE WHEN signed_hash < 0 THEN 18446744073709551616 ELSE 0 END;
+    bucket      BIGINT  := -1;
+    next_bucket BIGINT  := 0;
+BEGIN
+    WHILE next_bucket < shard_count
+        LOOP
+            bucket := next_bucket;
+            hash := mod(hash * 2862933555777941757 + 1, 18446744073709551616);
+            next_bucket := floor((bucket + 1)::FLOAT8
+                * (2147483648::FLOAT8 / (div(hash, 8589934592) + 1)::FLOAT8))::BIGINT;
+        END LOOP;
+    RETURN bucket;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE STRICT PARALLEL SAFE;
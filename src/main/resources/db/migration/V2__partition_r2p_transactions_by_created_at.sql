@@ -0,0 +1,97 @@
+-- V2__partition_r2p_transactions_by_created_at.sql
+-- Converts r2p_transactions into a table range-partitioned by month on created_at.
+-- Unique constraints on a partitioned table must contain the partition key, so the primary key
+-- becomes (id, created_at) and payment_request_id is unique per (payment_request_id, created_at).
+-- Monthly partitions are named r2p_transactions_pYYYYMM and are created ahead of time by
+-- R2PPartitionMaintenanceJob; old months are detached instead of deleted.
+
+ALTER TABLE r2p_transactions RENAME TO r2p_transactions_unpartitioned;
+
+CREATE TABLE r2p_transactions
+(
+    id                          BIGINT      NOT NULL DEFAULT nextval('r2p_transactions_id_seq'),
+    payment_request_id          VARCHAR(35) NOT NULL,
+    end_to_end_id               VARCHAR(35) NOT NULL,
+    request_message_id          VARCHAR(35),
+    response_message_id         VARCHAR(35),
+    transaction_status          VARCHAR(10) NOT NULL,
+    use_case                    VARCHAR(10) NOT NULL,
+    product                     VARCHAR(10) NOT NULL,
+    requested_amount            DECIMAL(19, 2),
+    requested_amount_currency   VARCHAR(3),
+    accepted_amount             DECIMAL(19, 2),
+    accepted_amount_currency    VARCHAR(3),
+    creditor_agent_id           VARCHAR(35),
+    debtor_agent_id             VARCHAR(35),
+    creditor_alias              VARCHAR(35),
+    debtor_alias                VARCHAR(35),
+    creditor_alias_type         VARCHAR(10),
+    debtor_alias_type           VARCHAR(10),
+    due_date                    TIMESTAMP,
+    request_reason_json         TEXT,
+    message                     TEXT,
+    settlement_details_json     TEXT,
+    original_payment_request_id VARCHAR(35),
+    payment_request_type        VARCHAR(10),
+    is_refund                   BOOLEAN              DEFAULT FALSE,
+    cancellation_reason         VARCHAR(10),
+    creditor_ack_message        VARCHAR(250),
+    creditor_ack_emoji          VARCHAR(250),
+    created_at                  TIMESTAMP   NOT NULL DEFAULT NOW(),
+    updated_at                  TIMESTAMP   NOT NULL DEFAULT NOW(),
+    version                     BIGINT               DEFAULT 0,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Rows outside every monthly partition land here; the maintenance job keeps it empty
+-- by creating partitions ahead of time.
+CREATE TABLE r2p_transactions_default PARTITION OF r2p_transactions DEFAULT;
+
+CREATE OR REPLACE FUNCTION r2p_create_monthly_partition(month_start DATE) RETURNS TEXT AS
+$$
+DECLARE
+    from_date      DATE := date_trunc('month', month_start)::DATE;
+    until_date     DATE := (date_trunc('month', month_start) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := 'r2p_transactions_p' || to_char(from_date, 'YYYYMM');
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF r2p_transactions FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, from_date, until_date);
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Partitions for every month that has data, plus three months ahead
+DO
+$$
+DECLARE
+    month_start DATE;
+BEGIN
+    SELECT date_trunc('month', COALESCE(MIN(created_at), NOW()))::DATE
+    INTO month_start
+    FROM r2p_transactions_unpartitioned;
+
+    WHILE month_start <= date_trunc('month', NOW() + INTERVAL '3 months')::DATE
+        LOOP
+            PERFORM r2p_create_monthly_partition(month_start);
+            month_start := (month_start + INTERVAL '1 month')::DATE;
+        END LOOP;
+END
+$$;
+
+INSERT INTO r2p_transactions
+SELECT *
+FROM r2p_transactions_unpartitioned;
+
+ALTER SEQUENCE r2p_transactions_id_seq OWNED BY r2p_transactions.id;
+
+DROP TABLE r2p_transactions_unpartitioned;
+
+-- Recreate indexes on the partitioned parent; they cascade to every partition
+CREATE UNIQUE INDEX idx_payment_request_id ON r2p_transactions (payment_request_id, created_at);
+CREATE INDEX idx_end_to_end_id ON r2p_transactions (end_to_end_id);
+CREATE INDEX idx_transaction_status ON r2p_transactions (transaction_status);
+CREATE INDEX idx_creditor_agent_id ON r2p_transactions (creditor_agent_id);
+CREATE INDEX idx_debtor_agent_id ON r2p_transactions (debtor_agent_id);
+CREATE INDEX idx_created_at ON r2p_transactions (created_at);
+CREATE INDEX idx_due_date ON r2p_transactions (due_date);
+CREATE INDEX idx_original_payment_request_id ON r2p_transactions (original_payment_request_id);
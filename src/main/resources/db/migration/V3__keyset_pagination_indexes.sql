@@ -0,0 +1,11 @@
+-- V3__keyset_pagination_indexes.sql
+-- Composite indexes matching the (created_at, id) keyset order used by transaction page scans.
+-- Each one supersedes a single-column index that is a prefix of it.
+
+CREATE INDEX idx_created_at_id ON r2p_transactions (created_at, id);
+CREATE INDEX idx_creditor_agent_created_at_id ON r2p_transactions (creditor_agent_id, created_at, id);
+CREATE INDEX idx_debtor_agent_created_at_id ON r2p_transactions (debtor_agent_id, created_at, id);
+
+DROP INDEX idx_created_at;
+DROP INDEX idx_creditor_agent_id;
+DROP INDEX idx_debtor_agent_id;
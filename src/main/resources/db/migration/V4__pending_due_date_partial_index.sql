@@ -0,0 +1,8 @@
+-- V4__pending_due_date_partial_index.sql
+-- The expiry sweeper only ever looks for PDNG rows past their due date. A partial index keeps
+-- that lookup proportional to the pending backlog rather than to the whole history, and
+-- replaces the full due_date index, which had no other reader.
+
+CREATE INDEX idx_pending_due_date ON r2p_transactions (due_date) WHERE transaction_status = 'PDNG';
+
+DROP INDEX idx_due_date;
@@ -0,0 +1,15 @@
+-- V5__jsonb_settlement_details_and_request_reason.sql
+-- Stores settlement details and request reasons as JSONB so their fields can be filtered and
+-- aggregated in Postgres. Blank legacy values become NULL rather than failing the cast.
+
+ALTER TABLE r2p_transactions
+    ALTER COLUMN settlement_details_json TYPE JSONB USING NULLIF(BTRIM(settlement_details_json), '')::JSONB,
+    ALTER COLUMN request_reason_json TYPE JSONB USING NULLIF(BTRIM(request_reason_json), '')::JSONB;
+
+-- Equality lookups and GROUP BY on the settlement system and reference used by reconciliation
+CREATE INDEX idx_settlement_system ON r2p_transactions ((settlement_details_json ->> 'settlementSystem'));
+CREATE INDEX idx_settlement_system_reference_id
+    ON r2p_transactions ((settlement_details_json ->> 'settlementSystemReferenceId'));
+
+-- Containment (@>) queries on any other settlement field
+CREATE INDEX idx_settlement_details_gin ON r2p_transactions USING GIN (settlement_details_json jsonb_path_ops);
@@ -0,0 +1,31 @@
+-- V6__transaction_status_change_notify.sql
+-- Publishes a compact record on the r2p_transaction_status channel whenever a transaction is
+-- created or changes status. Consumed by TransactionStatusChangeFeed; payloads stay well below
+-- the 8000 byte NOTIFY limit. Notifications are delivered on commit only.
+
+CREATE OR REPLACE FUNCTION r2p_notify_transaction_status() RETURNS TRIGGER AS
+$$
+BEGIN
+    PERFORM pg_notify('r2p_transaction_status', json_build_object(
+            'id', NEW.id,
+            'paymentRequestId', NEW.payment_request_id,
+            'status', NEW.transaction_status,
+            'previousStatus', CASE WHEN TG_OP = 'UPDATE' THEN OLD.transaction_status END,
+            'updatedAt', NEW.updated_at,
+            'version', NEW.version)::TEXT);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER r2p_transactions_status_inserted
+    AFTER INSERT
+    ON r2p_transactions
+    FOR EACH ROW
+EXECUTE FUNCTION r2p_notify_transaction_status();
+
+CREATE TRIGGER r2p_transactions_status_changed
+    AFTER UPDATE OF transaction_status
+    ON r2p_transactions
+    FOR EACH ROW
+    WHEN (OLD.transaction_status IS DISTINCT FROM NEW.transaction_status)
+EXECUTE FUNCTION r2p_notify_transaction_status();
@@ -0,0 +1,22 @@
+-- V7__refund_ledger.sql
+-- Running total of refunds raised against each original payment request. The refund path
+-- increments it in the same statement that inserts the refund row, guarded so the total never
+-- exceeds the accepted amount, which makes the remaining refundable amount a single-row read.
+
+ALTER TABLE r2p_transactions ADD COLUMN refunded_amount DECIMAL(19, 2) NOT NULL DEFAULT 0;
+
+-- Refunds created before the ledger existed were never flagged as refunds
+UPDATE r2p_transactions
+SET is_refund = TRUE
+WHERE payment_request_type = 'REFUND'
+  AND original_payment_request_id IS NOT NULL
+  AND is_refund IS DISTINCT FROM TRUE;
+
+UPDATE r2p_transactions o
+SET refunded_amount = r.total
+FROM (SELECT original_payment_request_id, SUM(requested_amount) AS total
+      FROM r2p_transactions
+      WHERE is_refund = TRUE
+      GROUP BY original_payment_request_id) r
+WHERE o.payment_request_id = r.original_payment_request_id
+  AND r.total IS NOT NULL;
@@ -0,0 +1,25 @@
+-- V8__initiation_idempotency_keys.sql
+-- A unique constraint on a partitioned table must include the partition key, so uniqueness of
+-- (creditor_agent_id, end_to_end_id) across all months is enforced in this unpartitioned side table.
+-- Initiation claims a key with INSERT ... ON CONFLICT DO NOTHING in the same transaction that inserts
+-- the transaction row; a retried item finds the key taken and resolves to the original payment request.
+-- Keys older than the partition retention window are pruned by R2PPartitionMaintenanceJob.
+
+CREATE TABLE r2p_initiation_keys
+(
+    creditor_agent_id  VARCHAR(35) NOT NULL,
+    end_to_end_id      VARCHAR(35) NOT NULL,
+    payment_request_id VARCHAR(35) NOT NULL,
+    created_at         TIMESTAMP   NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (creditor_agent_id, end_to_end_id)
+);
+
+CREATE INDEX idx_initiation_keys_created_at ON r2p_initiation_keys (created_at);
+
+-- Backfill from existing initiations, keeping the oldest request for any duplicate pair
+INSERT INTO r2p_initiation_keys (creditor_agent_id, end_to_end_id, payment_request_id, created_at)
+SELECT DISTINCT ON (creditor_agent_id, end_to_end_id) creditor_agent_id, end_to_end_id, payment_request_id, created_at
+FROM r2p_transactions
+WHERE creditor_agent_id IS NOT NULL
+  AND is_refund IS DISTINCT FROM TRUE
+ORDER BY creditor_agent_id, end_to_end_id, created_at, id;
@@ -0,0 +1,112 @@
+-- V9__daily_volume_rollup.sql
+-- Per-day volume by creditor agent, currency and status, kept current by statement-level triggers
+-- in the same transaction as the write. Transition tables aggregate a whole statement into one
+-- upsert per bucket, so a batch insert or an expiry sweep touches each rollup row once, and updates
+-- that leave status, agent, currency and amounts unchanged do not touch the rollup at all.
+-- Buckets are keyed by the transaction's creation day, so a status change moves the row between
+-- status buckets of its original day. Rows outlive detached partitions; DailyVolumeRollupService
+-- rebuilds a single day from r2p_transactions.
+
+CREATE TABLE r2p_daily_volume
+(
+    day                     DATE           NOT NULL,
+    creditor_agent_id       VARCHAR(35)    NOT NULL,
+    currency                VARCHAR(3)     NOT NULL,
+    transaction_status      VARCHAR(10)    NOT NULL,
+    transaction_count       BIGINT         NOT NULL DEFAULT 0,
+    total_requested_amount  DECIMAL(21, 2) NOT NULL DEFAULT 0,
+    total_accepted_amount   DECIMAL(21, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, creditor_agent_id, currency, transaction_status)
+);
+
+CREATE INDEX idx_daily_volume_agent_day ON r2p_daily_volume (creditor_agent_id, day);
+
+CREATE OR REPLACE FUNCTION r2p_apply_daily_volume_delta() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO r2p_daily_volume AS v (day, creditor_agent_id, currency, transaction_status,
+                                           transaction_count, total_requested_amount, total_accepted_amount)
+        SELECT created_at::DATE, COALESCE(creditor_agent_id, ''), COALESCE(requested_amount_currency, ''),
+               transaction_status, COUNT(*), COALESCE(SUM(requested_amount), 0), COALESCE(SUM(accepted_amount), 0)
+        FROM new_rows
+        GROUP BY 1, 2, 3, 4
+        ORDER BY 1, 2, 3, 4
+        ON CONFLICT (day, creditor_agent_id, currency, transaction_status) DO UPDATE
+            SET transaction_count      = v.transaction_count + EXCLUDED.transaction_count,
+                total_requested_amount = v.total_requested_amount + EXCLUDED.total_requested_amount,
+                total_accepted_amount  = v.total_accepted_amount + EXCLUDED.total_accepted_amount;
+    ELSIF TG_OP = 'UPDATE' THEN
+        WITH changed AS (SELECT o.id, o.created_at
+                         FROM old_rows o
+                                  JOIN new_rows n ON n.id = o.id AND n.created_at = o.created_at
+                         WHERE (o.transaction_status, o.creditor_agent_id, o.requested_amount_currency,
+                                o.requested_amount, o.accepted_amount)
+                                   IS DISTINCT FROM
+                               (n.transaction_status, n.creditor_agent_id, n.requested_amount_currency,
+                                n.requested_amount, n.accepted_amount)),
+             delta AS (SELECT o.created_at, o.creditor_agent_id, o.requested_amount_currency, o.transaction_status,
+                              -1 AS sign, o.requested_amount, o.accepted_amount
+                       FROM old_rows o
+                                JOIN changed c ON c.id = o.id AND c.created_at = o.created_at
+                       UNION ALL
+                       SELECT n.created_at, n.creditor_agent_id, n.requested_amount_currency, n.transaction_status,
+                              1, n.requested_amount, n.accepted_amount
+                       FROM new_rows n
+                                JOIN changed c ON c.id = n.id AND c.created_at = n.created_at)
+        INSERT INTO r2p_daily_volume AS v (day, creditor_agent_id, currency, transaction_status,
+                                           transaction_count, total_requested_amount, total_accepted_amount)
+        SELECT created_at::DATE, COALESCE(creditor_agent_id, ''), COALESCE(requested_amount_currency, ''),
+               transaction_status, SUM(sign), COALESCE(SUM(sign * requested_amount), 0),
+               COALESCE(SUM(sign * accepted_amount), 0)
+        FROM delta
+        GROUP BY 1, 2, 3, 4
+        ORDER BY 1, 2, 3, 4
+        ON CONFLICT (day, creditor_agent_id, currency, transaction_status) DO UPDATE
+            SET transaction_count      = v.transaction_count + EXCLUDED.transaction_count,
+                total_requested_amount = v.total_requested_amount + EXCLUDED.total_requested_amount,
+                total_accepted_amount  = v.total_accepted_amount + EXCLUDED.total_accepted_amount;
+    ELSIF TG_OP = 'DELETE' THEN
+        INSERT INTO r2p_daily_volume AS v (day, creditor_agent_id, currency, transaction_status,
+                                           transaction_count, total_requested_amount, total_accepted_amount)
+        SELECT created_at::DATE, COALESCE(creditor_agent_id, ''), COALESCE(requested_amount_currency, ''),
+               transaction_status, -COUNT(*), -COALESCE(SUM(requested_amount), 0), -COALESCE(SUM(accepted_amount), 0)
+        FROM old_rows
+        GROUP BY 1, 2, 3, 4
+        ORDER BY 1, 2, 3, 4
+        ON CONFLICT (day, creditor_agent_id, currency, transaction_status) DO UPDATE
+            SET transaction_count      = v.transaction_count + EXCLUDED.transaction_count,
+                total_requested_amount = v.total_requested_amount + EXCLUDED.total_requested_amount,
+                total_accepted_amount  = v.total_accepted_amount + EXCLUDED.total_accepted_amount;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER r2p_transactions_daily_volume_inserted
+    AFTER INSERT
+    ON r2p_transactions
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION r2p_apply_daily_volume_delta();
+
+CREATE TRIGGER r2p_transactions_daily_volume_updated
+    AFTER UPDATE
+    ON r2p_transactions
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION r2p_apply_daily_volume_delta();
+
+CREATE TRIGGER r2p_transactions_daily_volume_deleted
+    AFTER DELETE
+    ON r2p_transactions
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION r2p_apply_daily_volume_delta();
+
+INSERT INTO r2p_daily_volume (day, creditor_agent_id, currency, transaction_status,
+                              transaction_count, total_requested_amount, total_accepted_amount)
+SELECT created_at::DATE, COALESCE(creditor_agent_id, ''), COALESCE(requested_amount_currency, ''),
+       transaction_status, COUNT(*), COALESCE(SUM(requested_amount), 0), COALESCE(SUM(accepted_amount), 0)
+FROM r2p_transactions
+GROUP BY 1, 2, 3, 4;
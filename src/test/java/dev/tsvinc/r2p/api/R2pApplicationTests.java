@@ -1,10 +1,14 @@
 package dev.tsvinc.r2p.api;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointsSupplier;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 @ActiveProfiles("test")
 @SpringBootTest
 @TestPropertySource(properties = {
@@ -13,7 +17,18 @@ import org.springframework.test.context.TestPropertySource;
 })
 class R2pApplicationTests {
 
+    @Autowired
+    private WebEndpointsSupplier webEndpoints;
+
     @Test
     void contextLoads() {
     }
+
+    @Test
+    void operatorWriteEndpointsAreNotExposedOverHttp() {
+        assertThat(webEndpoints.getEndpoints())
+                .extracting(endpoint -> endpoint.getEndpointId().toString())
+                .contains("health")
+                .doesNotContain("transactionarchive", "dailyvolume");
+    }
 }
@@ -3,7 +3,7 @@ package dev.tsvinc.r2p.api.controller;
 import dev.tsvinc.r2p.client.dto.request.ReferenceDataRequest;
 import dev.tsvinc.r2p.client.dto.response.ReferenceDataResponse;
 import dev.tsvinc.r2p.client.dto.response.ParticipantInfo;
-import dev.tsvinc.r2p.client.service.R2PWebClientService;
+import dev.tsvinc.r2p.service.ReferenceDataService;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
@@ -52,7 +52,7 @@ class ReferenceDataControllerTest {
     private WebTestClient webTestClient;
 
     @MockBean
-    private R2PWebClientService webClientService;
+    private ReferenceDataService referenceDataService;
 
     @Test
     void getReferenceData_Success() {
@@ -71,7 +71,7 @@ class ReferenceDataControllerTest {
                 Instant.now().toString()
         );
 
-        when(webClientService.getReferenceData(eq(keyId), any(ReferenceDataRequest.class)))
+        when(referenceDataService.getReferenceData(eq(keyId), any(ReferenceDataRequest.class)))
                 .thenReturn(Mono.just(response));
 
         // When/Then
@@ -123,7 +123,7 @@ class ReferenceDataControllerTest {
                 Instant.now().toString()
         );
 
-        when(webClientService.getReferenceData(eq(keyId), any(ReferenceDataRequest.class)))
+        when(referenceDataService.getReferenceData(eq(keyId), any(ReferenceDataRequest.class)))
                 .thenReturn(Mono.error(new RuntimeException("Service error")));
 
         // When/Then
@@ -3,7 +3,7 @@ package dev.tsvinc.r2p.api.controller;
 import dev.tsvinc.r2p.client.dto.request.ViewBlockRequest;
 import dev.tsvinc.r2p.client.dto.response.ViewBlockResponse;
 import dev.tsvinc.r2p.client.dto.response.BlockedPayeeInfo;
-import dev.tsvinc.r2p.client.service.R2PWebClientService;
+import dev.tsvinc.r2p.service.ReferenceDataService;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
@@ -51,7 +51,7 @@ class RequestControlControllerTest {
     private WebTestClient webTestClient;
 
     @MockBean
-    private R2PWebClientService webClientService;
+    private ReferenceDataService referenceDataService;
 
     @Test
     void viewBlocks_Success() {
@@ -82,7 +82,7 @@ class RequestControlControllerTest {
                 Instant.now().toString()
         );
 
-        when(webClientService.viewBlocks(eq(keyId), any(ViewBlockRequest.class)))
+        when(referenceDataService.viewBlocks(eq(keyId), any(ViewBlockRequest.class)))
                 .thenReturn(Mono.just(response));
 
         // When/Then
@@ -121,7 +121,7 @@ class RequestControlControllerTest {
                 Instant.now().toString()
         );
 
-        when(webClientService.viewBlocks(eq(keyId), any(ViewBlockRequest.class)))
+        when(referenceDataService.viewBlocks(eq(keyId), any(ViewBlockRequest.class)))
                 .thenReturn(Mono.just(response));
 
         // When/Then
@@ -213,7 +213,7 @@ class RequestControlControllerTest {
                 Instant.now().toString()
         );
 
-        when(webClientService.viewBlocks(eq(keyId), any(ViewBlockRequest.class)))
+        when(referenceDataService.viewBlocks(eq(keyId), any(ViewBlockRequest.class)))
                 .thenReturn(Mono.error(new RuntimeException("Service error")));
 
         // When/Then
@@ -233,7 +233,7 @@ class RequestControlControllerTest {
         String keyId = "test-key-id";
         String blockReferenceId = "BLOCK123";
 
-        when(webClientService.removeBlock(eq(blockReferenceId), eq(keyId)))
+        when(referenceDataService.removeBlock(eq(blockReferenceId), eq(keyId)))
                 .thenReturn(Mono.empty());
 
         // When/Then
@@ -282,7 +282,7 @@ class RequestControlControllerTest {
         String keyId = "test-key-id";
         String blockReferenceId = "BLOCK123";
 
-        when(webClientService.removeBlock(eq(blockReferenceId), eq(keyId)))
+        when(referenceDataService.removeBlock(eq(blockReferenceId), eq(keyId)))
                 .thenReturn(Mono.error(new RuntimeException("Service error")));
 
         // When/Then
@@ -13,9 +13,13 @@ import dev.tsvinc.r2p.client.dto.response.MultipleRetrieveR2pResponse;
 import dev.tsvinc.r2p.client.dto.response.RetrieveR2pResponse;
 import dev.tsvinc.r2p.client.dto.response.PaymentRequestInitiated;
 import dev.tsvinc.r2p.client.service.R2PWebClientService;
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.mapper.R2PTransactionMapper;
+import dev.tsvinc.r2p.service.LocalRetrieveService;
 import dev.tsvinc.r2p.service.validation.R2PBusinessValidationService;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
@@ -35,6 +39,8 @@ import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(RequestToPayInboundController.class)
@@ -68,6 +74,17 @@ class RequestToPayInboundControllerTest {
     @MockBean
     private R2PBusinessValidationService validationService;
 
+    @MockBean
+    private LocalRetrieveService localRetrieveService;
+
+    @MockBean
+    private R2PTransactionMapper transactionMapper;
+
+    @BeforeEach
+    void setUp() {
+        when(localRetrieveService.findFresh(any(), any())).thenReturn(Mono.empty());
+    }
+
     @Test
     void initiateR2P_Success() {
         // Given
@@ -158,6 +175,84 @@ class RequestToPayInboundControllerTest {
                 .jsonPath("$.responseMessageId").isEqualTo("RESP987654321");
     }
 
+    @Test
+    void retrieveR2P_ServesFreshLocalStateWithETag() {
+        String paymentRequestId = "PAY123456789";
+        R2PTransaction transaction = R2PTransaction.builder()
+                .paymentRequestId(paymentRequestId)
+                .transactionStatus(TransactionStatus.ACSC)
+                .version(3L)
+                .build();
+        RetrieveR2pResponse response = new RetrieveR2pResponse(
+                "VD", "P2P", "ACSC", "RESP987654321", "2024-06-01T12:00:00Z", "2024-06-01T12:00:00Z",
+                null, null, null, null, null, null, null, List.of(), null);
+
+        when(localRetrieveService.findFresh(paymentRequestId, "test-key-id")).thenReturn(Mono.just(transaction));
+        when(transactionMapper.toRetrieveResponse(transaction)).thenReturn(response);
+
+        webTestClient.get()
+                .uri("/rtx/api/v1/requestToPay/{paymentRequestId}", paymentRequestId)
+                .header("keyID", "test-key-id")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "W/\"PAY123456789-3\"")
+                .expectHeader().valueEquals("Cache-Control", "private, no-cache")
+                .expectBody()
+                .jsonPath("$.transactionStatus").isEqualTo("ACSC");
+
+        verify(webClientService, never()).retrieveR2P(any(), any(), any());
+    }
+
+    @Test
+    void retrieveR2P_UnmappedKeyIdFallsBackToVisa() {
+        // Given
+        String paymentRequestId = "PAY123456789";
+        RetrieveR2pResponse response = new RetrieveR2pResponse(
+                "VD", "P2P", "PDNG", "RESP987654321", "2024-06-01T12:00:00Z", "2024-06-01T12:00:00Z",
+                null, null, null, null, null, null, null, List.of(), null);
+
+        when(localRetrieveService.findFresh(paymentRequestId, "unmapped-key-id")).thenReturn(Mono.empty());
+        when(webClientService.retrieveR2P(eq(paymentRequestId), eq("unmapped-key-id"), any()))
+                .thenReturn(Mono.just(response));
+
+        // When/Then
+        webTestClient.get()
+                .uri("/rtx/api/v1/requestToPay/{paymentRequestId}", paymentRequestId)
+                .header("keyID", "unmapped-key-id")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist("ETag")
+                .expectBody()
+                .jsonPath("$.transactionStatus").isEqualTo("PDNG");
+
+        verify(localRetrieveService).findFresh(paymentRequestId, "unmapped-key-id");
+        verify(transactionMapper, never()).toRetrieveResponse(any());
+    }
+
+    @Test
+    void retrieveR2P_NotModifiedWhenETagMatches() {
+        String paymentRequestId = "PAY123456789";
+        R2PTransaction transaction = R2PTransaction.builder()
+                .paymentRequestId(paymentRequestId)
+                .transactionStatus(TransactionStatus.PDNG)
+                .version(3L)
+                .build();
+
+        when(localRetrieveService.findFresh(paymentRequestId, "test-key-id")).thenReturn(Mono.just(transaction));
+
+        webTestClient.get()
+                .uri("/rtx/api/v1/requestToPay/{paymentRequestId}", paymentRequestId)
+                .header("keyID", "test-key-id")
+                .header("If-None-Match", "W/\"PAY123456789-3\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals("ETag", "W/\"PAY123456789-3\"")
+                .expectBody().isEmpty();
+
+        verify(transactionMapper, never()).toRetrieveResponse(any());
+        verify(webClientService, never()).retrieveR2P(any(), any(), any());
+    }
+
     @Test
     void retrieveMultipleR2P_ByPaymentRequestIds_Success() {
         // Given
@@ -0,0 +1,301 @@
+package dev.tsvinc.r2p.api.controller;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.enums.UseCase;
+import dev.tsvinc.r2p.domain.events.TransactionStatusChange;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionFilter;
+import dev.tsvinc.r2p.domain.repository.RefundBalance;
+import dev.tsvinc.r2p.exception.R2PTransactionValidationException;
+import dev.tsvinc.r2p.infrastructure.persistence.TransactionStatusChangeFeed;
+import dev.tsvinc.r2p.service.KeyAgents;
+import dev.tsvinc.r2p.service.R2PTransactionService;
+import dev.tsvinc.r2p.service.dto.R2PTransactionDto;
+import dev.tsvinc.r2p.service.dto.TransactionPage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(TransactionQueryController.class)
+@Import({TransactionQueryController.class, GlobalExceptionHandler.class, KeyAgents.class})
+@TestPropertySource(properties = {
+    "management.prometheus.metrics.export.enabled=false",
+    "management.endpoints.web.exposure.include=health,info",
+    "spring.main.web-application-type=reactive",
+    "spring.autoconfigure.exclude=org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration,org.springframework.boot.actuate.autoconfigure.metrics.export.prometheus.PrometheusMetricsExportAutoConfiguration",
+    "spring.main.allow-bean-definition-overriding=true",
+    "spring.data.redis.host=localhost",
+    "spring.data.redis.port=6379",
+    "spring.cloud.vault.enabled=false",
+    "r2p.key-agents={'test-key-id':'AGENT1,AGENT2'}"
+})
+class TransactionQueryControllerTest {
+
+    private static final String KEY_ID = "test-key-id";
+
+    @Configuration
+    static class TestConfig {
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private R2PTransactionService transactionService;
+
+    @MockBean
+    private TransactionStatusChangeFeed changeFeed;
+
+    @Test
+    void listTransactions_ReturnsPageWithNextCursor() {
+        // Given
+        R2PTransactionFilter filter = new R2PTransactionFilter(Set.of("AGENT1"), TransactionStatus.PDNG, null, null);
+        when(transactionService.findPage(eq(filter), isNull(), eq(1)))
+                .thenReturn(Mono.just(TransactionPage.of(List.of(transaction("PR1")), "next-cursor")));
+
+        // When/Then
+        webTestClient.get()
+                .uri("/rtx/api/v1/transactions?agentId=AGENT1&status=PDNG&size=1")
+                .header("keyID", KEY_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("X-Next-Cursor", "next-cursor")
+                .expectBody()
+                .jsonPath("$.transactions[0].paymentRequestId").isEqualTo("PR1")
+                .jsonPath("$.size").isEqualTo(1)
+                .jsonPath("$.hasNext").isEqualTo(true)
+                .jsonPath("$.nextCursor").isEqualTo("next-cursor");
+    }
+
+    @Test
+    void listTransactions_WithoutAgentId_CoversEveryAgentOfTheKeyId() {
+        // Given
+        R2PTransactionFilter filter = new R2PTransactionFilter(Set.of("AGENT1", "AGENT2"), null, null, null);
+        when(transactionService.findPage(eq(filter), isNull(), isNull()))
+                .thenReturn(Mono.just(TransactionPage.of(List.of(transaction("PR1")), null)));
+
+        // When/Then
+        webTestClient.get()
+                .uri("/rtx/api/v1/transactions")
+                .header("keyID", KEY_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.transactions[0].paymentRequestId").isEqualTo("PR1");
+    }
+
+    @Test
+    void listTransactions_AgentOfAnotherKeyId_ReturnsForbidden() {
+        // When/Then
+        webTestClient.get()
+                .uri("/rtx/api/v1/transactions?agentId=AGENT3")
+                .header("keyID", KEY_ID)
+                .exchange()
+                .expectStatus().isForbidden()
+                .expectBody()
+                .jsonPath("$.code").isEqualTo("RC3003");
+
+        verify(transactionService, never()).findPage(any(), any(), any());
+    }
+
+    @Test
+    void listTransactions_UnmappedKeyId_ReturnsForbidden() {
+        // When/Then
+        webTestClient.get()
+                .uri("/rtx/api/v1/transactions")
+                .header("keyID", "unknown-key-id")
+                .exchange()
+                .expectStatus().isForbidden();
+
+        verify(transactionService, never()).findPage(any(), any(), any());
+    }
+
+    @Test
+    void listTransactions_InvalidCursor() {
+        // Given
+        when(transactionService.findPage(any(R2PTransactionFilter.class), eq("garbage"), isNull()))
+                .thenReturn(Mono.error(new R2PTransactionValidationException("Invalid cursor")));
+
+        // When/Then
+        webTestClient.get()
+                .uri("/rtx/api/v1/transactions?cursor=garbage")
+                .header("keyID", KEY_ID)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void streamTransactions_WritesNdjson() {
+        // Given
+        R2PTransactionFilter filter = new R2PTransactionFilter(Set.of("AGENT2"), null, null, null);
+        when(transactionService.streamTransactions(eq(filter), isNull()))
+                .thenReturn(Flux.just(transaction("PR1"), transaction("PR2")));
+
+        // When/Then
+        webTestClient.get()
+                .uri("/rtx/api/v1/transactions/stream?agentId=AGENT2")
+                .header("keyID", KEY_ID)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(R2PTransactionDto.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void streamTransactions_AgentOfAnotherKeyId_ReturnsForbidden() {
+        // When/Then
+        webTestClient.get()
+                .uri("/rtx/api/v1/transactions/stream?agentId=AGENT3")
+                .header("keyID", KEY_ID)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isForbidden();
+
+        verify(transactionService, never()).streamTransactions(any(), any());
+    }
+
+    @Test
+    void statusChanges_StreamsMatchingChangesAsServerSentEvents() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        TransactionStatusChange settled =
+                new TransactionStatusChange(1L, "PR1", TransactionStatus.ACSC, TransactionStatus.PDNG, now, 2L, "AGENT1", "AGENT9");
+        when(changeFeed.changes()).thenReturn(Flux.just(settled,
+                new TransactionStatusChange(2L, "PR2", TransactionStatus.RJCT, TransactionStatus.PDNG, now, 2L, "AGENT1", "AGENT9")));
+
+        // When/Then
+        webTestClient.get()
+                .uri("/rtx/api/v1/transactions/changes?status=ACSC")
+                .header("keyID", KEY_ID)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionStatusChange.class)
+                .hasSize(1)
+                .contains(settled);
+    }
+
+    @Test
+    void statusChanges_OnlyStreamsChangesOfTheKeyIdsAgents() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        TransactionStatusChange asDebtor =
+                new TransactionStatusChange(2L, "PR2", TransactionStatus.PDNG, null, now, 1L, "AGENT8", "AGENT2");
+        when(changeFeed.changes()).thenReturn(Flux.just(
+                new TransactionStatusChange(1L, "PR1", TransactionStatus.PDNG, null, now, 1L, "AGENT8", "AGENT9"),
+                asDebtor));
+
+        // When/Then
+        webTestClient.get()
+                .uri("/rtx/api/v1/transactions/changes")
+                .header("keyID", KEY_ID)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionStatusChange.class)
+                .hasSize(1)
+                .contains(asDebtor);
+    }
+
+    @Test
+    void statusChanges_UnmappedKeyId_ReturnsForbidden() {
+        // When/Then
+        webTestClient.get()
+                .uri("/rtx/api/v1/transactions/changes")
+                .header("keyID", "unknown-key-id")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isForbidden();
+
+        verify(changeFeed, never()).changes();
+    }
+
+    @Test
+    void refundBalance_ReturnsRemainingRefundableAmount() {
+        // Given
+        when(transactionService.findByPaymentRequestId("PR1")).thenReturn(Mono.just(entity("PR1", "AGENT9", "AGENT2")));
+        when(transactionService.findRefundBalance("PR1")).thenReturn(Mono.just(new RefundBalance(
+                "PR1", "USD", new BigDecimal("100.00"), new BigDecimal("40.00"), new BigDecimal("60.00"))));
+
+        // When/Then
+        webTestClient.get()
+                .uri("/rtx/api/v1/transactions/PR1/refund-balance")
+                .header("keyID", KEY_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.refundedAmount").isEqualTo(40.00)
+                .jsonPath("$.remainingAmount").isEqualTo(60.00);
+    }
+
+    @Test
+    void refundBalance_UnknownPaymentRequest_ReturnsNotFound() {
+        // Given
+        when(transactionService.findByPaymentRequestId("missing")).thenReturn(Mono.empty());
+
+        // When/Then
+        webTestClient.get()
+                .uri("/rtx/api/v1/transactions/missing/refund-balance")
+                .header("keyID", KEY_ID)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void refundBalance_RequestOfOtherAgents_ReturnsNotFound() {
+        // Given
+        when(transactionService.findByPaymentRequestId("PR1")).thenReturn(Mono.just(entity("PR1", "AGENT8", "AGENT9")));
+
+        // When/Then
+        webTestClient.get()
+                .uri("/rtx/api/v1/transactions/PR1/refund-balance")
+                .header("keyID", KEY_ID)
+                .exchange()
+                .expectStatus().isNotFound();
+
+        verify(transactionService, never()).findRefundBalance(any());
+    }
+
+    private static R2PTransaction entity(String paymentRequestId, String creditorAgentId, String debtorAgentId) {
+        return R2PTransaction.builder()
+                .paymentRequestId(paymentRequestId)
+                .creditorAgentId(creditorAgentId)
+                .debtorAgentId(debtorAgentId)
+                .build();
+    }
+
+    private static R2PTransactionDto transaction(String paymentRequestId) {
+        LocalDateTime now = LocalDateTime.now();
+        return new R2PTransactionDto(paymentRequestId, "E2E-" + paymentRequestId, TransactionStatus.PDNG, UseCase.P2P,
+                new BigDecimal("10.00"), "USD", null, null, "AGENT1", "AGENT2", null, now, now);
+    }
+}
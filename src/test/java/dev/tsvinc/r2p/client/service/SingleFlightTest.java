@@ -0,0 +1,90 @@
+package dev.tsvinc.r2p.client.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SingleFlight singleFlight;
+    private AtomicInteger calls;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight(meterRegistry);
+        ReflectionTestUtils.setField(singleFlight, "enabled", true);
+        singleFlight.init();
+        calls = new AtomicInteger();
+    }
+
+    @Test
+    void concurrentIdenticalCallsShareOneExecution() {
+        Sinks.One<String> response = Sinks.one();
+        List<String> results = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            singleFlight.execute("retrieve", "PR-1", () -> call(response.asMono())).subscribe(results::add);
+        }
+        response.tryEmitValue("done");
+
+        assertThat(calls).hasValue(1);
+        assertThat(results).containsExactly("done", "done", "done");
+        assertThat(meterRegistry.get("r2p.client.single-flight.calls").tag("result", "shared").counter().count())
+                .isEqualTo(2.0);
+        assertThat(meterRegistry.get("r2p.client.single-flight.dedup-ratio").tag("operation", "retrieve")
+                .gauge().value()).isEqualTo(2.0 / 3);
+    }
+
+    @Test
+    void differentKeysAreNotCoalesced() {
+        Sinks.One<String> response = Sinks.one();
+
+        singleFlight.execute("retrieve", "PR-1", () -> call(response.asMono())).subscribe();
+        singleFlight.execute("retrieve", "PR-2", () -> call(response.asMono())).subscribe();
+        singleFlight.execute("view-blocks", "PR-1", () -> call(response.asMono())).subscribe();
+
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void completedCallsAreNotReused() {
+        singleFlight.execute("retrieve", "PR-1", () -> call(Mono.just("first"))).block();
+        String second = singleFlight.execute("retrieve", "PR-1", () -> call(Mono.just("second"))).block();
+
+        assertThat(calls).hasValue(2);
+        assertThat(second).isEqualTo("second");
+        assertThat(meterRegistry.get("r2p.client.single-flight.in-flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void failuresReachEveryWaiterAndAreNotRemembered() {
+        Sinks.One<String> response = Sinks.one();
+        List<Throwable> errors = new ArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+            singleFlight.execute("retrieve", "PR-1", () -> call(response.asMono())).subscribe(value -> {}, errors::add);
+        }
+        response.tryEmitError(new IllegalStateException("visa down"));
+        String retried = singleFlight.execute("retrieve", "PR-1", () -> call(Mono.just("ok"))).block();
+
+        assertThat(errors).hasSize(2).allMatch(IllegalStateException.class::isInstance);
+        assertThat(retried).isEqualTo("ok");
+        assertThat(calls).hasValue(2);
+    }
+
+    private Mono<String> call(Mono<String> response) {
+        calls.incrementAndGet();
+        return response;
+    }
+}
@@ -0,0 +1,41 @@
+package dev.tsvinc.r2p.domain.enums;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionStatusTest {
+
+    @Test
+    void terminalStatusesHaveNoOutgoingTransitions() {
+        for (TransactionStatus target : TransactionStatus.values()) {
+            assertThat(target.allowedSources()).noneMatch(TransactionStatus::isTerminal);
+        }
+    }
+
+    @Test
+    void pendingAndAcceptedRequestsCanBeSettledRejectedCancelledOrExpired() {
+        for (TransactionStatus target : new TransactionStatus[]{
+                TransactionStatus.ACSC, TransactionStatus.RJCT, TransactionStatus.CNCL, TransactionStatus.EXPD}) {
+            assertThat(target.canTransitionFrom(TransactionStatus.PDNG)).isTrue();
+            assertThat(target.canTransitionFrom(TransactionStatus.ACCP)).isTrue();
+        }
+        assertThat(TransactionStatus.ACCP.canTransitionFrom(TransactionStatus.PDNG)).isTrue();
+    }
+
+    @Test
+    void duplicateOrBackwardTransitionsAreIllegal() {
+        assertThat(TransactionStatus.ACSC.canTransitionFrom(TransactionStatus.ACSC)).isFalse();
+        assertThat(TransactionStatus.PDNG.canTransitionFrom(TransactionStatus.ACCP)).isFalse();
+        assertThat(TransactionStatus.ACCP.canTransitionFrom(TransactionStatus.ACCP)).isFalse();
+        assertThat(TransactionStatus.CNCL.canTransitionFrom(TransactionStatus.EXPD)).isFalse();
+    }
+
+    @Test
+    void nonTerminalStatusesAreTheAmendableOnes() {
+        assertThat(TransactionStatus.nonTerminal())
+                .containsExactlyInAnyOrder(TransactionStatus.PDNG, TransactionStatus.ACCP);
+        assertThat(TransactionStatus.names(TransactionStatus.CNCL.allowedSources()))
+                .containsExactlyInAnyOrder("PDNG", "ACCP");
+    }
+}
@@ -0,0 +1,138 @@
+package dev.tsvinc.r2p.domain.repository;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Wires the transaction repository against a Testcontainers Postgres without a Spring context
+ * and applies the Flyway scripts from {@code db/migration} in version order.
+ */
+public final class PostgresTestDatabase {
+
+    public static final String IMAGE = "postgres:16-alpine";
+
+    private final ConnectionFactory connectionFactory;
+    private final DatabaseClient databaseClient;
+    private final R2dbcEntityTemplate entityTemplate;
+
+    private PostgresTestDatabase(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+        this.databaseClient = DatabaseClient.create(connectionFactory);
+        this.entityTemplate = new R2dbcEntityTemplate(connectionFactory);
+    }
+
+    public static PostgresTestDatabase connect(PostgreSQLContainer<?> container) {
+        return new PostgresTestDatabase(ConnectionFactories.get(url(container)));
+    }
+
+    /**
+     * Same as {@link #connect} but behind an r2dbc-pool {@link ConnectionPool} of {@code maxSize} connections,
+     * as in the application.
+     */
+    public static PostgresTestDatabase connectPooled(PostgreSQLContainer<?> container, int maxSize) {
+        return new PostgresTestDatabase(new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(url(container)))
+                .initialSize(maxSize)
+                .maxSize(maxSize)
+                .build()));
+    }
+
+    /**
+     * Wires the repository over {@code connectionFactory} as is, e.g. one routing across several databases,
+     * which must already be migrated.
+     */
+    public static PostgresTestDatabase over(ConnectionFactory connectionFactory) {
+        return new PostgresTestDatabase(connectionFactory);
+    }
+
+    private static String url(PostgreSQLContainer<?> container) {
+        return String.format("r2dbc:postgresql://%s:%s@%s:%d/%s",
+                container.getUsername(), container.getPassword(), container.getHost(),
+                container.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT), container.getDatabaseName());
+    }
+
+    public ConnectionFactory connectionFactory() {
+        return connectionFactory;
+    }
+
+    public DatabaseClient databaseClient() {
+        return databaseClient;
+    }
+
+    public R2dbcEntityTemplate entityTemplate() {
+        return entityTemplate;
+    }
+
+    public R2PTransactionRepository transactionRepository() {
+        return new R2dbcRepositoryFactory(entityTemplate).getRepository(R2PTransactionRepository.class,
+                RepositoryFragments.just(new R2PTransactionBatchRepositoryImpl(databaseClient, entityTemplate),
+                        new R2PTransactionKeysetRepositoryImpl(databaseClient, entityTemplate)));
+    }
+
+    public Mono<Void> migrate() {
+        return migrate(1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Applies only the scripts with versions in {@code [fromVersion, toVersion]}, so a test can seed data
+     * that a later migration has to carry over.
+     */
+    public Mono<Void> migrate(int fromVersion, int toVersion) {
+        return Flux.fromIterable(migrationScripts(fromVersion, toVersion))
+                .concatMap(script -> databaseClient.inConnection(connection ->
+                        Flux.from(connection.createStatement(script).execute())
+                                .concatMap(result -> result.getRowsUpdated())
+                                .then()))
+                .then();
+    }
+
+    public Mono<Void> truncate() {
+        return databaseClient.sql("TRUNCATE r2p_transactions, r2p_initiation_keys, r2p_payment_request_ids, " +
+                "r2p_daily_volume, r2p_daily_volume_delta").then();
+    }
+
+    private static List<String> migrationScripts(int fromVersion, int toVersion) {
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver()
+                    .getResources("classpath:db/migration/V*__*.sql");
+            return Arrays.stream(resources)
+                    .filter(resource -> version(resource) >= fromVersion && version(resource) <= toVersion)
+                    .sorted(Comparator.comparingInt(PostgresTestDatabase::version))
+                    .map(PostgresTestDatabase::read)
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int version(Resource resource) {
+        String filename = resource.getFilename();
+        return Integer.parseInt(filename.substring(1, filename.indexOf("__")));
+    }
+
+    private static String read(Resource resource) {
+        try {
+            return resource.getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package dev.tsvinc.r2p.domain.repository;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.Product;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.enums.UseCase;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares rows/sec of the per-row {@code save} path with {@link R2PTransactionBatchRepository#insertAll}.
+ * Not matched by the default surefire includes; run explicitly with
+ * {@code mvn test -Dtest=R2PTransactionInsertBenchmark}.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@Slf4j
+class R2PTransactionInsertBenchmark {
+
+    private static final int ROWS = 2_000;
+    private static final int ROUNDS = 3;
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    private static PostgresTestDatabase database;
+    private static R2PTransactionRepository repository;
+
+    @BeforeAll
+    static void setUp() {
+        database = PostgresTestDatabase.connect(POSTGRES);
+        database.migrate().block();
+        repository = database.transactionRepository();
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        database.truncate().block();
+    }
+
+    @Test
+    void batchedInsertOutperformsPerRowSave() {
+        // Warm up connections and statement caches for both paths
+        Flux.fromIterable(transactions(100)).concatMap(repository::save).blockLast();
+        repository.insertAll(transactions(100)).blockLast();
+
+        double perRow = 0;
+        double batched = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            perRow += rowsPerSecond(() -> Flux.fromIterable(transactions(ROWS)).concatMap(repository::save).blockLast());
+            batched += rowsPerSecond(() -> repository.insertAll(transactions(ROWS)).blockLast());
+        }
+        perRow /= ROUNDS;
+        batched /= ROUNDS;
+
+        log.info("per-row save: {} rows/s, batched insert: {} rows/s (x{})",
+                Math.round(perRow), Math.round(batched), String.format("%.1f", batched / perRow));
+
+        assertThat(repository.count().block()).isEqualTo(200L + 2L * ROWS * ROUNDS);
+        assertThat(batched).as("batched rows/s vs per-row rows/s").isGreaterThan(perRow);
+    }
+
+    private static double rowsPerSecond(Runnable insert) {
+        long start = System.nanoTime();
+        insert.run();
+        return ROWS / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    private static List<R2PTransaction> transactions(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> R2PTransaction.builder()
+                        .paymentRequestId(UUID.randomUUID().toString().substring(0, 21))
+                        .endToEndId("E2E" + i)
+                        .requestMessageId("BENCH")
+                        .transactionStatus(TransactionStatus.PDNG)
+                        .useCase(UseCase.P2P.name())
+                        .product(Product.VD.name())
+                        .requestedAmount(new BigDecimal("10.00"))
+                        .requestedAmountCurrency("UAH")
+                        .creditorAgentId("CREDITOR_AGENT")
+                        .debtorAgentId("DEBTOR_AGENT")
+                        .dueDate(LocalDate.now().plusDays(7))
+                        .isRefund(false)
+                        .createdAt(LocalDateTime.now())
+                        .updatedAt(LocalDateTime.now())
+                        .build())
+                .toList();
+    }
+}
@@ -0,0 +1,208 @@
+package dev.tsvinc.r2p.domain.repository;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.Product;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.enums.UseCase;
+import io.r2dbc.postgresql.codec.Json;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers(disabledWithoutDocker = true)
+class R2PTransactionRepositoryTest {
+
+    private static final String CREDITOR_AGENT = "CREDITOR_AGENT";
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    private static PostgresTestDatabase database;
+    private static R2PTransactionRepository repository;
+
+    @BeforeAll
+    static void setUp() {
+        database = PostgresTestDatabase.connect(POSTGRES);
+        database.migrate().block();
+        repository = database.transactionRepository();
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        database.truncate().block();
+    }
+
+    @Test
+    void batchedInsertPopulatesIdsInInputOrder() {
+        List<R2PTransaction> input = IntStream.range(0, R2PTransactionBatchRepositoryImpl.MAX_ROWS_PER_BATCH + 7)
+                .mapToObj(i -> transaction("PR" + i, "E2E" + i))
+                .toList();
+
+        List<R2PTransaction> saved = repository.insertAll(input).collectList().block();
+
+        assertThat(saved).hasSize(input.size());
+        assertThat(saved).allSatisfy(transaction -> assertThat(transaction.getId()).isNotNull());
+        assertThat(saved).extracting(R2PTransaction::getPaymentRequestId)
+                .containsExactlyElementsOf(input.stream().map(R2PTransaction::getPaymentRequestId).toList());
+        assertThat(repository.findByPaymentRequestId(input.getLast().getPaymentRequestId()).block())
+                .extracting(R2PTransaction::getId)
+                .isEqualTo(saved.getLast().getId());
+    }
+
+    @Test
+    void initiationKeysAreClaimedOncePerCreditorAgent() {
+        List<String> first = repository.claimInitiationKeys(CREDITOR_AGENT,
+                new String[]{"E2E1", "E2E2"}, new String[]{"PR1", "PR2"}).collectList().block();
+        List<String> retry = repository.claimInitiationKeys(CREDITOR_AGENT,
+                new String[]{"E2E1", "E2E3"}, new String[]{"PR1-RETRY", "PR3"}).collectList().block();
+        List<String> otherAgent = repository.claimInitiationKeys("OTHER_AGENT",
+                new String[]{"E2E1"}, new String[]{"PR4"}).collectList().block();
+
+        assertThat(first).containsExactlyInAnyOrder("PR1", "PR2");
+        assertThat(retry).containsExactly("PR3");
+        assertThat(otherAgent).containsExactly("PR4");
+    }
+
+    @Test
+    void initiationKeysResolveToTheOriginalTransaction() {
+        repository.claimInitiationKeys(CREDITOR_AGENT, new String[]{"E2E1"}, new String[]{"PR1"}).blockLast();
+        repository.insertAll(List.of(transaction("PR1", "E2E1"))).blockLast();
+
+        List<R2PTransaction> resolved = repository
+                .findByInitiationKeys(CREDITOR_AGENT, new String[]{"E2E1"}).collectList().block();
+
+        assertThat(resolved).extracting(R2PTransaction::getPaymentRequestId).containsExactly("PR1");
+    }
+
+    @Test
+    void settlementSystemReportCountsOnlySettledTransactions() {
+        Json settlementDetails = Json.of("{\"settlementSystem\":\"VISA_DIRECT\"}");
+        R2PTransaction settled = transaction("PR1", "E2E1").toBuilder()
+                .transactionStatus(TransactionStatus.ACSC)
+                .acceptedAmount(new BigDecimal("10.00"))
+                .acceptedAmountCurrency("USD")
+                .settlementDetailsJson(settlementDetails)
+                .build();
+        R2PTransaction rejected = transaction("PR2", "E2E2").toBuilder()
+                .transactionStatus(TransactionStatus.RJCT)
+                .acceptedAmount(new BigDecimal("99.00"))
+                .acceptedAmountCurrency("USD")
+                .settlementDetailsJson(settlementDetails)
+                .build();
+        repository.insertAll(List.of(settled, rejected)).blockLast();
+
+        List<SettlementSystemSummary> report = repository.summarizeBySettlementSystem(
+                LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1)).collectList().block();
+
+        assertThat(report).singleElement().satisfies(summary -> {
+            assertThat(summary.settlementSystem()).isEqualTo("VISA_DIRECT");
+            assertThat(summary.transactionCount()).isEqualTo(1L);
+            assertThat(summary.totalAcceptedAmount()).isEqualByComparingTo("10.00");
+        });
+    }
+
+    @Test
+    void refundBalanceWithoutAnAcceptedAmountRemainsUnderTheRequestedAmount() {
+        repository.insertAll(List.of(transaction("PR1", "E2E1").toBuilder()
+                .transactionStatus(TransactionStatus.ACSC)
+                .build())).blockLast();
+        repository.insertRefund("PR1", "RFD1", "E2E-R1", "MSG", UseCase.P2P.name(), new BigDecimal("4.00")).block();
+
+        RefundBalance balance = repository.findRefundBalance("PR1").block();
+
+        assertThat(balance.acceptedAmount()).isNull();
+        assertThat(balance.refundedAmount()).isEqualByComparingTo("4.00");
+        assertThat(balance.remainingAmount()).isEqualByComparingTo("6.00");
+    }
+
+    @Test
+    void requestsExpireOnlyAfterTheirDueDay() {
+        LocalDate today = LocalDate.now();
+        repository.insertAll(List.of(
+                due("PR-YESTERDAY", today.minusDays(1)),
+                due("PR-TODAY", today),
+                due("PR-TOMORROW", today.plusDays(1)))).blockLast();
+
+        List<R2PTransaction> expired = repository
+                .expireDueBatch(today, LocalDateTime.now().minusDays(1), 10).collectList().block();
+
+        assertThat(expired).extracting(R2PTransaction::getPaymentRequestId).containsExactly("PR-YESTERDAY");
+        assertThat(expired).extracting(R2PTransaction::getTransactionStatus).containsExactly(TransactionStatus.EXPD);
+        assertThat(repository.findByPaymentRequestId("PR-TODAY").block().getTransactionStatus())
+                .isEqualTo(TransactionStatus.PDNG);
+    }
+
+    @Test
+    void concurrentSweepersClaimDisjointBatches() throws InterruptedException {
+        LocalDate today = LocalDate.now();
+        LocalDateTime createdAfter = LocalDateTime.now().minusDays(1);
+        repository.insertAll(IntStream.range(0, 5)
+                .mapToObj(i -> due("PR" + i, today.minusDays(1)))
+                .toList()).blockLast();
+        TransactionalOperator transactional =
+                TransactionalOperator.create(new R2dbcTransactionManager(database.connectionFactory()));
+        List<R2PTransaction> firstWorker = new CopyOnWriteArrayList<>();
+        Sinks.Empty<Void> commitFirst = Sinks.empty();
+
+        // The first sweeper holds its three row locks until the second one has finished its batch
+        Disposable first = transactional.transactional(repository.expireDueBatch(today, createdAfter, 3)
+                        .doOnNext(firstWorker::add)
+                        .then(commitFirst.asMono()))
+                .subscribe();
+        for (int i = 0; i < 100 && firstWorker.size() < 3; i++) {
+            Thread.sleep(50);
+        }
+        List<R2PTransaction> secondWorker = repository.expireDueBatch(today, createdAfter, 10)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        commitFirst.tryEmitEmpty();
+        for (int i = 0; i < 100 && !first.isDisposed(); i++) {
+            Thread.sleep(50);
+        }
+
+        assertThat(firstWorker).hasSize(3);
+        assertThat(secondWorker).hasSize(2);
+        assertThat(secondWorker).extracting(R2PTransaction::getPaymentRequestId)
+                .doesNotContainAnyElementsOf(firstWorker.stream().map(R2PTransaction::getPaymentRequestId).toList());
+        assertThat(repository.findExpiredTransactions(today, createdAfter).collectList().block()).isEmpty();
+    }
+
+    private static R2PTransaction due(String paymentRequestId, LocalDate dueDate) {
+        return transaction(paymentRequestId, "E2E-" + paymentRequestId).toBuilder().dueDate(dueDate).build();
+    }
+
+    private static R2PTransaction transaction(String paymentRequestId, String endToEndId) {
+        LocalDateTime now = LocalDateTime.now();
+        return R2PTransaction.builder()
+                .paymentRequestId(paymentRequestId)
+                .endToEndId(endToEndId)
+                .transactionStatus(TransactionStatus.PDNG)
+                .useCase(UseCase.P2P.name())
+                .product(Product.VD.name())
+                .requestedAmount(new BigDecimal("10.00"))
+                .requestedAmountCurrency("USD")
+                .creditorAgentId(CREDITOR_AGENT)
+                .debtorAgentId("DEBTOR_AGENT")
+                .isRefund(false)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+}
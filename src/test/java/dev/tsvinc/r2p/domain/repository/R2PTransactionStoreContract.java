@@ -0,0 +1,229 @@
+package dev.tsvinc.r2p.domain.repository;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.Product;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.enums.UseCase;
+import io.r2dbc.postgresql.codec.Json;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Behaviour every {@link R2PTransactionStore} engine must share. Subclasses provide a store over an empty
+ * data set for each test.
+ */
+public abstract class R2PTransactionStoreContract {
+
+    private static final String CREDITOR_AGENT = "CREDITOR_AGENT";
+    private static final String DEBTOR_AGENT = "DEBTOR_AGENT";
+
+    protected abstract R2PTransactionStore store();
+
+    @Test
+    public void insertAllAssignsIdsInInputOrder() {
+        List<R2PTransaction> saved = store().insertAll(List.of(transaction("PR1", "E2E1"), transaction("PR2", "E2E2")))
+                .collectList().block();
+
+        assertThat(saved).extracting(R2PTransaction::getPaymentRequestId).containsExactly("PR1", "PR2");
+        assertThat(saved).allSatisfy(transaction -> {
+            assertThat(transaction.getId()).isNotNull();
+            assertThat(transaction.getVersion()).isZero();
+        });
+        R2PTransaction found = store().findByPaymentRequestId("PR2").block();
+        assertThat(found.getId()).isEqualTo(saved.get(1).getId());
+        assertThat(found.getEndToEndId()).isEqualTo("E2E2");
+        assertThat(found.getRefundedAmount()).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    public void saveUpdatesUnderTheCurrentVersionOnly() {
+        insert(transaction("PR1", "E2E1"));
+        R2PTransaction loaded = store().findByPaymentRequestId("PR1").block();
+        R2PTransaction stale = store().findByPaymentRequestId("PR1").block();
+
+        loaded.setCreditorAckMessage("Thanks");
+        R2PTransaction saved = store().save(loaded).block();
+        stale.setCreditorAckMessage("Too late");
+
+        assertThat(saved.getVersion()).isEqualTo(1L);
+        assertThat(store().findByPaymentRequestId("PR1").block().getCreditorAckMessage()).isEqualTo("Thanks");
+        assertThatThrownBy(() -> store().save(stale).block()).isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
+    @Test
+    public void saveChangesWritesTheChangedColumnsUnderTheReadVersion() {
+        R2PTransaction pending = transaction("PR1", "E2E1");
+        pending.setMessage("Dinner");
+        insert(pending);
+        R2PTransaction original = store().findByPaymentRequestId("PR1").block();
+        R2PTransaction tagged = original.toBuilder().creditorAckMessage("Thanks").creditorAckEmoji(":)").build();
+        R2PTransaction stale = original.toBuilder().creditorAckMessage("Too late").build();
+
+        R2PTransaction saved = store().saveChanges(original, tagged).block();
+
+        assertThat(saved.getVersion()).isEqualTo(1L);
+        assertThat(saved.getCreditorAckMessage()).isEqualTo("Thanks");
+        assertThat(saved.getCreditorAckEmoji()).isEqualTo(":)");
+        assertThat(saved.getMessage()).isEqualTo("Dinner");
+        assertThat(saved.getTransactionStatus()).isEqualTo(TransactionStatus.PDNG);
+        assertThatThrownBy(() -> store().saveChanges(original, stale).block())
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(store().saveChanges(saved, saved.toBuilder().build()).block().getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    public void transitionsApplyOnlyFromAllowedSources() {
+        insert(transaction("PR1", "E2E1"));
+
+        R2PTransaction rejected = store().transitionStatus("PR1", TransactionStatus.RJCT,
+                TransactionStatus.RJCT.allowedSources()).block();
+        R2PTransaction again = store().transitionStatus("PR1", TransactionStatus.EXPD,
+                TransactionStatus.EXPD.allowedSources()).block();
+        R2PTransaction unknown = store().transitionStatus("MISSING", TransactionStatus.RJCT,
+                TransactionStatus.RJCT.allowedSources()).block();
+
+        assertThat(rejected.getTransactionStatus()).isEqualTo(TransactionStatus.RJCT);
+        assertThat(rejected.getVersion()).isEqualTo(1L);
+        assertThat(again).isNull();
+        assertThat(unknown).isNull();
+    }
+
+    @Test
+    public void confirmationRequiresTheEndToEndIdAndKeepsOmittedFields() {
+        R2PTransaction pending = transaction("PR1", "E2E1");
+        pending.setMessage("Dinner");
+        insert(pending);
+
+        R2PTransaction mismatched = store().transitionForConfirmation("PR1", "OTHER", TransactionStatus.ACSC,
+                null, null, null, null, TransactionStatus.ACSC.allowedSources()).block();
+        R2PTransaction settled = store().transitionForConfirmation("PR1", "E2E1", TransactionStatus.ACSC,
+                null, new BigDecimal("8.00"), "USD", Json.of("{\"settlementSystem\":\"VISA\"}"),
+                TransactionStatus.ACSC.allowedSources()).block();
+
+        assertThat(mismatched).isNull();
+        assertThat(settled.getTransactionStatus()).isEqualTo(TransactionStatus.ACSC);
+        assertThat(settled.getMessage()).isEqualTo("Dinner");
+        assertThat(settled.getAcceptedAmount()).isEqualByComparingTo("8.00");
+        assertThat(settled.getSettlementDetailsJson().asString()).contains("VISA");
+    }
+
+    @Test
+    public void cancellationAndAmendmentRespectTerminalStatuses() {
+        insert(transaction("PR1", "E2E1"));
+        LocalDate dueDate = LocalDate.now().plusDays(3);
+
+        R2PTransaction amended = store().amendInStatus("PR1", dueDate, null, null, TransactionStatus.nonTerminal())
+                .block();
+        R2PTransaction cancelled = store().transitionForCancellation("PR1", "CUST",
+                TransactionStatus.CNCL.allowedSources()).block();
+        R2PTransaction lateAmendment = store().amendInStatus("PR1", null, BigDecimal.ONE, null,
+                TransactionStatus.nonTerminal()).block();
+
+        assertThat(amended.getDueDate()).isEqualTo(dueDate);
+        assertThat(amended.getRequestedAmount()).isEqualByComparingTo("10.00");
+        assertThat(cancelled.getTransactionStatus()).isEqualTo(TransactionStatus.CNCL);
+        assertThat(cancelled.getCancellationReason()).isEqualTo("CUST");
+        assertThat(lateAmendment).isNull();
+    }
+
+    @Test
+    public void refundsAreCappedByTheAcceptedAmount() {
+        insert(transaction("PR1", "E2E1"));
+        store().transitionForConfirmation("PR1", "E2E1", TransactionStatus.ACSC, null, new BigDecimal("10.00"),
+                "USD", null, TransactionStatus.ACSC.allowedSources()).block();
+
+        R2PTransaction refund = store().insertRefund("PR1", refundId("PR1", 1), "E2E-R1", "MSG", UseCase.P2P.name(),
+                new BigDecimal("6.00")).block();
+        R2PTransaction excessive = store().insertRefund("PR1", refundId("PR1", 2), "E2E-R2", "MSG", UseCase.P2P.name(),
+                new BigDecimal("5.00")).block();
+
+        assertThat(refund.getIsRefund()).isTrue();
+        assertThat(refund.getOriginalPaymentRequestId()).isEqualTo("PR1");
+        assertThat(refund.getCreditorAgentId()).isEqualTo(DEBTOR_AGENT);
+        assertThat(refund.getTransactionStatus()).isEqualTo(TransactionStatus.PDNG);
+        assertThat(excessive).isNull();
+        assertThat(store().findByPaymentRequestId("PR1").block().getRefundedAmount()).isEqualByComparingTo("6.00");
+        assertThat(store().findByPaymentRequestId(refundId("PR1", 2)).block()).isNull();
+    }
+
+    @Test
+    public void refundsWithoutAnAcceptedAmountAreCappedByTheRequestedAmount() {
+        insert(transaction("PR1", "E2E1"));
+        store().transitionStatus("PR1", TransactionStatus.ACSC, TransactionStatus.ACSC.allowedSources()).block();
+
+        R2PTransaction refund = store().insertRefund("PR1", refundId("PR1", 1), "E2E-R1", "MSG", UseCase.P2P.name(),
+                new BigDecimal("10.00")).block();
+        R2PTransaction excessive = store().insertRefund("PR1", refundId("PR1", 2), "E2E-R2", "MSG", UseCase.P2P.name(),
+                new BigDecimal("0.01")).block();
+
+        assertThat(refund).isNotNull();
+        assertThat(excessive).isNull();
+        assertThat(store().findByPaymentRequestId("PR1").block().getRefundedAmount()).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    public void refundsRequireASettledOriginal() {
+        insert(transaction("PR1", "E2E1"));
+
+        assertThat(store().insertRefund("PR1", refundId("PR1", 1), "E2E-R1", "MSG", UseCase.P2P.name(),
+                BigDecimal.ONE).block()).isNull();
+        assertThat(store().insertRefund("MISSING", refundId("MISSING", 2), "E2E-R2", "MSG", UseCase.P2P.name(),
+                BigDecimal.ONE).block()).isNull();
+    }
+
+    @Test
+    public void initiationKeysAreClaimedOncePerCreditorAgent() {
+        List<String> first = store().claimInitiationKeys(CREDITOR_AGENT, List.of("E2E1", "E2E2"), List.of("PR1", "PR2"))
+                .collectList().block();
+        List<String> retry = store().claimInitiationKeys(CREDITOR_AGENT, List.of("E2E1", "E2E3"),
+                List.of("PR1-RETRY", "PR3")).collectList().block();
+        insert(transaction("PR1", "E2E1"));
+
+        assertThat(first).containsExactlyInAnyOrder("PR1", "PR2");
+        assertThat(retry).containsExactly("PR3");
+        assertThat(store().findByInitiationKeys(CREDITOR_AGENT, List.of("E2E1", "E2E2")).collectList().block())
+                .extracting(R2PTransaction::getPaymentRequestId)
+                .containsExactly("PR1");
+        assertThat(Set.copyOf(store().claimInitiationKeys("OTHER_AGENT", List.of("E2E1"), List.of("PR4"))
+                .collectList().block())).containsExactly("PR4");
+    }
+
+    /**
+     * The {@code n}th refund ID for {@code originalId}; engines that place rows by ID may need it beside the
+     * original.
+     */
+    protected String refundId(String originalId, int n) {
+        return "RFD" + n;
+    }
+
+    protected void insert(R2PTransaction transaction) {
+        store().insertAll(List.of(transaction)).blockLast();
+    }
+
+    protected static R2PTransaction transaction(String paymentRequestId, String endToEndId) {
+        LocalDateTime now = LocalDateTime.now();
+        return R2PTransaction.builder()
+                .paymentRequestId(paymentRequestId)
+                .endToEndId(endToEndId)
+                .transactionStatus(TransactionStatus.PDNG)
+                .useCase(UseCase.P2P.name())
+                .product(Product.VD.name())
+                .requestedAmount(new BigDecimal("10.00"))
+                .requestedAmountCurrency("USD")
+                .creditorAgentId(CREDITOR_AGENT)
+                .debtorAgentId(DEBTOR_AGENT)
+                .isRefund(false)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+}
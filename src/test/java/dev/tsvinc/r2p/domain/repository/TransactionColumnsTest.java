@@ -0,0 +1,47 @@
+package dev.tsvinc.r2p.domain.repository;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import io.r2dbc.postgresql.codec.Json;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionColumnsTest {
+
+    @Test
+    void reportsOnlyChangedColumns() {
+        R2PTransaction original = R2PTransaction.builder()
+                .id(1L)
+                .paymentRequestId("PR1")
+                .transactionStatus(TransactionStatus.PDNG)
+                .requestedAmount(new BigDecimal("10.00"))
+                .settlementDetailsJson(Json.of("{\"a\":1}"))
+                .version(3L)
+                .build();
+        R2PTransaction modified = original.toBuilder()
+                .creditorAckMessage("Thanks")
+                .creditorAckEmoji(null)
+                .requestedAmount(new BigDecimal("10.0"))
+                .settlementDetailsJson(Json.of("{\"a\":1}"))
+                .version(4L)
+                .build();
+
+        assertThat(TransactionColumns.changed(original, modified)).containsOnlyKeys("creditor_ack_message")
+                .containsEntry("creditor_ack_message", "Thanks");
+    }
+
+    @Test
+    void updateAddressesTheRowByKeyAndVersion() {
+        assertThat(TransactionColumns.updateSql(List.of("creditor_ack_message", "creditor_ack_emoji")))
+                .isEqualTo("UPDATE r2p_transactions SET creditor_ack_message = :creditor_ack_message, " +
+                        "creditor_ack_emoji = :creditor_ack_emoji, updated_at = NOW(), version = version + 1 " +
+                        "WHERE id = :id AND created_at = :createdAt AND version = :version RETURNING *");
+        assertThatThrownBy(() -> TransactionColumns.updateSql(List.of("version")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,170 @@
+package dev.tsvinc.r2p.infrastructure.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tsvinc.r2p.client.dto.request.ReferenceDataRequest;
+import dev.tsvinc.r2p.client.dto.response.ParticipantInfo;
+import dev.tsvinc.r2p.client.dto.response.ReferenceDataResponse;
+import dev.tsvinc.r2p.client.service.R2PWebClientService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReferenceDataCacheTest {
+
+    private static final String KEY_ID = "key-1";
+
+    @TempDir
+    Path directory;
+
+    private R2PWebClientService webClientService;
+
+    @BeforeEach
+    void setUp() {
+        webClientService = mock(R2PWebClientService.class);
+        when(webClientService.generateRequestMessageId()).thenReturn("REFRESH");
+        when(webClientService.getReferenceData(anyString(), any(ReferenceDataRequest.class)))
+                .thenReturn(Mono.just(response("P1")));
+    }
+
+    @Test
+    void concurrentMissesShareOneUpstreamCall() {
+        Sinks.One<ReferenceDataResponse> upstream = Sinks.one();
+        when(webClientService.getReferenceData(anyString(), any(ReferenceDataRequest.class)))
+                .thenReturn(upstream.asMono());
+        ReferenceDataCache cache = cache(Duration.ofMinutes(15), Duration.ofHours(1), null);
+
+        Mono<ReferenceDataResponse> first = cache.get(KEY_ID, request("REQ1", "PARTICIPANTS", "FEATURES")).cache();
+        Mono<ReferenceDataResponse> second = cache.get(KEY_ID, request("REQ2", "FEATURES", "PARTICIPANTS")).cache();
+        first.subscribe();
+        second.subscribe();
+        upstream.tryEmitValue(response("P1"));
+
+        assertThat(first.block().requestMessageId()).isEqualTo("REQ1");
+        assertThat(second.block().requestMessageId()).isEqualTo("REQ2");
+        verify(webClientService, times(1)).getReferenceData(anyString(), any(ReferenceDataRequest.class));
+    }
+
+    @Test
+    void freshEntriesAreServedWithoutCallingVisa() {
+        ReferenceDataCache cache = cache(Duration.ofMinutes(15), Duration.ofHours(1), null);
+
+        cache.get(KEY_ID, request("REQ1", "PARTICIPANTS")).block();
+        cache.get(KEY_ID, request("REQ2", "PARTICIPANTS")).block();
+
+        verify(webClientService, times(1)).getReferenceData(anyString(), any(ReferenceDataRequest.class));
+    }
+
+    @Test
+    void entriesDueForRefreshAreServedWhileTheyRefresh() {
+        ReferenceDataCache cache = cache(Duration.ZERO, Duration.ofHours(1), null);
+        cache.get(KEY_ID, request("REQ1", "PARTICIPANTS")).block();
+        when(webClientService.getReferenceData(anyString(), any(ReferenceDataRequest.class)))
+                .thenReturn(Mono.just(response("P2")));
+
+        assertThat(cache.get(KEY_ID, request("REQ2", "PARTICIPANTS")).block().availableParticipants())
+                .extracting(ParticipantInfo::participantId).containsExactly("P1");
+        assertThat(cache.get(KEY_ID, request("REQ3", "PARTICIPANTS")).block().availableParticipants())
+                .extracting(ParticipantInfo::participantId).containsExactly("P2");
+    }
+
+    @Test
+    void expiredEntriesAreServedStaleWhenVisaFails() {
+        ReferenceDataCache cache = cache(Duration.ZERO, Duration.ZERO, null);
+        cache.get(KEY_ID, request("REQ1", "PARTICIPANTS")).block();
+        when(webClientService.getReferenceData(anyString(), any(ReferenceDataRequest.class)))
+                .thenReturn(Mono.error(new IllegalStateException("Visa unavailable")));
+
+        assertThat(cache.get(KEY_ID, request("REQ2", "PARTICIPANTS")).block().availableParticipants())
+                .extracting(ParticipantInfo::participantId).containsExactly("P1");
+
+        ReflectionTestUtils.setField(cache, "maxStale", Duration.ZERO);
+        assertThatThrownBy(() -> cache.get(KEY_ID, request("REQ3", "PARTICIPANTS")).block())
+                .hasMessageContaining("Visa unavailable");
+    }
+
+    @Test
+    void coldStartsServeTheLastSnapshotImmediately() {
+        Path snapshot = directory.resolve("reference-data.json");
+        cache(Duration.ofMinutes(15), Duration.ofHours(1), snapshot).get(KEY_ID, request("REQ1", "PARTICIPANTS")).block();
+        when(webClientService.getReferenceData(anyString(), any(ReferenceDataRequest.class)))
+                .thenReturn(Mono.error(new IllegalStateException("Visa unavailable")));
+
+        ReferenceDataCache restarted = cache(Duration.ofMinutes(15), Duration.ofHours(1), snapshot);
+
+        assertThat(restarted.get(KEY_ID, request("REQ2", "PARTICIPANTS")).block().availableParticipants())
+                .extracting(ParticipantInfo::participantId).containsExactly("P1");
+    }
+
+    @Test
+    void entriesAreNotSharedAcrossKeyIds() {
+        ReferenceDataCache cache = cache(Duration.ZERO, Duration.ofHours(1), null);
+        cache.get(KEY_ID, request("REQ1", "PARTICIPANTS")).block();
+        when(webClientService.getReferenceData(eq("key-2"), any(ReferenceDataRequest.class)))
+                .thenReturn(Mono.just(response("P2")));
+
+        assertThat(cache.get("key-2", request("REQ2", "PARTICIPANTS")).block().availableParticipants())
+                .extracting(ParticipantInfo::participantId).containsExactly("P2");
+        cache.refreshAhead().block();
+        verify(webClientService, times(2)).getReferenceData(eq(KEY_ID), any(ReferenceDataRequest.class));
+        verify(webClientService, times(2)).getReferenceData(eq("key-2"), any(ReferenceDataRequest.class));
+    }
+
+    @Test
+    void concurrentLoadsForDifferentKeysLeaveAReadableSnapshot() throws Exception {
+        Path snapshot = directory.resolve("reference-data.json");
+        ReferenceDataCache cache = cache(Duration.ofMinutes(15), Duration.ofHours(1), snapshot);
+
+        Flux.range(0, 20)
+                .flatMap(i -> cache.get("key-" + i, request("REQ" + i, "PARTICIPANTS"))
+                        .subscribeOn(Schedulers.parallel()))
+                .blockLast();
+
+        assertThat(new ObjectMapper().findAndRegisterModules().readTree(snapshot.toFile()).size()).isEqualTo(20);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).containsExactly(snapshot);
+        }
+    }
+
+    private ReferenceDataCache cache(Duration refreshAfter, Duration ttl, Path snapshot) {
+        ReferenceDataCache cache = new ReferenceDataCache(webClientService,
+                new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "refreshAfter", refreshAfter);
+        ReflectionTestUtils.setField(cache, "ttl", ttl);
+        ReflectionTestUtils.setField(cache, "maxStale", Duration.ofHours(24));
+        ReflectionTestUtils.setField(cache, "snapshotFile", snapshot != null ? snapshot.toString() : "");
+        cache.init();
+        return cache;
+    }
+
+    private static ReferenceDataRequest request(String requestMessageId, String... types) {
+        return new ReferenceDataRequest(List.of(types), requestMessageId, Instant.now().toString());
+    }
+
+    private static ReferenceDataResponse response(String participantId) {
+        return new ReferenceDataResponse(List.of(new ParticipantInfo(participantId, "Participant", List.of())),
+                "REFRESH", "RESP1", Instant.now().toString());
+    }
+}
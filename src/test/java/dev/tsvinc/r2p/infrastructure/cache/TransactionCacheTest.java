@@ -0,0 +1,205 @@
+package dev.tsvinc.r2p.infrastructure.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tsvinc.r2p.config.JacksonConfig;
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionCacheTest {
+
+    private static final String PAYMENT_REQUEST_ID = "PR-1";
+
+    private ReactiveStringRedisTemplate redisTemplate;
+    private ReactiveValueOperations<String, String> valueOperations;
+    private ObjectMapper objectMapper;
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger loads;
+
+    @Captor
+    private ArgumentCaptor<List<String>> scriptArgs;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        valueOperations = mock();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList())).thenReturn(Mono.just(Arrays.asList(null, null)));
+        doReturn(Flux.just(1L)).when(redisTemplate).execute(anyScript(), anyList(), anyList());
+        when(redisTemplate.convertAndSend(anyString(), anyString())).thenReturn(Mono.just(1L));
+        objectMapper = new ObjectMapper().findAndRegisterModules().registerModule(new JacksonConfig().r2dbcJsonModule());
+        meterRegistry = new SimpleMeterRegistry();
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void servesRepeatedReadsFromTheLocalTierAsPrivateCopies() {
+        TransactionCache cache = cache(false);
+
+        R2PTransaction first = cache.get(PAYMENT_REQUEST_ID, this::load).block();
+        first.setTransactionStatus(TransactionStatus.ACSC);
+        R2PTransaction second = cache.get(PAYMENT_REQUEST_ID, this::load).block();
+
+        assertThat(loads).hasValue(1);
+        assertThat(second.getTransactionStatus()).isEqualTo(TransactionStatus.PDNG);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void invalidationForcesAReload() {
+        TransactionCache cache = cache(false);
+        cache.get(PAYMENT_REQUEST_ID, this::load).block();
+
+        cache.invalidate(PAYMENT_REQUEST_ID).block();
+        cache.get(PAYMENT_REQUEST_ID, this::load).block();
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void loadsThatRaceAnInvalidationAreNotCached() {
+        TransactionCache cache = cache(false);
+
+        cache.get(PAYMENT_REQUEST_ID, () -> load().delayUntil(loaded -> cache.invalidate(PAYMENT_REQUEST_ID))).block();
+        cache.get(PAYMENT_REQUEST_ID, this::load).block();
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void absentTransactionsAreNotCached() {
+        TransactionCache cache = cache(false);
+
+        assertThat(cache.get(PAYMENT_REQUEST_ID, Mono::empty).block()).isNull();
+        assertThat(cache.get(PAYMENT_REQUEST_ID, this::load).block()).isNotNull();
+    }
+
+    @Test
+    void localMissesAreServedFromRedis() throws Exception {
+        when(valueOperations.multiGet(anyList()))
+                .thenReturn(Mono.just(Arrays.asList(objectMapper.writeValueAsString(transaction()), null)));
+        TransactionCache cache = cache(true);
+
+        assertThat(cache.get(PAYMENT_REQUEST_ID, this::load).block().getPaymentRequestId()).isEqualTo(PAYMENT_REQUEST_ID);
+        assertThat(loads).hasValue(0);
+        assertThat(meterRegistry.get("r2p.cache.redis.gets").tag("result", "hit").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void redisFailuresFallBackToTheLoader() {
+        when(valueOperations.multiGet(anyList())).thenReturn(Mono.error(new IllegalStateException("Redis down")));
+        TransactionCache cache = cache(true);
+
+        assertThat(cache.get(PAYMENT_REQUEST_ID, this::load).block()).isNotNull();
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("r2p.cache.redis.gets").tag("result", "error").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void loadsAreWrittenToRedisOnlyUnderTheGenerationReadBeforeTheLoad() {
+        when(valueOperations.multiGet(anyList())).thenReturn(Mono.just(Arrays.asList(null, "7")));
+        TransactionCache cache = cache(true);
+
+        cache.get(PAYMENT_REQUEST_ID, this::load).block();
+
+        verify(redisTemplate).execute(anyScript(),
+                eq(List.of("r2p:transaction:" + PAYMENT_REQUEST_ID, "r2p:transaction-generation:" + PAYMENT_REQUEST_ID)),
+                scriptArgs.capture());
+        assertThat(scriptArgs.getValue()).startsWith("7", "0").endsWith("300000");
+    }
+
+    @Test
+    void redisInvalidationBumpsTheGenerationInsteadOfOnlyDeleting() {
+        TransactionCache cache = cache(true);
+
+        cache.invalidate(PAYMENT_REQUEST_ID).block();
+
+        verify(redisTemplate, atLeastOnce()).execute(anyScript(),
+                eq(List.of("r2p:transaction:" + PAYMENT_REQUEST_ID, "r2p:transaction-generation:" + PAYMENT_REQUEST_ID)),
+                eq(List.of("300000")));
+        verify(redisTemplate, never()).delete(anyString());
+    }
+
+    @Test
+    void otherInstancesInvalidationsEvictTheLocalTier() {
+        doReturn(Flux.never()).when(redisTemplate).listenToChannel(anyString());
+        TransactionCache cache = cache(true);
+        cache.listenForInvalidations();
+        cache.get(PAYMENT_REQUEST_ID, this::load).block();
+
+        doReturn(Flux.just(new ReactiveSubscription.ChannelMessage<>("r2p:transaction-invalidations",
+                "other-instance:" + PAYMENT_REQUEST_ID))).when(redisTemplate).listenToChannel(anyString());
+        cache.listenForInvalidations();
+        cache.get(PAYMENT_REQUEST_ID, this::load).block();
+
+        assertThat(loads).hasValue(2);
+        assertThat(meterRegistry.get("r2p.cache.remote.invalidations").counter().count()).isEqualTo(1.0);
+        cache.shutdown();
+    }
+
+    private TransactionCache cache(boolean redisEnabled) {
+        TransactionCache cache = new TransactionCache(redisTemplate, objectMapper, meterRegistry);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "localMaxSize", 100L);
+        ReflectionTestUtils.setField(cache, "localTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(cache, "redisEnabled", redisEnabled);
+        ReflectionTestUtils.setField(cache, "redisTtl", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(cache, "redisTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(cache, "invalidationChannel", "r2p:transaction-invalidations");
+        cache.init();
+        return cache;
+    }
+
+    private Mono<R2PTransaction> load() {
+        return Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return transaction();
+        });
+    }
+
+    private static R2PTransaction transaction() {
+        return R2PTransaction.builder()
+                .id(1L)
+                .paymentRequestId(PAYMENT_REQUEST_ID)
+                .endToEndId("E2E-1")
+                .transactionStatus(TransactionStatus.PDNG)
+                .createdAt(LocalDateTime.now())
+                .version(0L)
+                .build();
+    }
+
+    private static RedisScript<Long> anyScript() {
+        return any();
+    }
+}
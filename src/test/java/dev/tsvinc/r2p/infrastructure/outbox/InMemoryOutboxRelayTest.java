@@ -0,0 +1,154 @@
+package dev.tsvinc.r2p.infrastructure.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.tsvinc.r2p.config.JacksonConfig;
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.Product;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.enums.UseCase;
+import dev.tsvinc.r2p.domain.events.R2PExpiredEvent;
+import dev.tsvinc.r2p.infrastructure.persistence.memory.InMemoryTransactionStore;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryOutboxRelayTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .addModule(new JacksonConfig().r2dbcJsonModule())
+            .build();
+
+    private final InMemoryTransactionStore store = new InMemoryTransactionStore(null);
+    // No database client: every append must be taken by the in-memory store
+    private final EventOutbox eventOutbox = new EventOutbox(null, OBJECT_MAPPER, store, ShardRouting.unsharded());
+    private final List<String> delivered = new ArrayList<>();
+
+    @Test
+    void deliversCommittedEventsInOrderAndAcknowledgesThem() {
+        TransactionalOperator transactional = TransactionalOperator.create(store.transactionManager());
+        eventOutbox.append("PR1", expired("PR1", "AGENT1")).block();
+        eventOutbox.append("PR2", expired("PR2", "AGENT1"))
+                .then(eventOutbox.append("PR2", expired("PR2", "AGENT2")))
+                .as(transactional::transactional)
+                .block();
+        eventOutbox.append("PR3", expired("PR3", "AGENT1"))
+                .then(Mono.error(new IllegalStateException("write failed")))
+                .as(transactional::transactional)
+                .onErrorResume(IllegalStateException.class, e -> Mono.empty())
+                .block();
+
+        relay(this::record).relay().block();
+
+        assertThat(delivered).containsExactly("PR1/AGENT1", "PR2/AGENT1", "PR2/AGENT2");
+        assertThat(store.pendingEvents(null, 10)).isEmpty();
+    }
+
+    @Test
+    void failedEventHoldsBackTheRestOfItsAggregateUntilDeadLettered() {
+        eventOutbox.append("PR1", expired("PR1", "AGENT1")).block();
+        eventOutbox.append("PR1", expired("PR1", "AGENT2")).block();
+        eventOutbox.append("PR2", expired("PR2", "AGENT1")).block();
+        InMemoryOutboxRelay relay = relay(event -> {
+            if (((R2PExpiredEvent) event).agentId().equals("AGENT1")
+                    && ((R2PExpiredEvent) event).transaction().getPaymentRequestId().equals("PR1")) {
+                throw new IllegalStateException("listener down");
+            }
+            record(event);
+        });
+
+        relay.relay().block();
+        assertThat(delivered).containsExactly("PR2/AGENT1");
+        assertThat(store.pendingEvents(null, 10)).extracting(OutboxEvent::aggregateId).containsExactly("PR1", "PR1");
+
+        relay.relay().block();
+        relay.relay().block();
+        assertThat(delivered).containsExactly("PR2/AGENT1", "PR1/AGENT2");
+        assertThat(store.pendingEvents(null, 10)).isEmpty();
+    }
+
+    @Test
+    void failedAggregateIsNotRetriedBeforeItsBackoff() throws InterruptedException {
+        eventOutbox.append("PR1", expired("PR1", "AGENT1")).block();
+        List<String> attempts = new ArrayList<>();
+        InMemoryOutboxRelay relay = relay(event -> {
+            attempts.add(((R2PExpiredEvent) event).agentId());
+            if (attempts.size() == 1) {
+                throw new IllegalStateException("listener down");
+            }
+            record(event);
+        }, Duration.ofMillis(300));
+
+        relay.relay().block();
+        relay.relay().block();
+        assertThat(attempts).hasSize(1);
+
+        Thread.sleep(350);
+        relay.relay().block();
+        assertThat(attempts).hasSize(2);
+        assertThat(delivered).containsExactly("PR1/AGENT1");
+    }
+
+    @Test
+    void backoffDoublesPerFailureUpToTheMaximum() {
+        Duration initial = Duration.ofSeconds(1);
+        Duration max = Duration.ofSeconds(10);
+
+        assertThat(OutboxRelay.backoff(1, initial, max)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(OutboxRelay.backoff(2, initial, max)).isEqualTo(Duration.ofSeconds(2));
+        assertThat(OutboxRelay.backoff(4, initial, max)).isEqualTo(Duration.ofSeconds(8));
+        assertThat(OutboxRelay.backoff(5, initial, max)).isEqualTo(max);
+        assertThat(OutboxRelay.backoff(100, initial, max)).isEqualTo(max);
+    }
+
+    private InMemoryOutboxRelay relay(ApplicationEventPublisher publisher) {
+        return relay(publisher, Duration.ZERO);
+    }
+
+    private InMemoryOutboxRelay relay(ApplicationEventPublisher publisher, Duration backoff) {
+        InMemoryOutboxRelay relay = new InMemoryOutboxRelay(store, publisher, OBJECT_MAPPER, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(relay, "batchSize", 2);
+        ReflectionTestUtils.setField(relay, "maxBatchesPerRun", 10);
+        ReflectionTestUtils.setField(relay, "maxAttempts", 3);
+        ReflectionTestUtils.setField(relay, "initialBackoff", backoff);
+        ReflectionTestUtils.setField(relay, "maxBackoff", backoff.multipliedBy(8));
+        relay.init();
+        return relay;
+    }
+
+    private void record(Object event) {
+        R2PExpiredEvent expired = (R2PExpiredEvent) event;
+        delivered.add(expired.transaction().getPaymentRequestId() + "/" + expired.agentId());
+    }
+
+    private static R2PExpiredEvent expired(String paymentRequestId, String agentId) {
+        LocalDateTime now = LocalDateTime.now();
+        return new R2PExpiredEvent(R2PTransaction.builder()
+                .id(1L)
+                .paymentRequestId(paymentRequestId)
+                .endToEndId("E2E-" + paymentRequestId)
+                .transactionStatus(TransactionStatus.EXPD)
+                .useCase(UseCase.P2P.name())
+                .product(Product.VD.name())
+                .requestedAmount(new BigDecimal("10.00"))
+                .requestedAmountCurrency("USD")
+                .isRefund(false)
+                .createdAt(now)
+                .updatedAt(now)
+                .version(1L)
+                .build(), agentId);
+    }
+}
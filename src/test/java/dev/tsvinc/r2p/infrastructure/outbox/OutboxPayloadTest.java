@@ -0,0 +1,46 @@
+package dev.tsvinc.r2p.infrastructure.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.tsvinc.r2p.api.dto.request.ConfirmR2pRequest;
+import dev.tsvinc.r2p.config.JacksonConfig;
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.events.R2PConfirmationEvent;
+import io.r2dbc.postgresql.codec.Json;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboxPayloadTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .addModule(new JacksonConfig().r2dbcJsonModule())
+            .build();
+
+    @Test
+    void eventsRoundTripIncludingJsonbColumns() throws Exception {
+        R2PTransaction transaction = R2PTransaction.builder()
+                .paymentRequestId("PR1")
+                .transactionStatus(TransactionStatus.ACSC)
+                .dueDate(LocalDate.of(2024, 6, 30))
+                .settlementDetailsJson(Json.of("{\"settlementSystem\": \"VISA_DIRECT\"}"))
+                .createdAt(LocalDateTime.of(2024, 6, 1, 12, 0))
+                .build();
+        ConfirmR2pRequest request = new ConfirmR2pRequest("PR1", "E2E1", "REQMSGID1", TransactionStatus.ACSC,
+                "AS01", "Accepted", new BigDecimal("10.00"), "USD", null, "2024-06-01T12:00:00Z");
+
+        byte[] payload = objectMapper.writeValueAsBytes(new R2PConfirmationEvent(transaction, request));
+        R2PConfirmationEvent restored = objectMapper.readValue(payload, R2PConfirmationEvent.class);
+
+        assertThat(restored.request()).isEqualTo(request);
+        assertThat(restored.transaction().getDueDate()).isEqualTo(transaction.getDueDate());
+        assertThat(objectMapper.readTree(restored.transaction().getSettlementDetailsJson().asString()))
+                .isEqualTo(objectMapper.readTree("{\"settlementSystem\": \"VISA_DIRECT\"}"));
+    }
+}
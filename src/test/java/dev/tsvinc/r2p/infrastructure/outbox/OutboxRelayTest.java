@@ -0,0 +1,232 @@
+package dev.tsvinc.r2p.infrastructure.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.tsvinc.r2p.api.dto.request.ConfirmR2pRequest;
+import dev.tsvinc.r2p.config.JacksonConfig;
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.Product;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.enums.UseCase;
+import dev.tsvinc.r2p.domain.events.R2PConfirmationEvent;
+import dev.tsvinc.r2p.domain.events.R2PExpiredEvent;
+import dev.tsvinc.r2p.domain.repository.PostgresTestDatabase;
+import dev.tsvinc.r2p.infrastructure.persistence.R2dbcTransactionStore;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.postgresql.codec.Json;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers(disabledWithoutDocker = true)
+class OutboxRelayTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .addModule(new JacksonConfig().r2dbcJsonModule())
+            .build();
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    private static PostgresTestDatabase database;
+    private static EventOutbox eventOutbox;
+    private static TransactionalOperator transactionalOperator;
+
+    private final List<Object> delivered = new ArrayList<>();
+
+    @BeforeAll
+    static void setUp() {
+        database = PostgresTestDatabase.connect(POSTGRES);
+        database.migrate().block();
+        eventOutbox = outbox(database);
+        transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(database.connectionFactory()));
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        database.databaseClient().sql("TRUNCATE r2p_event_outbox").then().block();
+        delivered.clear();
+    }
+
+    @Test
+    void deliversEventsInAppendOrderAndDeletesThem() {
+        R2PTransaction transaction = transaction("PR1");
+        eventOutbox.append("PR1", new R2PExpiredEvent(transaction, "AGENT1")).block();
+        eventOutbox.append("PR1", new R2PConfirmationEvent(transaction, confirmation())).block();
+
+        Integer claimed = relay(event -> delivered.add(event)).drainBatch(0).block();
+
+        assertThat(claimed).isEqualTo(2);
+        assertThat(delivered).hasSize(2);
+        assertThat(delivered.get(0)).isInstanceOf(R2PExpiredEvent.class);
+        assertThat(((R2PConfirmationEvent) delivered.get(1)).transaction().getSettlementDetailsJson().asString())
+                .contains("VISA_DIRECT");
+        assertThat(eventOutbox.oldestPendingAgeSeconds().block()).isZero();
+    }
+
+    @Test
+    void failedEventHoldsBackTheRestOfItsAggregate() {
+        eventOutbox.append("PR1", new R2PExpiredEvent(transaction("PR1"), "AGENT1")).block();
+        eventOutbox.append("PR1", new R2PExpiredEvent(transaction("PR1"), "AGENT2")).block();
+        eventOutbox.append("PR2", new R2PExpiredEvent(transaction("PR2"), "AGENT1")).block();
+
+        relay(event -> {
+            R2PExpiredEvent expired = (R2PExpiredEvent) event;
+            if (expired.transaction().getPaymentRequestId().equals("PR1")) {
+                throw new IllegalStateException("listener down");
+            }
+            delivered.add(event);
+        }).drainBatch(0).block();
+
+        assertThat(delivered).hasSize(1);
+        Long pending = database.databaseClient().sql("SELECT COUNT(*) AS pending FROM r2p_event_outbox")
+                .map(row -> row.get("pending", Long.class)).one().block();
+        assertThat(pending).isEqualTo(2);
+    }
+
+    @Test
+    void failedAggregateIsNotClaimedBeforeItsBackoff() throws InterruptedException {
+        eventOutbox.append("PR1", new R2PExpiredEvent(transaction("PR1"), "AGENT1")).block();
+        eventOutbox.append("PR1", new R2PExpiredEvent(transaction("PR1"), "AGENT2")).block();
+        List<String> attempts = new ArrayList<>();
+        OutboxRelay relay = relay(event -> {
+            attempts.add(((R2PExpiredEvent) event).agentId());
+            if (attempts.size() == 1) {
+                throw new IllegalStateException("listener down");
+            }
+            delivered.add(event);
+        });
+        ReflectionTestUtils.setField(relay, "initialBackoff", Duration.ofMillis(500));
+
+        Integer failed = relay.drainBatch(0).block();
+        Integer duringBackoff = relay.drainBatch(0).block();
+        Thread.sleep(600);
+        Integer afterBackoff = relay.drainBatch(0).block();
+
+        assertThat(failed).isEqualTo(2);
+        assertThat(duringBackoff).isZero();
+        assertThat(afterBackoff).isEqualTo(2);
+        assertThat(attempts).containsExactly("AGENT1", "AGENT1", "AGENT2");
+    }
+
+    @Test
+    void leasedAggregatesAreSkippedUntilTheLeaseExpires() throws InterruptedException {
+        eventOutbox.append("PR1", new R2PExpiredEvent(transaction("PR1"), "AGENT1")).block();
+        eventOutbox.append("PR2", new R2PExpiredEvent(transaction("PR2"), "AGENT1")).block();
+        List<OutboxEvent> leased = eventOutbox.claimBatch(1, UUID.randomUUID(), Duration.ofMillis(500))
+                .collectList()
+                .as(transactionalOperator::transactional)
+                .block();
+
+        Integer whileLeased = relay(delivered::add).drainBatch(0).block();
+        Thread.sleep(600);
+        Integer afterExpiry = relay(delivered::add).drainBatch(0).block();
+
+        assertThat(leased).extracting(OutboxEvent::aggregateId).containsExactly("PR1");
+        assertThat(whileLeased).isEqualTo(1);
+        assertThat(afterExpiry).isEqualTo(1);
+        assertThat(delivered).extracting(event -> ((R2PExpiredEvent) event).transaction().getPaymentRequestId())
+                .containsExactly("PR2", "PR1");
+    }
+
+    @Test
+    void listenersRunWithoutHoldingAPooledConnection() {
+        PostgresTestDatabase pooled = PostgresTestDatabase.connectPooled(POSTGRES, 1);
+        EventOutbox pooledOutbox = outbox(pooled);
+        pooledOutbox.append("PR1", new R2PExpiredEvent(transaction("PR1"), "AGENT1")).block();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OutboxRelay relay = relay(pooledOutbox,
+                TransactionalOperator.create(new R2dbcTransactionManager(pooled.connectionFactory())),
+                event -> {
+                    // Would wait forever for the only connection if the claim transaction were still open
+                    delivered.add(pooled.databaseClient().sql("SELECT 1 AS one")
+                            .map(row -> row.get("one", Integer.class))
+                            .one()
+                            .block(Duration.ofSeconds(5)));
+                    sleep(300);
+                }, meterRegistry);
+
+        Integer claimed = relay.drainBatch(0).block(Duration.ofSeconds(10));
+
+        assertThat(claimed).isEqualTo(1);
+        assertThat(delivered).containsExactly(1);
+        assertThat(pooledOutbox.oldestPendingAgeSeconds().block()).isZero();
+        // Lag is taken when the listener returns, not when the batch was claimed
+        assertThat(meterRegistry.get("r2p.outbox.lag").timer().max(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(300);
+    }
+
+    private static EventOutbox outbox(PostgresTestDatabase database) {
+        return new EventOutbox(database.databaseClient(), OBJECT_MAPPER, new R2dbcTransactionStore(
+                database.transactionRepository(), database.entityTemplate(),
+                new R2dbcTransactionManager(database.connectionFactory()), ShardRouting.unsharded()),
+                ShardRouting.unsharded());
+    }
+
+    private static OutboxRelay relay(ApplicationEventPublisher publisher) {
+        return relay(eventOutbox, transactionalOperator, publisher, new SimpleMeterRegistry());
+    }
+
+    private static OutboxRelay relay(EventOutbox outbox, TransactionalOperator operator,
+                                     ApplicationEventPublisher publisher, SimpleMeterRegistry meterRegistry) {
+        OutboxRelay relay = new OutboxRelay(outbox, publisher, OBJECT_MAPPER, operator,
+                ShardRouting.unsharded(), meterRegistry);
+        ReflectionTestUtils.setField(relay, "batchSize", 100);
+        ReflectionTestUtils.setField(relay, "maxAttempts", 3);
+        ReflectionTestUtils.setField(relay, "lease", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(relay, "initialBackoff", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(relay, "maxBackoff", Duration.ofMinutes(5));
+        relay.init();
+        return relay;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ConfirmR2pRequest confirmation() {
+        return new ConfirmR2pRequest("PR1", "E2E-PR1", "REQMSGID1", TransactionStatus.ACSC, "AS01", "Accepted",
+                new BigDecimal("10.00"), "USD", null, "2024-06-01T12:00:00Z");
+    }
+
+    private static R2PTransaction transaction(String paymentRequestId) {
+        LocalDateTime now = LocalDateTime.now();
+        return R2PTransaction.builder()
+                .id(1L)
+                .paymentRequestId(paymentRequestId)
+                .endToEndId("E2E-" + paymentRequestId)
+                .transactionStatus(TransactionStatus.ACSC)
+                .useCase(UseCase.P2P.name())
+                .product(Product.VD.name())
+                .requestedAmount(new BigDecimal("10.00"))
+                .requestedAmountCurrency("USD")
+                .settlementDetailsJson(Json.of("{\"settlementSystem\": \"VISA_DIRECT\"}"))
+                .isRefund(false)
+                .createdAt(now)
+                .updatedAt(now)
+                .version(1L)
+                .build();
+    }
+}
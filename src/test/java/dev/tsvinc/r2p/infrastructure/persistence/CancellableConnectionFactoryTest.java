@@ -0,0 +1,55 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Wrapped;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+class CancellableConnectionFactoryTest {
+
+    private PostgresqlConnection physical;
+    private Connection pooled;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        physical = mock(PostgresqlConnection.class);
+        doReturn(Mono.empty()).when(physical).cancelRequest();
+        doReturn(Mono.empty()).when(physical).close();
+        pooled = mock(Connection.class, withSettings().extraInterfaces(Wrapped.class));
+        doReturn(physical).when((Wrapped<Connection>) pooled).unwrap();
+        doReturn(Mono.empty()).when(pooled).close();
+    }
+
+    @Test
+    void cancelledConnectionsAreCancelledAndClosedBeforeRelease() {
+        QueryCancellation.Handle handle = new QueryCancellation.Handle();
+        handle.cancel();
+
+        Mono.from(new CancellableConnectionFactory.CancellableConnection(pooled, handle).close()).block();
+
+        var order = inOrder(physical, pooled);
+        order.verify(physical).cancelRequest();
+        order.verify(physical).close();
+        order.verify(pooled).close();
+    }
+
+    @Test
+    void connectionsOfUncancelledQueriesGoBackToThePool() {
+        Mono.from(new CancellableConnectionFactory.CancellableConnection(pooled, new QueryCancellation.Handle())
+                .close()).block();
+
+        verify(pooled).close();
+        verify(physical, never()).cancelRequest();
+        verify(physical, never()).close();
+    }
+}
@@ -0,0 +1,82 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import dev.tsvinc.r2p.domain.repository.PostgresTestDatabase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Seeds data through V11, including rows stuck in the default partition and a payment request ID
+ * reused across months, then applies V12 on top of it.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class PaymentRequestIdMigrationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    private static PostgresTestDatabase database;
+    private static long rolledUpBeforeMigration;
+
+    @BeforeAll
+    static void setUp() {
+        database = PostgresTestDatabase.connect(POSTGRES);
+        database.migrate(1, 11).block();
+        // No 2019 partitions exist, so these land in r2p_transactions_default
+        insert("OLD", "2019-05-10 12:00");
+        insert("DUP", "2019-05-11 12:00");
+        insert("DUP", LocalDateTime.now().toString());
+        rolledUpBeforeMigration = scalar("SELECT COALESCE(SUM(transaction_count), 0) AS value FROM r2p_daily_volume");
+        database.migrate(12, Integer.MAX_VALUE).block();
+    }
+
+    @Test
+    void defaultPartitionIsFoldedIntoMonthlyPartitions() {
+        assertThat(scalar("SELECT count(*) AS value FROM pg_class WHERE relname = 'r2p_transactions_default'")).isZero();
+        assertThat(scalar("SELECT count(*) AS value FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE c.relname = 'r2p_transactions_p201905'")).isEqualTo(1);
+        assertThat(scalar("SELECT count(*) AS value FROM r2p_transactions")).isEqualTo(3);
+        // Moving the rows does not run the rollup triggers a second time
+        assertThat(scalar("SELECT COALESCE(SUM(transaction_count), 0) AS value FROM r2p_daily_volume"))
+                .isEqualTo(rolledUpBeforeMigration);
+    }
+
+    @Test
+    void backfillKeepsTheOldestRowForEachPaymentRequestId() {
+        Map<String, Object> registered = database.databaseClient()
+                .sql("SELECT string_agg(payment_request_id || '@' || created_at::DATE, ',' " +
+                        "ORDER BY payment_request_id) AS ids FROM r2p_payment_request_ids")
+                .fetch()
+                .one()
+                .block();
+
+        assertThat(registered).containsEntry("ids", "DUP@2019-05-11,OLD@2019-05-10");
+    }
+
+    private static void insert(String paymentRequestId, String createdAt) {
+        database.databaseClient().sql("INSERT INTO r2p_transactions (payment_request_id, end_to_end_id, " +
+                        "transaction_status, use_case, product, requested_amount, requested_amount_currency, " +
+                        "creditor_agent_id, created_at) " +
+                        "VALUES (:paymentRequestId, :endToEndId, 'PDNG', 'P2P', 'VD', 10.00, 'USD', " +
+                        "'CREDITOR_AGENT', CAST(:createdAt AS TIMESTAMP))")
+                .bind("paymentRequestId", paymentRequestId)
+                .bind("endToEndId", "E2E-" + paymentRequestId)
+                .bind("createdAt", createdAt)
+                .then()
+                .block();
+    }
+
+    private static long scalar(String sql) {
+        return database.databaseClient().sql(sql)
+                .map(row -> row.get("value", Long.class))
+                .one()
+                .block();
+    }
+}
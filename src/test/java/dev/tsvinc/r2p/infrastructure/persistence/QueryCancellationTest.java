@@ -0,0 +1,103 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import dev.tsvinc.r2p.domain.repository.PostgresTestDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against a pool of a single connection, so a query can only get the connection once an abandoned
+ * {@code pg_sleep} has actually stopped on the server.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class QueryCancellationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    private static DatabaseClient databaseClient;
+
+    private SimpleMeterRegistry meterRegistry;
+    private QueryCancellation queryCancellation;
+
+    @BeforeAll
+    static void setUp() {
+        PostgresTestDatabase database = PostgresTestDatabase.connectPooled(POSTGRES, 1);
+        databaseClient = DatabaseClient.create(new CancellableConnectionFactory(database.connectionFactory()));
+    }
+
+    @BeforeEach
+    void createQueryCancellation() {
+        meterRegistry = new SimpleMeterRegistry();
+        queryCancellation = new QueryCancellation(meterRegistry);
+    }
+
+    @Test
+    void cancellingAMarkedQueryStopsItOnTheServerAndFreesTheConnection() throws InterruptedException {
+        Disposable abandoned = queryCancellation.cancellable("sleep", sleep(30)).subscribe();
+        Thread.sleep(500);
+
+        abandoned.dispose();
+
+        assertThat(databaseClient.sql("SELECT 1 AS one").map(row -> row.get("one", Integer.class)).one()
+                .block(Duration.ofSeconds(5))).isEqualTo(1);
+        assertThat(meterRegistry.get("r2p.query.cancellations").tag("query", "sleep").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void cancelledConnectionsAreDiscardedInsteadOfReused() throws InterruptedException {
+        Integer backendBefore = backendPid();
+        Disposable abandoned = queryCancellation.cancellable("sleep", sleep(30)).subscribe();
+        Thread.sleep(500);
+
+        abandoned.dispose();
+        Integer backendAfter = backendPid();
+
+        assertThat(backendAfter).isNotEqualTo(backendBefore);
+        assertThat(databaseClient.sql("SELECT COUNT(*) AS sleeping FROM pg_stat_activity " +
+                        "WHERE query LIKE 'SELECT pg_sleep(30)%' AND state = 'active'")
+                .map(row -> row.get("sleeping", Long.class)).one()
+                .block(Duration.ofSeconds(5))).isZero();
+    }
+
+    @Test
+    void completedQueriesKeepTheirConnection() {
+        Integer backendBefore = backendPid();
+
+        queryCancellation.cancellable("sleep", sleep(0)).block(Duration.ofSeconds(5));
+
+        assertThat(backendPid()).isEqualTo(backendBefore);
+    }
+
+    @Test
+    void completedQueriesAreNotCounted() {
+        assertThat(queryCancellation.cancellable("sleep", sleep(0)).block(Duration.ofSeconds(5))).isEqualTo("done");
+
+        assertThat(meterRegistry.find("r2p.query.cancellations").counter()).isNull();
+    }
+
+    private static Integer backendPid() {
+        return databaseClient.sql("SELECT pg_backend_pid() AS pid")
+                .map(row -> row.get("pid", Integer.class))
+                .one()
+                .block(Duration.ofSeconds(5));
+    }
+
+    private static Mono<String> sleep(int seconds) {
+        return databaseClient.sql("SELECT pg_sleep(" + seconds + ")::text || 'done' AS result")
+                .map(row -> row.get("result", String.class))
+                .one();
+    }
+}
@@ -0,0 +1,73 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.enums.UseCase;
+import dev.tsvinc.r2p.domain.repository.PostgresTestDatabase;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStore;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStoreContract;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers(disabledWithoutDocker = true)
+class R2dbcTransactionStoreTest extends R2PTransactionStoreContract {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    private static PostgresTestDatabase database;
+    private static R2PTransactionStore store;
+
+    @BeforeAll
+    static void setUp() {
+        database = PostgresTestDatabase.connect(POSTGRES);
+        database.migrate().block();
+        store = new R2dbcTransactionStore(database.transactionRepository(), database.entityTemplate(),
+                new R2dbcTransactionManager(database.connectionFactory()), ShardRouting.unsharded());
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        database.truncate().block();
+    }
+
+    @Test
+    void concurrentRefundsNeverOverdrawTheLedger() {
+        insert(transaction("PR1", "E2E1"));
+        store.transitionForConfirmation("PR1", "E2E1", TransactionStatus.ACSC, null, new BigDecimal("10.00"),
+                "USD", null, TransactionStatus.ACSC.allowedSources()).block();
+
+        List<R2PTransaction> refunds = Flux.range(0, 25)
+                .flatMap(i -> store.insertRefund("PR1", "RFD" + i, "E2E-R" + i, "MSG", UseCase.P2P.name(),
+                        BigDecimal.ONE), 25)
+                .collectList()
+                .block();
+
+        BigDecimal refundedRows = database.databaseClient()
+                .sql("SELECT COALESCE(SUM(requested_amount), 0) AS total FROM r2p_transactions " +
+                        "WHERE original_payment_request_id = 'PR1'")
+                .map(row -> row.get("total", BigDecimal.class))
+                .one()
+                .block();
+        assertThat(refunds).hasSize(10);
+        assertThat(store.findByPaymentRequestId("PR1").block().getRefundedAmount()).isEqualByComparingTo("10.00");
+        assertThat(refundedRows).isEqualByComparingTo("10.00");
+    }
+
+    @Override
+    protected R2PTransactionStore store() {
+        return store;
+    }
+}
@@ -0,0 +1,99 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import dev.tsvinc.r2p.domain.repository.PostgresTestDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two independent Postgres instances stand in for a primary and a streaming replica; each reports
+ * its own role so the test can observe where a query was routed.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ReadRoutingConnectionFactoryTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> PRIMARY = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    @Container
+    private static final PostgreSQLContainer<?> REPLICA = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    private static ReadRoutingConnectionFactory connectionFactory;
+    private static DatabaseClient databaseClient;
+
+    @BeforeAll
+    static void setUp() {
+        PostgresTestDatabase primary = PostgresTestDatabase.connect(PRIMARY);
+        PostgresTestDatabase replica = PostgresTestDatabase.connect(REPLICA);
+        recordRole(primary.databaseClient(), "primary");
+        recordRole(replica.databaseClient(), "replica");
+
+        connectionFactory = new ReadRoutingConnectionFactory(primary.connectionFactory(),
+                List.of(replica.connectionFactory()), new SimpleMeterRegistry());
+        databaseClient = DatabaseClient.create(connectionFactory);
+    }
+
+    @Test
+    void unmarkedQueriesRunOnThePrimary() {
+        assertThat(role().block()).isEqualTo("primary");
+    }
+
+    @Test
+    void readOnlyQueriesRunOnTheReplica() {
+        ReadRouting readRouting = new ReadRouting(true, Duration.ofSeconds(5));
+
+        assertThat(readRouting.read(role()).block()).isEqualTo("replica");
+    }
+
+    @Test
+    void readOnlyQueriesInsideATransactionStayOnThePrimary() {
+        ReadRouting readRouting = new ReadRouting(true, Duration.ofSeconds(5));
+        TransactionalOperator transactionalOperator =
+                TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+
+        assertThat(readRouting.read(role()).as(transactionalOperator::transactional).block()).isEqualTo("primary");
+    }
+
+    @Test
+    void recentlyWrittenPaymentRequestsAreReadFromThePrimaryUntilTheWindowPasses() throws InterruptedException {
+        ReadRouting readRouting = new ReadRouting(true, Duration.ofMillis(300));
+        readRouting.recordWrite("PR1");
+
+        assertThat(readRouting.read("PR1", role()).block()).isEqualTo("primary");
+        assertThat(readRouting.read("PR2", role()).block()).isEqualTo("replica");
+
+        Thread.sleep(400);
+        assertThat(readRouting.read("PR1", role()).block()).isEqualTo("replica");
+    }
+
+    @Test
+    void disabledRoutingLeavesEveryQueryOnThePrimary() {
+        ReadRouting readRouting = new ReadRouting(false, Duration.ofSeconds(5));
+
+        assertThat(readRouting.read(role()).block()).isEqualTo("primary");
+    }
+
+    private static Mono<String> role() {
+        return databaseClient.sql("SELECT name FROM node_role")
+                .map(row -> row.get("name", String.class))
+                .one();
+    }
+
+    private static void recordRole(DatabaseClient client, String role) {
+        client.sql("CREATE TABLE node_role (name TEXT NOT NULL)").then()
+                .then(client.sql("INSERT INTO node_role VALUES (:name)").bind("name", role).then())
+                .block();
+    }
+}
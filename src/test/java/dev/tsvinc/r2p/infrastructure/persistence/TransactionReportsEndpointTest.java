@@ -0,0 +1,47 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import dev.tsvinc.r2p.domain.repository.SettlementSystemSummary;
+import dev.tsvinc.r2p.infrastructure.persistence.rollup.DailyVolume;
+import dev.tsvinc.r2p.infrastructure.persistence.rollup.DailyVolumeRollupService;
+import dev.tsvinc.r2p.service.R2PTransactionService;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TransactionReportsEndpointTest {
+
+    private final R2PTransactionService transactionService = mock(R2PTransactionService.class);
+    private final DailyVolumeRollupService rollupService = mock(DailyVolumeRollupService.class);
+    private final TransactionReportsEndpoint endpoint = new TransactionReportsEndpoint(transactionService, rollupService);
+
+    @Test
+    void settlementSystemsReportsAggregatesOfTheRange() {
+        SettlementSystemSummary summary = new SettlementSystemSummary("VISA_DIRECT", "USD", 3L, new BigDecimal("30.00"));
+        when(transactionService.summarizeBySettlementSystem(
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0)))
+                .thenReturn(Flux.just(summary));
+
+        List<SettlementSystemSummary> report = endpoint.settlementSystems("2024-01-01T00:00:00", "2024-02-01T00:00:00").block();
+
+        assertThat(report).containsExactly(summary);
+    }
+
+    @Test
+    void dailyVolumeReportsRollupBucketsOfTheRange() {
+        LocalDate day = LocalDate.of(2024, 1, 15);
+        DailyVolume bucket = new DailyVolume(day, "AGENT1", "USD", "ACSC", 12L, new BigDecimal("120.00"), new BigDecimal("118.00"));
+        when(rollupService.findDailyVolume(day, day.plusDays(1), "AGENT1", null)).thenReturn(Flux.just(bucket));
+
+        List<DailyVolume> report = endpoint.dailyVolume("2024-01-15", "2024-01-16", "AGENT1", null).block();
+
+        assertThat(report).containsExactly(bucket);
+    }
+}
@@ -0,0 +1,155 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.Product;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.enums.UseCase;
+import dev.tsvinc.r2p.domain.events.TransactionStatusChange;
+import dev.tsvinc.r2p.domain.repository.PostgresTestDatabase;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionRepository;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.Disposable;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers(disabledWithoutDocker = true)
+class TransactionStatusChangeFeedTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    private static PostgresTestDatabase database;
+    private static R2PTransactionRepository repository;
+
+    @BeforeAll
+    static void setUp() {
+        database = PostgresTestDatabase.connect(POSTGRES);
+        database.migrate().block();
+        repository = database.transactionRepository();
+    }
+
+    @Test
+    void statusTransitionsArePublishedToSubscribers() throws InterruptedException {
+        TransactionStatusChangeFeed feed = feed();
+        List<TransactionStatusChange> received = new CopyOnWriteArrayList<>();
+        Disposable subscription = feed.changes().subscribe(received::add);
+        try {
+            Thread.sleep(500);
+            R2PTransaction transaction = repository.save(transaction()).block();
+            repository.transitionStatus(transaction.getPaymentRequestId(), "ACSC",
+                    TransactionStatus.names(TransactionStatus.ACSC.allowedSources())).block();
+
+            awaitSize(received, 2);
+            assertThat(received).extracting(TransactionStatusChange::status)
+                    .containsExactly(TransactionStatus.PDNG, TransactionStatus.ACSC);
+            assertThat(received.get(1).previousStatus()).isEqualTo(TransactionStatus.PDNG);
+            assertThat(received.get(1).creditorAgentId()).isEqualTo("CREDITOR_AGENT");
+            assertThat(received.get(1).debtorAgentId()).isEqualTo("DEBTOR_AGENT");
+        } finally {
+            subscription.dispose();
+        }
+    }
+
+    @Test
+    void replayIsServedByAnUpdatedAtIndexOnEveryPartition() {
+        Long partitionsWithoutIndex = database.databaseClient()
+                .sql("SELECT COUNT(*) AS missing FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'r2p_transactions'::regclass AND NOT EXISTS (" +
+                        "SELECT 1 FROM pg_index x JOIN pg_attribute a " +
+                        "ON a.attrelid = x.indrelid AND a.attnum = x.indkey[0] " +
+                        "WHERE x.indrelid = c.oid AND a.attname = 'updated_at')")
+                .map(row -> row.get("missing", Long.class))
+                .one()
+                .block();
+
+        assertThat(partitionsWithoutIndex).isZero();
+    }
+
+    @Test
+    void changesCommittedWhileDisconnectedAreReplayed() throws InterruptedException {
+        TransactionStatusChangeFeed feed = feed();
+        List<TransactionStatusChange> received = new CopyOnWriteArrayList<>();
+        Disposable subscription = feed.changes().subscribe(received::add);
+        try {
+            Thread.sleep(500);
+            database.databaseClient().sql("SELECT pg_terminate_backend(pid) FROM pg_stat_activity " +
+                    "WHERE pid <> pg_backend_pid() AND datname = current_database()").then().block();
+            R2PTransaction transaction = repository.save(transaction()).block();
+
+            awaitSize(received, 1);
+            assertThat(received).extracting(TransactionStatusChange::paymentRequestId)
+                    .contains(transaction.getPaymentRequestId());
+        } finally {
+            subscription.dispose();
+        }
+    }
+
+    @Test
+    void listenConnectionStopsListeningBeforeReturningToThePool() throws InterruptedException {
+        PostgresTestDatabase pooled = PostgresTestDatabase.connectPooled(POSTGRES, 1);
+        TransactionStatusChangeFeed feed = feed(pooled);
+        Disposable subscription = feed.changes().subscribe();
+        Thread.sleep(500);
+        subscription.dispose();
+
+        // The pool's only connection is the one the feed listened on
+        Long channels = pooled.databaseClient()
+                .sql("SELECT COUNT(*) AS channels FROM pg_listening_channels()")
+                .map(row -> row.get("channels", Long.class))
+                .one()
+                .block(Duration.ofSeconds(10));
+
+        assertThat(channels).isZero();
+    }
+
+    private static TransactionStatusChangeFeed feed() {
+        return feed(database);
+    }
+
+    private static TransactionStatusChangeFeed feed(PostgresTestDatabase target) {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        return new TransactionStatusChangeFeed(target.connectionFactory(), ShardRouting.unsharded(), objectMapper,
+                new SimpleMeterRegistry(),
+                Duration.ofSeconds(1), Duration.ofSeconds(5), 90, 1_000);
+    }
+
+    private static void awaitSize(List<?> list, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(15).toNanos();
+        while (list.size() < size && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    private static R2PTransaction transaction() {
+        return R2PTransaction.builder()
+                .paymentRequestId(UUID.randomUUID().toString().substring(0, 21))
+                .endToEndId("E2E")
+                .transactionStatus(TransactionStatus.PDNG)
+                .useCase(UseCase.P2P.name())
+                .product(Product.VD.name())
+                .requestedAmount(new BigDecimal("10.00"))
+                .requestedAmountCurrency("UAH")
+                .creditorAgentId("CREDITOR_AGENT")
+                .debtorAgentId("DEBTOR_AGENT")
+                .isRefund(false)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+}
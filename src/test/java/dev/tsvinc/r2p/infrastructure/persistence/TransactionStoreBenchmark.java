@@ -0,0 +1,197 @@
+package dev.tsvinc.r2p.infrastructure.persistence;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.Product;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.enums.UseCase;
+import dev.tsvinc.r2p.domain.repository.PostgresTestDatabase;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionRepository;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStore;
+import dev.tsvinc.r2p.infrastructure.persistence.jdbc.JdbcTransactionStore;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import io.r2dbc.pool.ConnectionPool;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the confirmation/notification mix of {@code RequestToPayOutboundService} against the R2DBC and the
+ * JDBC-on-virtual-threads {@link R2PTransactionStore} with equally sized pools, and reports latency
+ * percentiles, throughput and connection usage per engine. Not matched by the default surefire includes;
+ * run explicitly with {@code mvn test -Dtest=TransactionStoreBenchmark}.
+ */
+@Slf4j
+@Testcontainers(disabledWithoutDocker = true)
+class TransactionStoreBenchmark {
+
+    private static final int POOL_SIZE = 10;
+    private static final int CONCURRENCY = 64;
+    private static final int OPERATIONS = 8_000;
+    private static final int ROUNDS = 3;
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    private static PostgresTestDatabase database;
+    private static R2PTransactionRepository repository;
+    private static ConnectionPool r2dbcPool;
+    private static HikariDataSource hikari;
+    private static R2PTransactionStore r2dbcStore;
+    private static JdbcTransactionStore jdbcStore;
+
+    @BeforeAll
+    static void setUp() {
+        database = PostgresTestDatabase.connectPooled(POSTGRES, POOL_SIZE);
+        database.migrate().block();
+        repository = database.transactionRepository();
+        r2dbcPool = (ConnectionPool) database.connectionFactory();
+        r2dbcStore = new R2dbcTransactionStore(repository, database.entityTemplate(),
+                new R2dbcTransactionManager(r2dbcPool), ShardRouting.unsharded());
+
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(POSTGRES.getJdbcUrl());
+        config.setUsername(POSTGRES.getUsername());
+        config.setPassword(POSTGRES.getPassword());
+        config.setMaximumPoolSize(POOL_SIZE);
+        config.setMinimumIdle(POOL_SIZE);
+        hikari = new HikariDataSource(config);
+        jdbcStore = new JdbcTransactionStore(hikari);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        jdbcStore.destroy();
+        r2dbcPool.dispose();
+    }
+
+    @Test
+    void compareEnginesUnderConfirmationAndNotificationMix() {
+        IntSupplier r2dbcActive = () -> r2dbcPool.getMetrics().orElseThrow().acquiredSize();
+        IntSupplier jdbcActive = () -> hikari.getHikariPoolMXBean().getActiveConnections();
+
+        // Warm up both pools, drivers and statement caches
+        run(r2dbcStore, r2dbcActive, 500);
+        run(jdbcStore, jdbcActive, 500);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            Result r2dbc = run(r2dbcStore, r2dbcActive, OPERATIONS);
+            Result jdbc = run(jdbcStore, jdbcActive, OPERATIONS);
+            log.info("round {}: r2dbc {}, jdbc {}", round + 1, r2dbc, jdbc);
+
+            assertThat(r2dbc.applied()).isEqualTo(OPERATIONS * 3 / 4);
+            assertThat(jdbc.applied()).isEqualTo(OPERATIONS * 3 / 4);
+            assertThat(r2dbc.peakConnections()).isLessThanOrEqualTo(POOL_SIZE);
+            assertThat(jdbc.peakConnections()).isLessThanOrEqualTo(POOL_SIZE);
+        }
+    }
+
+    /**
+     * Each operation targets its own freshly seeded pending row: half are confirmations, a quarter are
+     * reminder lookups and a quarter are rejection notifications, interleaved.
+     */
+    private static Result run(R2PTransactionStore store, IntSupplier activeConnections, int operations) {
+        database.truncate().block();
+        List<R2PTransaction> rows = repository.insertAll(transactions(operations)).collectList().block();
+
+        long[] latencies = new long[operations];
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicLong samples = new AtomicLong();
+        AtomicLong sampledTotal = new AtomicLong();
+        Disposable sampler = Flux.interval(Duration.ofMillis(2))
+                .subscribe(tick -> {
+                    int active = activeConnections.getAsInt();
+                    peak.accumulateAndGet(active, Math::max);
+                    samples.incrementAndGet();
+                    sampledTotal.addAndGet(active);
+                });
+
+        long start = System.nanoTime();
+        Flux.range(0, operations)
+                .flatMap(i -> Mono.defer(() -> {
+                    long operationStart = System.nanoTime();
+                    return operation(store, rows.get(i), i)
+                            .doOnNext(transaction -> applied.incrementAndGet())
+                            .doOnTerminate(() -> latencies[i] = System.nanoTime() - operationStart);
+                }), CONCURRENCY)
+                .blockLast();
+        long elapsed = System.nanoTime() - start;
+        sampler.dispose();
+
+        Arrays.sort(latencies);
+        return new Result(
+                operations / (elapsed / 1_000_000_000.0),
+                latencies[operations / 2] / 1_000_000.0,
+                latencies[operations * 99 / 100] / 1_000_000.0,
+                applied.get(),
+                peak.get(),
+                samples.get() == 0 ? 0 : (double) sampledTotal.get() / samples.get());
+    }
+
+    private static Mono<R2PTransaction> operation(R2PTransactionStore store, R2PTransaction row, int i) {
+        String paymentRequestId = row.getPaymentRequestId();
+        return switch (i % 4) {
+            case 0, 2 -> store.transitionForConfirmation(paymentRequestId, row.getEndToEndId(),
+                    TransactionStatus.ACSC, "Settled", row.getRequestedAmount(), row.getRequestedAmountCurrency(),
+                    null, TransactionStatus.ACSC.allowedSources());
+            case 1 -> store.findByPaymentRequestId(paymentRequestId).filter(transaction -> false);
+            default -> store.transitionStatus(paymentRequestId, TransactionStatus.RJCT,
+                    TransactionStatus.RJCT.allowedSources());
+        };
+    }
+
+    private static List<R2PTransaction> transactions(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> R2PTransaction.builder()
+                        .paymentRequestId(UUID.randomUUID().toString().substring(0, 21))
+                        .endToEndId("E2E" + i)
+                        .requestMessageId("BENCH")
+                        .transactionStatus(TransactionStatus.PDNG)
+                        .useCase(UseCase.P2P.name())
+                        .product(Product.VD.name())
+                        .requestedAmount(new BigDecimal("10.00"))
+                        .requestedAmountCurrency("UAH")
+                        .creditorAgentId("CREDITOR_AGENT")
+                        .debtorAgentId("DEBTOR_AGENT")
+                        .dueDate(LocalDate.now().plusDays(7))
+                        .isRefund(false)
+                        .createdAt(LocalDateTime.now())
+                        .updatedAt(LocalDateTime.now())
+                        .build())
+                .toList();
+    }
+
+    private record Result(double throughput, double p50Millis, double p99Millis, int applied,
+                          int peakConnections, double meanConnections) {
+
+        @Override
+        public String toString() {
+            return String.format("%.0f ops/s, p50 %.2f ms, p99 %.2f ms, connections peak %d mean %.1f",
+                    throughput, p50Millis, p99Millis, peakConnections, meanConnections);
+        }
+    }
+}
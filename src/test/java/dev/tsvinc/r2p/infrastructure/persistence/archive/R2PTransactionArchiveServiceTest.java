@@ -0,0 +1,132 @@
+package dev.tsvinc.r2p.infrastructure.persistence.archive;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.Product;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.enums.UseCase;
+import dev.tsvinc.r2p.domain.repository.PostgresTestDatabase;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionRepository;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.postgresql.codec.Json;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Testcontainers(disabledWithoutDocker = true)
+class R2PTransactionArchiveServiceTest {
+
+    private static final LocalDateTime MONTH_START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    @TempDir
+    static Path directory;
+
+    private static PostgresTestDatabase database;
+    private static R2PTransactionRepository repository;
+    private static R2PTransactionArchiveService archiveService;
+
+    @BeforeAll
+    static void setUp() {
+        database = PostgresTestDatabase.connect(POSTGRES);
+        database.migrate().block();
+        database.databaseClient().sql("SELECT r2p_create_monthly_partition('2024-01-01')").then().block();
+        repository = database.transactionRepository();
+        archiveService = new R2PTransactionArchiveService(database.databaseClient(),
+                TransactionalOperator.create(new R2dbcTransactionManager(database.connectionFactory())),
+                ShardRouting.unsharded(), new SimpleMeterRegistry(), directory);
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        database.truncate().block();
+    }
+
+    @Test
+    void exportedMonthRestoresIntoAnEmptyTable() {
+        List<R2PTransaction> original = repository.insertAll(transactions(1_500)).collectList().block();
+
+        ArchiveResult exported = archiveService.exportCsv(MONTH_START, MONTH_START.plusMonths(1), "2024-01.csv.gz").block();
+        database.truncate().block();
+        ArchiveResult imported = archiveService.importArchive("2024-01.csv.gz", ArchiveFormat.CSV).block();
+
+        assertThat(exported.rows()).isEqualTo(1_500);
+        assertThat(imported.rows()).isEqualTo(1_500);
+        assertThat(imported.skipped()).isZero();
+        R2PTransaction restored = repository.findByPaymentRequestId(original.getFirst().getPaymentRequestId()).block();
+        assertThat(restored.getId()).isEqualTo(original.getFirst().getId());
+        assertThat(restored.getMessage()).isEqualTo("Dinner, \"split\" evenly");
+        assertThat(restored.getSettlementDetailsJson().asString()).contains("VISA_DIRECT");
+        assertThat(restored.getAcceptedAmount()).isNull();
+    }
+
+    @Test
+    void reimportSkipsRowsThatAlreadyExist() {
+        repository.insertAll(transactions(10)).blockLast();
+        archiveService.exportCsv(MONTH_START, MONTH_START.plusMonths(1), "dupes.csv").block();
+
+        ArchiveResult imported = archiveService.importArchive("dupes.csv", ArchiveFormat.CSV).block();
+
+        assertThat(imported.rows()).isZero();
+        assertThat(imported.skipped()).isEqualTo(10);
+        assertThat(repository.count().block()).isEqualTo(10);
+    }
+
+    @Test
+    void importRecreatesThePartitionOfADroppedMonth() {
+        repository.insertAll(transactions(10)).blockLast();
+        archiveService.exportCsv(MONTH_START, MONTH_START.plusMonths(1), "dropped.csv").block();
+        database.truncate().block();
+        database.databaseClient().sql("DROP TABLE r2p_transactions_p202401").then().block();
+
+        ArchiveResult imported = archiveService.importArchive("dropped.csv", ArchiveFormat.CSV).block();
+
+        assertThat(imported.rows()).isEqualTo(10);
+        assertThat(repository.count().block()).isEqualTo(10);
+    }
+
+    @Test
+    void filesOutsideTheArchiveDirectoryAreRejected() {
+        assertThatThrownBy(() -> archiveService.importArchive("../etc/passwd", ArchiveFormat.CSV).block())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<R2PTransaction> transactions(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> R2PTransaction.builder()
+                        .paymentRequestId(UUID.randomUUID().toString().substring(0, 21))
+                        .endToEndId("E2E" + i)
+                        .transactionStatus(TransactionStatus.ACSC)
+                        .useCase(UseCase.P2P.name())
+                        .product(Product.VD.name())
+                        .requestedAmount(new BigDecimal("10.00"))
+                        .requestedAmountCurrency("UAH")
+                        .creditorAgentId("CREDITOR_AGENT")
+                        .debtorAgentId("DEBTOR_AGENT")
+                        .message("Dinner, \"split\" evenly")
+                        .settlementDetailsJson(Json.of("{\"settlementSystem\": \"VISA_DIRECT\"}"))
+                        .isRefund(false)
+                        .createdAt(MONTH_START.plusMinutes(i))
+                        .updatedAt(MONTH_START.plusMinutes(i))
+                        .build())
+                .toList();
+    }
+}
@@ -0,0 +1,106 @@
+package dev.tsvinc.r2p.infrastructure.persistence.jdbc;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class JdbcReactiveTransactionManagerTest {
+
+    private final DataSource dataSource = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private final Savepoint savepoint = mock(Savepoint.class);
+    private final JdbcReactiveTransactionManager transactionManager =
+            new JdbcReactiveTransactionManager(dataSource, Schedulers.immediate());
+    private final TransactionalOperator transactional = TransactionalOperator.create(transactionManager);
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.setSavepoint()).thenReturn(savepoint);
+    }
+
+    @Test
+    void operationsShareOneConnectionThatCommitsAtTheEnd() throws SQLException {
+        Connection shared = transactionManager.currentConnection()
+                .flatMap(first -> transactionManager.currentConnection().filter(second -> second == first))
+                .as(transactional::transactional)
+                .block();
+
+        assertThat(shared).isSameAs(connection);
+        InOrder order = inOrder(connection);
+        order.verify(connection).setAutoCommit(false);
+        order.verify(connection).commit();
+        order.verify(connection).close();
+        verify(connection, never()).rollback();
+    }
+
+    @Test
+    void failuresRollTheWholeTransactionBack() throws SQLException {
+        assertThatThrownBy(() -> transactionManager.currentConnection()
+                .then(Mono.error(new IllegalStateException("insert failed")))
+                .as(transactional::transactional)
+                .block())
+                .hasMessage("insert failed");
+
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+        verify(connection).close();
+    }
+
+    @Test
+    void nestedTransactionsRollBackOnlyToTheirSavepoint() throws SQLException {
+        TransactionalOperator nested = TransactionalOperator.create(transactionManager,
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_NESTED));
+
+        transactionManager.currentConnection()
+                .then(Mono.error(new IllegalStateException("operation failed"))
+                        .as(nested::transactional)
+                        .onErrorResume(IllegalStateException.class, e -> Mono.empty()))
+                .as(transactional::transactional)
+                .block();
+
+        verify(dataSource).getConnection();
+        verify(connection).rollback(savepoint);
+        verify(connection, never()).rollback();
+        verify(connection).commit();
+    }
+
+    @Test
+    void noConnectionIsBoundOutsideATransaction() throws SQLException {
+        assertThat(transactionManager.currentConnection().block()).isNull();
+
+        verifyNoInteractions(connection);
+        verify(dataSource, never()).getConnection();
+    }
+
+    @Test
+    void connectionsThatCannotStartATransactionAreReturned() throws SQLException {
+        doThrow(new SQLException("broken")).when(connection).setAutoCommit(anyBoolean());
+
+        assertThatThrownBy(() -> Mono.just(1).as(transactional::transactional).block())
+                .hasRootCauseMessage("broken");
+
+        verify(connection).close();
+    }
+}
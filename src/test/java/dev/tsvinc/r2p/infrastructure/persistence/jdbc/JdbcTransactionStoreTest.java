@@ -0,0 +1,103 @@
+package dev.tsvinc.r2p.infrastructure.persistence.jdbc;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import dev.tsvinc.r2p.domain.repository.PostgresTestDatabase;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStore;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStoreContract;
+import io.r2dbc.postgresql.codec.Json;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Testcontainers(disabledWithoutDocker = true)
+class JdbcTransactionStoreTest extends R2PTransactionStoreContract {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    private static PostgresTestDatabase database;
+    private static JdbcTransactionStore store;
+
+    @BeforeAll
+    static void setUp() {
+        database = PostgresTestDatabase.connect(POSTGRES);
+        database.migrate().block();
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(POSTGRES.getJdbcUrl());
+        config.setUsername(POSTGRES.getUsername());
+        config.setPassword(POSTGRES.getPassword());
+        config.setMaximumPoolSize(4);
+        store = new JdbcTransactionStore(new HikariDataSource(config));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        store.destroy();
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        database.truncate().then(database.databaseClient().sql("TRUNCATE r2p_event_outbox").then()).block();
+    }
+
+    @Test
+    void failedInsertReleasesTheInitiationKeysItClaimed() {
+        store.insertAll(List.of(transaction("PR1", "E2E1"))).blockLast();
+        TransactionalOperator transactional = TransactionalOperator.create(store.transactionManager());
+
+        // PR1 already exists, so the insert fails after the key for E2E2 has been claimed
+        assertThatThrownBy(() -> store.claimInitiationKeys("CREDITOR_AGENT", List.of("E2E2"), List.of("PR1"))
+                .thenMany(store.insertAll(List.of(transaction("PR1", "E2E2"))))
+                .as(transactional::transactional)
+                .blockLast())
+                .isInstanceOf(DuplicateKeyException.class);
+
+        assertThat(store.claimInitiationKeys("CREDITOR_AGENT", List.of("E2E2"), List.of("PR2")).collectList().block())
+                .containsExactly("PR2");
+    }
+
+    @Test
+    void outboxAppendsCommitAndRollBackWithTheWrites() {
+        TransactionalOperator transactional = TransactionalOperator.create(store.transactionManager());
+        Json payload = Json.of("{}");
+
+        Boolean appended = store.insertAll(List.of(transaction("PR1", "E2E1")))
+                .then(store.appendEvent("PR1", "Committed", payload))
+                .as(transactional::transactional)
+                .block();
+        assertThatThrownBy(() -> store.insertAll(List.of(transaction("PR2", "E2E2")))
+                .then(store.appendEvent("PR2", "RolledBack", payload))
+                .then(store.insertAll(List.of(transaction("PR1", "E2E1"))).then())
+                .as(transactional::transactional)
+                .block())
+                .isInstanceOf(DuplicateKeyException.class);
+
+        assertThat(appended).isTrue();
+        assertThat(store.findByPaymentRequestId("PR2").block()).isNull();
+        assertThat(database.databaseClient().sql("SELECT aggregate_id FROM r2p_event_outbox")
+                .map(row -> row.get("aggregate_id", String.class))
+                .all()
+                .collectList()
+                .block())
+                .containsExactly("PR1");
+        // Outside a transaction of the store the R2DBC outbox insert takes the event
+        assertThat(store.appendEvent("PR3", "Standalone", payload).block()).isFalse();
+    }
+
+    @Override
+    protected R2PTransactionStore store() {
+        return store;
+    }
+}
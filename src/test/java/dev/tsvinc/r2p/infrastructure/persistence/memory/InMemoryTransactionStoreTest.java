@@ -0,0 +1,280 @@
+package dev.tsvinc.r2p.infrastructure.persistence.memory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tsvinc.r2p.config.JacksonConfig;
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.enums.UseCase;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionFilter;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStore;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStoreContract;
+import dev.tsvinc.r2p.domain.repository.RefundBalance;
+import dev.tsvinc.r2p.infrastructure.outbox.OutboxEvent;
+import io.r2dbc.postgresql.codec.Json;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryTransactionStoreTest extends R2PTransactionStoreContract {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .registerModule(new JacksonConfig().r2dbcJsonModule());
+
+    @TempDir
+    Path directory;
+
+    private InMemoryTransactionStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Override
+    protected R2PTransactionStore store() {
+        return store;
+    }
+
+    @Test
+    void secondaryIndexesFollowChanges() {
+        insert(transaction("PR1", "E2E1"));
+        insert(transaction("PR2", "E2E2"));
+        store.transitionStatus("PR1", TransactionStatus.RJCT, TransactionStatus.RJCT.allowedSources()).block();
+
+        assertThat(store.findByTransactionStatus(TransactionStatus.PDNG).map(R2PTransaction::getPaymentRequestId)
+                .collectList().block()).containsExactly("PR2");
+        assertThat(store.findByTransactionStatus(TransactionStatus.RJCT).map(R2PTransaction::getPaymentRequestId)
+                .collectList().block()).containsExactly("PR1");
+        assertThat(store.findByEndToEndId("E2E2").map(R2PTransaction::getPaymentRequestId).collectList().block())
+                .containsExactly("PR2");
+        assertThat(store.findByAgentId("DEBTOR_AGENT").collectList().block()).hasSize(2);
+    }
+
+    @Test
+    void returnedRowsAreCopies() {
+        insert(transaction("PR1", "E2E1"));
+
+        store.findByPaymentRequestId("PR1").block().setTransactionStatus(TransactionStatus.ACSC);
+
+        assertThat(store.findByPaymentRequestId("PR1").block().getTransactionStatus()).isEqualTo(TransactionStatus.PDNG);
+    }
+
+    @Test
+    void recoversFromChangeLogAfterCrash() throws IOException {
+        insert(transaction("PR1", "E2E1"));
+        store.transitionForConfirmation("PR1", "E2E1", TransactionStatus.ACSC, "Paid", new BigDecimal("10.00"), "USD",
+                Json.of("{\"settlementSystem\":\"VISA\"}"), TransactionStatus.ACSC.allowedSources()).block();
+        store.claimInitiationKeys("CREDITOR_AGENT", List.of("E2E1"), List.of("PR1")).blockLast();
+        // A torn record, as left by a crash mid-append, is ignored
+        Files.write(directory.resolve("changes-0.log"), new byte[]{0, 0, 1, 0, '{'}, StandardOpenOption.APPEND);
+
+        InMemoryTransactionStore recovered = open();
+
+        R2PTransaction transaction = recovered.findByPaymentRequestId("PR1").block();
+        assertThat(transaction.getTransactionStatus()).isEqualTo(TransactionStatus.ACSC);
+        assertThat(transaction.getVersion()).isEqualTo(1L);
+        assertThat(transaction.getSettlementDetailsJson().asString()).contains("VISA");
+        assertThat(recovered.findByInitiationKeys("CREDITOR_AGENT", List.of("E2E1")).collectList().block()).hasSize(1);
+        assertThat(recovered.findByTransactionStatus(TransactionStatus.ACSC).collectList().block()).hasSize(1);
+    }
+
+    @Test
+    void recoversFromSnapshotPlusLaterChanges() {
+        insert(transaction("PR1", "E2E1"));
+        store.snapshot();
+        insert(transaction("PR2", "E2E2"));
+        store.transitionStatus("PR1", TransactionStatus.EXPD, TransactionStatus.EXPD.allowedSources()).block();
+
+        InMemoryTransactionStore recovered = open();
+
+        assertThat(Files.exists(directory.resolve(TransactionJournal.SNAPSHOT_FILE))).isTrue();
+        assertThat(recovered.count()).isEqualTo(2);
+        assertThat(recovered.findByPaymentRequestId("PR1").block().getTransactionStatus())
+                .isEqualTo(TransactionStatus.EXPD);
+        R2PTransaction third = recovered.insertAll(List.of(transaction("PR3", "E2E3"))).blockFirst();
+        assertThat(third.getId()).isGreaterThan(recovered.findByPaymentRequestId("PR2").block().getId());
+    }
+
+    @Test
+    void concurrentTransitionsApplyOnce() {
+        insert(transaction("PR1", "E2E1"));
+
+        List<R2PTransaction> applied = Flux.range(0, 32)
+                .parallel()
+                .flatMap(i -> store.transitionStatus("PR1", i % 2 == 0 ? TransactionStatus.RJCT : TransactionStatus.EXPD,
+                        TransactionStatus.RJCT.allowedSources()))
+                .sequential()
+                .collectList()
+                .block();
+
+        assertThat(applied).hasSize(1);
+        assertThat(store.findByPaymentRequestId("PR1").block().getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void failedInsertReleasesTheInitiationKeysItClaimed() {
+        insert(transaction("PR1", "E2E1"));
+        TransactionalOperator transactional = TransactionalOperator.create(store.transactionManager());
+
+        // PR1 already exists, so the insert fails after the key for E2E2 has been claimed
+        assertThatThrownBy(() -> store.claimInitiationKeys("CREDITOR_AGENT", List.of("E2E2"), List.of("PR1"))
+                .thenMany(store.insertAll(List.of(transaction("PR1", "E2E2"))))
+                .as(transactional::transactional)
+                .blockLast())
+                .isInstanceOf(DuplicateKeyException.class);
+
+        assertThat(store.claimInitiationKeys("CREDITOR_AGENT", List.of("E2E2"), List.of("PR2")).collectList().block())
+                .containsExactly("PR2");
+    }
+
+    @Test
+    void rollbackTakesBackWritesAndOutboxEvents() {
+        insert(transaction("PR1", "E2E1"));
+        TransactionalOperator transactional = TransactionalOperator.create(store.transactionManager());
+        Json payload = Json.of("{}");
+
+        assertThatThrownBy(() -> store.transitionStatus("PR1", TransactionStatus.RJCT, TransactionStatus.RJCT.allowedSources())
+                .thenMany(store.insertAll(List.of(transaction("PR2", "E2E2"))))
+                .then(store.appendEvent("PR1", "RolledBack", payload))
+                .then(store.insertAll(List.of(transaction("PR1", "E2E1"))).then())
+                .as(transactional::transactional)
+                .block())
+                .isInstanceOf(DuplicateKeyException.class);
+        Boolean appended = store.appendEvent("PR1", "Standalone", payload).block();
+
+        R2PTransaction restored = store.findByPaymentRequestId("PR1").block();
+        assertThat(restored.getTransactionStatus()).isEqualTo(TransactionStatus.PDNG);
+        assertThat(restored.getVersion()).isEqualTo(2L);
+        assertThat(store.findByPaymentRequestId("PR2").block()).isNull();
+        assertThat(store.findByTransactionStatus(TransactionStatus.RJCT).collectList().block()).isEmpty();
+        assertThat(appended).isTrue();
+        assertThat(store.pendingEvents(null, 10)).extracting(OutboxEvent::eventType).containsExactly("Standalone");
+    }
+
+    @Test
+    void nestedRollbackTakesBackOnlyItsOwnWrites() {
+        TransactionalOperator transactional = TransactionalOperator.create(store.transactionManager());
+        TransactionalOperator nested = TransactionalOperator.create(store.transactionManager(),
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_NESTED));
+
+        store.insertAll(List.of(transaction("PR1", "E2E1")))
+                .then(store.appendEvent("PR1", "Kept", Json.of("{}")))
+                .then(store.insertAll(List.of(transaction("PR2", "E2E2")))
+                        .then(store.appendEvent("PR2", "Dropped", Json.of("{}")))
+                        .then(Mono.error(new IllegalStateException("operation failed")))
+                        .as(nested::transactional)
+                        .onErrorResume(IllegalStateException.class, e -> Mono.empty()))
+                .as(transactional::transactional)
+                .block();
+
+        assertThat(store.findByPaymentRequestId("PR1").block()).isNotNull();
+        assertThat(store.findByPaymentRequestId("PR2").block()).isNull();
+        assertThat(store.pendingEvents(null, 10)).extracting(OutboxEvent::eventType).containsExactly("Kept");
+    }
+
+    @Test
+    void rollbacksAndDeliveriesSurviveRecovery() {
+        insert(transaction("PR1", "E2E1"));
+        TransactionalOperator transactional = TransactionalOperator.create(store.transactionManager());
+        store.claimInitiationKeys("CREDITOR_AGENT", List.of("E2E2"), List.of("PR2"))
+                .thenMany(store.insertAll(List.of(transaction("PR2", "E2E2"))))
+                .then(store.appendEvent("PR2", "RolledBack", Json.of("{}")))
+                .then(Mono.error(new IllegalStateException("write failed")))
+                .as(transactional::transactional)
+                .onErrorResume(IllegalStateException.class, e -> Mono.empty())
+                .block();
+        store.appendEvent("PR1", "Delivered", Json.of("{}")).block();
+        store.appendEvent("PR1", "Pending", Json.of("{}")).block();
+        store.acknowledgeEvents(List.of(store.pendingEvents(null, 1).getFirst().id()));
+
+        InMemoryTransactionStore recovered = open();
+
+        assertThat(recovered.count()).isEqualTo(1);
+        assertThat(recovered.findByInitiationKeys("CREDITOR_AGENT", List.of("E2E2")).collectList().block()).isEmpty();
+        assertThat(recovered.pendingEvents(null, 10)).extracting(OutboxEvent::eventType).containsExactly("Pending");
+    }
+
+    @Test
+    void pagesFollowCreationOrderForEitherSideOfARequest() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (int i = 0; i < 5; i++) {
+            R2PTransaction transaction = transaction("PR" + i, "E2E" + i);
+            transaction.setCreatedAt(start.plusMinutes(i));
+            transaction.setDebtorAgentId(i % 2 == 0 ? "DEBTOR_AGENT" : "OTHER_AGENT");
+            insert(transaction);
+        }
+        R2PTransactionFilter debtor = new R2PTransactionFilter(Set.of("DEBTOR_AGENT"), null, null, null);
+
+        List<R2PTransaction> first = store.findPageAfter(debtor, null, null, 2).collectList().block();
+        List<R2PTransaction> second = store.findPageAfter(debtor, first.getLast().getCreatedAt(),
+                first.getLast().getId(), 2).collectList().block();
+
+        assertThat(first).extracting(R2PTransaction::getPaymentRequestId).containsExactly("PR0", "PR2");
+        assertThat(second).extracting(R2PTransaction::getPaymentRequestId).containsExactly("PR4");
+        assertThat(store.findPageAfter(R2PTransactionFilter.none(), null, null, 10).count().block()).isEqualTo(5);
+        assertThat(store.findPageAfter(new R2PTransactionFilter(Set.of("CREDITOR_AGENT", "DEBTOR_AGENT"), null, null, null),
+                null, null, 10).count().block()).isEqualTo(5);
+        assertThat(store.findPageAfter(new R2PTransactionFilter(Set.of(), null, null, null), null, null, 10)
+                .count().block()).isZero();
+    }
+
+    @Test
+    void refundBalanceWithoutAnAcceptedAmountRemainsUnderTheRequestedAmount() {
+        insert(transaction("PR1", "E2E1"));
+        store.transitionStatus("PR1", TransactionStatus.ACSC, TransactionStatus.ACSC.allowedSources()).block();
+        store.insertRefund("PR1", "RFD1", "E2E-R1", "MSG", UseCase.P2P.name(), new BigDecimal("4.00")).block();
+
+        RefundBalance balance = store.findRefundBalance("PR1").block();
+
+        assertThat(balance.acceptedAmount()).isNull();
+        assertThat(balance.remainingAmount()).isEqualByComparingTo("6.00");
+    }
+
+    @Test
+    void sweepExpiresOnlyOverduePendingRequests() {
+        R2PTransaction overdue = transaction("PR1", "E2E1");
+        overdue.setDueDate(LocalDate.now().minusDays(1));
+        R2PTransaction dueToday = transaction("PR2", "E2E2");
+        dueToday.setDueDate(LocalDate.now());
+        insert(overdue);
+        insert(dueToday);
+
+        List<R2PTransaction> expired = store.expireDueBatch(LocalDate.now(), LocalDateTime.now().minusDays(90), 10)
+                .collectList().block();
+
+        assertThat(expired).extracting(R2PTransaction::getPaymentRequestId).containsExactly("PR1");
+        assertThat(store.findByPaymentRequestId("PR1").block().getTransactionStatus()).isEqualTo(TransactionStatus.EXPD);
+        assertThat(store.expireDueBatch(LocalDate.now(), LocalDateTime.now().minusDays(90), 10).collectList().block())
+                .isEmpty();
+    }
+
+    private InMemoryTransactionStore open() {
+        return new InMemoryTransactionStore(new TransactionJournal(directory, objectMapper, false));
+    }
+}
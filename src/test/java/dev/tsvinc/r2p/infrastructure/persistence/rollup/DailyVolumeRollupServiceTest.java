@@ -0,0 +1,152 @@
+package dev.tsvinc.r2p.infrastructure.persistence.rollup;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.Product;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.enums.UseCase;
+import dev.tsvinc.r2p.domain.repository.PostgresTestDatabase;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionRepository;
+import dev.tsvinc.r2p.infrastructure.persistence.ReadRouting;
+import dev.tsvinc.r2p.infrastructure.persistence.sharding.ShardRouting;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@Testcontainers(disabledWithoutDocker = true)
+class DailyVolumeRollupServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 15);
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    private static PostgresTestDatabase database;
+    private static R2PTransactionRepository repository;
+    private static DailyVolumeRollupService rollupService;
+
+    @BeforeAll
+    static void setUp() {
+        database = PostgresTestDatabase.connect(POSTGRES);
+        database.migrate().block();
+        database.databaseClient().sql("SELECT r2p_create_monthly_partition('2024-01-01')").then().block();
+        repository = database.transactionRepository();
+        rollupService = new DailyVolumeRollupService(database.databaseClient(),
+                TransactionalOperator.create(new R2dbcTransactionManager(database.connectionFactory())),
+                new ReadRouting(false, Duration.ofSeconds(5)), ShardRouting.unsharded(), new SimpleMeterRegistry());
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        database.truncate().block();
+    }
+
+    @Test
+    void insertsAndStatusChangesMoveVolumeBetweenBuckets() {
+        List<R2PTransaction> inserted = repository.insertAll(transactions(5)).collectList().block();
+        repository.transitionStatus(inserted.getFirst().getPaymentRequestId(), "ACSC", new String[]{"PDNG"}).block();
+
+        List<DailyVolume> volume = rollupService.findDailyVolume(DAY, DAY.plusDays(1), null, null).collectList().block();
+
+        assertThat(volume).extracting(DailyVolume::transactionStatus, DailyVolume::transactionCount)
+                .containsExactly(tuple("ACSC", 1L), tuple("PDNG", 4L));
+        assertThat(volume.getLast().totalRequestedAmount()).isEqualByComparingTo("40.00");
+    }
+
+    @Test
+    void rebuildMatchesIncrementallyMaintainedBuckets() {
+        repository.insertAll(transactions(20)).blockLast();
+        List<DailyVolume> incremental = rollupService.findDailyVolume(DAY, DAY.plusDays(1), null, null)
+                .collectList().block();
+
+        List<DailyVolume> rebuilt = rollupService.rebuildDay(DAY).collectList().block();
+
+        assertThat(rebuilt).usingRecursiveFieldByFieldElementComparator().containsExactlyInAnyOrderElementsOf(incremental);
+    }
+
+    @Test
+    void foldingMovesDeltasIntoBucketsWithoutChangingReads() {
+        List<R2PTransaction> inserted = repository.insertAll(transactions(5)).collectList().block();
+        repository.transitionStatus(inserted.getFirst().getPaymentRequestId(), "ACSC", new String[]{"PDNG"}).block();
+        List<DailyVolume> beforeFold = rollupService.findDailyVolume(DAY, DAY.plusDays(1), null, null)
+                .collectList().block();
+
+        // One delta for the batch insert, two for the status change
+        assertThat(rollupService.foldDeltas(0, 1_000).block()).isEqualTo(3);
+        assertThat(rollupService.foldDeltas(0, 1_000).block()).isZero();
+
+        assertThat(rollupService.findDailyVolume(DAY, DAY.plusDays(1), null, null).collectList().block())
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(beforeFold);
+    }
+
+    @Test
+    void concurrentWritersForOneAgentAndDayDoNotWaitOnEachOther() throws InterruptedException {
+        TransactionalOperator transactional =
+                TransactionalOperator.create(new R2dbcTransactionManager(database.connectionFactory()));
+        AtomicBoolean written = new AtomicBoolean();
+        Sinks.Empty<Void> commitFirst = Sinks.empty();
+
+        // The first writer keeps its transaction open after its trigger has recorded the bucket delta
+        Disposable first = transactional.transactional(repository.insertAll(transactions(1)).then()
+                        .doOnSuccess(unused -> written.set(true))
+                        .then(commitFirst.asMono()))
+                .subscribe();
+        for (int i = 0; i < 100 && !written.get(); i++) {
+            Thread.sleep(50);
+        }
+        repository.insertAll(transactions(1)).blockLast(Duration.ofSeconds(5));
+        commitFirst.tryEmitEmpty();
+        for (int i = 0; i < 100 && !first.isDisposed(); i++) {
+            Thread.sleep(50);
+        }
+
+        assertThat(rollupService.findDailyVolume(DAY, DAY.plusDays(1), null, null).collectList().block())
+                .extracting(DailyVolume::transactionCount)
+                .containsExactly(2L);
+    }
+
+    @Test
+    void daysWithoutAnAttachedPartitionAreNotRebuilt() {
+        assertThatThrownBy(() -> rollupService.rebuildDay(LocalDate.of(2001, 1, 1)).blockLast())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<R2PTransaction> transactions(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> R2PTransaction.builder()
+                        .paymentRequestId(UUID.randomUUID().toString().substring(0, 21))
+                        .endToEndId("E2E" + i)
+                        .transactionStatus(TransactionStatus.PDNG)
+                        .useCase(UseCase.P2P.name())
+                        .product(Product.VD.name())
+                        .requestedAmount(new BigDecimal("10.00"))
+                        .requestedAmountCurrency("USD")
+                        .creditorAgentId("CREDITOR_AGENT")
+                        .debtorAgentId("DEBTOR_AGENT")
+                        .isRefund(false)
+                        .createdAt(DAY.atTime(10, i))
+                        .updatedAt(DAY.atTime(10, i))
+                        .build())
+                .toList();
+    }
+}
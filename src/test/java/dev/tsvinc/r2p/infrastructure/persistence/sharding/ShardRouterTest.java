@@ -0,0 +1,52 @@
+package dev.tsvinc.r2p.infrastructure.persistence.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardRouterTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void spreadsKeysEvenlyAcrossShards() {
+        ShardRouter router = new ShardRouter(4);
+        int[] counts = new int[4];
+        for (int i = 0; i < KEYS; i++) {
+            counts[router.shardFor("PR" + i)]++;
+        }
+        for (int count : counts) {
+            assertThat(count).isBetween(KEYS / 4 * 95 / 100, KEYS / 4 * 105 / 100);
+        }
+    }
+
+    @Test
+    void addingAShardOnlyMovesKeysOntoTheNewShard() {
+        ShardRouter before = new ShardRouter(3);
+        ShardRouter after = new ShardRouter(4);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "PR" + i;
+            int from = before.shardFor(key);
+            int to = after.shardFor(key);
+            if (from != to) {
+                assertThat(to).isEqualTo(3);
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(KEYS / 4 * 95 / 100, KEYS / 4 * 105 / 100);
+    }
+
+    @Test
+    void routingIsStableAcrossInstances() {
+        assertThat(new ShardRouter(8).shardFor("PR-42")).isEqualTo(new ShardRouter(8).shardFor("PR-42"));
+        assertThat(ShardRouter.hash("PR-42")).isEqualTo(ShardRouter.hash("PR-42"));
+        assertThat(new ShardRouter(1).shardFor("anything")).isZero();
+    }
+
+    @Test
+    void rejectsEmptyShardSets() {
+        assertThatThrownBy(() -> new ShardRouter(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,216 @@
+package dev.tsvinc.r2p.infrastructure.persistence.sharding;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import dev.tsvinc.r2p.domain.enums.UseCase;
+import dev.tsvinc.r2p.domain.repository.PostgresTestDatabase;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionFilter;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStore;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStoreContract;
+import dev.tsvinc.r2p.infrastructure.persistence.R2dbcTransactionReader;
+import dev.tsvinc.r2p.infrastructure.persistence.R2dbcTransactionStore;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Testcontainers(disabledWithoutDocker = true)
+class ShardedTransactionStoreTest extends R2PTransactionStoreContract {
+
+    private static final String CREDITOR_AGENT = "CREDITOR_AGENT";
+
+    @Container
+    private static final PostgreSQLContainer<?> SHARD_0 = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    @Container
+    private static final PostgreSQLContainer<?> SHARD_1 = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    @Container
+    private static final PostgreSQLContainer<?> SHARD_2 = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    private static final List<PostgresTestDatabase> databases = new ArrayList<>();
+    private static final AtomicInteger refundDraws = new AtomicInteger();
+    private static Sharded sharded;
+
+    /**
+     * The store and what it is wired from, over the first {@code shardCount} databases.
+     */
+    private record Sharded(ShardRouting routing,
+                           PostgresTestDatabase database,
+                           R2dbcTransactionManager transactionManager,
+                           R2PTransactionStore store) {
+
+        static Sharded over(int shardCount, int previousShardCount) {
+            List<ConnectionFactory> shards = databases.subList(0, shardCount).stream()
+                    .map(PostgresTestDatabase::connectionFactory)
+                    .toList();
+            ShardRoutingConnectionFactory connectionFactory = new ShardRoutingConnectionFactory(shards);
+            PostgresTestDatabase database = PostgresTestDatabase.over(connectionFactory);
+            R2dbcTransactionManager transactionManager = new R2dbcTransactionManager(connectionFactory);
+            ShardRouting routing = new ShardRouting(shardCount, previousShardCount, database.databaseClient(),
+                    transactionManager);
+            return new Sharded(routing, database, transactionManager, new R2dbcTransactionStore(
+                    database.transactionRepository(), database.entityTemplate(), transactionManager, routing));
+        }
+
+        ShardRebalancer rebalancer() {
+            return new ShardRebalancer(routing, database.databaseClient(), database.transactionRepository(),
+                    TransactionalOperator.create(transactionManager));
+        }
+    }
+
+    @BeforeAll
+    static void setUp() {
+        for (PostgreSQLContainer<?> container : List.of(SHARD_0, SHARD_1, SHARD_2)) {
+            PostgresTestDatabase database = PostgresTestDatabase.connect(container);
+            database.migrate().block();
+            databases.add(database);
+        }
+        sharded = Sharded.over(3, 0);
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        Flux.fromIterable(databases).concatMap(PostgresTestDatabase::truncate).blockLast();
+    }
+
+    @Override
+    protected R2PTransactionStore store() {
+        return sharded.store();
+    }
+
+    @Override
+    protected String refundId(String originalId, int n) {
+        return sharded.routing().colocatedId(originalId, () -> "RFD" + n + "-" + refundDraws.incrementAndGet());
+    }
+
+    @Test
+    void sqlShardFunctionMatchesTheRouter() {
+        List<String> keys = IntStream.range(0, 500).mapToObj(i -> "PR" + i).toList();
+        for (int shardCount = 2; shardCount <= 5; shardCount++) {
+            ShardRouter router = new ShardRouter(shardCount);
+            List<Integer> expected = keys.stream().map(router::shardFor).toList();
+
+            List<Integer> actual = databases.getFirst().databaseClient()
+                    .sql("SELECT r2p_shard_of(key, :shardCount) AS shard " +
+                            "FROM unnest(:keys) WITH ORDINALITY AS k(key, n) ORDER BY n")
+                    .bind("shardCount", shardCount)
+                    .bind("keys", keys.toArray(String[]::new))
+                    .map(row -> row.get("shard", Integer.class))
+                    .all()
+                    .collectList()
+                    .block();
+
+            assertThat(actual).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void rowsAreSpreadAcrossShardsAndPagedInOrder() {
+        LocalDateTime start = LocalDateTime.now().withNano(0);
+        insertAll(sharded.store(), 300, start);
+
+        assertThat(sharded.rebalancer().rowCounts().block().values())
+                .hasSize(3)
+                .allSatisfy(count -> assertThat(count).isBetween(60L, 140L));
+
+        R2dbcTransactionReader reader = new R2dbcTransactionReader(sharded.database().transactionRepository(),
+                sharded.routing());
+        List<R2PTransaction> first = reader.findPageAfter(R2PTransactionFilter.none(), null, null, 150)
+                .collectList().block();
+        R2PTransaction last = first.getLast();
+        List<R2PTransaction> second = reader.findPageAfter(R2PTransactionFilter.none(), last.getCreatedAt(),
+                last.getId(), 150).collectList().block();
+
+        List<R2PTransaction> pages = new ArrayList<>(first);
+        pages.addAll(second);
+        assertThat(pages)
+                .extracting(R2PTransaction::getPaymentRequestId)
+                .containsExactlyElementsOf(IntStream.range(0, 300).mapToObj(i -> "PR" + i).toList());
+        assertThat(pages).isSortedAccordingTo(Comparator.comparing(R2PTransaction::getCreatedAt)
+                .thenComparing(R2PTransaction::getId));
+    }
+
+    @Test
+    void refundsMustBeColocatedWithTheirOriginal() {
+        insert(transaction("PR1", "E2E1"));
+        store().transitionForConfirmation("PR1", "E2E1", TransactionStatus.ACSC, null, new BigDecimal("10.00"),
+                "USD", null, TransactionStatus.ACSC.allowedSources()).block();
+        String elsewhere = IntStream.range(0, 100)
+                .mapToObj(i -> "RFD-X" + i)
+                .filter(id -> !sharded.routing().isColocated(id, "PR1"))
+                .findFirst()
+                .orElseThrow();
+
+        assertThatThrownBy(() -> store().insertRefund("PR1", elsewhere, "E2E-R1", "MSG", UseCase.P2P.name(),
+                BigDecimal.ONE).block())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void transactionsCannotReachAnotherShard() {
+        ShardRouting routing = sharded.routing();
+        TransactionalOperator transactions = TransactionalOperator.create(sharded.transactionManager());
+
+        assertThatThrownBy(() -> routing.onShard(0, routing.onShard(1, sharded.database().databaseClient()
+                                .sql("SELECT 1").fetch().first())
+                        .as(transactions::transactional))
+                .block())
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void addingAShardKeepsRowsReachableAndRebalanceMovesThem() {
+        Sharded twoShards = Sharded.over(2, 0);
+        insertAll(twoShards.store(), 200, LocalDateTime.now());
+        assertThat(twoShards.store().claimInitiationKeys(CREDITOR_AGENT, List.of("E2E0", "E2E1"),
+                List.of("PR0", "PR1")).collectList().block()).containsExactlyInAnyOrder("PR0", "PR1");
+
+        Sharded growing = Sharded.over(3, 2);
+        IntStream.range(0, 200).forEach(i ->
+                assertThat(growing.store().findByPaymentRequestId("PR" + i).block()).isNotNull());
+        assertThat(growing.store().claimInitiationKeys(CREDITOR_AGENT, List.of("E2E0"), List.of("PR-dup"))
+                .collectList().block()).isEmpty();
+
+        ShardRebalancer.RebalanceReport report = growing.rebalancer().rebalance().block();
+        assertThat(report.transactionsMoved()).isBetween(30L, 110L);
+        assertThat(report.transactionsSkipped()).isZero();
+        assertThat(growing.rebalancer().rebalance().block().transactionsMoved()).isZero();
+
+        IntStream.range(0, 200).forEach(i ->
+                assertThat(store().findByPaymentRequestId("PR" + i).block()).isNotNull());
+        assertThat(store().findByInitiationKeys(CREDITOR_AGENT, List.of("E2E0", "E2E1"))
+                .map(R2PTransaction::getPaymentRequestId).collectList().block())
+                .containsExactlyInAnyOrder("PR0", "PR1");
+        assertThat(sharded.rebalancer().rowCounts().block().values().stream().mapToLong(Long::longValue).sum())
+                .isEqualTo(200);
+    }
+
+    private static void insertAll(R2PTransactionStore target, int count, LocalDateTime start) {
+        target.insertAll(IntStream.range(0, count)
+                        .mapToObj(i -> {
+                            R2PTransaction transaction = transaction("PR" + i, "E2E" + i);
+                            transaction.setCreatedAt(start.plusSeconds(i));
+                            return transaction;
+                        })
+                        .toList())
+                .blockLast();
+    }
+}
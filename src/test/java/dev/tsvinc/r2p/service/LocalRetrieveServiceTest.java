@@ -0,0 +1,119 @@
+package dev.tsvinc.r2p.service;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.enums.TransactionStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LocalRetrieveServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 12, 0);
+    private static final String KEY_ID = "key-1";
+
+    private R2PTransactionService transactionService;
+    private SimpleMeterRegistry meterRegistry;
+    private LocalRetrieveService service;
+
+    @BeforeEach
+    void setUp() {
+        transactionService = mock(R2PTransactionService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new LocalRetrieveService(transactionService,
+                new KeyAgents(Map.of(KEY_ID, "CREDITOR, OTHER")), meterRegistry);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "maxAge", Duration.ofSeconds(30));
+        service.init();
+    }
+
+    @Test
+    void terminalRowsAreAlwaysFresh() {
+        assertThat(service.isFresh(transaction(TransactionStatus.ACSC, NOW.minusDays(30)), NOW)).isTrue();
+    }
+
+    @Test
+    void pendingRowsAreFreshOnlyWithinMaxAge() {
+        assertThat(service.isFresh(transaction(TransactionStatus.PDNG, NOW.minusSeconds(30)), NOW)).isTrue();
+        assertThat(service.isFresh(transaction(TransactionStatus.PDNG, NOW.minusSeconds(31)), NOW)).isFalse();
+    }
+
+    @Test
+    void staleAndMissingRowsFallBack() {
+        when(transactionService.findByPaymentRequestId("PR-1"))
+                .thenReturn(Mono.just(transaction(TransactionStatus.PDNG, LocalDateTime.now().minusMinutes(5))));
+        when(transactionService.findByPaymentRequestId("PR-2")).thenReturn(Mono.empty());
+
+        assertThat(service.findFresh("PR-1", KEY_ID).block()).isNull();
+        assertThat(service.findFresh("PR-2", KEY_ID).block()).isNull();
+        assertThat(meterRegistry.get("r2p.retrieve.local-first.lookups").tag("result", "stale").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("r2p.retrieve.local-first.lookups").tag("result", "absent").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void disabledModeNeverReadsLocally() {
+        ReflectionTestUtils.setField(service, "enabled", false);
+
+        assertThat(service.findFresh("PR-1", KEY_ID).block()).isNull();
+    }
+
+    @Test
+    void rowsAreOnlyServedToKeyIdsActingForOneOfTheirAgents() {
+        R2PTransaction transaction = transaction(TransactionStatus.ACSC, NOW);
+        when(transactionService.findByPaymentRequestId("PR-1")).thenReturn(Mono.just(transaction));
+
+        assertThat(service.findFresh("PR-1", KEY_ID).block()).isSameAs(transaction);
+
+        transaction.setCreditorAgentId("SOMEONE_ELSE");
+        assertThat(service.findFresh("PR-1", KEY_ID).block()).isNull();
+        assertThat(meterRegistry.get("r2p.retrieve.local-first.lookups").tag("result", "foreign").counter().count())
+                .isEqualTo(1.0);
+
+        transaction.setDebtorAgentId("OTHER");
+        assertThat(service.findFresh("PR-1", KEY_ID).block()).isSameAs(transaction);
+    }
+
+    @Test
+    void unmappedKeyIdsNeverReadLocally() {
+        assertThat(service.findFresh("PR-1", "key-2").block()).isNull();
+
+        verify(transactionService, never()).findByPaymentRequestId("PR-1");
+    }
+
+    @Test
+    void eTagsCompareWeakly() {
+        String eTag = LocalRetrieveService.eTag(transaction(TransactionStatus.ACSC, NOW));
+
+        assertThat(eTag).isEqualTo("W/\"PR-1-2\"");
+        assertThat(LocalRetrieveService.matches(List.of("\"PR-1-2\""), eTag)).isTrue();
+        assertThat(LocalRetrieveService.matches(List.of("W/\"PR-1-1\"", " W/\"PR-1-2\""), eTag)).isTrue();
+        assertThat(LocalRetrieveService.matches(List.of("*"), eTag)).isTrue();
+        assertThat(LocalRetrieveService.matches(List.of("W/\"PR-1-1\""), eTag)).isFalse();
+        assertThat(LocalRetrieveService.matches(null, eTag)).isFalse();
+    }
+
+    private static R2PTransaction transaction(TransactionStatus status, LocalDateTime updatedAt) {
+        return R2PTransaction.builder()
+                .paymentRequestId("PR-1")
+                .creditorAgentId("CREDITOR")
+                .debtorAgentId("DEBTOR")
+                .transactionStatus(status)
+                .updatedAt(updatedAt)
+                .version(2L)
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+package dev.tsvinc.r2p.service.concurrency;
+
+import dev.tsvinc.r2p.domain.repository.PostgresTestDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+import reactor.util.function.Tuple3;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * In Postgres a failed statement aborts the whole transaction, so grouped operations only stay
+ * independent if each runs behind its own savepoint.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class GroupCommitterPostgresTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(PostgresTestDatabase.IMAGE);
+
+    private static PostgresTestDatabase database;
+    private GroupCommitter committer;
+
+    @BeforeAll
+    static void setUp() {
+        database = PostgresTestDatabase.connect(POSTGRES);
+        database.databaseClient().sql("CREATE TABLE group_commit_probe (id INT PRIMARY KEY)").then().block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        committer.shutdown();
+    }
+
+    @Test
+    void failingStatementDoesNotAbortTheRestOfTheBatch() {
+        committer = new GroupCommitter(new R2dbcTransactionManager(database.connectionFactory()),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(committer, "enabled", true);
+        ReflectionTestUtils.setField(committer, "windowMs", 200L);
+        ReflectionTestUtils.setField(committer, "maxBatchSize", 64);
+        ReflectionTestUtils.setField(committer, "parallelism", 1);
+        committer.init();
+
+        Tuple3<Signal<Long>, Signal<Long>, Signal<Long>> results = Mono.zip(
+                        committer.submit("PR1", () -> insert(1)).materialize(),
+                        committer.submit("PR1", () -> insert(1)).materialize(),
+                        committer.submit("PR1", () -> insert(3)).materialize())
+                .block(Duration.ofSeconds(10));
+
+        assertThat(results.getT1().get()).isEqualTo(1);
+        assertThat(results.getT2().getThrowable()).isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(results.getT3().get()).isEqualTo(1);
+        List<Integer> committed = database.databaseClient().sql("SELECT id FROM group_commit_probe ORDER BY id")
+                .map(row -> row.get("id", Integer.class))
+                .all()
+                .collectList()
+                .block();
+        assertThat(committed).containsExactly(1, 3);
+    }
+
+    private static Mono<Long> insert(int id) {
+        return database.databaseClient().sql("INSERT INTO group_commit_probe (id) VALUES (:id)")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+}
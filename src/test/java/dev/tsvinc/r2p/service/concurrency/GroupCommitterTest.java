@@ -0,0 +1,143 @@
+package dev.tsvinc.r2p.service.concurrency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GroupCommitterTest {
+
+    private final CountingTransactionManager transactions = new CountingTransactionManager();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private GroupCommitter committer;
+
+    @AfterEach
+    void tearDown() {
+        committer.shutdown();
+    }
+
+    @Test
+    void concurrentSubmissionsShareOneCommitAndKeepTheirOwnResults() {
+        committer = committer(true);
+
+        List<Integer> results = Flux.range(0, 10)
+                .flatMap(i -> committer.submit("PR1", () -> Mono.just(i * 10)))
+                .collectList()
+                .block();
+
+        assertThat(results).containsExactlyInAnyOrder(0, 10, 20, 30, 40, 50, 60, 70, 80, 90);
+        assertThat(transactions.commits).hasValue(1);
+        assertThat(meterRegistry.get("r2p.groupcommit.batch.size").summary().max()).isEqualTo(10);
+    }
+
+    @Test
+    void failingOperationRollsBackToItsSavepointAndOnlyFailsItsOwnCaller() {
+        committer = committer(true);
+        AtomicInteger runs = new AtomicInteger();
+
+        Mono<Object> failing = committer.submit("PR1", () -> Mono.error(new IllegalStateException("boom")));
+        Mono<String> succeeding = committer.submit("PR1", () -> Mono.fromCallable(() -> {
+            runs.incrementAndGet();
+            return "ok";
+        }));
+        Mono<String> empty = committer.submit("PR1", Mono::empty);
+
+        StepVerifier.create(Mono.zip(failing.materialize(), succeeding, empty.materialize()))
+                .assertNext(results -> {
+                    assertThat(results.getT1().getThrowable()).hasMessage("boom");
+                    assertThat(results.getT2()).isEqualTo("ok");
+                    assertThat(results.getT3().isOnComplete()).isTrue();
+                })
+                .verifyComplete();
+        assertThat(runs).hasValue(1);
+        assertThat(transactions.commits).hasValue(1);
+        assertThat(transactions.rollbacks).hasValue(0);
+        assertThat(transactions.savepointRollbacks).hasValue(1);
+        assertThat(meterRegistry.get("r2p.groupcommit.rolled.back").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void failedSharedCommitFailsEveryCaller() {
+        transactions.failCommit = true;
+        committer = committer(true);
+
+        StepVerifier.create(Mono.zip(committer.submit("PR1", () -> Mono.just(1)).materialize(),
+                        committer.submit("PR1", () -> Mono.just(2)).materialize()))
+                .assertNext(results -> {
+                    assertThat(results.getT1().getThrowable()).hasMessage("commit failed");
+                    assertThat(results.getT2().getThrowable()).hasMessage("commit failed");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void disabledStageRunsEachOperationInItsOwnTransaction() {
+        committer = committer(false);
+
+        Flux.range(0, 3).flatMap(i -> committer.submit("PR1", () -> Mono.just(i))).blockLast();
+
+        assertThat(transactions.commits).hasValue(3);
+    }
+
+    private GroupCommitter committer(boolean enabled) {
+        GroupCommitter committer = new GroupCommitter(transactions, meterRegistry);
+        ReflectionTestUtils.setField(committer, "enabled", enabled);
+        ReflectionTestUtils.setField(committer, "windowMs", 100L);
+        ReflectionTestUtils.setField(committer, "maxBatchSize", 64);
+        ReflectionTestUtils.setField(committer, "parallelism", 1);
+        committer.init();
+        return committer;
+    }
+
+    /**
+     * Counts outer commits and rollbacks separately from rollbacks to a savepoint (nested transactions).
+     */
+    private static final class CountingTransactionManager implements ReactiveTransactionManager {
+
+        private final AtomicInteger commits = new AtomicInteger();
+        private final AtomicInteger rollbacks = new AtomicInteger();
+        private final AtomicInteger savepointRollbacks = new AtomicInteger();
+        private volatile boolean failCommit;
+
+        @Override
+        public Mono<ReactiveTransaction> getReactiveTransaction(TransactionDefinition definition) {
+            boolean nested = definition != null
+                    && definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_NESTED;
+            return Mono.just(new Transaction(nested));
+        }
+
+        @Override
+        public Mono<Void> commit(ReactiveTransaction transaction) {
+            return Mono.defer(() -> {
+                if (transaction.isNested()) {
+                    return Mono.empty();
+                }
+                if (failCommit) {
+                    return Mono.error(new IllegalStateException("commit failed"));
+                }
+                commits.incrementAndGet();
+                return Mono.empty();
+            });
+        }
+
+        @Override
+        public Mono<Void> rollback(ReactiveTransaction transaction) {
+            return Mono.fromRunnable(() ->
+                    (transaction.isNested() ? savepointRollbacks : rollbacks).incrementAndGet());
+        }
+    }
+
+    private record Transaction(boolean isNested) implements ReactiveTransaction {
+    }
+}
@@ -0,0 +1,112 @@
+package dev.tsvinc.r2p.service.concurrency;
+
+import dev.tsvinc.r2p.domain.entity.R2PTransaction;
+import dev.tsvinc.r2p.domain.repository.R2PTransactionStore;
+import dev.tsvinc.r2p.exception.R2PBusinessException;
+import dev.tsvinc.r2p.infrastructure.cache.TransactionCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OptimisticUpdateExecutorTest {
+
+    private static final String PAYMENT_REQUEST_ID = "PR-1";
+
+    private R2PTransactionStore repository;
+    private OptimisticUpdateExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(R2PTransactionStore.class);
+        TransactionCache transactionCache = mock(TransactionCache.class);
+        when(transactionCache.get(anyString(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Mono<R2PTransaction>>>getArgument(1).get());
+        when(transactionCache.invalidate(anyString())).thenReturn(Mono.empty());
+        executor = new OptimisticUpdateExecutor(repository, transactionCache, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(executor, "maxAttempts", 3);
+        when(repository.findByPaymentRequestId(PAYMENT_REQUEST_ID))
+                .thenAnswer(invocation -> Mono.just(transaction()));
+    }
+
+    @Test
+    void reappliesMutationToFreshReadAfterConflict() {
+        when(repository.saveChanges(any(R2PTransaction.class), any(R2PTransaction.class)))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("stale")))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+
+        StepVerifier.create(executor.update("tagging", PAYMENT_REQUEST_ID, MergePolicy.REAPPLY, this::tag))
+                .expectNextMatches(tx -> "thanks".equals(tx.getCreditorAckMessage()))
+                .verifyComplete();
+
+        verify(repository, times(2)).findByPaymentRequestId(PAYMENT_REQUEST_ID);
+        verify(repository, times(2)).saveChanges(any(R2PTransaction.class), any(R2PTransaction.class));
+    }
+
+    @Test
+    void skipsWriteWhenMutationIsAlreadyApplied() {
+        StepVerifier.create(executor.update("tagging", PAYMENT_REQUEST_ID, MergePolicy.REAPPLY, tx -> false))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(repository, never()).saveChanges(any(R2PTransaction.class), any(R2PTransaction.class));
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        when(repository.saveChanges(any(R2PTransaction.class), any(R2PTransaction.class)))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("stale")));
+
+        StepVerifier.create(executor.update("tagging", PAYMENT_REQUEST_ID, MergePolicy.REAPPLY, this::tag))
+                .expectError(R2PBusinessException.class)
+                .verify();
+
+        verify(repository, times(3)).saveChanges(any(R2PTransaction.class), any(R2PTransaction.class));
+    }
+
+    @Test
+    void keepExistingReturnsConcurrentWinner() {
+        when(repository.saveChanges(any(R2PTransaction.class), any(R2PTransaction.class)))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("stale")));
+
+        StepVerifier.create(executor.update("tagging", PAYMENT_REQUEST_ID, MergePolicy.KEEP_EXISTING, this::tag))
+                .expectNextMatches(tx -> tx.getCreditorAckMessage() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    void writesTheRowAsReadAlongsideTheMutatedOne() {
+        when(repository.saveChanges(any(R2PTransaction.class), any(R2PTransaction.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+
+        executor.update("tagging", PAYMENT_REQUEST_ID, MergePolicy.REAPPLY, this::tag).block();
+
+        verify(repository).saveChanges(argThat(original -> original.getCreditorAckMessage() == null),
+                argThat(modified -> "thanks".equals(modified.getCreditorAckMessage())));
+    }
+
+    private boolean tag(R2PTransaction transaction) {
+        transaction.setCreditorAckMessage("thanks");
+        return true;
+    }
+
+    private static R2PTransaction transaction() {
+        R2PTransaction transaction = new R2PTransaction();
+        transaction.setPaymentRequestId(PAYMENT_REQUEST_ID);
+        return transaction;
+    }
+}